@@ -0,0 +1,45 @@
+package com.udacity.catpoint.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the image benchmarks with the GC profiler attached, so every result also reports allocation
+ * rate and bytes allocated per operation, and writes the results as JSON for run-to-run comparison.
+ *
+ * From {@code catpoint-parent}:
+ * <pre>
+ * mvn -pl Benchmark -am package
+ * java -jar Benchmark/target/catpoint-benchmarks.jar
+ * </pre>
+ * Standard JMH options are accepted and take precedence, e.g. {@code -rff results/2024-06-01.json} to
+ * choose the output file, {@code -p width=640} to restrict parameters, or a benchmark name regex.
+ */
+public class BenchmarkRunner {
+
+    private static final String DEFAULT_RESULT_FILE = "target/jmh-result.json";
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        OptionsBuilder optionsBuilder = new OptionsBuilder();
+        optionsBuilder.parent(commandLineOptions);
+        if (commandLineOptions.getIncludes().isEmpty()) {
+            optionsBuilder.include(BenchmarkRunner.class.getPackageName() + "\\..*Benchmark");
+        }
+        Options options = optionsBuilder
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(commandLineOptions.getResult().orElse(DEFAULT_RESULT_FILE))
+                .forks(commandLineOptions.getForkCount().orElse(1))
+                .warmupIterations(commandLineOptions.getWarmupIterations().orElse(3))
+                .measurementIterations(commandLineOptions.getMeasurementIterations().orElse(5))
+                .build();
+        new Runner(options).run();
+    }
+}
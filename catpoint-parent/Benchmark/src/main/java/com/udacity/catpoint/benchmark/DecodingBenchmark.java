@@ -0,0 +1,64 @@
+package com.udacity.catpoint.benchmark;
+
+import com.udacity.catpoint.image.processing.ImageDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JPEG decoding cost per frame: a full-size {@code ImageIO.read} against {@link ImageDecoder}
+ * decoding to the 300x225 display size or the 640x480 analysis size with a pooled destination.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DecodingBenchmark {
+
+    @Param({"sample-cat.jpg", "sample-not-cat.jpg"})
+    public String sample;
+
+    @Param({"640", "1280", "2560"})
+    public int width;
+
+    // Display and analysis sizes
+    @Param({"300x225", "640x480"})
+    public String target;
+
+    private byte[] jpegFrame;
+    private ImageDecoder imageDecoder;
+    private int targetWidth;
+    private int targetHeight;
+
+    @Setup
+    public void encodeFrame() {
+        jpegFrame = SampleFrames.toJpeg(SampleFrames.load(sample, width));
+        imageDecoder = new ImageDecoder();
+        String[] targetSize = target.split("x");
+        targetWidth = Integer.parseInt(targetSize[0]);
+        targetHeight = Integer.parseInt(targetSize[1]);
+    }
+
+    @Benchmark
+    public BufferedImage imageIoRead() throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(jpegFrame));
+    }
+
+    @Benchmark
+    public int subsampledDecode() throws IOException {
+        BufferedImage frame = imageDecoder.decode(new ByteArrayInputStream(jpegFrame), targetWidth, targetHeight);
+        int decodedWidth = frame.getWidth();
+        imageDecoder.release(frame);
+        return decodedWidth;
+    }
+}
@@ -0,0 +1,54 @@
+package com.udacity.catpoint.benchmark;
+
+import com.udacity.catpoint.image.service.JpegEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JPEG encoding cost per frame, as paid by {@code AwsImageService} before every upload:
+ * the pooled {@link JpegEncoder} against a plain {@code ImageIO.write}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EncodingBenchmark {
+
+    @Param({"sample-cat.jpg", "sample-not-cat.jpg"})
+    public String sample;
+
+    @Param({"320", "640", "1280"})
+    public int width;
+
+    private BufferedImage frame;
+    private JpegEncoder jpegEncoder;
+
+    @Setup
+    public void loadFrame() {
+        frame = SampleFrames.load(sample, width);
+        jpegEncoder = new JpegEncoder(0.9f);
+    }
+
+    @Benchmark
+    public byte[] pooledJpegEncoder() throws IOException {
+        return jpegEncoder.encode(frame);
+    }
+
+    @Benchmark
+    public byte[] imageIoWrite() throws IOException {
+        ByteArrayOutputStream jpegBytes = new ByteArrayOutputStream();
+        ImageIO.write(frame, "jpg", jpegBytes);
+        return jpegBytes.toByteArray();
+    }
+}
@@ -0,0 +1,81 @@
+package com.udacity.catpoint.benchmark;
+
+import com.udacity.catpoint.image.processing.FramePipeline;
+import com.udacity.catpoint.image.processing.FramePool;
+import com.udacity.catpoint.image.processing.ImageDecoder;
+import com.udacity.catpoint.image.service.LocalImageService;
+import com.udacity.catpoint.image.service.PreprocessingImageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Steady-state cost of one camera frame through decode, pre-processing and local analysis, with every
+ * frame allocated against frames reused from a shared {@link FramePool}. Compare
+ * {@code gc.alloc.rate.norm} (bytes allocated per frame) from the GC profiler between the two.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FramePoolBenchmark {
+
+    private static final int ANALYSIS_DIMENSION = 320;
+
+    @Param({"sample-cat.jpg"})
+    public String sample;
+
+    @Param({"1280", "2560"})
+    public int width;
+
+    private byte[] jpegFrame;
+    private int height;
+    private ImageDecoder allocatingDecoder;
+    private PreprocessingImageService allocatingAnalysis;
+    private ImageDecoder pooledDecoder;
+    private PreprocessingImageService pooledAnalysis;
+
+    @Setup
+    public void createPaths() {
+        BufferedImage frame = SampleFrames.load(sample, width);
+        jpegFrame = SampleFrames.toJpeg(frame);
+        height = frame.getHeight();
+
+        LocalImageService localImageService = new LocalImageService();
+        allocatingDecoder = new ImageDecoder(0);
+        allocatingAnalysis = new PreprocessingImageService(localImageService,
+                FramePipeline.downscaling(ANALYSIS_DIMENSION));
+        FramePool framePool = new FramePool();
+        pooledDecoder = new ImageDecoder(framePool);
+        pooledAnalysis = new PreprocessingImageService(localImageService,
+                FramePipeline.downscaling(ANALYSIS_DIMENSION, framePool));
+    }
+
+    @Benchmark
+    public boolean allocatingFrames() throws IOException {
+        return analyse(allocatingDecoder, allocatingAnalysis);
+    }
+
+    @Benchmark
+    public boolean pooledFrames() throws IOException {
+        return analyse(pooledDecoder, pooledAnalysis);
+    }
+
+    private boolean analyse(ImageDecoder decoder, PreprocessingImageService analysis) throws IOException {
+        BufferedImage frame = decoder.decode(new ByteArrayInputStream(jpegFrame), width, height);
+        try {
+            return analysis.imageContainsCat(frame, 50f);
+        } finally {
+            decoder.release(frame);
+        }
+    }
+}
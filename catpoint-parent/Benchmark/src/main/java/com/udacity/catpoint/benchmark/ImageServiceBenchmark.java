@@ -0,0 +1,86 @@
+package com.udacity.catpoint.benchmark;
+
+import com.udacity.catpoint.image.service.AwsImageService;
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.image.service.ImageService;
+import com.udacity.catpoint.image.service.LocalImageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@code imageContainsCat} cost per frame for each image service. The AWS service talks
+ * to a {@link RekognitionStandInServer} on loopback, so its figures cover encoding, request signing,
+ * HTTP and response parsing but not Rekognition's own processing or internet latency.
+ * Sampled timing reports the latency distribution, not just its mean, in milliseconds per frame;
+ * throughput is reported in frames per second.
+ */
+@State(Scope.Benchmark)
+public class ImageServiceBenchmark {
+
+    private static final float CAT_CONFIDENCE_THRESHOLD = 50.0f;
+
+    @Param({"fake", "local", "aws-stand-in"})
+    public String service;
+
+    @Param({"sample-cat.jpg", "sample-not-cat.jpg"})
+    public String sample;
+
+    @Param({"320", "640", "1280"})
+    public int width;
+
+    private BufferedImage frame;
+    private ImageService imageService;
+    private RekognitionStandInServer standIn;
+    private ExecutorService analysisExecutor;
+
+    @Setup(Level.Trial)
+    public void startService() throws IOException {
+        frame = SampleFrames.load(sample, width);
+        switch (service) {
+            case "fake" -> imageService = new FakeImageService();
+            case "local" -> imageService = new LocalImageService();
+            case "aws-stand-in" -> {
+                standIn = RekognitionStandInServer.start();
+                analysisExecutor = Executors.newCachedThreadPool();
+                imageService = new AwsImageService(standIn.newClient(), analysisExecutor, 4);
+            }
+            default -> throw new IllegalArgumentException("Unknown image service: " + service);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopService() {
+        if (standIn != null) {
+            standIn.close();
+            analysisExecutor.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean imageContainsCat() {
+        return imageService.imageContainsCat(frame, CAT_CONFIDENCE_THRESHOLD);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public boolean framesPerSecond() {
+        return imageService.imageContainsCat(frame, CAT_CONFIDENCE_THRESHOLD);
+    }
+}
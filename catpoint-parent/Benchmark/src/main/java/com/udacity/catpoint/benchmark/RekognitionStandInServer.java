@@ -0,0 +1,90 @@
+package com.udacity.catpoint.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.rekognition.RekognitionClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local HTTP stand-in for the Rekognition {@code DetectLabels} endpoint, so benchmarks can drive the
+ * real SDK client without network access or cost. It ignores request signatures and image content
+ * and answers every request at once with a fixed cat label.
+ *
+ * The image module's tests keep their own configurable stand-in; this copy lets the benchmarks build
+ * without depending on that module's test classes.
+ */
+final class RekognitionStandInServer implements AutoCloseable {
+
+    private static final byte[] DETECT_LABELS_RESPONSE =
+            "{\"Labels\":[{\"Name\":\"Cat\",\"Confidence\":98.500}],\"LabelModelVersion\":\"3.0\"}"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    private final HttpServer httpServer;
+    private final ExecutorService requestExecutor;
+
+    private RekognitionStandInServer(HttpServer httpServer, ExecutorService requestExecutor) {
+        this.httpServer = httpServer;
+        this.requestExecutor = requestExecutor;
+    }
+
+    /**
+     * Starts a stand-in on an ephemeral loopback port.
+     */
+    static RekognitionStandInServer start() throws IOException {
+        HttpServer httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        ExecutorService requestExecutor = Executors.newCachedThreadPool(task -> {
+            Thread requestThread = new Thread(task, "rekognition-stand-in");
+            requestThread.setDaemon(true);
+            return requestThread;
+        });
+        RekognitionStandInServer standIn = new RekognitionStandInServer(httpServer, requestExecutor);
+        httpServer.createContext("/", RekognitionStandInServer::handle);
+        httpServer.setExecutor(requestExecutor);
+        httpServer.start();
+        return standIn;
+    }
+
+    /**
+     * Builds a client pointed at this stand-in, with dummy credentials and SDK retries disabled so
+     * that every call maps to exactly one request.
+     */
+    RekognitionClient newClient() {
+        URI endpoint = URI.create("http://" + httpServer.getAddress().getHostString() + ":" + httpServer.getAddress().getPort());
+        return RekognitionClient.builder()
+                .endpointOverride(endpoint)
+                .region(Region.US_EAST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("stand-in", "stand-in")))
+                .overrideConfiguration(configuration -> configuration.retryPolicy(RetryPolicy.none()))
+                .build();
+    }
+
+    @Override
+    public void close() {
+        httpServer.stop(0);
+        requestExecutor.shutdownNow();
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        try (InputStream requestBody = exchange.getRequestBody()) {
+            requestBody.readAllBytes();
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/x-amz-json-1.1");
+        exchange.sendResponseHeaders(200, DETECT_LABELS_RESPONSE.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(DETECT_LABELS_RESPONSE);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.udacity.catpoint.benchmark;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Loads the bundled sample JPEGs and rescales them to the resolutions under measurement, so every
+ * benchmark works on the same realistic camera content.
+ */
+final class SampleFrames {
+
+    private SampleFrames() {
+    }
+
+    /**
+     * @param sampleName Resource name of a bundled sample, e.g. {@code sample-cat.jpg}
+     * @param width Width of the returned frame; height follows the sample's aspect ratio
+     * @return The sample decoded and scaled to the requested width, as {@code TYPE_3BYTE_BGR} like a decoded JPEG
+     */
+    static BufferedImage load(String sampleName, int width) {
+        BufferedImage sample;
+        try (InputStream sampleStream = SampleFrames.class.getClassLoader().getResourceAsStream(sampleName)) {
+            if (sampleStream == null) {
+                throw new IllegalArgumentException("Sample frame not bundled: " + sampleName);
+            }
+            sample = ImageIO.read(sampleStream);
+        } catch (IOException sampleError) {
+            throw new UncheckedIOException(sampleError);
+        }
+        int height = Math.max(1, (int) ((long) sample.getHeight() * width / sample.getWidth()));
+        BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = frame.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(sample, 0, 0, width, height, null);
+        graphics.dispose();
+        return frame;
+    }
+
+    /**
+     * @return The frame encoded as a JPEG at ImageIO's default quality
+     */
+    static byte[] toJpeg(BufferedImage frame) {
+        ByteArrayOutputStream jpegBytes = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(frame, "jpg", jpegBytes);
+        } catch (IOException encodingError) {
+            throw new UncheckedIOException(encodingError);
+        }
+        return jpegBytes.toByteArray();
+    }
+}
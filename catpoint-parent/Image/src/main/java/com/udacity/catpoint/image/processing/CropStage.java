@@ -0,0 +1,45 @@
+package com.udacity.catpoint.image.processing;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+/**
+ * Cuts a fixed region out of each frame, e.g. to ignore a static sky or a neighbour's garden.
+ * The region is clipped to the frame bounds. The crop is copied into a compact raster rather than
+ * shared through {@link BufferedImage#getSubimage}, so downstream stages can read it linearly.
+ */
+public class CropStage implements FrameStage {
+
+    private final Rectangle region;
+
+    /**
+     * @param region The area to keep, in source-frame pixel coordinates
+     */
+    public CropStage(Rectangle region) {
+        if (region.isEmpty()) {
+            throw new IllegalArgumentException("Crop region must not be empty");
+        }
+        this.region = new Rectangle(region);
+    }
+
+    @Override
+    public String name() {
+        return "crop";
+    }
+
+    @Override
+    public BufferedImage apply(BufferedImage frame) {
+        return apply(frame, null);
+    }
+
+    @Override
+    public BufferedImage apply(BufferedImage frame, FramePool framePool) {
+        Rectangle clipped = region.intersection(new Rectangle(0, 0, frame.getWidth(), frame.getHeight()));
+        if (clipped.isEmpty() || (clipped.width == frame.getWidth() && clipped.height == frame.getHeight())) {
+            return frame;
+        }
+        BufferedImage target = Rasters.newPackedRgb(clipped.width, clipped.height, framePool);
+        Rasters.readPackedRgb(frame, clipped.x, clipped.y, clipped.width, clipped.height, Rasters.pixels(target));
+        return target;
+    }
+}
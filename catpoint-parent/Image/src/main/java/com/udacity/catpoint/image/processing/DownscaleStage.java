@@ -0,0 +1,109 @@
+package com.udacity.catpoint.image.processing;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Shrinks frames whose longest side exceeds a maximum, preserving aspect ratio. Each output pixel
+ * is the average of the source block it covers, which avoids the aliasing of nearest-neighbour
+ * sampling without the cost of {@code Graphics2D} interpolation.
+ */
+public class DownscaleStage implements FrameStage {
+
+    private final int maxDimension;
+
+    /**
+     * @param maxDimension Longest permitted side of the output frame, in pixels
+     */
+    public DownscaleStage(int maxDimension) {
+        if (maxDimension < 1) {
+            throw new IllegalArgumentException("Maximum dimension must be positive");
+        }
+        this.maxDimension = maxDimension;
+    }
+
+    @Override
+    public String name() {
+        return "downscale";
+    }
+
+    @Override
+    public BufferedImage apply(BufferedImage frame) {
+        return apply(frame, null);
+    }
+
+    @Override
+    public BufferedImage apply(BufferedImage frame, FramePool framePool) {
+        int sourceWidth = frame.getWidth();
+        int sourceHeight = frame.getHeight();
+        int longestSide = Math.max(sourceWidth, sourceHeight);
+        if (longestSide <= maxDimension) {
+            return frame;
+        }
+        int targetWidth = Math.max(1, (int) ((long) sourceWidth * maxDimension / longestSide));
+        int targetHeight = Math.max(1, (int) ((long) sourceHeight * maxDimension / longestSide));
+        BufferedImage target = Rasters.newPackedRgb(targetWidth, targetHeight, framePool);
+        if (framePool == null || Rasters.isPackedRgb(frame)) {
+            downscale(Rasters.packedRgbPixels(frame), sourceWidth, sourceHeight, Rasters.pixels(target), targetWidth, targetHeight);
+            return target;
+        }
+        // Other layouts are converted in a pooled full-size scratch frame instead of a fresh pixel array
+        BufferedImage packedFrame = framePool.acquire(sourceWidth, sourceHeight, BufferedImage.TYPE_INT_RGB);
+        try {
+            int[] packedPixels = Rasters.pixels(packedFrame);
+            Rasters.readPackedRgb(frame, 0, 0, sourceWidth, sourceHeight, packedPixels);
+            downscale(packedPixels, sourceWidth, sourceHeight, Rasters.pixels(target), targetWidth, targetHeight);
+        } finally {
+            framePool.release(packedFrame);
+        }
+        return target;
+    }
+
+    /**
+     * Area-averages {@code source} into {@code target}. Both arrays hold packed RGB pixels.
+     */
+    static void downscale(int[] source, int sourceWidth, int sourceHeight,
+                          int[] target, int targetWidth, int targetHeight) {
+        // Source column span covered by each target column, computed once per frame
+        int[] columnStart = new int[targetWidth + 1];
+        for (int x = 0; x <= targetWidth; x++) {
+            columnStart[x] = (int) ((long) x * sourceWidth / targetWidth);
+        }
+        int[] redSums = new int[targetWidth];
+        int[] greenSums = new int[targetWidth];
+        int[] blueSums = new int[targetWidth];
+
+        for (int y = 0; y < targetHeight; y++) {
+            int rowStart = (int) ((long) y * sourceHeight / targetHeight);
+            int rowEnd = (int) ((long) (y + 1) * sourceHeight / targetHeight);
+            Arrays.fill(redSums, 0);
+            Arrays.fill(greenSums, 0);
+            Arrays.fill(blueSums, 0);
+            for (int sourceY = rowStart; sourceY < rowEnd; sourceY++) {
+                int rowOffset = sourceY * sourceWidth;
+                for (int x = 0; x < targetWidth; x++) {
+                    int red = 0;
+                    int green = 0;
+                    int blue = 0;
+                    for (int sourceX = columnStart[x]; sourceX < columnStart[x + 1]; sourceX++) {
+                        int pixel = source[rowOffset + sourceX];
+                        red += (pixel >> 16) & 0xFF;
+                        green += (pixel >> 8) & 0xFF;
+                        blue += pixel & 0xFF;
+                    }
+                    redSums[x] += red;
+                    greenSums[x] += green;
+                    blueSums[x] += blue;
+                }
+            }
+            int targetOffset = y * targetWidth;
+            int blockHeight = rowEnd - rowStart;
+            for (int x = 0; x < targetWidth; x++) {
+                int blockArea = blockHeight * (columnStart[x + 1] - columnStart[x]);
+                target[targetOffset + x] = (redSums[x] / blockArea) << 16
+                        | (greenSums[x] / blockArea) << 8
+                        | (blueSums[x] / blockArea);
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.udacity.catpoint.image.processing;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ordered chain of {@link FrameStage}s applied to each camera frame before analysis.
+ * Records, per stage, how often it ran, how long it took and how many raster bytes it removed.
+ * Safe for concurrent use as long as the stages themselves are.
+ *
+ * With a {@link FramePool}, stages take their output frames from the pool, intermediate frames are
+ * released as soon as the next stage has consumed them, and the final frame can be handed back with
+ * {@link #recycle} once analysed, so steady-state processing allocates no new frames.
+ */
+public class FramePipeline {
+
+    private final List<FrameStage> stages;
+    private final List<StageMetrics> stageMetrics;
+    private final FramePool framePool;
+
+    public FramePipeline(List<FrameStage> stages) {
+        this(stages, null);
+    }
+
+    /**
+     * @param stages Stages in the order they run
+     * @param framePool Pool for frames the stages create, or null to allocate every frame
+     */
+    public FramePipeline(List<FrameStage> stages, FramePool framePool) {
+        this.framePool = framePool;
+        this.stages = List.copyOf(stages);
+        List<StageMetrics> metrics = new ArrayList<>(stages.size());
+        for (FrameStage stage : this.stages) {
+            metrics.add(new StageMetrics(stage.name()));
+        }
+        this.stageMetrics = List.copyOf(metrics);
+    }
+
+    /**
+     * Convenience pipeline that normalises colour and shrinks frames to at most {@code maxDimension} pixels.
+     */
+    public static FramePipeline downscaling(int maxDimension) {
+        return downscaling(maxDimension, null);
+    }
+
+    /**
+     * Like {@link #downscaling(int)}, with the frames taken from the given pool.
+     */
+    public static FramePipeline downscaling(int maxDimension, FramePool framePool) {
+        return new FramePipeline(List.of(new DownscaleStage(maxDimension), new RgbNormalizationStage()), framePool);
+    }
+
+    /**
+     * Runs every stage in order.
+     * @param frame The frame as received from the camera
+     * @return The processed frame, which may be {@code frame} itself if no stage changed it
+     */
+    public BufferedImage process(BufferedImage frame) {
+        BufferedImage current = frame;
+        for (int i = 0; i < stages.size(); i++) {
+            long bytesBefore = Rasters.rasterBytes(current);
+            long start = System.nanoTime();
+            BufferedImage next = stages.get(i).apply(current, framePool);
+            stageMetrics.get(i).record(System.nanoTime() - start, bytesBefore - Rasters.rasterBytes(next));
+            if (framePool != null && current != frame && next != current) {
+                framePool.release(current);
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    /**
+     * Hands the result of {@link #process} back to the pool once it is no longer used. Does nothing
+     * without a pool or if processing returned the camera frame itself, which the pipeline does not own.
+     * @param frame The frame given to {@link #process}
+     * @param processed The frame it returned
+     */
+    public void recycle(BufferedImage frame, BufferedImage processed) {
+        if (framePool != null && processed != frame) {
+            framePool.release(processed);
+        }
+    }
+
+    /**
+     * @return The pool frames are taken from, or null if every frame is allocated
+     */
+    public FramePool getFramePool() {
+        return framePool;
+    }
+
+    /**
+     * @return Live metrics, one entry per stage in pipeline order
+     */
+    public List<StageMetrics> getStageMetrics() {
+        return stageMetrics;
+    }
+
+    /**
+     * Running totals for one stage of the pipeline.
+     */
+    public static final class StageMetrics {
+        private final String stageName;
+        private final LongAdder invocations = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder bytesSaved = new LongAdder();
+
+        StageMetrics(String stageName) {
+            this.stageName = stageName;
+        }
+
+        void record(long elapsedNanos, long savedBytes) {
+            invocations.increment();
+            totalNanos.add(elapsedNanos);
+            bytesSaved.add(savedBytes);
+        }
+
+        public String getStageName() {
+            return stageName;
+        }
+
+        public long getInvocations() {
+            return invocations.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        /**
+         * @return Raster bytes removed by this stage across all frames; negative if the stage grew frames
+         */
+        public long getBytesSaved() {
+            return bytesSaved.sum();
+        }
+
+        @Override
+        public String toString() {
+            long runs = getInvocations();
+            return String.format("%s: %d frames, %.2f ms/frame, %d bytes saved",
+                    stageName, runs, runs == 0 ? 0.0 : getTotalNanos() / 1e6 / runs, getBytesSaved());
+        }
+    }
+}
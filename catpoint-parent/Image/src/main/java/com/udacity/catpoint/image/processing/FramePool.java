@@ -0,0 +1,164 @@
+package com.udacity.catpoint.image.processing;
+
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of reusable frames, keyed by width, height and image type, so that decoding, pre-processing
+ * and encoding at camera frame rates do not allocate a multi-megabyte {@link BufferedImage} and
+ * raster for every frame. A frame's {@link java.awt.image.WritableRaster} and pixel array are reused
+ * together with it.
+ *
+ * Ownership is explicit: a frame obtained from {@link #acquire} belongs to the caller until it is
+ * {@link #release released}, after which the caller must not read or write it, since the next
+ * {@code acquire} of the same shape hands it out again with its old pixels. Only a bounded number of
+ * frames is kept per shape; releasing beyond that leaves the frame to the garbage collector.
+ *
+ * Thread-safe.
+ */
+public class FramePool {
+
+    private static final int DEFAULT_FRAMES_PER_SHAPE = 4;
+
+    private final int framesPerShape;
+    private final Map<FrameShape, ConcurrentLinkedDeque<BufferedImage>> idleFrames = new ConcurrentHashMap<>();
+    private final Map<FrameShape, AtomicInteger> idleFrameCounts = new ConcurrentHashMap<>();
+
+    private final LongAdder allocatedFrames = new LongAdder();
+    private final LongAdder reusedFrames = new LongAdder();
+    private final LongAdder discardedFrames = new LongAdder();
+
+    public FramePool() {
+        this(DEFAULT_FRAMES_PER_SHAPE);
+    }
+
+    /**
+     * @param framesPerShape Maximum number of released frames kept per size and type
+     */
+    public FramePool(int framesPerShape) {
+        if (framesPerShape < 0) {
+            throw new IllegalArgumentException("Frames per shape must not be negative");
+        }
+        this.framesPerShape = framesPerShape;
+    }
+
+    /**
+     * Hands out a pooled frame of the given shape, or a new one if none is idle. Pixels of a reused
+     * frame are left as they were, so the caller must overwrite every pixel it later reads.
+     * @param width Frame width in pixels
+     * @param height Frame height in pixels
+     * @param imageType One of the predefined {@code BufferedImage.TYPE_*} constants, except {@code TYPE_CUSTOM}
+     * @return A frame owned by the caller until released
+     */
+    public BufferedImage acquire(int width, int height, int imageType) {
+        if (imageType == BufferedImage.TYPE_CUSTOM) {
+            throw new IllegalArgumentException("Custom image types cannot be pooled");
+        }
+        BufferedImage pooledFrame = poll(width, height, imageType);
+        if (pooledFrame != null) {
+            return pooledFrame;
+        }
+        allocatedFrames.increment();
+        return new BufferedImage(width, height, imageType);
+    }
+
+    /**
+     * Takes an idle frame of the given shape without allocating, for callers that create frames of
+     * their own when the pool has none, e.g. with a reader-specific colour model.
+     * @return An idle frame owned by the caller until released, or null if none is idle
+     */
+    public BufferedImage poll(int width, int height, int imageType) {
+        if (imageType == BufferedImage.TYPE_CUSTOM) {
+            return null;
+        }
+        FrameShape shape = new FrameShape(width, height, imageType);
+        ConcurrentLinkedDeque<BufferedImage> frames = idleFrames.get(shape);
+        BufferedImage pooledFrame = frames == null ? null : frames.poll();
+        if (pooledFrame != null) {
+            idleFrameCounts.get(shape).decrementAndGet();
+            reusedFrames.increment();
+        }
+        return pooledFrame;
+    }
+
+    /**
+     * Returns a frame for reuse. Frames not obtained from this pool are accepted too, as long as they
+     * have a predefined type and own their raster.
+     * @param frame A frame the caller no longer uses
+     * @throws IllegalStateException if the frame is already idle in the pool
+     */
+    public void release(BufferedImage frame) {
+        FrameShape shape = new FrameShape(frame.getWidth(), frame.getHeight(), frame.getType());
+        // Custom types cannot be matched reliably, and sub-images share their parent's pixels
+        if (shape.imageType == BufferedImage.TYPE_CUSTOM || frame.getRaster().getParent() != null) {
+            discardedFrames.increment();
+            return;
+        }
+        ConcurrentLinkedDeque<BufferedImage> frames = idleFrames.computeIfAbsent(shape, s -> new ConcurrentLinkedDeque<>());
+        // Only a few frames are idle per shape, so this identity scan is cheap
+        if (frames.contains(frame)) {
+            throw new IllegalStateException("Frame released twice");
+        }
+        AtomicInteger idleCount = idleFrameCounts.computeIfAbsent(shape, s -> new AtomicInteger());
+        if (idleCount.incrementAndGet() > framesPerShape) {
+            idleCount.decrementAndGet();
+            discardedFrames.increment();
+            return;
+        }
+        frames.push(frame);
+    }
+
+    /**
+     * @return Frames created because none of the requested shape was idle
+     */
+    public long getAllocatedFrameCount() {
+        return allocatedFrames.sum();
+    }
+
+    public long getReusedFrameCount() {
+        return reusedFrames.sum();
+    }
+
+    /**
+     * @return Released frames left to the garbage collector because the pool was full or could not hold them
+     */
+    public long getDiscardedFrameCount() {
+        return discardedFrames.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d frames allocated, %d reused, %d discarded",
+                getAllocatedFrameCount(), getReusedFrameCount(), getDiscardedFrameCount());
+    }
+
+    private static final class FrameShape {
+        private final int width;
+        private final int height;
+        private final int imageType;
+
+        FrameShape(int width, int height, int imageType) {
+            this.width = width;
+            this.height = height;
+            this.imageType = imageType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            FrameShape frameShape = (FrameShape) o;
+            return width == frameShape.width && height == frameShape.height && imageType == frameShape.imageType;
+        }
+
+        @Override
+        public int hashCode() {
+            // Computed by hand: Objects.hash would box and allocate on every acquire
+            return (31 * width + height) * 31 + imageType;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.udacity.catpoint.image.processing;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A single step of a {@link FramePipeline}, e.g. downscaling, colour normalisation or cropping.
+ * Stages return a new image and never modify their input, which may still be shown elsewhere.
+ */
+public interface FrameStage {
+    /**
+     * @return Short name used when reporting the stage's metrics
+     */
+    String name();
+
+    /**
+     * @param frame The frame produced by the previous stage
+     * @return The processed frame, or {@code frame} itself if the stage has nothing to do
+     */
+    BufferedImage apply(BufferedImage frame);
+
+    /**
+     * Processes the frame, taking any new frame from the pool. The input is never released by the
+     * stage; the returned frame, if new, is owned by the caller. Stages that allocate frames should
+     * override this; the default ignores the pool.
+     * @param frame The frame produced by the previous stage
+     * @param framePool Pool supplying output and scratch frames
+     * @return The processed frame, or {@code frame} itself if the stage has nothing to do
+     */
+    default BufferedImage apply(BufferedImage frame, FramePool framePool) {
+        return apply(frame);
+    }
+}
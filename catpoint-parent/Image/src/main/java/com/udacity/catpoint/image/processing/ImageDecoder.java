@@ -0,0 +1,213 @@
+package com.udacity.catpoint.image.processing;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decodes encoded frames (JPEG, PNG) straight to the size they are needed at, instead of decoding the
+ * full frame with {@code ImageIO.read} and scaling it down afterwards.
+ *
+ * The reader skips source pixels with {@link ImageReadParam#setSourceSubsampling} by the largest whole
+ * factor that keeps the frame at least as large as the target, can decode just a region of the frame,
+ * and writes into a destination image taken from a {@link FramePool} when one of the right size and type
+ * has been {@link #release released}. Decode time and bytes allocated on the decoding thread are recorded so the
+ * gain over plain {@code ImageIO.read} can be measured.
+ *
+ * Thread-safe; each call uses its own reader.
+ */
+public class ImageDecoder {
+
+    private final FramePool framePool;
+
+    private final LongAdder decodes = new LongAdder();
+    private final LongAdder decodeNanos = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder reusedImages = new LongAdder();
+
+    public ImageDecoder() {
+        this(new FramePool());
+    }
+
+    /**
+     * @param pooledImagesPerShape Maximum number of released images kept per size and type
+     */
+    public ImageDecoder(int pooledImagesPerShape) {
+        this(new FramePool(pooledImagesPerShape));
+    }
+
+    /**
+     * @param framePool Pool that supplies destination images and receives released frames, e.g. one
+     *                  shared with the {@link FramePipeline} the decoded frames go through next
+     */
+    public ImageDecoder(FramePool framePool) {
+        this.framePool = framePool;
+    }
+
+    /**
+     * Decodes a whole image file at no less than the target size.
+     * @param encodedImageFile The image to decode
+     * @param targetWidth Width the frame is needed at
+     * @param targetHeight Height the frame is needed at
+     * @return The decoded frame, possibly larger than the target but never smaller unless the source is
+     * @throws IOException if the file cannot be read or its format is not supported
+     */
+    public BufferedImage decode(Path encodedImageFile, int targetWidth, int targetHeight) throws IOException {
+        return decodeRegion(encodedImageFile, null, targetWidth, targetHeight);
+    }
+
+    /**
+     * Decodes a whole encoded image at no less than the target size.
+     * @see #decode(Path, int, int)
+     */
+    public BufferedImage decode(InputStream encodedImage, int targetWidth, int targetHeight) throws IOException {
+        return decodeRegion(encodedImage, null, targetWidth, targetHeight);
+    }
+
+    /**
+     * Decodes only part of an image file at no less than the target size; pixels outside the
+     * region are never decoded.
+     * @param encodedImageFile The image to decode
+     * @param region Area to decode in source pixel coordinates, clipped to the image, or null for all of it
+     * @param targetWidth Width the region is needed at
+     * @param targetHeight Height the region is needed at
+     * @return The decoded region
+     * @throws IOException if the file cannot be read or its format is not supported
+     */
+    public BufferedImage decodeRegion(Path encodedImageFile, Rectangle region, int targetWidth, int targetHeight)
+            throws IOException {
+        try (InputStream encodedImage = Files.newInputStream(encodedImageFile)) {
+            return decodeRegion(encodedImage, region, targetWidth, targetHeight);
+        }
+    }
+
+    /**
+     * Decodes only part of an encoded image at no less than the target size.
+     * @see #decodeRegion(Path, Rectangle, int, int)
+     */
+    public BufferedImage decodeRegion(InputStream encodedImage, Rectangle region, int targetWidth, int targetHeight)
+            throws IOException {
+        if (targetWidth < 1 || targetHeight < 1) {
+            throw new IllegalArgumentException("Target size must be positive");
+        }
+        long allocatedBefore = currentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        BufferedImage frame;
+        try (ImageInputStream imageStream = ImageIO.createImageInputStream(encodedImage)) {
+            if (imageStream == null) {
+                throw new IOException("Encoded image stream cannot be read");
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageStream);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageStream, true, true);
+                frame = read(reader, region, targetWidth, targetHeight);
+            } finally {
+                reader.dispose();
+            }
+        }
+        decodeNanos.add(System.nanoTime() - start);
+        long allocatedAfter = currentThreadAllocatedBytes();
+        if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+            allocatedBytes.add(allocatedAfter - allocatedBefore);
+        }
+        decodes.increment();
+        return frame;
+    }
+
+    private BufferedImage read(ImageReader reader, Rectangle region, int targetWidth, int targetHeight) throws IOException {
+        Rectangle sourceBounds = new Rectangle(0, 0, reader.getWidth(0), reader.getHeight(0));
+        Rectangle sourceRegion = region == null ? sourceBounds : region.intersection(sourceBounds);
+        if (sourceRegion.isEmpty()) {
+            throw new IOException("Decode region lies outside the image");
+        }
+        int subsampling = Math.max(1, Math.min(sourceRegion.width / targetWidth, sourceRegion.height / targetHeight));
+        ImageReadParam readParam = reader.getDefaultReadParam();
+        readParam.setSourceRegion(sourceRegion);
+        readParam.setSourceSubsampling(subsampling, subsampling, 0, 0);
+
+        Iterator<ImageTypeSpecifier> imageTypes = reader.getImageTypes(0);
+        if (imageTypes.hasNext()) {
+            ImageTypeSpecifier imageType = imageTypes.next();
+            int decodedWidth = (sourceRegion.width + subsampling - 1) / subsampling;
+            int decodedHeight = (sourceRegion.height + subsampling - 1) / subsampling;
+            BufferedImage destination = framePool.poll(decodedWidth, decodedHeight, imageType.getBufferedImageType());
+            if (destination != null) {
+                reusedImages.increment();
+            } else {
+                destination = imageType.createBufferedImage(decodedWidth, decodedHeight);
+            }
+            readParam.setDestination(destination);
+        }
+        return reader.read(0, readParam);
+    }
+
+    /**
+     * Hands a frame that is no longer in use back for reuse by a later decode of the same size and type.
+     * The caller must not touch the frame afterwards.
+     * @param frame A frame returned by this decoder
+     */
+    public void release(BufferedImage frame) {
+        framePool.release(frame);
+    }
+
+    public FramePool getFramePool() {
+        return framePool;
+    }
+
+    /**
+     * @return Bytes allocated so far by the calling thread, or -1 if the JVM cannot report it
+     */
+    public static long currentThreadAllocatedBytes() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+            if (allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled()) {
+                return allocationBean.getCurrentThreadAllocatedBytes();
+            }
+        }
+        return -1;
+    }
+
+    public long getDecodeCount() {
+        return decodes.sum();
+    }
+
+    public long getTotalDecodeNanos() {
+        return decodeNanos.sum();
+    }
+
+    /**
+     * @return Heap bytes allocated by decoding threads across all decodes, or 0 if the JVM cannot report it
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    public long getReusedImageCount() {
+        return reusedImages.sum();
+    }
+
+    @Override
+    public String toString() {
+        long runs = getDecodeCount();
+        return String.format("%d decodes, %.2f ms/decode, %d bytes allocated/decode, %d pooled images reused",
+                runs, runs == 0 ? 0.0 : getTotalDecodeNanos() / 1e6 / runs,
+                runs == 0 ? 0 : getAllocatedBytes() / runs, getReusedImageCount());
+    }
+}
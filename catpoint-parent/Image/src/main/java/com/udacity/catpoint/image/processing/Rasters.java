@@ -0,0 +1,95 @@
+package com.udacity.catpoint.image.processing;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+
+/**
+ * Raster helpers shared by the built-in stages, which all operate on packed {@code int[]} RGB pixels.
+ */
+final class Rasters {
+
+    private Rasters() {
+    }
+
+    /**
+     * @return true if the frame is {@code TYPE_INT_RGB} and owns its whole data buffer
+     */
+    static boolean isPackedRgb(BufferedImage frame) {
+        return frame.getType() == BufferedImage.TYPE_INT_RGB && frame.getRaster().getParent() == null;
+    }
+
+    /**
+     * @return The backing pixel array of a frame for which {@link #isPackedRgb} holds
+     */
+    static int[] pixels(BufferedImage packedRgbFrame) {
+        return ((DataBufferInt) packedRgbFrame.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * @return A new packed RGB frame, taken from the pool if one is given
+     */
+    static BufferedImage newPackedRgb(int width, int height, FramePool framePool) {
+        return framePool == null
+                ? new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB)
+                : framePool.acquire(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+
+    /**
+     * Returns the frame's pixels as packed RGB, in place when possible and copied otherwise.
+     */
+    static int[] packedRgbPixels(BufferedImage frame) {
+        if (isPackedRgb(frame)) {
+            return pixels(frame);
+        }
+        int[] pixels = new int[frame.getWidth() * frame.getHeight()];
+        readPackedRgb(frame, 0, 0, frame.getWidth(), frame.getHeight(), pixels);
+        return pixels;
+    }
+
+    /**
+     * Copies a region of the frame into {@code destination} as packed RGB with a zero top byte.
+     * Integer and BGR byte rasters are read directly; other layouts go through {@code getRGB}.
+     */
+    static void readPackedRgb(BufferedImage frame, int x, int y, int width, int height, int[] destination) {
+        boolean unshared = frame.getRaster().getParent() == null;
+        int frameWidth = frame.getWidth();
+        int type = frame.getType();
+        if (unshared && (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)) {
+            int[] source = ((DataBufferInt) frame.getRaster().getDataBuffer()).getData();
+            for (int row = 0; row < height; row++) {
+                int sourceOffset = (y + row) * frameWidth + x;
+                int targetOffset = row * width;
+                for (int column = 0; column < width; column++) {
+                    destination[targetOffset + column] = source[sourceOffset + column] & 0xFFFFFF;
+                }
+            }
+        } else if (unshared && type == BufferedImage.TYPE_3BYTE_BGR) {
+            byte[] source = ((DataBufferByte) frame.getRaster().getDataBuffer()).getData();
+            for (int row = 0; row < height; row++) {
+                int sourceOffset = ((y + row) * frameWidth + x) * 3;
+                int targetOffset = row * width;
+                for (int column = 0; column < width; column++) {
+                    int index = sourceOffset + column * 3;
+                    destination[targetOffset + column] = (source[index + 2] & 0xFF) << 16
+                            | (source[index + 1] & 0xFF) << 8
+                            | (source[index] & 0xFF);
+                }
+            }
+        } else {
+            frame.getRGB(x, y, width, height, destination, 0, width);
+            for (int i = 0; i < width * height; i++) {
+                destination[i] &= 0xFFFFFF;
+            }
+        }
+    }
+
+    /**
+     * @return Size in bytes of the frame's backing data buffer
+     */
+    static long rasterBytes(BufferedImage frame) {
+        DataBuffer dataBuffer = frame.getRaster().getDataBuffer();
+        return (long) dataBuffer.getSize() * dataBuffer.getNumBanks() * DataBuffer.getDataTypeSize(dataBuffer.getDataType()) / 8;
+    }
+}
@@ -0,0 +1,88 @@
+package com.udacity.catpoint.image.processing;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Converts frames of any colour model (BGR bytes, greyscale, indexed, with alpha) into packed
+ * sRGB {@code TYPE_INT_RGB}, the layout later stages and the image services read fastest.
+ * Alpha is discarded. Optionally stretches each channel to the full 0-255 range, which
+ * compensates for dim or washed-out camera exposure.
+ */
+public class RgbNormalizationStage implements FrameStage {
+
+    private final boolean stretchContrast;
+
+    public RgbNormalizationStage() {
+        this(false);
+    }
+
+    /**
+     * @param stretchContrast Whether to rescale each channel so its darkest and brightest values span 0-255
+     */
+    public RgbNormalizationStage(boolean stretchContrast) {
+        this.stretchContrast = stretchContrast;
+    }
+
+    @Override
+    public String name() {
+        return "normalize";
+    }
+
+    @Override
+    public BufferedImage apply(BufferedImage frame) {
+        return apply(frame, null);
+    }
+
+    @Override
+    public BufferedImage apply(BufferedImage frame, FramePool framePool) {
+        if (Rasters.isPackedRgb(frame) && !stretchContrast) {
+            return frame;
+        }
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        BufferedImage target = Rasters.newPackedRgb(width, height, framePool);
+        int[] targetPixels = Rasters.pixels(target);
+        Rasters.readPackedRgb(frame, 0, 0, width, height, targetPixels);
+        if (stretchContrast) {
+            stretchChannels(targetPixels);
+        }
+        return target;
+    }
+
+    private static void stretchChannels(int[] pixels) {
+        int minRed = 255, minGreen = 255, minBlue = 255;
+        int maxRed = 0, maxGreen = 0, maxBlue = 0;
+        for (int pixel : pixels) {
+            int red = (pixel >> 16) & 0xFF;
+            int green = (pixel >> 8) & 0xFF;
+            int blue = pixel & 0xFF;
+            minRed = Math.min(minRed, red);
+            maxRed = Math.max(maxRed, red);
+            minGreen = Math.min(minGreen, green);
+            maxGreen = Math.max(maxGreen, green);
+            minBlue = Math.min(minBlue, blue);
+            maxBlue = Math.max(maxBlue, blue);
+        }
+        int[] redLevels = levels(minRed, maxRed);
+        int[] greenLevels = levels(minGreen, maxGreen);
+        int[] blueLevels = levels(minBlue, maxBlue);
+        for (int i = 0; i < pixels.length; i++) {
+            int pixel = pixels[i];
+            pixels[i] = redLevels[(pixel >> 16) & 0xFF] << 16
+                    | greenLevels[(pixel >> 8) & 0xFF] << 8
+                    | blueLevels[pixel & 0xFF];
+        }
+    }
+
+    /**
+     * Lookup table mapping [min, max] linearly onto [0, 255].
+     */
+    private static int[] levels(int min, int max) {
+        int[] table = new int[256];
+        int range = max - min;
+        for (int value = 0; value < table.length; value++) {
+            table[value] = range <= 0 ? value : Math.max(0, Math.min(255, (value - min) * 255 / range));
+        }
+        return table;
+    }
+}
@@ -11,13 +11,27 @@ import software.amazon.awssdk.services.rekognition.RekognitionClient;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
 import software.amazon.awssdk.services.rekognition.model.Image;
+import software.amazon.awssdk.services.rekognition.model.ListCollectionsRequest;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -28,6 +42,8 @@ import java.util.stream.Collectors;
  * - AWS credentials must be configured in config.properties
  * - Required IAM permissions: AmazonRekognitionFullAccess
  * - Configuration file should contain: aws.id, aws.secret, aws.region
+ * - Optional: aws.jpegQuality (0-1) used when re-encoding decoded frames for upload
+ * - Optional: aws.prewarmConnections, the number of connections {@link #warmUp()} opens (default 4)
  * 
  * Setup Process:
  * 1. Access AWS Console and navigate to Identity and Access Management (IAM)
@@ -39,10 +55,41 @@ public class AwsImageService implements ImageService {
 
     private Logger logger = LoggerFactory.getLogger(AwsImageService.class);
 
-    // Singleton pattern for AWS client - recommended for performance optimization
-    private static RekognitionClient visionAnalysisClient;
+    // One client per service, shared by all requests - it is thread-safe and pools its connections
+    private RekognitionClient visionAnalysisClient;
+
+    private static final int DEFAULT_MAX_BATCH_REQUESTS_IN_FLIGHT = 4;
+    private static final float DEFAULT_JPEG_QUALITY = 0.9f;
+    private static final int DEFAULT_PREWARM_CONNECTIONS = 4;
+    // Labels are requested down to this confidence so that stored results can answer lower thresholds too
+    private static final float SCORED_CONFIDENCE_FLOOR = 30.0f;
+
+    // Runs asynchronous analysis requests; each one blocks a thread for the full network round trip
+    private final Executor analysisExecutor;
+    // Bounds how many batch requests may be outstanding against Rekognition at once
+    private final Semaphore batchRequestPermits;
+    // Encodes decoded frames for upload; replaced once config.properties has been read
+    private JpegEncoder frameEncoder = new JpegEncoder(DEFAULT_JPEG_QUALITY);
+    private int prewarmConnections = DEFAULT_PREWARM_CONNECTIONS;
 
     public AwsImageService() {
+        this(newAnalysisExecutor());
+    }
+
+    /**
+     * @param analysisExecutor Executor that runs {@link #analyzeImageAsync(BufferedImage, float)} requests
+     */
+    public AwsImageService(Executor analysisExecutor) {
+        this(analysisExecutor, DEFAULT_MAX_BATCH_REQUESTS_IN_FLIGHT);
+    }
+
+    /**
+     * @param analysisExecutor Executor that runs asynchronous and batch requests
+     * @param maxBatchRequestsInFlight Maximum number of concurrent Rekognition requests issued by {@link #classifyBatch}
+     */
+    public AwsImageService(Executor analysisExecutor, int maxBatchRequestsInFlight) {
+        this.analysisExecutor = analysisExecutor;
+        this.batchRequestPermits = new Semaphore(maxBatchRequestsInFlight);
         Properties configurationProperties = new Properties();
         try (InputStream configStream = getClass().getClassLoader().getResourceAsStream("config.properties")) {
             configurationProperties.load(configStream);
@@ -54,6 +101,10 @@ public class AwsImageService implements ImageService {
         String accessKeyId = configurationProperties.getProperty("aws.id");
         String secretAccessKey = configurationProperties.getProperty("aws.secret");
         String serviceRegion = configurationProperties.getProperty("aws.region");
+        frameEncoder = new JpegEncoder(Float.parseFloat(
+                configurationProperties.getProperty("aws.jpegQuality", String.valueOf(DEFAULT_JPEG_QUALITY))));
+        prewarmConnections = Integer.parseInt(
+                configurationProperties.getProperty("aws.prewarmConnections", String.valueOf(DEFAULT_PREWARM_CONNECTIONS)));
 
         AwsCredentials cloudCredentials = AwsBasicCredentials.create(accessKeyId, secretAccessKey);
         visionAnalysisClient = RekognitionClient.builder()
@@ -62,6 +113,75 @@ public class AwsImageService implements ImageService {
                 .build();
     }
 
+    /**
+     * Uses the given client instead of building one from config.properties, e.g. a client
+     * pointed at the test sources' {@code RekognitionStandInServer}.
+     * @param visionAnalysisClient Client used for all detection requests
+     * @param analysisExecutor Executor that runs asynchronous and batch requests
+     * @param maxBatchRequestsInFlight Maximum number of concurrent Rekognition requests issued by {@link #classifyBatch}
+     */
+    public AwsImageService(RekognitionClient visionAnalysisClient, Executor analysisExecutor, int maxBatchRequestsInFlight) {
+        this.analysisExecutor = analysisExecutor;
+        this.batchRequestPermits = new Semaphore(maxBatchRequestsInFlight);
+        this.visionAnalysisClient = visionAnalysisClient;
+    }
+
+    /**
+     * Loads the configuration, builds the client and warms it up on a background thread, answering
+     * frames with the fallback until the service is ready. Keeps startup fast and spares the first
+     * analysed frame the cost of class loading and connection setup.
+     * @param fallback Service answering frames until Rekognition is ready, e.g. {@link LocalImageService}
+     * @return The service to hand to the security system
+     */
+    public static BackgroundInitializedImageService startInBackground(ImageService fallback) {
+        return new BackgroundInitializedImageService(() -> {
+            AwsImageService awsImageService = new AwsImageService();
+            awsImageService.warmUp();
+            return awsImageService;
+        }, fallback);
+    }
+
+    /**
+     * Opens the configured number of connections to Rekognition, see {@link #warmUp(int)}.
+     */
+    public void warmUp() {
+        warmUp(prewarmConnections);
+    }
+
+    /**
+     * Prepares the service so the first real frame costs the same as any other: loads the JPEG
+     * encoder and issues the given number of lightweight, unbilled {@code ListCollections} calls at
+     * once, so that each completes its TLS handshake and leaves an open connection in the client's pool.
+     * Blocks until every call has finished. Calls only overlap as far as the analysis executor runs
+     * them concurrently; an executor with fewer threads runs them in turn and opens fewer connections.
+     * @param connections Number of connections to open, up to the analysis executor's parallelism
+     * @throws IllegalStateException if the client could not be configured
+     */
+    public void warmUp(int connections) {
+        if (visionAnalysisClient == null) {
+            throw new IllegalStateException("Rekognition client is not configured");
+        }
+        try {
+            frameEncoder.encode(new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB));
+        } catch (IOException encoderError) {
+            logger.warn("JPEG encoder warm-up failed", encoderError);
+        }
+        List<CompletableFuture<Void>> warmUpCalls = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            // No start barrier: on a caller-runs or single-thread executor it would wait for calls never started
+            warmUpCalls.add(CompletableFuture.runAsync(() -> {
+                try {
+                    visionAnalysisClient.listCollections(ListCollectionsRequest.builder().maxResults(1).build());
+                } catch (RuntimeException rejectedCall) {
+                    // A rejected call, e.g. for missing IAM permission, has still opened its connection
+                    logger.debug("Warm-up call rejected", rejectedCall);
+                }
+            }, analysisExecutor));
+        }
+        CompletableFuture.allOf(warmUpCalls.toArray(new CompletableFuture<?>[0])).join();
+        logger.info("Rekognition client warmed up with {} connections", connections);
+    }
+
     /**
      * Analyzes the provided image to determine feline presence using cloud-based computer vision.
      * This method leverages advanced machine learning models to provide accurate detection results.
@@ -71,22 +191,129 @@ public class AwsImageService implements ImageService {
      */
     @Override
     public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
-        Image cloudVisionImage = null;
-        try (ByteArrayOutputStream imageDataStream = new ByteArrayOutputStream()) {
-            ImageIO.write(image, "jpg", imageDataStream);
-            cloudVisionImage = Image.builder().bytes(SdkBytes.fromByteArray(imageDataStream.toByteArray())).build();
+        return analyzeImage(image, confidenceThreshold).containsCat(confidenceThreshold);
+    }
+
+    /**
+     * Analyzes the image once and keeps every reported label, so that thresholds down to
+     * {@value #SCORED_CONFIDENCE_FLOOR} (or the given threshold, if lower) can be evaluated later
+     * without another Rekognition call.
+     * @param image The image data to analyze for feline presence
+     * @param confidenceThreshold Threshold the caller is interested in now
+     * @return The scored result, or a negative verdict-only result if the frame could not be encoded
+     */
+    @Override
+    public DetectionResult analyzeImage(BufferedImage image, float confidenceThreshold) {
+        long startNanos = System.nanoTime();
+        byte[] encodedImage;
+        try {
+            encodedImage = frameEncoder.encode(image);
         } catch (IOException imageProcessingError) {
             logger.error("Failed to process image data for analysis", imageProcessingError);
-            return false;
+            return DetectionResult.ofVerdict(false, confidenceThreshold, Duration.ofNanos(System.nanoTime() - startNanos));
+        }
+        // The encoder hands over a fresh array, so the SDK may wrap it without copying
+        return detectLabels(SdkBytes.fromByteArrayUnsafe(encodedImage),
+                Math.min(confidenceThreshold, SCORED_CONFIDENCE_FLOOR), startNanos);
+    }
+
+    /**
+     * Analyzes an already-encoded image (JPEG or PNG) without decoding and re-encoding it.
+     * A heap buffer that exactly spans its backing array is passed to the SDK without copying;
+     * any other buffer is copied once. The buffer must not be modified until this method returns.
+     * @param encodedImage The encoded image bytes between the buffer's position and limit
+     * @param confidenceThreshold Minimum confidence level required for positive detection (0-100)
+     * @return true if feline presence is detected above the confidence threshold, false otherwise
+     */
+    public boolean imageContainsCat(ByteBuffer encodedImage, float confidenceThreshold) {
+        SdkBytes imageBytes;
+        if (encodedImage.hasArray() && encodedImage.arrayOffset() == 0 && encodedImage.position() == 0
+                && encodedImage.remaining() == encodedImage.array().length) {
+            imageBytes = SdkBytes.fromByteArrayUnsafe(encodedImage.array());
+        } else {
+            imageBytes = SdkBytes.fromByteBuffer(encodedImage);
         }
+        return detectCat(imageBytes, confidenceThreshold);
+    }
+
+    /**
+     * Analyzes an encoded image file (JPEG or PNG) as-is; the file is read once and never decoded.
+     * @param encodedImageFile The image file to analyze
+     * @param confidenceThreshold Minimum confidence level required for positive detection (0-100)
+     * @return true if feline presence is detected above the confidence threshold, false otherwise
+     * @throws IOException if the file cannot be read
+     */
+    public boolean imageContainsCat(Path encodedImageFile, float confidenceThreshold) throws IOException {
+        return detectCat(SdkBytes.fromByteArrayUnsafe(Files.readAllBytes(encodedImageFile)), confidenceThreshold);
+    }
+
+    private boolean detectCat(SdkBytes imageBytes, float confidenceThreshold) {
+        return detectLabels(imageBytes, confidenceThreshold, System.nanoTime()).containsCat(confidenceThreshold);
+    }
+
+    private DetectionResult detectLabels(SdkBytes imageBytes, float minConfidence, long startNanos) {
+        Image cloudVisionImage = Image.builder().bytes(imageBytes).build();
         DetectLabelsRequest analysisRequest = DetectLabelsRequest.builder()
                 .image(cloudVisionImage)
-                .minConfidence(confidenceThreshold)
+                .minConfidence(minConfidence)
                 .build();
         DetectLabelsResponse analysisResults = visionAnalysisClient.detectLabels(analysisRequest);
         logDetectionResults(analysisResults);
-        return analysisResults.labels().stream()
-                .anyMatch(label -> label.name().toLowerCase().contains("cat"));
+        Map<String, Float> labelConfidences = new LinkedHashMap<>();
+        analysisResults.labels().forEach(label -> labelConfidences.merge(label.name(), label.confidence(), Math::max));
+        return DetectionResult.scored(labelConfidences, minConfidence, Duration.ofNanos(System.nanoTime() - startNanos));
+    }
+
+    /**
+     * Submits the image for analysis on this service's analysis executor so that the caller is
+     * not held for the network round trip.
+     */
+    @Override
+    public CompletableFuture<DetectionResult> analyzeImageAsync(BufferedImage image, float confidenceThreshold) {
+        return CompletableFuture.supplyAsync(() -> analyzeImage(image, confidenceThreshold), analysisExecutor);
+    }
+
+    /**
+     * Classifies the frames concurrently on the analysis executor, never holding more than the
+     * configured number of Rekognition requests in flight. The calling thread waits for a free
+     * permit before submitting each frame, so large batches do not pile up idle threads.
+     */
+    @Override
+    public List<Boolean> classifyBatch(List<BufferedImage> images, float confidenceThreshold) {
+        List<CompletableFuture<Boolean>> pendingVerdicts = new ArrayList<>(images.size());
+        for (BufferedImage image : images) {
+            batchRequestPermits.acquireUninterruptibly();
+            CompletableFuture<Boolean> verdict;
+            try {
+                verdict = imageContainsCatAsync(image, confidenceThreshold, analysisExecutor);
+            } catch (RuntimeException submissionError) {
+                batchRequestPermits.release();
+                throw submissionError;
+            }
+            verdict.whenComplete((detected, analysisError) -> batchRequestPermits.release());
+            pendingVerdicts.add(verdict);
+        }
+        List<Boolean> verdicts = new ArrayList<>(images.size());
+        try {
+            for (CompletableFuture<Boolean> pendingVerdict : pendingVerdicts) {
+                verdicts.add(pendingVerdict.join());
+            }
+        } catch (CompletionException batchError) {
+            if (batchError.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) batchError.getCause();
+            }
+            throw batchError;
+        }
+        return verdicts;
+    }
+
+    private static ExecutorService newAnalysisExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newCachedThreadPool(task -> {
+            Thread analysisThread = new Thread(task, "vision-analysis-" + threadCount.incrementAndGet());
+            analysisThread.setDaemon(true);
+            return analysisThread;
+        });
     }
 
     private void logDetectionResults(DetectLabelsResponse response) {
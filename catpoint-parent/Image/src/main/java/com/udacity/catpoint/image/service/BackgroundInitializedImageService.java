@@ -0,0 +1,123 @@
+package com.udacity.catpoint.image.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Builds an expensive image service - typically an {@link AwsImageService} that must load its
+ * configuration, create its client and open connections - in the background, so that application
+ * startup and the first analysed frame do not wait for it. Until the service is ready, every frame
+ * is answered by the fallback; if initialisation fails, the fallback keeps answering.
+ */
+public class BackgroundInitializedImageService implements ImageService {
+
+    public enum Readiness {
+        INITIALIZING,
+        READY,
+        FAILED
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(BackgroundInitializedImageService.class);
+
+    private final ImageService fallback;
+    private final CompletableFuture<ImageService> initialization;
+    // Set once initialisation succeeds; read on every frame, so kept apart from the future
+    private volatile ImageService readyService;
+
+    /**
+     * Starts initialisation on a dedicated daemon thread.
+     * @param initializer Builds and warms up the service
+     * @param fallback Answers frames until the service is ready
+     */
+    public BackgroundInitializedImageService(Callable<ImageService> initializer, ImageService fallback) {
+        this(initializer, fallback, task -> {
+            Thread initializationThread = new Thread(task, "image-service-initialization");
+            initializationThread.setDaemon(true);
+            initializationThread.start();
+        });
+    }
+
+    /**
+     * @param initializer Builds and warms up the service
+     * @param fallback Answers frames until the service is ready
+     * @param initializationExecutor Executor that runs the initializer
+     */
+    public BackgroundInitializedImageService(Callable<ImageService> initializer, ImageService fallback,
+                                             Executor initializationExecutor) {
+        this.fallback = fallback;
+        long startNanos = System.nanoTime();
+        this.initialization = CompletableFuture.supplyAsync(() -> {
+            try {
+                return initializer.call();
+            } catch (Exception initializationError) {
+                throw new CompletionException(initializationError);
+            }
+        }, initializationExecutor);
+        this.initialization.whenComplete((service, initializationError) -> {
+            if (initializationError != null) {
+                logger.error("Image service initialisation failed; the fallback stays in use", initializationError);
+                return;
+            }
+            readyService = service;
+            logger.info("Image service ready after {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        });
+    }
+
+    private ImageService currentService() {
+        ImageService service = readyService;
+        return service != null ? service : fallback;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        return currentService().imageContainsCat(image, confidenceThreshold);
+    }
+
+    @Override
+    public DetectionResult analyzeImage(BufferedImage image, float confidenceThreshold) {
+        return currentService().analyzeImage(image, confidenceThreshold);
+    }
+
+    @Override
+    public CompletableFuture<DetectionResult> analyzeImageAsync(BufferedImage image, float confidenceThreshold) {
+        return currentService().analyzeImageAsync(image, confidenceThreshold);
+    }
+
+    @Override
+    public List<Boolean> classifyBatch(List<BufferedImage> images, float confidenceThreshold) {
+        return currentService().classifyBatch(images, confidenceThreshold);
+    }
+
+    public Readiness getReadiness() {
+        if (readyService != null) {
+            return Readiness.READY;
+        }
+        return initialization.isCompletedExceptionally() ? Readiness.FAILED : Readiness.INITIALIZING;
+    }
+
+    /**
+     * Waits for initialisation to finish, e.g. to hold back arming until remote analysis is available.
+     * @param timeout Longest time to wait
+     * @return true if the service is ready, false if it failed or is still initialising
+     */
+    public boolean awaitReady(Duration timeout) throws InterruptedException {
+        try {
+            // The completion callback may not have published the service yet, so publish it here too
+            readyService = initialization.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (ExecutionException | TimeoutException notReady) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join task that classifies a range of a frame batch, splitting the range in half until
+ * each task holds a single frame. Verdicts are written into a shared array at the frame's index.
+ */
+final class BatchClassificationTask extends RecursiveAction {
+    private final ImageService imageService;
+    private final List<BufferedImage> images;
+    private final float confidenceThreshold;
+    private final Boolean[] verdicts;
+    private final int from;
+    private final int to;
+
+    BatchClassificationTask(ImageService imageService, List<BufferedImage> images, float confidenceThreshold,
+                            Boolean[] verdicts, int from, int to) {
+        this.imageService = imageService;
+        this.images = images;
+        this.confidenceThreshold = confidenceThreshold;
+        this.verdicts = verdicts;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from == 1) {
+            verdicts[from] = imageService.imageContainsCat(images.get(from), confidenceThreshold);
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        invokeAll(new BatchClassificationTask(imageService, images, confidenceThreshold, verdicts, from, middle),
+                new BatchClassificationTask(imageService, images, confidenceThreshold, verdicts, middle, to));
+    }
+}
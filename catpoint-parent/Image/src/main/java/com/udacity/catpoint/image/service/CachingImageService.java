@@ -0,0 +1,234 @@
+package com.udacity.catpoint.image.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decorator that remembers recent detection results of another {@link ImageService} so that repeated
+ * or near-identical camera frames are answered without calling the underlying service again.
+ *
+ * Frames are identified by a 64-bit difference hash (dHash) computed from a coarse luminance grid,
+ * which is stable under recompression and small lighting changes. Results are kept in a bounded
+ * LRU keyed by hash. A scored {@link DetectionResult} answers any threshold, so a frame seen once is
+ * not analysed again when a different threshold is asked for. With a non-zero Hamming tolerance, a
+ * cached frame whose hash differs by at most that many bits is also treated as a match.
+ */
+public class CachingImageService implements ImageService {
+
+    // dHash compares horizontally adjacent cells, so the grid is one cell wider than the hash row
+    private static final int HASH_COLUMNS = 9;
+    private static final int HASH_ROWS = 8;
+    // Samples taken along each axis of a grid cell when averaging its luminance
+    private static final int SAMPLES_PER_CELL = 3;
+
+    private final Logger logger = LoggerFactory.getLogger(CachingImageService.class);
+
+    private final ImageService delegate;
+    private final int hammingTolerance;
+    private final Map<Long, DetectionResult> recentResults;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param delegate Service consulted on a cache miss
+     * @param capacity Maximum number of results retained
+     * @param hammingTolerance Maximum number of differing hash bits for two frames to be considered the same (0-64)
+     */
+    public CachingImageService(ImageService delegate, int capacity, int hammingTolerance) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive");
+        }
+        if (hammingTolerance < 0 || hammingTolerance > Long.SIZE) {
+            throw new IllegalArgumentException("Hamming tolerance must be between 0 and 64");
+        }
+        this.delegate = delegate;
+        this.hammingTolerance = hammingTolerance;
+        this.recentResults = new LinkedHashMap<>(capacity * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, DetectionResult> eldest) {
+                if (size() > capacity) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        return analyzeImage(image, confidenceThreshold).containsCat(confidenceThreshold);
+    }
+
+    /**
+     * Returns a cached result for this frame if one can answer the threshold, otherwise asks the
+     * underlying service and caches its result in place of any older one for the same frame.
+     */
+    @Override
+    public DetectionResult analyzeImage(BufferedImage image, float confidenceThreshold) {
+        long frameHash = differenceHash(image);
+        DetectionResult cachedResult = lookup(frameHash, confidenceThreshold);
+        if (cachedResult != null) {
+            hits.incrementAndGet();
+            return cachedResult;
+        }
+        misses.incrementAndGet();
+        DetectionResult detectionResult = delegate.analyzeImage(image, confidenceThreshold);
+        store(frameHash, detectionResult);
+        return detectionResult;
+    }
+
+    /**
+     * Answers a cached frame with an already completed future; a miss is analysed asynchronously by
+     * the underlying service and cached once it completes.
+     */
+    @Override
+    public CompletableFuture<DetectionResult> analyzeImageAsync(BufferedImage image, float confidenceThreshold) {
+        long frameHash = differenceHash(image);
+        DetectionResult cachedResult = lookup(frameHash, confidenceThreshold);
+        if (cachedResult != null) {
+            hits.incrementAndGet();
+            return CompletableFuture.completedFuture(cachedResult);
+        }
+        misses.incrementAndGet();
+        return delegate.analyzeImageAsync(image, confidenceThreshold).thenApply(detectionResult -> {
+            store(frameHash, detectionResult);
+            return detectionResult;
+        });
+    }
+
+    /**
+     * Answers cached frames directly and sends the rest to the underlying service as one batch.
+     * The batch only returns verdicts, so they are cached as verdict-only results for this threshold.
+     */
+    @Override
+    public List<Boolean> classifyBatch(List<BufferedImage> images, float confidenceThreshold) {
+        Boolean[] verdicts = new Boolean[images.size()];
+        long[] frameHashes = new long[images.size()];
+        List<Integer> missedIndexes = new ArrayList<>();
+        List<BufferedImage> missedImages = new ArrayList<>();
+        for (int i = 0; i < images.size(); i++) {
+            frameHashes[i] = differenceHash(images.get(i));
+            DetectionResult cachedResult = lookup(frameHashes[i], confidenceThreshold);
+            if (cachedResult != null) {
+                hits.incrementAndGet();
+                verdicts[i] = cachedResult.containsCat(confidenceThreshold);
+            } else {
+                misses.incrementAndGet();
+                missedIndexes.add(i);
+                missedImages.add(images.get(i));
+            }
+        }
+        if (!missedImages.isEmpty()) {
+            List<Boolean> missedVerdicts = delegate.classifyBatch(missedImages, confidenceThreshold);
+            for (int j = 0; j < missedIndexes.size(); j++) {
+                int i = missedIndexes.get(j);
+                verdicts[i] = missedVerdicts.get(j);
+                store(frameHashes[i], DetectionResult.ofVerdict(verdicts[i], confidenceThreshold, Duration.ZERO));
+            }
+        }
+        return List.of(verdicts);
+    }
+
+    private void store(long frameHash, DetectionResult detectionResult) {
+        synchronized (recentResults) {
+            recentResults.put(frameHash, detectionResult);
+        }
+    }
+
+    private DetectionResult lookup(long frameHash, float confidenceThreshold) {
+        synchronized (recentResults) {
+            DetectionResult exactMatch = recentResults.get(frameHash);
+            if (exactMatch != null && exactMatch.canEvaluate(confidenceThreshold)) {
+                return exactMatch;
+            }
+            if (hammingTolerance == 0) {
+                return null;
+            }
+            Long closestMatch = null;
+            int closestDistance = hammingTolerance + 1;
+            for (Map.Entry<Long, DetectionResult> candidate : recentResults.entrySet()) {
+                if (!candidate.getValue().canEvaluate(confidenceThreshold)) {
+                    continue;
+                }
+                int distance = Long.bitCount(candidate.getKey() ^ frameHash);
+                if (distance < closestDistance) {
+                    closestDistance = distance;
+                    closestMatch = candidate.getKey();
+                }
+            }
+            // get() refreshes the entry's position in the LRU order
+            return closestMatch == null ? null : recentResults.get(closestMatch);
+        }
+    }
+
+    /**
+     * Computes a 64-bit dHash: the frame is reduced to a 9x8 grid of average luminance and each bit
+     * records whether a cell is brighter than its right-hand neighbour.
+     * @param image The frame to hash
+     * @return The perceptual hash of the frame
+     */
+    static long differenceHash(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        PixelReader pixels = new PixelReader(image);
+        int[] cellLuminance = new int[HASH_COLUMNS * HASH_ROWS];
+        for (int row = 0; row < HASH_ROWS; row++) {
+            for (int column = 0; column < HASH_COLUMNS; column++) {
+                int sum = 0;
+                for (int sy = 0; sy < SAMPLES_PER_CELL; sy++) {
+                    int y = (int) (((long) row * SAMPLES_PER_CELL + sy) * height / (HASH_ROWS * SAMPLES_PER_CELL));
+                    for (int sx = 0; sx < SAMPLES_PER_CELL; sx++) {
+                        int x = (int) (((long) column * SAMPLES_PER_CELL + sx) * width / (HASH_COLUMNS * SAMPLES_PER_CELL));
+                        sum += pixels.luminance(x, y);
+                    }
+                }
+                cellLuminance[row * HASH_COLUMNS + column] = sum;
+            }
+        }
+        long hash = 0L;
+        for (int row = 0; row < HASH_ROWS; row++) {
+            for (int column = 0; column < HASH_COLUMNS - 1; column++) {
+                int cell = row * HASH_COLUMNS + column;
+                hash <<= 1;
+                if (cellLuminance[cell] > cellLuminance[cell + 1]) {
+                    hash |= 1L;
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Drops every cached result, e.g. after the camera has been repositioned.
+     */
+    public void clear() {
+        synchronized (recentResults) {
+            recentResults.clear();
+        }
+        logger.info("Cleared cached detection results");
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+}
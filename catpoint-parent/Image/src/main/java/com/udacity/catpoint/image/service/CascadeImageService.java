@@ -0,0 +1,133 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-stage detector that scores every frame with a cheap in-JVM prefilter, such as
+ * {@link LocalImageService}, and pays for the expensive backend only when the prefilter is unsure.
+ *
+ * A prefilter confidence below the reject bound answers "no cat" and one at or above the accept bound
+ * answers "cat"; anything in between - the uncertainty band - is escalated to the backend. Widening the
+ * band trades backend cost and latency for accuracy, and the accept, reject and escalate counters show
+ * where the traffic goes while tuning it. A prefilter that does not report scores escalates every frame.
+ */
+public class CascadeImageService implements ImageService {
+
+    private final ImageService prefilter;
+    private final ImageService backend;
+    private final float rejectBelowConfidence;
+    private final float acceptFromConfidence;
+
+    private final AtomicLong acceptedFrames = new AtomicLong();
+    private final AtomicLong rejectedFrames = new AtomicLong();
+    private final AtomicLong escalatedFrames = new AtomicLong();
+
+    /**
+     * @param prefilter Fast service whose {@link ImageService#analyzeImage scored result} triages frames
+     * @param backend Accurate service consulted for frames inside the uncertainty band
+     * @param rejectBelowConfidence Prefilter confidence (0-100) below which a frame is rejected outright
+     * @param acceptFromConfidence Prefilter confidence (0-100) from which a frame is accepted outright
+     */
+    public CascadeImageService(ImageService prefilter, ImageService backend,
+                               float rejectBelowConfidence, float acceptFromConfidence) {
+        if (rejectBelowConfidence < 0f || acceptFromConfidence > 100f || rejectBelowConfidence > acceptFromConfidence) {
+            throw new IllegalArgumentException("Uncertainty band must satisfy 0 <= reject bound <= accept bound <= 100");
+        }
+        this.prefilter = prefilter;
+        this.backend = backend;
+        this.rejectBelowConfidence = rejectBelowConfidence;
+        this.acceptFromConfidence = acceptFromConfidence;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        Boolean prefilterVerdict = triage(prefilter.analyzeImage(image, confidenceThreshold));
+        if (prefilterVerdict != null) {
+            return prefilterVerdict;
+        }
+        return backend.imageContainsCat(image, confidenceThreshold);
+    }
+
+    /**
+     * Frames the prefilter settles are answered with a verdict-only result; the rest with the backend's result.
+     */
+    @Override
+    public CompletableFuture<DetectionResult> analyzeImageAsync(BufferedImage image, float confidenceThreshold) {
+        return prefilter.analyzeImageAsync(image, confidenceThreshold).thenCompose(prefilterResult -> {
+            Boolean prefilterVerdict = triage(prefilterResult);
+            if (prefilterVerdict != null) {
+                return CompletableFuture.completedFuture(DetectionResult.ofVerdict(
+                        prefilterVerdict, confidenceThreshold, prefilterResult.getAnalysisTime()));
+            }
+            return backend.analyzeImageAsync(image, confidenceThreshold);
+        });
+    }
+
+    /**
+     * Triages every frame with the prefilter and sends only the escalated frames to the backend, as one batch.
+     */
+    @Override
+    public List<Boolean> classifyBatch(List<BufferedImage> images, float confidenceThreshold) {
+        Boolean[] verdicts = new Boolean[images.size()];
+        List<Integer> escalatedIndexes = new ArrayList<>();
+        List<BufferedImage> escalatedImages = new ArrayList<>();
+        for (int i = 0; i < images.size(); i++) {
+            verdicts[i] = triage(prefilter.analyzeImage(images.get(i), confidenceThreshold));
+            if (verdicts[i] == null) {
+                escalatedIndexes.add(i);
+                escalatedImages.add(images.get(i));
+            }
+        }
+        if (!escalatedImages.isEmpty()) {
+            List<Boolean> backendVerdicts = backend.classifyBatch(escalatedImages, confidenceThreshold);
+            for (int j = 0; j < escalatedIndexes.size(); j++) {
+                verdicts[escalatedIndexes.get(j)] = backendVerdicts.get(j);
+            }
+        }
+        return List.of(verdicts);
+    }
+
+    /**
+     * Counts the frame as accepted, rejected or escalated.
+     * @return The verdict if the prefilter settles the frame, or null if it must go to the backend
+     */
+    private Boolean triage(DetectionResult prefilterResult) {
+        if (prefilterResult.isScored()) {
+            float prefilterConfidence = prefilterResult.getCatConfidence();
+            if (prefilterConfidence < rejectBelowConfidence) {
+                rejectedFrames.incrementAndGet();
+                return false;
+            }
+            if (prefilterConfidence >= acceptFromConfidence) {
+                acceptedFrames.incrementAndGet();
+                return true;
+            }
+        }
+        escalatedFrames.incrementAndGet();
+        return null;
+    }
+
+    public long getAcceptedFrameCount() {
+        return acceptedFrames.get();
+    }
+
+    public long getRejectedFrameCount() {
+        return rejectedFrames.get();
+    }
+
+    public long getEscalatedFrameCount() {
+        return escalatedFrames.get();
+    }
+
+    /**
+     * @return Fraction of frames (0-1) sent to the backend so far
+     */
+    public double getEscalationRate() {
+        long total = acceptedFrames.get() + rejectedFrames.get() + escalatedFrames.get();
+        return total == 0 ? 0.0 : (double) escalatedFrames.get() / total;
+    }
+}
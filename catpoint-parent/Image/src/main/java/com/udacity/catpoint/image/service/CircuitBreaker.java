@@ -0,0 +1,82 @@
+package com.udacity.catpoint.image.service;
+
+import java.time.Duration;
+
+/**
+ * Classic three-state circuit breaker. After a run of consecutive failures the circuit opens and
+ * callers are told to fail fast. Once the open interval has passed, a single trial request is let
+ * through (half-open); its success closes the circuit, its failure opens it again.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAtNanos;
+    private boolean trialInFlight = false;
+
+    /**
+     * @param failureThreshold Consecutive failures that open the circuit
+     * @param openDuration How long the circuit stays open before a trial request is allowed
+     */
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("Failure threshold must be positive");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * @return true if a request may be sent to the protected service now
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && System.nanoTime() - openedAtNanos >= openNanos) {
+            state = State.HALF_OPEN;
+        }
+        return switch (state) {
+            case CLOSED -> true;
+            case HALF_OPEN -> {
+                // Only one trial request probes the service while half-open
+                boolean firstTrial = !trialInFlight;
+                trialInFlight = true;
+                yield firstTrial;
+            }
+            case OPEN -> false;
+        };
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    /**
+     * Hands back a request allowed by {@link #allowRequest()} that was never sent, e.g. because no thread
+     * was free to send it. The circuit's state is unchanged, and while half-open the next request may
+     * take the trial in its place.
+     */
+    public synchronized void releaseRequest() {
+        trialInFlight = false;
+    }
+
+    public synchronized void recordFailure() {
+        trialInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAtNanos = System.nanoTime();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
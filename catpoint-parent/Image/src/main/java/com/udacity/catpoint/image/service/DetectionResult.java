@@ -0,0 +1,120 @@
+package com.udacity.catpoint.image.service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Outcome of analysing one frame, kept so that any confidence threshold can be evaluated later
+ * without analysing the frame again.
+ *
+ * A scored result carries every label the backend reported with its confidence (0-100), down to the
+ * confidence floor the backend was asked for; it can answer any threshold at or above that floor.
+ * A verdict-only result comes from a service that only answers yes or no for one threshold. It can
+ * still answer thresholds the verdict implies: a cat seen at 70 is also seen at 50, and a cat not
+ * seen at 50 is not seen at 70 either.
+ */
+public final class DetectionResult {
+
+    private final Map<String, Float> labelConfidences;
+    private final float catConfidence;
+    private final float confidenceFloor;
+    private final boolean scored;
+    private final boolean verdict;
+    private final float verdictThreshold;
+    private final Duration analysisTime;
+
+    private DetectionResult(Map<String, Float> labelConfidences, float catConfidence, float confidenceFloor,
+                            boolean scored, boolean verdict, float verdictThreshold, Duration analysisTime) {
+        this.labelConfidences = labelConfidences;
+        this.catConfidence = catConfidence;
+        this.confidenceFloor = confidenceFloor;
+        this.scored = scored;
+        this.verdict = verdict;
+        this.verdictThreshold = verdictThreshold;
+        this.analysisTime = analysisTime;
+    }
+
+    /**
+     * @param labelConfidences Reported labels and their confidence (0-100), in the backend's order
+     * @param confidenceFloor Lowest confidence the backend reported labels down to
+     * @param analysisTime Time taken to produce the labels
+     * @return A result whose cat confidence is the highest confidence of any label naming a cat
+     */
+    public static DetectionResult scored(Map<String, Float> labelConfidences, float confidenceFloor, Duration analysisTime) {
+        float catConfidence = 0f;
+        for (Map.Entry<String, Float> label : labelConfidences.entrySet()) {
+            if (label.getKey().toLowerCase(Locale.ROOT).contains("cat")) {
+                catConfidence = Math.max(catConfidence, label.getValue());
+            }
+        }
+        return new DetectionResult(Collections.unmodifiableMap(new LinkedHashMap<>(labelConfidences)), catConfidence,
+                confidenceFloor, true, false, Float.NaN, analysisTime);
+    }
+
+    /**
+     * @param catDetected Verdict of a service that reports no scores
+     * @param confidenceThreshold Threshold the verdict was given for
+     * @param analysisTime Time taken to reach the verdict
+     * @return A result that answers only the thresholds the verdict implies
+     */
+    public static DetectionResult ofVerdict(boolean catDetected, float confidenceThreshold, Duration analysisTime) {
+        return new DetectionResult(Map.of(), Float.NaN, Float.NaN, false, catDetected, confidenceThreshold, analysisTime);
+    }
+
+    /**
+     * @param confidenceThreshold Minimum cat confidence (0-100) for a positive detection
+     * @return true if {@link #containsCat(float)} can answer this threshold from the stored result
+     */
+    public boolean canEvaluate(float confidenceThreshold) {
+        if (scored) {
+            return confidenceThreshold >= confidenceFloor;
+        }
+        return verdict ? confidenceThreshold <= verdictThreshold : confidenceThreshold >= verdictThreshold;
+    }
+
+    /**
+     * @param confidenceThreshold Minimum cat confidence (0-100) for a positive detection
+     * @return true if a cat was detected at or above the threshold
+     * @throws IllegalArgumentException if the result cannot answer this threshold, see {@link #canEvaluate(float)}
+     */
+    public boolean containsCat(float confidenceThreshold) {
+        if (!canEvaluate(confidenceThreshold)) {
+            throw new IllegalArgumentException("Detection result cannot answer threshold " + confidenceThreshold);
+        }
+        return scored ? catConfidence > 0f && catConfidence >= confidenceThreshold : verdict;
+    }
+
+    public boolean isScored() {
+        return scored;
+    }
+
+    /**
+     * @return Highest cat label confidence (0-100), 0 if no cat label was reported, or NaN for a verdict-only result
+     */
+    public float getCatConfidence() {
+        return catConfidence;
+    }
+
+    /**
+     * @return Reported labels and their confidence (0-100); empty for a verdict-only result
+     */
+    public Map<String, Float> getLabelConfidences() {
+        return labelConfidences;
+    }
+
+    public Duration getAnalysisTime() {
+        return analysisTime;
+    }
+
+    @Override
+    public String toString() {
+        return scored
+                ? String.format(Locale.ROOT, "DetectionResult[cat=%.1f%%, labels=%s, took %d ms]",
+                        catConfidence, labelConfidences, analysisTime.toMillis())
+                : String.format(Locale.ROOT, "DetectionResult[cat=%s at %.1f%%, took %d ms]",
+                        verdict, verdictThreshold, analysisTime.toMillis());
+    }
+}
@@ -1,6 +1,8 @@
 package com.udacity.catpoint.image.service;
 
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 /**
@@ -13,4 +15,16 @@ public class FakeImageService implements ImageService {
     public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
         return r.nextBoolean();
     }
+
+    /**
+     * Guessing is effectively free, so the batch is answered in order on the calling thread.
+     */
+    @Override
+    public List<Boolean> classifyBatch(List<BufferedImage> images, float confidenceThreshold) {
+        List<Boolean> verdicts = new ArrayList<>(images.size());
+        for (BufferedImage image : images) {
+            verdicts.add(imageContainsCat(image, confidenceThreshold));
+        }
+        return verdicts;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,265 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Cuts the tail latency of a remote {@link ImageService} such as {@link AwsImageService} by hedging:
+ * when a request has not answered within a chosen percentile of recent request latency, the same
+ * request is sent again, the first answer wins and the other attempt is cancelled.
+ *
+ * Only requests slower than the percentile are duplicated, so hedging at p95 adds roughly 5% load;
+ * the hedge budget additionally caps hedges at a fixed share of all requests, so a backend that
+ * slows down across the board is not hit with double traffic. No hedges are sent until enough
+ * latencies have been recorded to estimate the percentile.
+ *
+ * Attempts run on the given executor and are cancelled by interruption, which aborts the losing
+ * HTTP call of the synchronous Rekognition client. The hedge is scheduled rather than waited for, so
+ * asynchronous callers and batches hold no thread of their own while a request is outstanding.
+ */
+public class HedgedImageService implements ImageService {
+
+    // Attempt latencies per window; the hedge delay is taken from the last complete window
+    private static final int LATENCY_WINDOW_SIZE = 1_000;
+    private static final int MIN_SAMPLES_FOR_HEDGING = 20;
+
+    private final ImageService delegate;
+    private final ExecutorService attemptExecutor;
+    private final double hedgePercentile;
+    private final Duration minimumHedgeDelay;
+    private final double hedgeBudget;
+
+    private final LatencyHistogram requestLatencies = new LatencyHistogram();
+    private final Object latencyWindowLock = new Object();
+    private volatile LatencyHistogram currentLatencyWindow = new LatencyHistogram();
+    private volatile LatencyHistogram previousLatencyWindow;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedgedRequests = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final AtomicLong budgetDeniedHedges = new AtomicLong();
+
+    /**
+     * @param delegate The remote service whose requests are hedged
+     * @param attemptExecutor Runs the attempts; needs at least two threads per concurrent request
+     * @param hedgePercentile Percentile (0-100) of recent latency after which a request is hedged, e.g. 95
+     * @param minimumHedgeDelay Shortest wait before hedging, so a fast backend is not flooded with duplicates
+     * @param hedgeBudget Largest share (0-1) of requests that may be hedged, e.g. 0.1
+     */
+    public HedgedImageService(ImageService delegate, ExecutorService attemptExecutor, double hedgePercentile,
+                              Duration minimumHedgeDelay, double hedgeBudget) {
+        if (hedgePercentile <= 0.0 || hedgePercentile >= 100.0) {
+            throw new IllegalArgumentException("Hedge percentile must be between 0 and 100");
+        }
+        if (hedgeBudget < 0.0 || hedgeBudget > 1.0) {
+            throw new IllegalArgumentException("Hedge budget must be between 0 and 1");
+        }
+        this.delegate = delegate;
+        this.attemptExecutor = attemptExecutor;
+        this.hedgePercentile = hedgePercentile;
+        this.minimumHedgeDelay = minimumHedgeDelay;
+        this.hedgeBudget = hedgeBudget;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        return analyzeImage(image, confidenceThreshold).containsCat(confidenceThreshold);
+    }
+
+    @Override
+    public DetectionResult analyzeImage(BufferedImage image, float confidenceThreshold) {
+        CompletableFuture<DetectionResult> firstResult = analyzeImageAsync(image, confidenceThreshold);
+        try {
+            return firstResult.get();
+        } catch (ExecutionException attemptsFailed) {
+            Throwable cause = attemptsFailed.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ImageAnalysisException("Image analysis failed", cause);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            // Completing the request cancels its attempts
+            firstResult.cancel(true);
+            throw new ImageAnalysisException("Interrupted while waiting for image analysis", interrupted);
+        }
+    }
+
+    /**
+     * Starts the primary attempt and schedules the hedge without holding the caller; the returned
+     * future completes with the first answer.
+     */
+    @Override
+    public CompletableFuture<DetectionResult> analyzeImageAsync(BufferedImage image, float confidenceThreshold) {
+        long requestNumber = requests.incrementAndGet();
+        long startNanos = System.nanoTime();
+        CompletableFuture<DetectionResult> firstResult = new CompletableFuture<>();
+        AtomicInteger pendingAttempts = new AtomicInteger(1);
+        AtomicReference<Future<?>> hedgeAttempt = new AtomicReference<>();
+        Future<?> primaryAttempt = submitAttempt(image, confidenceThreshold, firstResult, pendingAttempts, false);
+        Duration hedgeDelay = getHedgeDelay();
+        if (hedgeDelay != null) {
+            CompletableFuture.delayedExecutor(hedgeDelay.toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+                if (!firstResult.isDone() && tryAcquireHedge(requestNumber)) {
+                    // Counted before it can run, so a hedge failing at once cannot fail the request early
+                    pendingAttempts.incrementAndGet();
+                    try {
+                        hedgeAttempt.set(submitAttempt(image, confidenceThreshold, firstResult, pendingAttempts, true));
+                    } catch (RejectedExecutionException saturated) {
+                        // The hedge never runs, so it is not counted and must not keep the request open
+                        hedgedRequests.decrementAndGet();
+                        if (pendingAttempts.decrementAndGet() == 0) {
+                            firstResult.completeExceptionally(saturated);
+                        }
+                        return;
+                    }
+                    if (firstResult.isDone()) {
+                        hedgeAttempt.get().cancel(true);
+                    }
+                }
+            });
+        }
+        firstResult.whenComplete((result, error) -> {
+            // Cancelling an attempt that already finished has no effect, so only the loser is stopped
+            primaryAttempt.cancel(true);
+            Future<?> hedge = hedgeAttempt.get();
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+            requestLatencies.recordNanos(System.nanoTime() - startNanos);
+        });
+        return firstResult;
+    }
+
+    @Override
+    public List<Boolean> classifyBatch(List<BufferedImage> images, float confidenceThreshold) {
+        List<CompletableFuture<DetectionResult>> pendingResults = new ArrayList<>(images.size());
+        for (BufferedImage image : images) {
+            pendingResults.add(analyzeImageAsync(image, confidenceThreshold));
+        }
+        List<Boolean> verdicts = new ArrayList<>(images.size());
+        for (CompletableFuture<DetectionResult> pendingResult : pendingResults) {
+            try {
+                verdicts.add(pendingResult.join().containsCat(confidenceThreshold));
+            } catch (CompletionException attemptsFailed) {
+                if (attemptsFailed.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) attemptsFailed.getCause();
+                }
+                throw attemptsFailed;
+            }
+        }
+        return verdicts;
+    }
+
+    private Future<?> submitAttempt(BufferedImage image, float confidenceThreshold,
+                                    CompletableFuture<DetectionResult> firstResult,
+                                    AtomicInteger pendingAttempts, boolean hedge) {
+        return attemptExecutor.submit(() -> {
+            long attemptStartNanos = System.nanoTime();
+            try {
+                DetectionResult result = delegate.analyzeImage(image, confidenceThreshold);
+                recordAttemptLatency(System.nanoTime() - attemptStartNanos);
+                if (firstResult.complete(result) && hedge) {
+                    hedgeWins.incrementAndGet();
+                }
+            } catch (RuntimeException attemptError) {
+                if (firstResult.isDone()) {
+                    // The losing attempt was cut short by cancellation after running this long; leaving
+                    // it out would record only the fast attempts and drag the hedge delay down
+                    recordAttemptLatency(System.nanoTime() - attemptStartNanos);
+                }
+                // A failed attempt only fails the request once no other attempt can still answer it
+                if (pendingAttempts.decrementAndGet() == 0) {
+                    firstResult.completeExceptionally(attemptError);
+                }
+            }
+        });
+    }
+
+    private boolean tryAcquireHedge(long requestNumber) {
+        if (hedgedRequests.incrementAndGet() > hedgeBudget * requestNumber) {
+            hedgedRequests.decrementAndGet();
+            budgetDeniedHedges.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private void recordAttemptLatency(long latencyNanos) {
+        LatencyHistogram window = currentLatencyWindow;
+        window.recordNanos(latencyNanos);
+        if (window.getCount() >= LATENCY_WINDOW_SIZE) {
+            synchronized (latencyWindowLock) {
+                if (currentLatencyWindow == window) {
+                    previousLatencyWindow = window;
+                    currentLatencyWindow = new LatencyHistogram();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return How long a request currently waits before it is hedged, or null while too few
+     * latencies have been recorded to hedge
+     */
+    public Duration getHedgeDelay() {
+        LatencyHistogram window = previousLatencyWindow;
+        if (window == null) {
+            window = currentLatencyWindow;
+            if (window.getCount() < MIN_SAMPLES_FOR_HEDGING) {
+                return null;
+            }
+        }
+        Duration percentileLatency = window.percentile(hedgePercentile);
+        return percentileLatency.compareTo(minimumHedgeDelay) > 0 ? percentileLatency : minimumHedgeDelay;
+    }
+
+    /**
+     * @return Latency seen by callers, including the effect of hedging
+     */
+    public LatencyHistogram getLatencyHistogram() {
+        return requestLatencies;
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getHedgedRequestCount() {
+        return hedgedRequests.get();
+    }
+
+    /**
+     * @return Number of hedges that answered before the original request
+     */
+    public long getHedgeWinCount() {
+        return hedgeWins.get();
+    }
+
+    /**
+     * @return Number of slow requests that were not hedged because the budget was used up
+     */
+    public long getBudgetDeniedHedgeCount() {
+        return budgetDeniedHedges.get();
+    }
+
+    /**
+     * @return Fraction of requests (0-1) that were hedged so far
+     */
+    public double getHedgeRate() {
+        long total = requests.get();
+        return total == 0 ? 0.0 : (double) hedgedRequests.get() / total;
+    }
+}
@@ -0,0 +1,16 @@
+package com.udacity.catpoint.image.service;
+
+/**
+ * Thrown when an image service fails to analyse a frame, e.g. because the backend errored or
+ * rejected the request for exceeding its throughput limits.
+ */
+public class ImageAnalysisException extends RuntimeException {
+
+    public ImageAnalysisException(String message) {
+        super(message);
+    }
+
+    public ImageAnalysisException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
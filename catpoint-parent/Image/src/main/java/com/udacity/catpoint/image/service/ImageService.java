@@ -1,9 +1,19 @@
 package com.udacity.catpoint.image.service;
 
 import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Interface for image recognition services that can identify cats in images.
+ *
+ * Decorators must override {@link #analyzeImageAsync} and {@link #classifyBatch} and forward them to
+ * the service they wrap. The defaults run the synchronous methods on the common {@link ForkJoinPool},
+ * which would hold common pool threads for the whole of a wrapped remote service's network round trip
+ * and bypass that service's own executor and request limits.
  */
 public interface ImageService {
     /**
@@ -13,4 +23,68 @@ public interface ImageService {
      * @return true if a cat is detected, false otherwise
      */
     boolean imageContainsCat(BufferedImage image, float confidenceThreshold);
-}
\ No newline at end of file
+
+    /**
+     * Scans the image and returns a result that can be re-evaluated against other thresholds.
+     * Services that see label confidences should override this to return a scored result; the default
+     * wraps {@link #imageContainsCat} in a verdict-only result for the given threshold.
+     * @param image Image to scan
+     * @param confidenceThreshold Threshold a verdict-only service answers for; scored services may ignore it
+     * @return The detection result, with the time the analysis took
+     */
+    default DetectionResult analyzeImage(BufferedImage image, float confidenceThreshold) {
+        long startNanos = System.nanoTime();
+        boolean catDetected = imageContainsCat(image, confidenceThreshold);
+        return DetectionResult.ofVerdict(catDetected, confidenceThreshold, Duration.ofNanos(System.nanoTime() - startNanos));
+    }
+
+    /**
+     * Scans the image without blocking the caller. Implementations backed by remote calls should
+     * override this to run on an executor suited to blocking I/O; the default runs
+     * {@link #analyzeImage} on the common pool.
+     * @param image Image to scan
+     * @param confidenceThreshold Threshold a verdict-only service answers for; scored services may ignore it
+     * @return A future completed with the detection result
+     */
+    default CompletableFuture<DetectionResult> analyzeImageAsync(BufferedImage image, float confidenceThreshold) {
+        return CompletableFuture.supplyAsync(() -> analyzeImage(image, confidenceThreshold), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Scans the image without blocking the caller, through {@link #analyzeImageAsync}.
+     * @param image Image to scan
+     * @param confidenceThreshold Minimum threshold to consider for cat detection
+     * @return A future completed with true if a cat is detected
+     */
+    default CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshold) {
+        return analyzeImageAsync(image, confidenceThreshold).thenApply(result -> result.containsCat(confidenceThreshold));
+    }
+
+    /**
+     * Scans the image on the given executor without blocking the caller.
+     * @param image Image to scan
+     * @param confidenceThreshold Minimum threshold to consider for cat detection
+     * @param executor Executor that runs the scan
+     * @return A future completed with true if a cat is detected
+     */
+    default CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshold, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> imageContainsCat(image, confidenceThreshold), executor);
+    }
+
+    /**
+     * Classifies a burst of frames, returning one verdict per frame in input order. The default
+     * implementation fans the frames out over the common {@link ForkJoinPool}.
+     * @param images Frames to scan
+     * @param confidenceThreshold Minimum threshold to consider for cat detection
+     * @return Verdicts in the same order as {@code images}
+     */
+    default List<Boolean> classifyBatch(List<BufferedImage> images, float confidenceThreshold) {
+        if (images.isEmpty()) {
+            return List.of();
+        }
+        Boolean[] verdicts = new Boolean[images.size()];
+        ForkJoinPool.commonPool().invoke(
+                new BatchClassificationTask(this, images, confidenceThreshold, verdicts, 0, images.size()));
+        return List.of(verdicts);
+    }
+}
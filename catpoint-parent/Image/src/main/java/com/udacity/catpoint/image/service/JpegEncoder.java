@@ -0,0 +1,183 @@
+package com.udacity.catpoint.image.service;
+
+import com.udacity.catpoint.image.processing.FramePool;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Function;
+
+/**
+ * Thread-safe JPEG encoder that keeps a small pool of configured {@link ImageWriter}s and their
+ * output buffers, so encoding a frame does not look up a writer, rebuild its parameters or regrow
+ * a fresh byte stream every time. Each encoded frame costs a single exact-size array copy, or none
+ * when the caller reads the pooled output buffer in place through {@link #encode(BufferedImage, Function)}.
+ *
+ * Unlike {@code ImageIO.write}, which silently returns false for images the JPEG writer cannot
+ * handle, frames with an alpha channel or an unusual colour model are first flattened to RGB, in a
+ * frame reused from a {@link FramePool}.
+ */
+public class JpegEncoder {
+
+    private static final int DEFAULT_POOL_SIZE = 4;
+    // Initial output buffer size; buffers grow to fit the largest frame seen and are then reused
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final float quality;
+    private final BlockingQueue<PooledWriter> idleWriters;
+    // RGB copies of frames the writer cannot take directly, reused across frames of the same size
+    private final FramePool flattenedFrames;
+
+    /**
+     * @param quality JPEG compression quality between 0 (smallest) and 1 (best)
+     */
+    public JpegEncoder(float quality) {
+        this(quality, DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * @param quality JPEG compression quality between 0 (smallest) and 1 (best)
+     * @param poolSize Maximum number of idle writers retained for reuse
+     */
+    public JpegEncoder(float quality, int poolSize) {
+        if (quality < 0f || quality > 1f) {
+            throw new IllegalArgumentException("JPEG quality must be between 0 and 1");
+        }
+        this.quality = quality;
+        this.idleWriters = new ArrayBlockingQueue<>(poolSize);
+        this.flattenedFrames = new FramePool(poolSize);
+    }
+
+    /**
+     * Encodes the frame as JPEG.
+     * @param image The frame to encode
+     * @return The encoded bytes, owned by the caller
+     * @throws IOException if the frame cannot be encoded
+     */
+    public byte[] encode(BufferedImage image) throws IOException {
+        return encode(image, encoded -> {
+            byte[] encodedCopy = new byte[encoded.remaining()];
+            encoded.get(encodedCopy);
+            return encodedCopy;
+        });
+    }
+
+    /**
+     * Encodes the frame as JPEG and lets the caller read the result straight from the pooled output
+     * buffer, without copying it.
+     * @param image The frame to encode
+     * @param encodedFrameReader Reads the encoded bytes; the buffer is only valid during the call
+     * @param <T> What the reader makes of the encoded bytes
+     * @return The reader's result
+     * @throws IOException if the frame cannot be encoded
+     */
+    public <T> T encode(BufferedImage image, Function<ByteBuffer, T> encodedFrameReader) throws IOException {
+        BufferedImage encodableImage = toEncodableImage(image);
+        PooledWriter pooledWriter = null;
+        boolean reusable = false;
+        try {
+            pooledWriter = idleWriters.poll();
+            if (pooledWriter == null) {
+                pooledWriter = new PooledWriter(quality);
+            }
+            ByteBuffer encoded = pooledWriter.write(encodableImage);
+            reusable = true;
+            return encodedFrameReader.apply(encoded);
+        } finally {
+            if (encodableImage != image) {
+                flattenedFrames.release(encodableImage);
+            }
+            // A writer that failed mid-stream may hold broken state, so it is not returned to the pool
+            if (pooledWriter != null && (!reusable || !idleWriters.offer(pooledWriter))) {
+                pooledWriter.dispose();
+            }
+        }
+    }
+
+    public float getQuality() {
+        return quality;
+    }
+
+    /**
+     * Returns an image the JPEG writer accepts, flattening alpha and indexed colour models to RGB.
+     */
+    private BufferedImage toEncodableImage(BufferedImage image) {
+        return switch (image.getType()) {
+            case BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_INT_RGB,
+                    BufferedImage.TYPE_INT_BGR, BufferedImage.TYPE_BYTE_GRAY -> image;
+            default -> flattenToRgb(image);
+        };
+    }
+
+    private BufferedImage flattenToRgb(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferedImage rgbImage = flattenedFrames.acquire(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] rgbPixels = ((DataBufferInt) rgbImage.getRaster().getDataBuffer()).getData();
+        // TYPE_INT_RGB ignores the top byte, so ARGB pixels can be copied as-is
+        image.getRGB(0, 0, width, height, rgbPixels, 0, width);
+        return rgbImage;
+    }
+
+    /**
+     * A JPEG writer with its compression parameters and a reusable output buffer.
+     */
+    private static final class PooledWriter {
+        private final ImageWriter writer;
+        private final ImageWriteParam writeParam;
+        private final ExposedOutputBuffer outputBuffer = new ExposedOutputBuffer();
+
+        PooledWriter(float quality) throws IOException {
+            Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+            if (!writers.hasNext()) {
+                throw new IOException("No JPEG image writer available");
+            }
+            writer = writers.next();
+            writeParam = writer.getDefaultWriteParam();
+            writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            writeParam.setCompressionQuality(quality);
+        }
+
+        /**
+         * @return A view of the encoded bytes in the output buffer, valid until the next write
+         */
+        ByteBuffer write(BufferedImage image) throws IOException {
+            outputBuffer.reset();
+            try (ImageOutputStream imageStream = new MemoryCacheImageOutputStream(outputBuffer)) {
+                writer.setOutput(imageStream);
+                writer.write(null, new IIOImage(image, null, null), writeParam);
+            } finally {
+                writer.setOutput(null);
+            }
+            return outputBuffer.view();
+        }
+
+        void dispose() {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Output buffer whose contents can be read in place rather than copied by {@code toByteArray}.
+     */
+    private static final class ExposedOutputBuffer extends ByteArrayOutputStream {
+        ExposedOutputBuffer() {
+            super(INITIAL_BUFFER_SIZE);
+        }
+
+        ByteBuffer view() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
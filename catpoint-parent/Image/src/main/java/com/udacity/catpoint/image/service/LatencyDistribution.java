@@ -0,0 +1,52 @@
+package com.udacity.catpoint.image.service;
+
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * Source of simulated response times for {@link SimulatedImageService}.
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    /**
+     * @param random Source of randomness, seeded by the caller for reproducible runs
+     * @return A latency in nanoseconds, never negative
+     */
+    long sampleNanos(Random random);
+
+    /**
+     * Every request takes exactly the given time.
+     */
+    static LatencyDistribution fixed(Duration latency) {
+        long latencyNanos = latency.toNanos();
+        return random -> latencyNanos;
+    }
+
+    /**
+     * Latencies follow a normal distribution, with negative draws clamped to zero.
+     */
+    static LatencyDistribution normal(Duration mean, Duration standardDeviation) {
+        long meanNanos = mean.toNanos();
+        long deviationNanos = standardDeviation.toNanos();
+        return random -> Math.max(0L, meanNanos + (long) (random.nextGaussian() * deviationNanos));
+    }
+
+    /**
+     * Latencies follow a log-normal distribution, the usual shape of network service response times:
+     * most requests cluster near the median with a long tail of slow ones.
+     * @param median Median latency
+     * @param sigma Standard deviation of the latency's natural logarithm; 0.5 gives a p99 about 3.2x the median
+     */
+    static LatencyDistribution logNormal(Duration median, double sigma) {
+        double logMedian = Math.log(median.toNanos());
+        return random -> (long) Math.exp(logMedian + sigma * random.nextGaussian());
+    }
+
+    /**
+     * Latencies are drawn from a histogram recorded against a real backend.
+     */
+    static LatencyDistribution replay(LatencyHistogram recordedLatencies) {
+        return recordedLatencies::sampleNanos;
+    }
+}
@@ -0,0 +1,130 @@
+package com.udacity.catpoint.image.service;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe, fixed-size histogram of latencies with microsecond resolution at the low end and
+ * about 6% relative precision above 32 µs, in the style of HdrHistogram: each power of two is split
+ * into 16 equal buckets. Recording is lock-free and allocates nothing, so it can sit on the request path.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Values below this are counted exactly, one bucket per microsecond
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+    private static final int BUCKET_COUNT = Long.SIZE * SUB_BUCKETS;
+
+    private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void record(Duration latency) {
+        recordNanos(latency.toNanos());
+    }
+
+    public void recordNanos(long latencyNanos) {
+        long micros = Math.max(0L, latencyNanos / 1_000L);
+        bucketCounts.incrementAndGet(bucketIndex(micros));
+        totalCount.increment();
+        totalMicros.add(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    /**
+     * @param percentile Percentile between 0 and 100, e.g. 99.9
+     * @return An upper bound on the latency below which that share of recorded values fall, or zero if empty
+     */
+    public Duration percentile(double percentile) {
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        long count = totalCount.sum();
+        if (count == 0) {
+            return Duration.ZERO;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += bucketCounts.get(bucket);
+            if (seen >= rank) {
+                long upperBound = bucketLowerBound(bucket) + bucketWidth(bucket) - 1;
+                return Duration.ofNanos(Math.min(upperBound, maxMicros.get()) * 1_000L);
+            }
+        }
+        return Duration.ofNanos(maxMicros.get() * 1_000L);
+    }
+
+    /**
+     * Draws a latency distributed like the recorded ones: a bucket weighted by its count, then
+     * a uniform value within it.
+     * @param random Source of randomness
+     * @return A sampled latency in nanoseconds, or zero if nothing has been recorded
+     */
+    public long sampleNanos(Random random) {
+        long count = totalCount.sum();
+        if (count == 0) {
+            return 0L;
+        }
+        long target = (long) (random.nextDouble() * count);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            long bucketCount = bucketCounts.get(bucket);
+            seen += bucketCount;
+            if (bucketCount > 0 && seen > target) {
+                long micros = bucketLowerBound(bucket) + (long) (random.nextDouble() * bucketWidth(bucket));
+                return Math.min(micros, maxMicros.get()) * 1_000L;
+            }
+        }
+        return maxMicros.get() * 1_000L;
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    public Duration getMean() {
+        long count = totalCount.sum();
+        return count == 0 ? Duration.ZERO : Duration.ofNanos(totalMicros.sum() * 1_000L / count);
+    }
+
+    public Duration getMax() {
+        return Duration.ofNanos(maxMicros.get() * 1_000L);
+    }
+
+    /**
+     * Maps a value to its bucket: values below 32 µs get one bucket each; above that, the value's
+     * top five significant bits pick one of 16 buckets within its power of two.
+     */
+    private static int bucketIndex(long micros) {
+        if (micros < LINEAR_LIMIT) {
+            return (int) micros;
+        }
+        int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(micros)) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((micros >>> shift) - SUB_BUCKETS);
+    }
+
+    private static long bucketLowerBound(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    }
+
+    private static long bucketWidth(int bucket) {
+        return bucket < LINEAR_LIMIT ? 1L : 1L << (bucket / SUB_BUCKETS - 1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d samples, mean %.2f ms, p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms",
+                getCount(), getMean().toNanos() / 1e6, percentile(50).toNanos() / 1e6,
+                percentile(99).toNanos() / 1e6, percentile(99.9).toNanos() / 1e6, getMax().toNanos() / 1e6);
+    }
+}
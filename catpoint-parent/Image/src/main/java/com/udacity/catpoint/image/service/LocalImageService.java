@@ -0,0 +1,233 @@
+package com.udacity.catpoint.image.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * On-device feline detection service that runs a small bundled classifier entirely inside the JVM.
+ * No network round trip is made, so analysis cost is bounded by local CPU time alone.
+ *
+ * The classifier is a logistic model over colour and texture features sampled from a fixed-size
+ * grid laid over the frame. Pixels are read straight from the backing {@code int[]}/{@code byte[]}
+ * rasters where possible, and the sampled rows are split into bands that are scored in parallel
+ * on a {@link ForkJoinPool}. Model weights are loaded from {@code local-cat-classifier.properties},
+ * bundled next to this class.
+ *
+ * This model is far less discerning than a cloud service; it is intended for offline operation,
+ * cost-free pre-screening and development use.
+ */
+public class LocalImageService implements ImageService {
+
+    private static final String MODEL_RESOURCE = "local-cat-classifier.properties";
+
+    // Longest side of the sampling grid; larger frames are sampled with a proportionally wider stride
+    private static final int SAMPLE_RESOLUTION = 256;
+    // Minimum number of sample rows a single fork/join task scores before it stops splitting
+    private static final int ROWS_PER_TASK = 16;
+
+    private static final int FEATURE_COUNT = 8;
+    private static final String[] FEATURE_NAMES = {
+            "furTone", "neutralTone", "dark", "foliage", "sky", "bright", "furTexture", "smoothWarm"
+    };
+
+    private final Logger logger = LoggerFactory.getLogger(LocalImageService.class);
+
+    private final ForkJoinPool inferencePool;
+    private final float bias;
+    private final float[] weights = new float[FEATURE_COUNT];
+
+    public LocalImageService() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param inferencePool Pool used to score image bands in parallel
+     */
+    public LocalImageService(ForkJoinPool inferencePool) {
+        this.inferencePool = inferencePool;
+        Properties modelProperties = new Properties();
+        try (InputStream modelStream = LocalImageService.class.getResourceAsStream(MODEL_RESOURCE)) {
+            if (modelStream == null) {
+                throw new IllegalStateException("Bundled classifier model not found: " + MODEL_RESOURCE);
+            }
+            modelProperties.load(modelStream);
+        } catch (IOException modelLoadingError) {
+            throw new IllegalStateException("Failed to load bundled classifier model", modelLoadingError);
+        }
+        bias = Float.parseFloat(modelProperties.getProperty("bias", "0"));
+        for (int i = 0; i < FEATURE_COUNT; i++) {
+            weights[i] = Float.parseFloat(modelProperties.getProperty("weight." + FEATURE_NAMES[i], "0"));
+        }
+    }
+
+    /**
+     * Analyzes the provided image locally to determine feline presence.
+     * @param image The image data to analyze for feline presence
+     * @param confidenceThreshold Minimum confidence level required for positive detection (0-100)
+     * @return true if the local model's confidence meets the threshold, false otherwise
+     */
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        float confidence = catConfidence(image);
+        logger.debug("Local analysis scored feline confidence {}%", confidence);
+        return confidence >= confidenceThreshold;
+    }
+
+    /**
+     * Scores the image once; the result reports the model's confidence as a single "Cat" label
+     * and answers any threshold.
+     */
+    @Override
+    public DetectionResult analyzeImage(BufferedImage image, float confidenceThreshold) {
+        long startNanos = System.nanoTime();
+        float confidence = catConfidence(image);
+        return DetectionResult.scored(Map.of("Cat", confidence), 0f, Duration.ofNanos(System.nanoTime() - startNanos));
+    }
+
+    /**
+     * Scores the image with the bundled classifier.
+     * @param image The image to score
+     * @return Feline confidence on a 0-100 scale
+     */
+    public float catConfidence(BufferedImage image) {
+        int step = Math.max(1, Math.max(image.getWidth(), image.getHeight()) / SAMPLE_RESOLUTION);
+        int sampleRows = (image.getHeight() - 1) / step;
+        if (sampleRows < 1 || image.getWidth() <= step) {
+            return 0f;
+        }
+        long[] counts = inferencePool.invoke(new FeatureTask(new PixelSampler(image, step), 0, sampleRows));
+
+        double logit = bias;
+        long samples = counts[FEATURE_COUNT];
+        for (int i = 0; i < FEATURE_COUNT; i++) {
+            logit += weights[i] * ((double) counts[i] / samples);
+        }
+        return (float) (100.0 / (1.0 + Math.exp(-logit)));
+    }
+
+    /**
+     * Accumulates feature counts over a range of sample rows, splitting in half until the range is small.
+     * The returned array holds one count per feature followed by the number of samples taken.
+     */
+    private static final class FeatureTask extends RecursiveTask<long[]> {
+        private final PixelSampler sampler;
+        private final int fromRow;
+        private final int toRow;
+
+        FeatureTask(PixelSampler sampler, int fromRow, int toRow) {
+            this.sampler = sampler;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (toRow - fromRow > ROWS_PER_TASK) {
+                int middle = (fromRow + toRow) >>> 1;
+                FeatureTask upperHalf = new FeatureTask(sampler, fromRow, middle);
+                upperHalf.fork();
+                long[] lower = new FeatureTask(sampler, middle, toRow).compute();
+                long[] upper = upperHalf.join();
+                for (int i = 0; i < lower.length; i++) {
+                    lower[i] += upper[i];
+                }
+                return lower;
+            }
+            return scoreRows();
+        }
+
+        private long[] scoreRows() {
+            long[] counts = new long[FEATURE_COUNT + 1];
+            int columns = sampler.columns();
+            int[] row = new int[columns + 1];
+            int[] nextRow = new int[columns + 1];
+            sampler.readRow(fromRow, row);
+            for (int sampleRow = fromRow; sampleRow < toRow; sampleRow++) {
+                sampler.readRow(sampleRow + 1, nextRow);
+                for (int column = 0; column < columns; column++) {
+                    int pixel = row[column];
+                    int red = (pixel >> 16) & 0xFF;
+                    int green = (pixel >> 8) & 0xFF;
+                    int blue = pixel & 0xFF;
+                    int max = Math.max(red, Math.max(green, blue));
+                    int min = Math.min(red, Math.min(green, blue));
+                    int chroma = max - min;
+                    float value = max / 255f;
+                    float saturation = max == 0 ? 0f : (float) chroma / max;
+                    float hue = hue(red, green, blue, max, chroma);
+
+                    int gradient = Math.abs(PixelReader.luminance(pixel) - PixelReader.luminance(row[column + 1]))
+                            + Math.abs(PixelReader.luminance(pixel) - PixelReader.luminance(nextRow[column]));
+
+                    boolean furTone = hue >= 18f && hue <= 50f && saturation >= 0.15f && saturation <= 0.65f && value >= 0.3f;
+                    boolean neutralTone = saturation < 0.15f && value >= 0.3f && value < 0.85f;
+
+                    if (furTone) counts[0]++;
+                    if (neutralTone) counts[1]++;
+                    if (value < 0.2f) counts[2]++;
+                    if (hue >= 60f && hue < 170f && saturation > 0.2f && value > 0.2f) counts[3]++;
+                    if (hue >= 180f && hue < 260f && saturation > 0.2f) counts[4]++;
+                    if (value >= 0.85f && saturation < 0.15f) counts[5]++;
+                    if (furTone && gradient >= 8 && gradient <= 48) counts[6]++;
+                    if (furTone && gradient < 8) counts[7]++;
+                }
+                counts[FEATURE_COUNT] += columns;
+                int[] swap = row;
+                row = nextRow;
+                nextRow = swap;
+            }
+            return counts;
+        }
+
+        private static float hue(int red, int green, int blue, int max, int chroma) {
+            if (chroma == 0) {
+                return 0f;
+            }
+            float hue;
+            if (max == red) {
+                hue = 60f * ((float) (green - blue) / chroma);
+            } else if (max == green) {
+                hue = 60f * ((float) (blue - red) / chroma + 2f);
+            } else {
+                hue = 60f * ((float) (red - green) / chroma + 4f);
+            }
+            return hue < 0f ? hue + 360f : hue;
+        }
+    }
+
+    /**
+     * Reads packed RGB samples from a fixed grid laid over the image.
+     */
+    private static final class PixelSampler {
+        private final PixelReader pixels;
+        private final int step;
+        private final int width;
+
+        PixelSampler(BufferedImage image, int step) {
+            this.pixels = new PixelReader(image);
+            this.step = step;
+            this.width = image.getWidth();
+        }
+
+        /** Number of scored columns; each row holds one extra sample to the right for the gradient. */
+        int columns() {
+            return (width - 1) / step;
+        }
+
+        void readRow(int sampleRow, int[] destination) {
+            int y = sampleRow * step;
+            for (int i = 0; i < destination.length; i++) {
+                destination[i] = pixels.rgb(i * step, y);
+            }
+        }
+    }
+}
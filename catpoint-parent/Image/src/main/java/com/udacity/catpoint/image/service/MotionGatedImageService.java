@@ -0,0 +1,180 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decorator that only forwards a camera frame to the underlying {@link ImageService} when it differs
+ * noticeably from the last frame that was analysed. Frames from a static scene reuse the previous result.
+ *
+ * Each frame is reduced to a small luminance grid, each cell the average of a 4x4 sub-grid of samples. A grid cell counts as changed when its luminance moved
+ * by more than the pixel threshold, and the frame is analysed when the changed fraction of the grid exceeds
+ * the area threshold. Comparison is always against the last analysed frame, so slow drift still adds up
+ * to a change eventually. The grids are preallocated and reused, so the per-frame comparison allocates nothing.
+ *
+ * One instance tracks one camera; wrap the shared service once per camera feed. Batches hold frames from
+ * several cameras with no common reference frame, so {@link #classifyBatch} forwards them ungated.
+ */
+public class MotionGatedImageService implements ImageService {
+
+    private static final int GRID_WIDTH = 64;
+    private static final int GRID_HEIGHT = 48;
+    // Samples per grid cell along each axis
+    private static final int CELL_SAMPLES = 4;
+
+    private final ImageService delegate;
+    private final int pixelDeltaThreshold;
+    private final float changedAreaThreshold;
+
+    // Luminance of the last analysed frame and scratch space for the incoming one; swapped on analysis
+    private int[] referenceLuminance = new int[GRID_WIDTH * GRID_HEIGHT];
+    private int[] incomingLuminance = new int[GRID_WIDTH * GRID_HEIGHT];
+    // Result for the reference frame; null until a frame has been analysed or while its analysis is in flight
+    private DetectionResult lastResult;
+    // Changes whenever the reference frame does, so a late asynchronous result cannot overwrite a newer one
+    private long referenceGeneration;
+
+    private final AtomicLong analysedFrames = new AtomicLong();
+    private final AtomicLong skippedFrames = new AtomicLong();
+
+    /**
+     * @param delegate Service that analyses frames with enough change
+     * @param pixelDeltaThreshold Luminance change (0-255) above which a grid cell counts as changed
+     * @param changedAreaThreshold Fraction of changed cells (0-1) above which a frame is analysed
+     */
+    public MotionGatedImageService(ImageService delegate, int pixelDeltaThreshold, float changedAreaThreshold) {
+        if (pixelDeltaThreshold < 0 || pixelDeltaThreshold > 255) {
+            throw new IllegalArgumentException("Pixel delta threshold must be between 0 and 255");
+        }
+        if (changedAreaThreshold < 0f || changedAreaThreshold > 1f) {
+            throw new IllegalArgumentException("Changed area threshold must be between 0 and 1");
+        }
+        this.delegate = delegate;
+        this.pixelDeltaThreshold = pixelDeltaThreshold;
+        this.changedAreaThreshold = changedAreaThreshold;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        return analyzeImage(image, confidenceThreshold).containsCat(confidenceThreshold);
+    }
+
+    /**
+     * Reuses the last analysed frame's result while the scene is static and that result can answer
+     * the threshold; a scored result answers any threshold.
+     */
+    @Override
+    public synchronized DetectionResult analyzeImage(BufferedImage image, float confidenceThreshold) {
+        sampleLuminance(image, incomingLuminance);
+        if (isStaticScene(confidenceThreshold)) {
+            skippedFrames.incrementAndGet();
+            return lastResult;
+        }
+        lastResult = delegate.analyzeImage(image, confidenceThreshold);
+        adoptIncomingAsReference();
+        return lastResult;
+    }
+
+    /**
+     * Asynchronous form of {@link #analyzeImage}. The frame becomes the reference as soon as it is
+     * submitted; frames arriving before its result is known are analysed rather than gated.
+     */
+    @Override
+    public CompletableFuture<DetectionResult> analyzeImageAsync(BufferedImage image, float confidenceThreshold) {
+        long generation;
+        synchronized (this) {
+            sampleLuminance(image, incomingLuminance);
+            if (isStaticScene(confidenceThreshold)) {
+                skippedFrames.incrementAndGet();
+                return CompletableFuture.completedFuture(lastResult);
+            }
+            lastResult = null;
+            adoptIncomingAsReference();
+            generation = referenceGeneration;
+        }
+        return delegate.analyzeImageAsync(image, confidenceThreshold).thenApply(detectionResult -> {
+            synchronized (this) {
+                if (referenceGeneration == generation) {
+                    lastResult = detectionResult;
+                }
+            }
+            return detectionResult;
+        });
+    }
+
+    @Override
+    public List<Boolean> classifyBatch(List<BufferedImage> images, float confidenceThreshold) {
+        return delegate.classifyBatch(images, confidenceThreshold);
+    }
+
+    private boolean isStaticScene(float confidenceThreshold) {
+        return lastResult != null && lastResult.canEvaluate(confidenceThreshold)
+                && changedFraction(referenceLuminance, incomingLuminance) <= changedAreaThreshold;
+    }
+
+    private void adoptIncomingAsReference() {
+        int[] previousReference = referenceLuminance;
+        referenceLuminance = incomingLuminance;
+        incomingLuminance = previousReference;
+        referenceGeneration++;
+        analysedFrames.incrementAndGet();
+    }
+
+    /**
+     * Forgets the reference frame so the next frame is always analysed, e.g. after the camera has moved.
+     */
+    public synchronized void reset() {
+        lastResult = null;
+        referenceGeneration++;
+    }
+
+    /**
+     * Averages a fixed sub-grid of samples spread over each grid cell, so a change anywhere in the cell
+     * moves its luminance and sensor and compression noise is damped, at a fixed cost per frame.
+     */
+    private static void sampleLuminance(BufferedImage image, int[] grid) {
+        PixelReader pixels = new PixelReader(image);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        for (int gridY = 0; gridY < GRID_HEIGHT; gridY++) {
+            for (int gridX = 0; gridX < GRID_WIDTH; gridX++) {
+                int luminanceSum = 0;
+                for (int sampleY = 0; sampleY < CELL_SAMPLES; sampleY++) {
+                    int y = samplePosition(gridY, sampleY, GRID_HEIGHT, height);
+                    for (int sampleX = 0; sampleX < CELL_SAMPLES; sampleX++) {
+                        luminanceSum += pixels.luminance(samplePosition(gridX, sampleX, GRID_WIDTH, width), y);
+                    }
+                }
+                grid[gridY * GRID_WIDTH + gridX] = luminanceSum / (CELL_SAMPLES * CELL_SAMPLES);
+            }
+        }
+    }
+
+    /**
+     * @return The pixel at the centre of the given sub-cell of a grid cell, along one axis
+     */
+    private static int samplePosition(int cell, int sample, int cells, int pixels) {
+        long subCells = (long) cells * CELL_SAMPLES;
+        return (int) ((2 * ((long) cell * CELL_SAMPLES + sample) + 1) * pixels / (2 * subCells));
+    }
+
+    private float changedFraction(int[] reference, int[] incoming) {
+        int changedCells = 0;
+        for (int i = 0; i < reference.length; i++) {
+            if (Math.abs(reference[i] - incoming[i]) > pixelDeltaThreshold) {
+                changedCells++;
+            }
+        }
+        return (float) changedCells / reference.length;
+    }
+
+    public long getAnalysedFrameCount() {
+        return analysedFrames.get();
+    }
+
+    public long getSkippedFrameCount() {
+        return skippedFrames.get();
+    }
+}
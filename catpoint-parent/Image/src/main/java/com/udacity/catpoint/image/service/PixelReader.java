@@ -0,0 +1,56 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+
+/**
+ * Reads packed RGB pixels from a {@link BufferedImage}, going straight to the backing array for the
+ * common raster layouts and falling back to {@link BufferedImage#getRGB(int, int)} otherwise.
+ * Avoids the per-pixel colour model conversion and allocation that {@code getRGB} performs.
+ */
+final class PixelReader {
+    private final BufferedImage image;
+    private final int width;
+    private final int[] intPixels;
+    private final byte[] bytePixels;
+
+    PixelReader(BufferedImage image) {
+        this.image = image;
+        this.width = image.getWidth();
+        // Sub-images share their parent's buffer with an offset, so only read direct for unshared rasters
+        boolean unshared = image.getRaster().getParent() == null;
+        int type = image.getType();
+        this.intPixels = unshared && (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)
+                ? ((DataBufferInt) image.getRaster().getDataBuffer()).getData() : null;
+        this.bytePixels = unshared && type == BufferedImage.TYPE_3BYTE_BGR
+                ? ((DataBufferByte) image.getRaster().getDataBuffer()).getData() : null;
+    }
+
+    /**
+     * @return The pixel at (x, y) packed as 0xRRGGBB
+     */
+    int rgb(int x, int y) {
+        if (intPixels != null) {
+            return intPixels[y * width + x] & 0xFFFFFF;
+        }
+        if (bytePixels != null) {
+            int index = (y * width + x) * 3;
+            return (bytePixels[index + 2] & 0xFF) << 16
+                    | (bytePixels[index + 1] & 0xFF) << 8
+                    | (bytePixels[index] & 0xFF);
+        }
+        return image.getRGB(x, y) & 0xFFFFFF;
+    }
+
+    /**
+     * @return The pixel at (x, y) reduced to 8-bit luminance
+     */
+    int luminance(int x, int y) {
+        return luminance(rgb(x, y));
+    }
+
+    static int luminance(int rgb) {
+        return (((rgb >> 16) & 0xFF) * 77 + ((rgb >> 8) & 0xFF) * 150 + (rgb & 0xFF) * 29) >> 8;
+    }
+}
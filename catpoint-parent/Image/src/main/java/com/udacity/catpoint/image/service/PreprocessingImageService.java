@@ -0,0 +1,79 @@
+package com.udacity.catpoint.image.service;
+
+import com.udacity.catpoint.image.processing.FramePipeline;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Decorator that runs each frame through a {@link FramePipeline} (downscaling, colour normalisation,
+ * cropping) before handing it to the underlying {@link ImageService}. Smaller frames encode faster,
+ * upload fewer bytes and come back from remote analysis sooner.
+ *
+ * If the pipeline pools its frames, each processed frame is recycled as soon as the delegate returns,
+ * or its asynchronous analysis completes, so the delegate must not keep a reference to it.
+ */
+public class PreprocessingImageService implements ImageService {
+
+    private final ImageService delegate;
+    private final FramePipeline pipeline;
+
+    public PreprocessingImageService(ImageService delegate, FramePipeline pipeline) {
+        this.delegate = delegate;
+        this.pipeline = pipeline;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        BufferedImage processed = pipeline.process(image);
+        try {
+            return delegate.imageContainsCat(processed, confidenceThreshold);
+        } finally {
+            pipeline.recycle(image, processed);
+        }
+    }
+
+    @Override
+    public DetectionResult analyzeImage(BufferedImage image, float confidenceThreshold) {
+        BufferedImage processed = pipeline.process(image);
+        try {
+            return delegate.analyzeImage(processed, confidenceThreshold);
+        } finally {
+            pipeline.recycle(image, processed);
+        }
+    }
+
+    @Override
+    public CompletableFuture<DetectionResult> analyzeImageAsync(BufferedImage image, float confidenceThreshold) {
+        BufferedImage processed = pipeline.process(image);
+        CompletableFuture<DetectionResult> pendingResult;
+        try {
+            pendingResult = delegate.analyzeImageAsync(processed, confidenceThreshold);
+        } catch (RuntimeException submissionError) {
+            pipeline.recycle(image, processed);
+            throw submissionError;
+        }
+        return pendingResult.whenComplete((detectionResult, analysisError) -> pipeline.recycle(image, processed));
+    }
+
+    @Override
+    public List<Boolean> classifyBatch(List<BufferedImage> images, float confidenceThreshold) {
+        List<BufferedImage> processedImages = new ArrayList<>(images.size());
+        try {
+            for (BufferedImage image : images) {
+                processedImages.add(pipeline.process(image));
+            }
+            return delegate.classifyBatch(processedImages, confidenceThreshold);
+        } finally {
+            for (int i = 0; i < processedImages.size(); i++) {
+                pipeline.recycle(images.get(i), processedImages.get(i));
+            }
+        }
+    }
+
+    public FramePipeline getPipeline() {
+        return pipeline;
+    }
+}
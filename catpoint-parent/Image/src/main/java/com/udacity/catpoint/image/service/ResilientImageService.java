@@ -0,0 +1,277 @@
+package com.udacity.catpoint.image.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Protective wrapper for a remote {@link ImageService} such as {@link AwsImageService}, keeping
+ * latency bounded when the backend slows down or fails instead of letting blocked callers pile up.
+ *
+ * Requests pass through, in order:
+ * <ol>
+ *     <li>single-flight coalescing - a frame identical to one already in flight waits for that
+ *     request's verdict instead of issuing its own</li>
+ *     <li>a token-bucket rate limiter</li>
+ *     <li>a circuit breaker that opens after consecutive failures or timeouts</li>
+ *     <li>a per-call timeout</li>
+ * </ol>
+ * Remote calls run on the given executor, so a call that times out is interrupted rather than left
+ * holding a thread, and a bounded executor caps how many calls are outstanding. Whenever a request
+ * is rate limited, short-circuited, rejected by the executor, times out or fails, the verdict comes
+ * from the configured fallback service instead. A coalesced caller waits no longer than the call
+ * timeout for the shared request either, then asks the fallback itself. Synchronous, asynchronous and batch requests share the
+ * same protections; a batch is protected frame by frame.
+ */
+public class ResilientImageService implements ImageService {
+
+    private final Logger logger = LoggerFactory.getLogger(ResilientImageService.class);
+
+    private final ImageService delegate;
+    private final ImageService fallback;
+    private final ExecutorService remoteCallExecutor;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private final Duration callTimeout;
+
+    private final ConcurrentMap<FrameKey, CompletableFuture<DetectionResult>> inFlightRequests = new ConcurrentHashMap<>();
+
+    private final AtomicLong coalescedRequests = new AtomicLong();
+    private final AtomicLong rateLimitedRequests = new AtomicLong();
+    private final AtomicLong shortCircuitedRequests = new AtomicLong();
+    private final AtomicLong rejectedRequests = new AtomicLong();
+    private final AtomicLong failedRequests = new AtomicLong();
+
+    /**
+     * @param delegate The protected remote service
+     * @param fallback Service answering whenever the delegate cannot be used, e.g. {@link LocalImageService}
+     * @param remoteCallExecutor Runs the delegate's blocking calls; bound it to cap outstanding remote calls
+     * @param rateLimiter Limits the request rate sent to the delegate
+     * @param circuitBreaker Tracks delegate health
+     * @param callTimeout Longest a caller waits for the delegate before the fallback answers
+     */
+    public ResilientImageService(ImageService delegate, ImageService fallback, ExecutorService remoteCallExecutor,
+                                 TokenBucketRateLimiter rateLimiter, CircuitBreaker circuitBreaker, Duration callTimeout) {
+        this.delegate = delegate;
+        this.fallback = fallback;
+        this.remoteCallExecutor = remoteCallExecutor;
+        this.rateLimiter = rateLimiter;
+        this.circuitBreaker = circuitBreaker;
+        this.callTimeout = callTimeout;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        return analyzeImage(image, confidenceThreshold).containsCat(confidenceThreshold);
+    }
+
+    @Override
+    public DetectionResult analyzeImage(BufferedImage image, float confidenceThreshold) {
+        try {
+            return analyzeImageAsync(image, confidenceThreshold).join();
+        } catch (CompletionException fallbackError) {
+            if (fallbackError.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) fallbackError.getCause();
+            }
+            throw fallbackError;
+        }
+    }
+
+    @Override
+    public CompletableFuture<DetectionResult> analyzeImageAsync(BufferedImage image, float confidenceThreshold) {
+        FrameKey key = new FrameKey(image, confidenceThreshold);
+        CompletableFuture<DetectionResult> ownRequest = new CompletableFuture<>();
+        CompletableFuture<DetectionResult> sharedRequest = inFlightRequests.putIfAbsent(key, ownRequest);
+        if (sharedRequest != null) {
+            coalescedRequests.incrementAndGet();
+            // A timeout on a copy leaves the shared request to the callers still waiting for it
+            return sharedRequest.copy().orTimeout(callTimeout.toNanos(), TimeUnit.NANOSECONDS)
+                    .exceptionallyCompose(waitError -> waitError instanceof TimeoutException
+                            ? fallback.analyzeImageAsync(image, confidenceThreshold)
+                            : CompletableFuture.failedFuture(waitError));
+        }
+        ownRequest.whenComplete((result, error) -> inFlightRequests.remove(key, ownRequest));
+        try {
+            analyzeProtected(image, confidenceThreshold).whenComplete((result, error) -> {
+                if (error != null) {
+                    ownRequest.completeExceptionally(error);
+                } else {
+                    ownRequest.complete(result);
+                }
+            });
+        } catch (RuntimeException fallbackError) {
+            ownRequest.completeExceptionally(fallbackError);
+        }
+        return ownRequest;
+    }
+
+    /**
+     * Protects every frame of the batch individually, so each is rate limited and falls back on its own.
+     */
+    @Override
+    public List<Boolean> classifyBatch(List<BufferedImage> images, float confidenceThreshold) {
+        List<CompletableFuture<DetectionResult>> pendingResults = new ArrayList<>(images.size());
+        for (BufferedImage image : images) {
+            pendingResults.add(analyzeImageAsync(image, confidenceThreshold));
+        }
+        List<Boolean> verdicts = new ArrayList<>(images.size());
+        for (CompletableFuture<DetectionResult> pendingResult : pendingResults) {
+            try {
+                verdicts.add(pendingResult.join().containsCat(confidenceThreshold));
+            } catch (CompletionException fallbackError) {
+                if (fallbackError.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) fallbackError.getCause();
+                }
+                throw fallbackError;
+            }
+        }
+        return verdicts;
+    }
+
+    private CompletableFuture<DetectionResult> analyzeProtected(BufferedImage image, float confidenceThreshold) {
+        if (!rateLimiter.tryAcquire()) {
+            rateLimitedRequests.incrementAndGet();
+            return fallback.analyzeImageAsync(image, confidenceThreshold);
+        }
+        if (!circuitBreaker.allowRequest()) {
+            shortCircuitedRequests.incrementAndGet();
+            return fallback.analyzeImageAsync(image, confidenceThreshold);
+        }
+        CompletableFuture<DetectionResult> remoteResult = new CompletableFuture<>();
+        Future<?> remoteCall;
+        try {
+            remoteCall = remoteCallExecutor.submit(() -> {
+                try {
+                    remoteResult.complete(delegate.analyzeImage(image, confidenceThreshold));
+                } catch (RuntimeException remoteError) {
+                    remoteResult.completeExceptionally(remoteError);
+                }
+            });
+        } catch (RejectedExecutionException saturated) {
+            // Never reached the delegate, so it says nothing about its health but must not hold the half-open trial
+            circuitBreaker.releaseRequest();
+            rejectedRequests.incrementAndGet();
+            return fallback.analyzeImageAsync(image, confidenceThreshold);
+        }
+        return remoteResult.orTimeout(callTimeout.toNanos(), TimeUnit.NANOSECONDS).handle((result, remoteError) -> {
+            if (remoteError == null) {
+                circuitBreaker.recordSuccess();
+                return CompletableFuture.completedFuture(result);
+            }
+            // Interrupts the request thread, which a CompletableFuture's own cancel would not
+            remoteCall.cancel(true);
+            circuitBreaker.recordFailure();
+            failedRequests.incrementAndGet();
+            logger.warn("Remote image analysis failed, using fallback (circuit {})", circuitBreaker.getState(), remoteError);
+            return fallback.analyzeImageAsync(image, confidenceThreshold);
+        }).thenCompose(Function.identity());
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    public long getCoalescedRequestCount() {
+        return coalescedRequests.get();
+    }
+
+    public long getRateLimitedRequestCount() {
+        return rateLimitedRequests.get();
+    }
+
+    public long getShortCircuitedRequestCount() {
+        return shortCircuitedRequests.get();
+    }
+
+    /**
+     * @return Requests answered by the fallback because the remote call executor was saturated
+     */
+    public long getRejectedRequestCount() {
+        return rejectedRequests.get();
+    }
+
+    public long getFailedRequestCount() {
+        return failedRequests.get();
+    }
+
+    /**
+     * Identifies a request by exact frame content and threshold. The same {@link BufferedImage} instance
+     * always matches; distinct instances match only when every pixel agrees, so frames that merely look
+     * alike never share a verdict.
+     */
+    private static final class FrameKey {
+        private final BufferedImage image;
+        private final long contentHash;
+        private final float confidenceThreshold;
+
+        FrameKey(BufferedImage image, float confidenceThreshold) {
+            this.image = image;
+            this.contentHash = contentHash(image);
+            this.confidenceThreshold = confidenceThreshold;
+        }
+
+        // 64-bit FNV-1a over the dimensions and every pixel
+        private static long contentHash(BufferedImage image) {
+            int width = image.getWidth();
+            int height = image.getHeight();
+            PixelReader pixels = new PixelReader(image);
+            long hash = 0xCBF29CE484222325L;
+            hash = (hash ^ width) * 0x100000001B3L;
+            hash = (hash ^ height) * 0x100000001B3L;
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    hash = (hash ^ pixels.rgb(x, y)) * 0x100000001B3L;
+                }
+            }
+            return hash;
+        }
+
+        private static boolean samePixels(BufferedImage first, BufferedImage second) {
+            if (first.getWidth() != second.getWidth() || first.getHeight() != second.getHeight()) {
+                return false;
+            }
+            PixelReader firstPixels = new PixelReader(first);
+            PixelReader secondPixels = new PixelReader(second);
+            for (int y = 0; y < first.getHeight(); y++) {
+                for (int x = 0; x < first.getWidth(); x++) {
+                    if (firstPixels.rgb(x, y) != secondPixels.rgb(x, y)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            FrameKey frameKey = (FrameKey) o;
+            // The hash settles almost every mismatch; equal hashes are confirmed pixel by pixel
+            return contentHash == frameKey.contentHash
+                    && Float.compare(confidenceThreshold, frameKey.confidenceThreshold) == 0
+                    && (image == frameKey.image || samePixels(image, frameKey.image));
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(contentHash, confidenceThreshold);
+        }
+    }
+}
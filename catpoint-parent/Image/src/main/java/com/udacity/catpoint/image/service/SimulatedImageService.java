@@ -0,0 +1,186 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in for a remote vision backend for load and capacity testing: requests take realistic,
+ * randomly distributed time, a share of them fail, and requests beyond a concurrency cap are rejected
+ * the way a throttling backend would reject them. No network is involved.
+ *
+ * Runs are reproducible for a given seed. The request sequence number and the seed choose each
+ * request's latency and whether it fails. The frame's perceptual hash and the seed choose its cat
+ * confidence, so a frame always gets the same answer. The simulated confidence is uniform over 0-100
+ * and is reported as a scored {@link DetectionResult}.
+ *
+ * Asynchronous requests and batches hold no thread while their latency elapses: each request is
+ * completed by a timer once its latency is up, so many simulated requests can be in flight at once.
+ */
+public class SimulatedImageService implements ImageService {
+
+    private final long seed;
+    private final LatencyDistribution latencyDistribution;
+    private final double errorRate;
+    private final Semaphore concurrencyPermits;
+
+    private final AtomicLong requestSequence = new AtomicLong();
+    private final AtomicLong failedRequests = new AtomicLong();
+    private final AtomicLong throttledRequests = new AtomicLong();
+    private final LatencyHistogram latencyHistogram = new LatencyHistogram();
+
+    /**
+     * @param seed Seed making latencies, failures and verdicts reproducible
+     * @param latencyDistribution Distribution each request's latency is drawn from
+     * @param errorRate Share of requests (0-1) that fail with an {@link ImageAnalysisException} after their latency
+     * @param maxConcurrentRequests Requests in progress beyond this are rejected immediately
+     */
+    public SimulatedImageService(long seed, LatencyDistribution latencyDistribution, double errorRate, int maxConcurrentRequests) {
+        if (errorRate < 0.0 || errorRate > 1.0) {
+            throw new IllegalArgumentException("Error rate must be between 0 and 1");
+        }
+        if (maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException("Concurrency cap must be positive");
+        }
+        this.seed = seed;
+        this.latencyDistribution = latencyDistribution;
+        this.errorRate = errorRate;
+        this.concurrencyPermits = new Semaphore(maxConcurrentRequests);
+    }
+
+    /**
+     * @throws ImageAnalysisException if the request is throttled, fails by injection or is interrupted
+     */
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        return analyzeImage(image, confidenceThreshold).containsCat(confidenceThreshold);
+    }
+
+    /**
+     * @throws ImageAnalysisException if the request is throttled, fails by injection or is interrupted
+     */
+    @Override
+    public DetectionResult analyzeImage(BufferedImage image, float confidenceThreshold) {
+        admitRequest();
+        try {
+            long startNanos = System.nanoTime();
+            Random requestRandom = new Random(mix(seed, requestSequence.incrementAndGet()));
+            long latencyNanos = latencyDistribution.sampleNanos(requestRandom);
+            boolean injectFailure = requestRandom.nextDouble() < errorRate;
+            TimeUnit.NANOSECONDS.sleep(latencyNanos);
+            return finishRequest(image, startNanos, injectFailure);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            throw new ImageAnalysisException("Simulated analysis interrupted", interrupted);
+        } finally {
+            concurrencyPermits.release();
+        }
+    }
+
+    /**
+     * Completes the request from a timer once its latency has elapsed, without holding a thread meanwhile.
+     * A throttled or failed request completes the future with an {@link ImageAnalysisException}.
+     */
+    @Override
+    public CompletableFuture<DetectionResult> analyzeImageAsync(BufferedImage image, float confidenceThreshold) {
+        try {
+            admitRequest();
+        } catch (ImageAnalysisException throttled) {
+            return CompletableFuture.failedFuture(throttled);
+        }
+        long startNanos = System.nanoTime();
+        Random requestRandom = new Random(mix(seed, requestSequence.incrementAndGet()));
+        long latencyNanos = latencyDistribution.sampleNanos(requestRandom);
+        boolean injectFailure = requestRandom.nextDouble() < errorRate;
+        CompletableFuture<DetectionResult> simulatedResult = new CompletableFuture<>();
+        CompletableFuture.delayedExecutor(latencyNanos, TimeUnit.NANOSECONDS).execute(() -> {
+            try {
+                simulatedResult.complete(finishRequest(image, startNanos, injectFailure));
+            } catch (RuntimeException simulatedFailure) {
+                simulatedResult.completeExceptionally(simulatedFailure);
+            } finally {
+                concurrencyPermits.release();
+            }
+        });
+        return simulatedResult;
+    }
+
+    /**
+     * Sends every frame as its own asynchronous request, so the frames' latencies overlap and each
+     * frame counts against the concurrency cap.
+     * @throws ImageAnalysisException if any frame's request is throttled or fails
+     */
+    @Override
+    public List<Boolean> classifyBatch(List<BufferedImage> images, float confidenceThreshold) {
+        List<CompletableFuture<DetectionResult>> pendingResults = new ArrayList<>(images.size());
+        for (BufferedImage image : images) {
+            pendingResults.add(analyzeImageAsync(image, confidenceThreshold));
+        }
+        List<Boolean> verdicts = new ArrayList<>(images.size());
+        for (CompletableFuture<DetectionResult> pendingResult : pendingResults) {
+            try {
+                verdicts.add(pendingResult.join().containsCat(confidenceThreshold));
+            } catch (CompletionException requestFailed) {
+                if (requestFailed.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) requestFailed.getCause();
+                }
+                throw requestFailed;
+            }
+        }
+        return verdicts;
+    }
+
+    private void admitRequest() {
+        if (!concurrencyPermits.tryAcquire()) {
+            throttledRequests.incrementAndGet();
+            throw new ImageAnalysisException("Simulated backend throttled the request: concurrency limit reached");
+        }
+    }
+
+    /**
+     * Records the request's latency and answers it, or fails it if a failure was drawn for it.
+     */
+    private DetectionResult finishRequest(BufferedImage image, long startNanos, boolean injectFailure) {
+        long elapsedNanos = System.nanoTime() - startNanos;
+        latencyHistogram.recordNanos(elapsedNanos);
+        if (injectFailure) {
+            failedRequests.incrementAndGet();
+            throw new ImageAnalysisException("Simulated backend failure");
+        }
+        float catConfidence = new Random(mix(seed, CachingImageService.differenceHash(image))).nextFloat() * 100f;
+        return DetectionResult.scored(Map.of("Cat", catConfidence), 0f, Duration.ofNanos(elapsedNanos));
+    }
+
+    private static long mix(long seed, long value) {
+        long mixed = seed ^ (value * 0x9E3779B97F4A7C15L);
+        mixed = (mixed ^ (mixed >>> 30)) * 0xBF58476D1CE4E5B9L;
+        return mixed ^ (mixed >>> 31);
+    }
+
+    public long getRequestCount() {
+        return requestSequence.get();
+    }
+
+    public long getFailedRequestCount() {
+        return failedRequests.get();
+    }
+
+    public long getThrottledRequestCount() {
+        return throttledRequests.get();
+    }
+
+    /**
+     * @return Observed latencies of admitted requests, failed ones included
+     */
+    public LatencyHistogram getLatencyHistogram() {
+        return latencyHistogram;
+    }
+}
@@ -0,0 +1,270 @@
+package com.udacity.catpoint.image.service;
+
+import com.udacity.catpoint.image.processing.CropStage;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decorator for high-resolution cameras, where a cat covers only a small part of the frame and is
+ * easily missed when the whole frame is analysed at once. The frame is cut into tiles - either a grid
+ * of overlapping squares or a fixed set of per-camera regions of interest - and the tiles are analysed
+ * in parallel on a {@link ForkJoinPool}. The frame contains a cat as soon as any tile does; tiles not
+ * yet started at that point are skipped.
+ *
+ * The pool is always given by the caller, as the delegate is often a remote service. Each call to the
+ * delegate runs as a {@link ForkJoinPool.ManagedBlocker}, so the pool starts a spare worker while a
+ * tile's analysis blocks instead of letting blocked tiles hold every worker.
+ *
+ * Frames no larger than a single tile are passed straight to the underlying service.
+ */
+public class TilingImageService implements ImageService {
+
+    private final ImageService delegate;
+    private final ForkJoinPool tilePool;
+    // Grid mode when regionsOfInterest is null
+    private final int tileSize;
+    private final int tileOverlap;
+    private final List<Rectangle> regionsOfInterest;
+
+    private final LongAdder analysedTiles = new LongAdder();
+    private final LongAdder skippedTiles = new LongAdder();
+
+    /**
+     * Analyses each frame as a grid of overlapping square tiles.
+     * @param delegate Service that analyses individual tiles
+     * @param tileSize Tile edge length in pixels
+     * @param tileOverlap Pixels shared by neighbouring tiles, so a cat on a tile border is seen whole
+     * @param tilePool Pool the tiles are analysed on
+     */
+    public TilingImageService(ImageService delegate, int tileSize, int tileOverlap, ForkJoinPool tilePool) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("Tile size must be positive");
+        }
+        if (tileOverlap < 0 || tileOverlap >= tileSize) {
+            throw new IllegalArgumentException("Tile overlap must be between 0 and the tile size");
+        }
+        this.delegate = delegate;
+        this.tilePool = tilePool;
+        this.tileSize = tileSize;
+        this.tileOverlap = tileOverlap;
+        this.regionsOfInterest = null;
+    }
+
+    /**
+     * Analyses only the given regions of each frame.
+     * @param delegate Service that analyses individual regions
+     * @param regionsOfInterest Areas to analyse, in frame pixel coordinates, e.g. a door and a window
+     * @param tilePool Pool the regions are analysed on
+     */
+    public TilingImageService(ImageService delegate, List<Rectangle> regionsOfInterest, ForkJoinPool tilePool) {
+        if (regionsOfInterest.isEmpty()) {
+            throw new IllegalArgumentException("At least one region of interest is required");
+        }
+        this.delegate = delegate;
+        this.tilePool = tilePool;
+        this.tileSize = 0;
+        this.tileOverlap = 0;
+        List<Rectangle> regions = new ArrayList<>();
+        regionsOfInterest.forEach(region -> regions.add(new Rectangle(region)));
+        this.regionsOfInterest = List.copyOf(regions);
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        List<Rectangle> tiles = tilesFor(image.getWidth(), image.getHeight());
+        if (tiles.isEmpty()) {
+            analysedTiles.increment();
+            return delegateContainsCat(image, confidenceThreshold);
+        }
+        AtomicBoolean catFound = new AtomicBoolean();
+        return tilePool.invoke(new TileAnalysisTask(image, tiles, confidenceThreshold, catFound, 0, tiles.size()));
+    }
+
+    /**
+     * Runs the tiled analysis on the tile pool; frames no larger than a tile go straight to the
+     * underlying service's asynchronous analysis.
+     */
+    @Override
+    public CompletableFuture<DetectionResult> analyzeImageAsync(BufferedImage image, float confidenceThreshold) {
+        if (tilesFor(image.getWidth(), image.getHeight()).isEmpty()) {
+            analysedTiles.increment();
+            return delegate.analyzeImageAsync(image, confidenceThreshold);
+        }
+        return CompletableFuture.supplyAsync(() -> analyzeImage(image, confidenceThreshold), tilePool);
+    }
+
+    /**
+     * Forwards the batch to the underlying service when no frame needs tiling; otherwise the frames
+     * are fanned out over the tile pool and each is tiled as usual.
+     */
+    @Override
+    public List<Boolean> classifyBatch(List<BufferedImage> images, float confidenceThreshold) {
+        if (images.isEmpty()) {
+            return List.of();
+        }
+        boolean anyTiled = images.stream().anyMatch(image -> !tilesFor(image.getWidth(), image.getHeight()).isEmpty());
+        if (!anyTiled) {
+            analysedTiles.add(images.size());
+            return delegate.classifyBatch(images, confidenceThreshold);
+        }
+        Boolean[] verdicts = new Boolean[images.size()];
+        tilePool.invoke(new BatchClassificationTask(this, images, confidenceThreshold, verdicts, 0, images.size()));
+        return List.of(verdicts);
+    }
+
+    /**
+     * @return The tiles to analyse, or an empty list when the whole frame should be analysed as is
+     */
+    private List<Rectangle> tilesFor(int width, int height) {
+        Rectangle frameBounds = new Rectangle(0, 0, width, height);
+        List<Rectangle> tiles = new ArrayList<>();
+        if (regionsOfInterest != null) {
+            for (Rectangle region : regionsOfInterest) {
+                Rectangle clipped = region.intersection(frameBounds);
+                if (!clipped.isEmpty() && !clipped.equals(frameBounds)) {
+                    tiles.add(clipped);
+                }
+            }
+            return tiles;
+        }
+        if (width <= tileSize && height <= tileSize) {
+            return tiles;
+        }
+        for (int y : tileOrigins(height)) {
+            for (int x : tileOrigins(width)) {
+                tiles.add(new Rectangle(x, y, tileSize, tileSize).intersection(frameBounds));
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Tile start offsets along one axis. The last tile is pulled back to end on the frame edge,
+     * so every tile is full size unless the frame itself is smaller than a tile.
+     */
+    private List<Integer> tileOrigins(int length) {
+        List<Integer> origins = new ArrayList<>();
+        if (length <= tileSize) {
+            origins.add(0);
+            return origins;
+        }
+        int stride = tileSize - tileOverlap;
+        int origin = 0;
+        while (origin + tileSize < length) {
+            origins.add(origin);
+            origin += stride;
+        }
+        origins.add(length - tileSize);
+        return origins;
+    }
+
+    /**
+     * Asks the delegate about one tile or frame as a managed blocking call, so a tile pool worker
+     * waiting on a remote delegate is compensated for. Off the pool the delegate is simply called.
+     */
+    private boolean delegateContainsCat(BufferedImage image, float confidenceThreshold) {
+        DelegateCall delegateCall = new DelegateCall(image, confidenceThreshold);
+        try {
+            ForkJoinPool.managedBlock(delegateCall);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            throw new ImageAnalysisException("Interrupted while analysing a tile", interrupted);
+        }
+        return delegateCall.catFound;
+    }
+
+    public long getAnalysedTileCount() {
+        return analysedTiles.sum();
+    }
+
+    public long getSkippedTileCount() {
+        return skippedTiles.sum();
+    }
+
+    /**
+     * One call to the delegate, made by {@link ForkJoinPool#managedBlock}.
+     */
+    private final class DelegateCall implements ForkJoinPool.ManagedBlocker {
+        private final BufferedImage image;
+        private final float confidenceThreshold;
+        private boolean done;
+        private boolean catFound;
+
+        DelegateCall(BufferedImage image, float confidenceThreshold) {
+            this.image = image;
+            this.confidenceThreshold = confidenceThreshold;
+        }
+
+        @Override
+        public boolean block() {
+            catFound = delegate.imageContainsCat(image, confidenceThreshold);
+            done = true;
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return done;
+        }
+    }
+
+    /**
+     * Fork/join task that analyses a range of tiles, splitting the range in half until each task holds
+     * a single tile. Once any tile contains a cat the shared flag is raised and remaining tiles are skipped.
+     */
+    private final class TileAnalysisTask extends RecursiveTask<Boolean> {
+        private final BufferedImage image;
+        private final List<Rectangle> tiles;
+        private final float confidenceThreshold;
+        private final AtomicBoolean catFound;
+        private final int from;
+        private final int to;
+
+        TileAnalysisTask(BufferedImage image, List<Rectangle> tiles, float confidenceThreshold,
+                         AtomicBoolean catFound, int from, int to) {
+            this.image = image;
+            this.tiles = tiles;
+            this.confidenceThreshold = confidenceThreshold;
+            this.catFound = catFound;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Boolean compute() {
+            if (to - from == 1) {
+                return analyseTile(tiles.get(from));
+            }
+            int middle = (from + to) >>> 1;
+            TileAnalysisTask upperHalf = new TileAnalysisTask(image, tiles, confidenceThreshold, catFound, middle, to);
+            upperHalf.fork();
+            boolean lowerHalfFound = new TileAnalysisTask(image, tiles, confidenceThreshold, catFound, from, middle).compute();
+            if (lowerHalfFound && upperHalf.tryUnfork()) {
+                skippedTiles.add(to - middle);
+                return true;
+            }
+            return upperHalf.join() || lowerHalfFound;
+        }
+
+        private boolean analyseTile(Rectangle tile) {
+            if (catFound.get()) {
+                skippedTiles.increment();
+                return false;
+            }
+            analysedTiles.increment();
+            boolean tileContainsCat = delegateContainsCat(new CropStage(tile).apply(image), confidenceThreshold);
+            if (tileContainsCat) {
+                catFound.set(true);
+            }
+            return tileContainsCat;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.udacity.catpoint.image.service;
+
+/**
+ * Token bucket that allows short bursts up to its capacity while holding the long-run rate to a
+ * fixed number of permits per second. Tokens are refilled lazily from the elapsed time on each call,
+ * so no background thread is needed.
+ */
+public class TokenBucketRateLimiter {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final double capacity;
+    private final double permitsPerNano;
+    private double availableTokens;
+    private long lastRefillNanos;
+
+    /**
+     * @param permitsPerSecond Sustained rate at which permits become available
+     * @param burstCapacity Maximum number of permits that can accumulate while idle
+     */
+    public TokenBucketRateLimiter(double permitsPerSecond, int burstCapacity) {
+        if (permitsPerSecond <= 0 || burstCapacity < 1) {
+            throw new IllegalArgumentException("Rate and burst capacity must be positive");
+        }
+        this.capacity = burstCapacity;
+        this.permitsPerNano = permitsPerSecond / NANOS_PER_SECOND;
+        this.availableTokens = burstCapacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Takes a permit if one is available right now.
+     * @return true if the caller may proceed, false if the rate limit has been reached
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (availableTokens >= 1.0) {
+            availableTokens -= 1.0;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Blocks until a permit is available.
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                refill();
+                if (availableTokens >= 1.0) {
+                    availableTokens -= 1.0;
+                    return;
+                }
+                waitNanos = (long) Math.ceil((1.0 - availableTokens) / permitsPerNano);
+            }
+            Thread.sleep(waitNanos / 1_000_000L, (int) (waitNanos % 1_000_000L));
+        }
+    }
+
+    /**
+     * @return Whole permits that could be taken immediately
+     */
+    public synchronized int availablePermits() {
+        refill();
+        return (int) availableTokens;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        availableTokens = Math.min(capacity, availableTokens + (now - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = now;
+    }
+}
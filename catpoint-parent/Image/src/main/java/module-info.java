@@ -7,10 +7,12 @@ module com.udacity.catpoint.image {
     
     // Java base modules
     requires java.desktop;
+    requires jdk.management;
     
     // Logging
     requires org.slf4j;
     
-    // Export the image service package
+    // Export the image service and frame processing packages
     exports com.udacity.catpoint.image.service;
+    exports com.udacity.catpoint.image.processing;
 }
\ No newline at end of file
@@ -0,0 +1,175 @@
+package com.udacity.catpoint.image.processing;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests FramePipeline and the built-in stages it chains.
+ */
+public class FramePipelineTest {
+
+    @Test
+    void process_largeBgrFrame_downscaledToPackedRgb() {
+        // Given: A 640x480 BGR camera frame
+        BufferedImage frame = filledFrame(640, 480, BufferedImage.TYPE_3BYTE_BGR, Color.ORANGE);
+
+        // When: It runs through a pipeline limiting frames to 160 pixels
+        FramePipeline pipeline = FramePipeline.downscaling(160);
+        BufferedImage processed = pipeline.process(frame);
+
+        // Then: It is shrunk with its aspect ratio and colour kept, in packed RGB
+        assertEquals(160, processed.getWidth());
+        assertEquals(120, processed.getHeight());
+        assertEquals(BufferedImage.TYPE_INT_RGB, processed.getType());
+        assertEquals(Color.ORANGE.getRGB(), processed.getRGB(80, 60));
+        List<FramePipeline.StageMetrics> metrics = pipeline.getStageMetrics();
+        assertEquals("downscale", metrics.get(0).getStageName());
+        assertEquals(1, metrics.get(0).getInvocations());
+        assertTrue(metrics.get(0).getBytesSaved() > 0);
+        assertEquals(1, metrics.get(1).getInvocations());
+    }
+
+    // Stages with nothing to do hand the frame on unchanged rather than copying it
+    @Test
+    void process_smallPackedRgbFrame_returnedAsIs() {
+        // Given: A frame already small enough and in packed RGB
+        BufferedImage frame = filledFrame(100, 80, BufferedImage.TYPE_INT_RGB, Color.BLUE);
+
+        // When: It is processed
+        BufferedImage processed = FramePipeline.downscaling(160).process(frame);
+
+        // Then: The same frame comes back
+        assertSame(frame, processed);
+    }
+
+    @Test
+    void downscale_blockOfPixels_averaged() {
+        // Given: A 4x2 frame whose left 2x2 block is black and white and right block is grey
+        BufferedImage frame = new BufferedImage(4, 2, BufferedImage.TYPE_INT_RGB);
+        frame.setRGB(0, 0, 0x000000);
+        frame.setRGB(1, 0, 0xFFFFFF);
+        frame.setRGB(0, 1, 0xFFFFFF);
+        frame.setRGB(1, 1, 0x000000);
+        for (int x = 2; x < 4; x++) {
+            for (int y = 0; y < 2; y++) {
+                frame.setRGB(x, y, 0x404040);
+            }
+        }
+
+        // When: It is shrunk to 2x1
+        BufferedImage downscaled = new DownscaleStage(2).apply(frame);
+
+        // Then: Each output pixel is the average of its block
+        assertEquals(0x7F7F7F, downscaled.getRGB(0, 0) & 0xFFFFFF);
+        assertEquals(0x404040, downscaled.getRGB(1, 0) & 0xFFFFFF);
+    }
+
+    @Test
+    void crop_regionBeyondFrame_clippedToBounds() {
+        // Given: A frame with a red top-left quarter
+        BufferedImage frame = filledFrame(40, 40, BufferedImage.TYPE_INT_RGB, Color.GREEN);
+        Graphics2D graphics = frame.createGraphics();
+        graphics.setColor(Color.RED);
+        graphics.fillRect(0, 0, 20, 20);
+        graphics.dispose();
+
+        // When: A region reaching past the frame's left and top edges is cropped
+        BufferedImage cropped = new CropStage(new Rectangle(-10, -10, 30, 30)).apply(frame);
+
+        // Then: Only the part inside the frame is kept
+        assertEquals(20, cropped.getWidth());
+        assertEquals(20, cropped.getHeight());
+        assertEquals(Color.RED.getRGB(), cropped.getRGB(19, 19));
+    }
+
+    @Test
+    void crop_regionCoveringFrame_returnedAsIs() {
+        // Given: A frame and a region larger than it
+        BufferedImage frame = filledFrame(40, 30, BufferedImage.TYPE_INT_RGB, Color.GREEN);
+
+        // When: The region is cropped
+        BufferedImage cropped = new CropStage(new Rectangle(0, 0, 100, 100)).apply(frame);
+
+        // Then: There is nothing to cut away
+        assertSame(frame, cropped);
+    }
+
+    @Test
+    void normalize_argbFrame_alphaDropped() {
+        // Given: A half-transparent frame
+        BufferedImage frame = filledFrame(8, 8, BufferedImage.TYPE_INT_ARGB, new Color(10, 20, 30, 128));
+
+        // When: It is normalised
+        BufferedImage normalized = new RgbNormalizationStage().apply(frame);
+
+        // Then: It is packed RGB without alpha
+        assertEquals(BufferedImage.TYPE_INT_RGB, normalized.getType());
+        assertFalse(normalized.getColorModel().hasAlpha());
+    }
+
+    @Test
+    void normalize_stretchContrast_channelsSpanFullRange() {
+        // Given: A dim frame whose pixels range from 50 to 150 in every channel
+        BufferedImage frame = new BufferedImage(2, 1, BufferedImage.TYPE_INT_RGB);
+        frame.setRGB(0, 0, 0x323232);
+        frame.setRGB(1, 0, 0x969696);
+
+        // When: Contrast is stretched
+        BufferedImage stretched = new RgbNormalizationStage(true).apply(frame);
+
+        // Then: The darkest pixel becomes black, the brightest white, and the input is untouched
+        assertEquals(0x000000, stretched.getRGB(0, 0) & 0xFFFFFF);
+        assertEquals(0xFFFFFF, stretched.getRGB(1, 0) & 0xFFFFFF);
+        assertEquals(0x323232, frame.getRGB(0, 0) & 0xFFFFFF);
+    }
+
+    // With a pool, intermediate frames are released as soon as they are consumed and recycled results reused
+    @Test
+    void process_withPool_steadyStateAllocatesNoFrames() {
+        // Given: A crop-then-downscale pipeline backed by a pool
+        FramePool framePool = new FramePool();
+        FramePipeline pipeline = new FramePipeline(
+                List.of(new CropStage(new Rectangle(0, 0, 320, 240)), new DownscaleStage(80)), framePool);
+        BufferedImage frame = filledFrame(640, 480, BufferedImage.TYPE_INT_RGB, Color.GRAY);
+
+        // When: Frames are processed and recycled repeatedly
+        for (int i = 0; i < 5; i++) {
+            BufferedImage processed = pipeline.process(frame);
+            pipeline.recycle(frame, processed);
+        }
+
+        // Then: Only the first run allocated the crop and downscale frames
+        assertEquals(2, framePool.getAllocatedFrameCount());
+        assertEquals(8, framePool.getReusedFrameCount());
+    }
+
+    @Test
+    void recycle_unprocessedFrame_notPooled() {
+        // Given: A pooled pipeline that has nothing to do for a small frame
+        FramePool framePool = new FramePool();
+        FramePipeline pipeline = FramePipeline.downscaling(160, framePool);
+        BufferedImage frame = filledFrame(64, 48, BufferedImage.TYPE_INT_RGB, Color.GRAY);
+
+        // When: The camera frame comes back unchanged and is recycled
+        pipeline.recycle(frame, pipeline.process(frame));
+
+        // Then: The pool does not take a frame the pipeline does not own
+        assertNull(framePool.poll(64, 48, BufferedImage.TYPE_INT_RGB));
+    }
+
+    private static BufferedImage filledFrame(int width, int height, int type, Color color) {
+        BufferedImage frame = new BufferedImage(width, height, type);
+        Graphics2D graphics = frame.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+        return frame;
+    }
+}
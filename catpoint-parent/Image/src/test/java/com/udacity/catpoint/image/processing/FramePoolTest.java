@@ -0,0 +1,107 @@
+package com.udacity.catpoint.image.processing;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that FramePool reuses released frames by shape and keeps only a bounded number of them.
+ */
+public class FramePoolTest {
+
+    private final FramePool framePool = new FramePool(2);
+
+    @Test
+    void acquire_afterRelease_sameFrameReused() {
+        // Given: A frame acquired and released
+        BufferedImage frame = framePool.acquire(64, 48, BufferedImage.TYPE_INT_RGB);
+        framePool.release(frame);
+
+        // When: A frame of the same shape is acquired
+        BufferedImage reused = framePool.acquire(64, 48, BufferedImage.TYPE_INT_RGB);
+
+        // Then: The released frame is handed out again
+        assertSame(frame, reused);
+        assertEquals(1, framePool.getAllocatedFrameCount());
+        assertEquals(1, framePool.getReusedFrameCount());
+    }
+
+    // Frames are only reused for exactly the same width, height and type
+    @Test
+    void acquire_otherShape_newFrameAllocated() {
+        // Given: A released 64x48 packed RGB frame
+        framePool.release(framePool.acquire(64, 48, BufferedImage.TYPE_INT_RGB));
+
+        // When: Frames of another size and another type are acquired
+        BufferedImage otherSize = framePool.acquire(48, 64, BufferedImage.TYPE_INT_RGB);
+        BufferedImage otherType = framePool.acquire(64, 48, BufferedImage.TYPE_3BYTE_BGR);
+
+        // Then: Both are new frames of the requested shape
+        assertEquals(48, otherSize.getWidth());
+        assertEquals(BufferedImage.TYPE_3BYTE_BGR, otherType.getType());
+        assertEquals(3, framePool.getAllocatedFrameCount());
+        assertEquals(0, framePool.getReusedFrameCount());
+    }
+
+    @Test
+    void poll_noIdleFrame_nullWithoutAllocating() {
+        // When: A shape with no idle frame is polled
+        BufferedImage frame = framePool.poll(64, 48, BufferedImage.TYPE_INT_RGB);
+
+        // Then: Nothing is handed out or allocated
+        assertNull(frame);
+        assertEquals(0, framePool.getAllocatedFrameCount());
+    }
+
+    @Test
+    void release_beyondFramesPerShape_discarded() {
+        // Given: Three frames of one shape in use
+        BufferedImage first = framePool.acquire(64, 48, BufferedImage.TYPE_INT_RGB);
+        BufferedImage second = framePool.acquire(64, 48, BufferedImage.TYPE_INT_RGB);
+        BufferedImage third = framePool.acquire(64, 48, BufferedImage.TYPE_INT_RGB);
+
+        // When: All three are released into a pool keeping two per shape
+        framePool.release(first);
+        framePool.release(second);
+        framePool.release(third);
+
+        // Then: The third is left to the garbage collector
+        assertEquals(1, framePool.getDiscardedFrameCount());
+        assertNotNull(framePool.poll(64, 48, BufferedImage.TYPE_INT_RGB));
+        assertNotNull(framePool.poll(64, 48, BufferedImage.TYPE_INT_RGB));
+        assertNull(framePool.poll(64, 48, BufferedImage.TYPE_INT_RGB));
+    }
+
+    @Test
+    void release_sameFrameTwice_throwsIllegalStateException() {
+        // Given: A released frame
+        BufferedImage frame = framePool.acquire(64, 48, BufferedImage.TYPE_INT_RGB);
+        framePool.release(frame);
+
+        // When/Then: Releasing it again is refused, since two owners would share it
+        assertThrows(IllegalStateException.class, () -> framePool.release(frame));
+    }
+
+    // A sub-image shares its parent's pixels, so pooling it would let two owners write the same raster
+    @Test
+    void release_subImage_discarded() {
+        // Given: A sub-image of a larger frame
+        BufferedImage parent = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        BufferedImage subImage = parent.getSubimage(0, 0, 32, 24);
+
+        // When: It is released
+        framePool.release(subImage);
+
+        // Then: It is not pooled
+        assertEquals(1, framePool.getDiscardedFrameCount());
+        assertNull(framePool.poll(32, 24, BufferedImage.TYPE_INT_RGB));
+    }
+
+    @Test
+    void acquire_customType_rejected() {
+        // When/Then: A custom image type cannot be pooled
+        assertThrows(IllegalArgumentException.class, () -> framePool.acquire(64, 48, BufferedImage.TYPE_CUSTOM));
+    }
+}
@@ -0,0 +1,140 @@
+package com.udacity.catpoint.image.processing;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that ImageDecoder decodes frames at no less than the target size and reuses released frames.
+ */
+public class ImageDecoderTest {
+
+    private final ImageDecoder imageDecoder = new ImageDecoder();
+
+    @Test
+    void decode_exactMultipleOfTarget_decodedAtTargetSize() throws Exception {
+        // Given: A 640x480 PNG
+        byte[] encoded = png(640, 480);
+
+        // When: It is decoded for a 160x120 target
+        BufferedImage frame = imageDecoder.decode(new ByteArrayInputStream(encoded), 160, 120);
+
+        // Then: Every fourth pixel is read
+        assertEquals(160, frame.getWidth());
+        assertEquals(120, frame.getHeight());
+        assertEquals(1, imageDecoder.getDecodeCount());
+    }
+
+    // Subsampling only by whole factors keeps the frame at least as large as the target
+    @Test
+    void decode_targetNotAFactor_neverSmallerThanTarget() throws Exception {
+        // Given: A 640x480 PNG
+        byte[] encoded = png(640, 480);
+
+        // When: It is decoded for a 200x150 target
+        BufferedImage frame = imageDecoder.decode(new ByteArrayInputStream(encoded), 200, 150);
+
+        // Then: Every third pixel is read, giving a slightly larger frame
+        assertEquals(214, frame.getWidth());
+        assertEquals(160, frame.getHeight());
+    }
+
+    @Test
+    void decode_targetLargerThanSource_decodedAtFullSize() throws Exception {
+        // Given: A 64x48 PNG
+        byte[] encoded = png(64, 48);
+
+        // When: It is decoded for a larger target
+        BufferedImage frame = imageDecoder.decode(new ByteArrayInputStream(encoded), 640, 480);
+
+        // Then: The frame is not scaled up
+        assertEquals(64, frame.getWidth());
+        assertEquals(48, frame.getHeight());
+    }
+
+    @Test
+    void decodeRegion_regionBeyondImage_clippedRegionDecoded() throws Exception {
+        // Given: A PNG whose bottom-right quarter is red
+        byte[] encoded = png(640, 480);
+
+        // When: A region starting in that quarter and reaching past the image is decoded at full size
+        BufferedImage region = imageDecoder.decodeRegion(new ByteArrayInputStream(encoded),
+                new Rectangle(400, 300, 400, 400), 240, 180);
+
+        // Then: Only the part inside the image is decoded, and it is all red
+        assertEquals(240, region.getWidth());
+        assertEquals(180, region.getHeight());
+        assertEquals(Color.RED.getRGB(), region.getRGB(0, 0));
+        assertEquals(Color.RED.getRGB(), region.getRGB(239, 179));
+    }
+
+    @Test
+    void decodeRegion_regionOutsideImage_throwsIOException() throws Exception {
+        // Given: A 64x48 PNG
+        byte[] encoded = png(64, 48);
+
+        // When/Then: Decoding a region that misses the image fails
+        assertThrows(IOException.class, () -> imageDecoder.decodeRegion(new ByteArrayInputStream(encoded),
+                new Rectangle(100, 100, 10, 10), 10, 10));
+    }
+
+    // A released frame is decoded into again rather than allocating a new one
+    @Test
+    void decode_afterRelease_destinationReused() throws Exception {
+        // Given: A frame decoded and released
+        byte[] encoded = png(640, 480);
+        BufferedImage first = imageDecoder.decode(new ByteArrayInputStream(encoded), 160, 120);
+        imageDecoder.release(first);
+
+        // When: Another frame of the same shape is decoded
+        BufferedImage second = imageDecoder.decode(new ByteArrayInputStream(encoded), 160, 120);
+
+        // Then: It is written into the released frame
+        assertSame(first, second);
+        assertEquals(1, imageDecoder.getReusedImageCount());
+    }
+
+    @Test
+    void decode_unsupportedFormat_throwsIOException() {
+        // Given: Bytes that are not an image
+        byte[] encoded = "not an image".getBytes();
+
+        // When/Then: Decoding fails
+        assertThrows(IOException.class, () -> imageDecoder.decode(new ByteArrayInputStream(encoded), 10, 10));
+    }
+
+    @Test
+    void decode_nonPositiveTarget_rejected() throws Exception {
+        // Given: A valid PNG
+        byte[] encoded = png(64, 48);
+
+        // When/Then: A zero target size is refused
+        assertThrows(IllegalArgumentException.class,
+                () -> imageDecoder.decode(new ByteArrayInputStream(encoded), 0, 48));
+    }
+
+    /**
+     * A grey PNG with a red bottom-right quarter.
+     */
+    private static byte[] png(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.GRAY);
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(Color.RED);
+        graphics.fillRect(width / 2, height / 2, width - width / 2, height - height / 2);
+        graphics.dispose();
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", encoded);
+        return encoded.toByteArray();
+    }
+}
@@ -0,0 +1,42 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Exercises AwsImageService against a local RekognitionStandInServer.
+ */
+public class AwsImageServiceTest {
+
+    private RekognitionStandInServer standIn;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        standIn = RekognitionStandInServer.start();
+        standIn.respondWith(Map.of("Cat", 97.0f));
+    }
+
+    @AfterEach
+    void tearDown() {
+        standIn.close();
+    }
+
+    // Warm-up calls must not wait on each other, or an executor running them in turn never finishes
+    @Test
+    void warmUp_callerRunsExecutor_completesEveryCall() {
+        // Given: A service whose analysis executor runs every task on the calling thread
+        AwsImageService awsImageService = new AwsImageService(standIn.newClient(), Runnable::run, 4);
+
+        // When: Three connections are warmed up
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> awsImageService.warmUp(3));
+
+        // Then: Every warm-up call reached the backend
+        assertEquals(3, standIn.getRequestCount());
+    }
+}
@@ -0,0 +1,94 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that BackgroundInitializedImageService answers from the fallback until its service is ready.
+ */
+public class BackgroundInitializedImageServiceTest {
+
+    private static final BufferedImage FRAME = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+
+    private final ImageService fallback = (image, confidenceThreshold) -> false;
+    private final ImageService remote = (image, confidenceThreshold) -> true;
+    // Holds the initializer back until the test runs it
+    private final List<Runnable> heldInitializations = new ArrayList<>();
+
+    @Test
+    void imageContainsCat_whileInitializing_fallbackAnswers() {
+        // Given: A service whose initialisation has not run yet
+        BackgroundInitializedImageService backgroundService =
+                new BackgroundInitializedImageService(() -> remote, fallback, heldInitializations::add);
+
+        // When: A frame is analysed
+        boolean catFound = backgroundService.imageContainsCat(FRAME, 50f);
+
+        // Then: The fallback answers
+        assertFalse(catFound);
+        assertEquals(BackgroundInitializedImageService.Readiness.INITIALIZING, backgroundService.getReadiness());
+    }
+
+    @Test
+    void imageContainsCat_afterInitialization_readyServiceAnswers() {
+        // Given: A service whose initialisation has completed
+        BackgroundInitializedImageService backgroundService =
+                new BackgroundInitializedImageService(() -> remote, fallback, heldInitializations::add);
+        heldInitializations.get(0).run();
+
+        // When: A frame is analysed
+        boolean catFound = backgroundService.imageContainsCat(FRAME, 50f);
+
+        // Then: The initialised service answers
+        assertTrue(catFound);
+        assertEquals(BackgroundInitializedImageService.Readiness.READY, backgroundService.getReadiness());
+    }
+
+    @Test
+    void imageContainsCat_initializationFailed_fallbackKeepsAnswering() throws Exception {
+        // Given: An initializer that fails
+        BackgroundInitializedImageService backgroundService = new BackgroundInitializedImageService(() -> {
+            throw new IllegalStateException("No credentials");
+        }, fallback, heldInitializations::add);
+        heldInitializations.get(0).run();
+
+        // When: A frame is analysed
+        boolean catFound = backgroundService.imageContainsCat(FRAME, 50f);
+
+        // Then: The fallback answers and waiting reports the failure
+        assertFalse(catFound);
+        assertEquals(BackgroundInitializedImageService.Readiness.FAILED, backgroundService.getReadiness());
+        assertFalse(backgroundService.awaitReady(Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void awaitReady_initializationStillRunning_falseAfterTimeout() throws Exception {
+        // Given: A service whose initialisation never runs
+        BackgroundInitializedImageService backgroundService =
+                new BackgroundInitializedImageService(() -> remote, fallback, heldInitializations::add);
+
+        // When/Then: Waiting gives up after the timeout
+        assertFalse(backgroundService.awaitReady(Duration.ofMillis(50)));
+    }
+
+    // The default constructor starts initialisation on its own thread, so the caller is never blocked by it
+    @Test
+    void awaitReady_defaultThread_serviceReady() throws Exception {
+        // Given: A service initialised on its own daemon thread
+        BackgroundInitializedImageService backgroundService =
+                new BackgroundInitializedImageService(() -> remote, fallback);
+
+        // When: The caller waits for it
+        boolean ready = backgroundService.awaitReady(Duration.ofSeconds(5));
+
+        // Then: The initialised service answers from then on
+        assertTrue(ready);
+        assertTrue(backgroundService.imageContainsCat(FRAME, 50f));
+    }
+}
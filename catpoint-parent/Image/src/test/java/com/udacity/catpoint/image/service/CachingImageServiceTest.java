@@ -0,0 +1,200 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that CachingImageService answers repeated and near-identical frames without calling its delegate.
+ */
+public class CachingImageServiceTest {
+
+    private final CountingImageService delegate = new CountingImageService();
+
+    @Test
+    void analyzeImage_sameFrameTwice_delegateCalledOnce() {
+        // Given: A cache in front of the delegate
+        CachingImageService cachingService = new CachingImageService(delegate, 16, 0);
+        BufferedImage frame = gradient(true);
+
+        // When: The same frame is analysed twice
+        DetectionResult first = cachingService.analyzeImage(frame, 50f);
+        DetectionResult second = cachingService.analyzeImage(frame, 50f);
+
+        // Then: The second answer comes from the cache
+        assertSame(first, second);
+        assertEquals(1, delegate.analyses.get());
+        assertEquals(1, cachingService.getHitCount());
+        assertEquals(1, cachingService.getMissCount());
+    }
+
+    // A scored result answers every threshold above its floor, so a new threshold needs no new analysis
+    @Test
+    void analyzeImage_otherThreshold_answeredFromScoredResult() {
+        // Given: A frame analysed at 50 with a cat confidence of 70
+        CachingImageService cachingService = new CachingImageService(delegate, 16, 0);
+        BufferedImage frame = gradient(true);
+        cachingService.analyzeImage(frame, 50f);
+
+        // When: The same frame is asked about at 90
+        boolean catAt90 = cachingService.imageContainsCat(frame, 90f);
+
+        // Then: The cached scores answer without calling the delegate
+        assertFalse(catAt90);
+        assertEquals(1, delegate.analyses.get());
+    }
+
+    @Test
+    void analyzeImage_hashWithinTolerance_treatedAsSameFrame() {
+        // Given: Two frames whose hashes differ in exactly one bit
+        BufferedImage frame = gradient(true);
+        BufferedImage nearFrame = gradient(true);
+        Graphics2D graphics = nearFrame.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, 10, 10);
+        graphics.dispose();
+        assertEquals(1, Long.bitCount(CachingImageService.differenceHash(frame) ^ CachingImageService.differenceHash(nearFrame)));
+
+        // When: Each is analysed by a cache tolerating one differing bit and by one tolerating none
+        CachingImageService tolerantService = new CachingImageService(delegate, 16, 1);
+        tolerantService.analyzeImage(frame, 50f);
+        tolerantService.analyzeImage(nearFrame, 50f);
+        CachingImageService exactService = new CachingImageService(delegate, 16, 0);
+        exactService.analyzeImage(frame, 50f);
+        exactService.analyzeImage(nearFrame, 50f);
+
+        // Then: Only the tolerant cache treats them as the same frame
+        assertEquals(1, tolerantService.getHitCount());
+        assertEquals(0, exactService.getHitCount());
+    }
+
+    @Test
+    void analyzeImage_capacityExceeded_leastRecentlyUsedEvicted() {
+        // Given: A cache holding a single result
+        CachingImageService cachingService = new CachingImageService(delegate, 1, 0);
+        BufferedImage first = gradient(true);
+        BufferedImage second = gradient(false);
+
+        // When: A second frame is cached and the first asked about again
+        cachingService.analyzeImage(first, 50f);
+        cachingService.analyzeImage(second, 50f);
+        cachingService.analyzeImage(first, 50f);
+
+        // Then: The first frame had been evicted and is analysed again
+        assertEquals(3, delegate.analyses.get());
+        assertEquals(2, cachingService.getEvictionCount());
+    }
+
+    @Test
+    void analyzeImageAsync_cachedFrame_completedWithoutDelegate() {
+        // Given: A frame analysed asynchronously once
+        CachingImageService cachingService = new CachingImageService(delegate, 16, 0);
+        BufferedImage frame = gradient(true);
+        DetectionResult first = cachingService.analyzeImageAsync(frame, 50f).join();
+
+        // When: It is analysed asynchronously again
+        CompletableFuture<DetectionResult> second = cachingService.analyzeImageAsync(frame, 50f);
+
+        // Then: The cached result is returned already completed
+        assertTrue(second.isDone());
+        assertSame(first, second.join());
+        assertEquals(1, delegate.analyses.get());
+    }
+
+    // Cached frames are answered directly and only the misses reach the delegate, as one batch
+    @Test
+    void classifyBatch_mixedHitsAndMisses_missesSentAsOneBatch() {
+        // Given: One of three frames is already cached
+        CachingImageService cachingService = new CachingImageService(delegate, 16, 0);
+        BufferedImage cached = gradient(true);
+        cachingService.analyzeImage(cached, 50f);
+        BufferedImage uncached = gradient(false);
+
+        // When: A batch of the cached frame and the same uncached frame twice is classified
+        List<Boolean> verdicts = cachingService.classifyBatch(List.of(cached, uncached, uncached), 50f);
+
+        // Then: Verdicts keep input order and the delegate sees only the misses in one call
+        assertEquals(List.of(true, true, true), verdicts);
+        assertEquals(List.of(2), delegate.batchSizes);
+        assertEquals(1, cachingService.getHitCount());
+
+        // When: The uncached frame is analysed afterwards at the same threshold
+        cachingService.imageContainsCat(uncached, 50f);
+
+        // Then: The batch verdict answers it
+        assertEquals(1, delegate.analyses.get());
+    }
+
+    @Test
+    void clear_cachedFrame_analysedAgain() {
+        // Given: A cached frame
+        CachingImageService cachingService = new CachingImageService(delegate, 16, 0);
+        BufferedImage frame = gradient(true);
+        cachingService.analyzeImage(frame, 50f);
+
+        // When: The cache is cleared
+        cachingService.clear();
+        cachingService.analyzeImage(frame, 50f);
+
+        // Then: The frame is analysed again
+        assertEquals(2, delegate.analyses.get());
+    }
+
+    /**
+     * A 90x80 grey ramp; rising and falling ramps have opposite difference hashes.
+     */
+    private static BufferedImage gradient(boolean rising) {
+        BufferedImage frame = new BufferedImage(90, 80, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < 90; x++) {
+            int grey = rising ? 20 + x * 2 : 200 - x * 2;
+            for (int y = 0; y < 80; y++) {
+                frame.setRGB(x, y, new Color(grey, grey, grey).getRGB());
+            }
+        }
+        return frame;
+    }
+
+    /**
+     * Reports a cat at 70% confidence and counts how often it is asked.
+     */
+    private static final class CountingImageService implements ImageService {
+        private final AtomicInteger analyses = new AtomicInteger();
+        private final List<Integer> batchSizes = new ArrayList<>();
+
+        @Override
+        public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+            return analyzeImage(image, confidenceThreshold).containsCat(confidenceThreshold);
+        }
+
+        @Override
+        public DetectionResult analyzeImage(BufferedImage image, float confidenceThreshold) {
+            analyses.incrementAndGet();
+            return DetectionResult.scored(Map.of("Cat", 70f), 0f, Duration.ZERO);
+        }
+
+        @Override
+        public CompletableFuture<DetectionResult> analyzeImageAsync(BufferedImage image, float confidenceThreshold) {
+            return CompletableFuture.completedFuture(analyzeImage(image, confidenceThreshold));
+        }
+
+        @Override
+        public List<Boolean> classifyBatch(List<BufferedImage> images, float confidenceThreshold) {
+            batchSizes.add(images.size());
+            List<Boolean> verdicts = new ArrayList<>();
+            for (int i = 0; i < images.size(); i++) {
+                verdicts.add(70f >= confidenceThreshold);
+            }
+            return verdicts;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that CascadeImageService settles confident frames with the prefilter and escalates only the
+ * uncertainty band to the backend.
+ */
+public class CascadeImageServiceTest {
+
+    private final WidthScoringImageService prefilter = new WidthScoringImageService();
+    private final CountingBackend backend = new CountingBackend();
+    private final CascadeImageService cascadeService = new CascadeImageService(prefilter, backend, 20f, 80f);
+
+    @Test
+    void imageContainsCat_belowRejectBound_rejectedWithoutBackend() {
+        // When: The prefilter scores a frame at 10
+        boolean catFound = cascadeService.imageContainsCat(frameScoring(10), 50f);
+
+        // Then: It is rejected outright
+        assertFalse(catFound);
+        assertEquals(0, backend.analyses);
+        assertEquals(1, cascadeService.getRejectedFrameCount());
+    }
+
+    @Test
+    void imageContainsCat_atAcceptBound_acceptedWithoutBackend() {
+        // When: The prefilter scores a frame exactly at the accept bound
+        boolean catFound = cascadeService.imageContainsCat(frameScoring(80), 50f);
+
+        // Then: It is accepted outright
+        assertTrue(catFound);
+        assertEquals(0, backend.analyses);
+        assertEquals(1, cascadeService.getAcceptedFrameCount());
+    }
+
+    // The reject bound itself lies inside the band, so a frame scored exactly there is escalated
+    @Test
+    void imageContainsCat_insideBand_backendDecides() {
+        // When: Frames are scored at the reject bound and just below the accept bound
+        boolean atRejectBound = cascadeService.imageContainsCat(frameScoring(20), 50f);
+        boolean belowAcceptBound = cascadeService.imageContainsCat(frameScoring(79), 50f);
+
+        // Then: The backend answers both
+        assertTrue(atRejectBound);
+        assertTrue(belowAcceptBound);
+        assertEquals(2, backend.analyses);
+        assertEquals(2, cascadeService.getEscalatedFrameCount());
+        assertEquals(1.0, cascadeService.getEscalationRate());
+    }
+
+    @Test
+    void imageContainsCat_unscoredPrefilter_alwaysEscalated() {
+        // Given: A prefilter that gives only verdicts
+        CascadeImageService verdictCascade = new CascadeImageService(
+                (image, confidenceThreshold) -> false, backend, 20f, 80f);
+
+        // When: A frame is analysed
+        verdictCascade.imageContainsCat(frameScoring(5), 50f);
+
+        // Then: The backend is asked
+        assertEquals(1, backend.analyses);
+    }
+
+    @Test
+    void analyzeImageAsync_settledByPrefilter_verdictResult() {
+        // When: A frame the prefilter accepts is analysed asynchronously
+        DetectionResult result = cascadeService.analyzeImageAsync(frameScoring(90), 50f).join();
+
+        // Then: The prefilter's verdict is returned for the asked threshold
+        assertFalse(result.isScored());
+        assertTrue(result.containsCat(50f));
+        assertEquals(0, backend.analyses);
+    }
+
+    @Test
+    void analyzeImageAsync_insideBand_backendResult() {
+        // When: A frame inside the band is analysed asynchronously
+        DetectionResult result = cascadeService.analyzeImageAsync(frameScoring(50), 50f).join();
+
+        // Then: The backend's result is returned
+        assertSame(CountingBackend.RESULT, result);
+        assertEquals(1, backend.analyses);
+    }
+
+    @Test
+    void classifyBatch_mixedFrames_onlyEscalatedSentAsOneBatch() {
+        // Given: A batch with one rejected, two uncertain and one accepted frame
+        List<BufferedImage> frames = List.of(frameScoring(5), frameScoring(40), frameScoring(95), frameScoring(60));
+
+        // When: It is classified
+        List<Boolean> verdicts = cascadeService.classifyBatch(frames, 50f);
+
+        // Then: The uncertain frames go to the backend together and verdicts keep input order
+        assertEquals(List.of(false, true, true, true), verdicts);
+        assertEquals(List.of(2), backend.batchSizes);
+        assertEquals(0.5, cascadeService.getEscalationRate());
+    }
+
+    @Test
+    void constructor_rejectBoundAboveAcceptBound_rejected() {
+        // When/Then: An inverted band is refused
+        assertThrows(IllegalArgumentException.class, () -> new CascadeImageService(prefilter, backend, 80f, 20f));
+    }
+
+    /**
+     * A frame the prefilter scores at the given confidence; the score is carried in the frame's width.
+     */
+    private static BufferedImage frameScoring(int catConfidence) {
+        return new BufferedImage(catConfidence + 1, 1, BufferedImage.TYPE_INT_RGB);
+    }
+
+    /**
+     * Prefilter that reports a cat confidence of the frame width minus one.
+     */
+    private static final class WidthScoringImageService implements ImageService {
+        @Override
+        public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+            return analyzeImage(image, confidenceThreshold).containsCat(confidenceThreshold);
+        }
+
+        @Override
+        public DetectionResult analyzeImage(BufferedImage image, float confidenceThreshold) {
+            return DetectionResult.scored(Map.of("Cat", (float) image.getWidth() - 1), 0f, Duration.ZERO);
+        }
+
+        @Override
+        public CompletableFuture<DetectionResult> analyzeImageAsync(BufferedImage image, float confidenceThreshold) {
+            return CompletableFuture.completedFuture(analyzeImage(image, confidenceThreshold));
+        }
+    }
+
+    /**
+     * Backend that always sees a cat and counts how often it is asked.
+     */
+    private static final class CountingBackend implements ImageService {
+        private static final DetectionResult RESULT = DetectionResult.scored(Map.of("Cat", 99f), 0f, Duration.ZERO);
+
+        private int analyses;
+        private final List<Integer> batchSizes = new ArrayList<>();
+
+        @Override
+        public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+            analyses++;
+            return true;
+        }
+
+        @Override
+        public CompletableFuture<DetectionResult> analyzeImageAsync(BufferedImage image, float confidenceThreshold) {
+            analyses++;
+            return CompletableFuture.completedFuture(RESULT);
+        }
+
+        @Override
+        public List<Boolean> classifyBatch(List<BufferedImage> images, float confidenceThreshold) {
+            batchSizes.add(images.size());
+            List<Boolean> verdicts = new ArrayList<>();
+            for (int i = 0; i < images.size(); i++) {
+                verdicts.add(true);
+            }
+            return verdicts;
+        }
+    }
+}
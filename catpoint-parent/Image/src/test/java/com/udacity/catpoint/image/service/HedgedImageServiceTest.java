@@ -0,0 +1,139 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Exercises HedgedImageService around a real AwsImageService client talking to a local
+ * RekognitionStandInServer that injects individual slow responses.
+ */
+public class HedgedImageServiceTest {
+
+    private static final int WARM_UP_REQUESTS = 30;
+
+    private RekognitionStandInServer standIn;
+    private ExecutorService attemptExecutor;
+    private AwsImageService awsImageService;
+    private BufferedImage frame;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        standIn = RekognitionStandInServer.start();
+        standIn.respondWith(Map.of("Cat", 97.0f));
+        attemptExecutor = Executors.newCachedThreadPool();
+        awsImageService = new AwsImageService(standIn.newClient(), attemptExecutor, 4);
+        frame = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+    }
+
+    @AfterEach
+    void tearDown() {
+        standIn.close();
+        attemptExecutor.shutdownNow();
+    }
+
+    @Test
+    void slowResponse_hedgeAnswersFirst() {
+        // Given: Enough fast requests have been seen to estimate the hedge delay
+        HedgedImageService hedgedService = new HedgedImageService(awsImageService, attemptExecutor, 95,
+                Duration.ofMillis(100), 0.5);
+        for (int i = 0; i < WARM_UP_REQUESTS; i++) {
+            assertTrue(hedgedService.imageContainsCat(frame, 50f));
+        }
+        assertEquals(0, hedgedService.getHedgedRequestCount());
+
+        // When: The next request is held for three seconds by the backend
+        standIn.injectSlowResponse(Duration.ofSeconds(3));
+        long start = System.nanoTime();
+        boolean verdict = hedgedService.imageContainsCat(frame, 50f);
+
+        // Then: The duplicate request answers well before the slow one would have
+        assertTrue(verdict);
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(2).toNanos());
+        assertEquals(WARM_UP_REQUESTS + 2, standIn.getRequestCount());
+        assertEquals(1, hedgedService.getHedgedRequestCount());
+        assertEquals(1, hedgedService.getHedgeWinCount());
+        assertEquals(WARM_UP_REQUESTS + 1, hedgedService.getLatencyHistogram().getCount());
+    }
+
+    @Test
+    void exhaustedBudget_slowRequestIsNotHedged() {
+        // Given: A budget that permits no hedges
+        HedgedImageService hedgedService = new HedgedImageService(awsImageService, attemptExecutor, 95,
+                Duration.ofMillis(100), 0.0);
+        for (int i = 0; i < WARM_UP_REQUESTS; i++) {
+            hedgedService.imageContainsCat(frame, 50f);
+        }
+
+        // When: The next request is slow
+        standIn.injectSlowResponse(Duration.ofMillis(600));
+        long start = System.nanoTime();
+        boolean verdict = hedgedService.imageContainsCat(frame, 50f);
+
+        // Then: The caller waits for the original request and no duplicate was sent
+        assertTrue(verdict);
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(600).toNanos());
+        assertEquals(WARM_UP_REQUESTS + 1, standIn.getRequestCount());
+        assertEquals(0, hedgedService.getHedgedRequestCount());
+        assertEquals(1, hedgedService.getBudgetDeniedHedgeCount());
+        assertEquals(0.0, hedgedService.getHedgeRate());
+    }
+
+    // A hedge the executor refuses must not leave the request waiting for an attempt that never runs
+    @Test
+    void hedgeRejectedByExecutor_failedPrimaryStillFailsRequest() {
+        // Given: A delegate whose request after the warm-up fails slowly, and an executor that refuses
+        // further attempts once that request has started
+        AtomicInteger calls = new AtomicInteger();
+        AtomicBoolean refuseAttempts = new AtomicBoolean();
+        ImageService slowlyFailingDelegate = (image, confidenceThreshold) -> {
+            if (calls.incrementAndGet() <= WARM_UP_REQUESTS) {
+                return true;
+            }
+            refuseAttempts.set(true);
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            throw new ImageAnalysisException("Backend unavailable");
+        };
+        ExecutorService refusingExecutor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>()) {
+            @Override
+            public void execute(Runnable command) {
+                if (refuseAttempts.get()) {
+                    throw new RejectedExecutionException("No attempt slot free");
+                }
+                super.execute(command);
+            }
+        };
+        try {
+            HedgedImageService hedgedService = new HedgedImageService(slowlyFailingDelegate, refusingExecutor, 95,
+                    Duration.ofMillis(50), 0.5);
+            for (int i = 0; i < WARM_UP_REQUESTS; i++) {
+                assertTrue(hedgedService.imageContainsCat(frame, 50f));
+            }
+
+            // When/Then: The hedge is refused and the primary fails, which fails the request instead of hanging it
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () ->
+                    assertThrows(ImageAnalysisException.class, () -> hedgedService.imageContainsCat(frame, 50f)));
+            assertEquals(0, hedgedService.getHedgedRequestCount());
+        } finally {
+            refusingExecutor.shutdownNow();
+        }
+    }
+}
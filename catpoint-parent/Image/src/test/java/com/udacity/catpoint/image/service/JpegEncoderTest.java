@@ -0,0 +1,104 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that JpegEncoder produces decodable JPEG frames for every image type and from concurrent callers.
+ */
+public class JpegEncoderTest {
+
+    @Test
+    void encode_rgbFrame_decodesToSameFrame() throws IOException {
+        // Given: A red RGB frame
+        BufferedImage frame = filledFrame(64, 48, BufferedImage.TYPE_INT_RGB, Color.RED);
+
+        // When: The frame is encoded and decoded again
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(new JpegEncoder(0.9f).encode(frame)));
+
+        // Then: Size and colour survive the round trip
+        assertEquals(64, decoded.getWidth());
+        assertEquals(48, decoded.getHeight());
+        assertTrue(new Color(decoded.getRGB(32, 24)).getRed() > 200);
+    }
+
+    // The JPEG writer cannot take an alpha channel, so such frames are flattened first
+    @Test
+    void encode_frameWithAlpha_flattenedToRgb() throws IOException {
+        // Given: A green frame with an alpha channel
+        BufferedImage frame = filledFrame(32, 32, BufferedImage.TYPE_INT_ARGB, Color.GREEN);
+
+        // When: The frame is encoded twice, reusing the flattened copy
+        JpegEncoder encoder = new JpegEncoder(0.9f);
+        encoder.encode(frame);
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(encoder.encode(frame)));
+
+        // Then: A valid RGB JPEG is produced
+        assertNotNull(decoded);
+        assertTrue(new Color(decoded.getRGB(16, 16)).getGreen() > 200);
+    }
+
+    // Reading the pooled buffer in place yields the same bytes as the copying overload
+    @Test
+    void encode_withReader_seesSameBytesAsCopy() throws IOException {
+        // Given: A frame and an encoder
+        BufferedImage frame = filledFrame(40, 30, BufferedImage.TYPE_INT_RGB, Color.ORANGE);
+        JpegEncoder encoder = new JpegEncoder(0.7f);
+
+        // When: The frame is encoded both ways
+        byte[] copied = encoder.encode(frame);
+        byte[] readInPlace = encoder.encode(frame, encoded -> {
+            byte[] bytes = new byte[encoded.remaining()];
+            encoded.get(bytes);
+            return bytes;
+        });
+
+        // Then: The bytes match
+        assertArrayEquals(copied, readInPlace);
+    }
+
+    // Pooled writers and buffers are never shared between callers encoding at the same time
+    @Test
+    void encode_concurrentCallers_eachGetsOwnFrame() throws Exception {
+        // Given: More concurrent callers than pooled writers, each with a frame of its own width
+        JpegEncoder encoder = new JpegEncoder(0.8f, 2);
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<byte[]>> encodedFrames = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                BufferedImage frame = filledFrame(16 + i, 16, BufferedImage.TYPE_INT_RGB, Color.BLUE);
+                encodedFrames.add(callers.submit(() -> encoder.encode(frame)));
+            }
+
+            // When/Then: Every result decodes to the frame it was encoded from
+            for (int i = 0; i < encodedFrames.size(); i++) {
+                BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(encodedFrames.get(i).get()));
+                assertEquals(16 + i, decoded.getWidth());
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    private static BufferedImage filledFrame(int width, int height, int type, Color color) {
+        BufferedImage frame = new BufferedImage(width, height, type);
+        Graphics2D graphics = frame.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+        return frame;
+    }
+}
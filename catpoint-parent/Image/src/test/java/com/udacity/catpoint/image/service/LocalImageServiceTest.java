@@ -0,0 +1,80 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that LocalImageService tells the bundled sample frames apart and scores them the same on any pool.
+ */
+public class LocalImageServiceTest {
+
+    private static final float CAT_CONFIDENCE_THRESHOLD = 50.0f;
+
+    private final ForkJoinPool inferencePool = new ForkJoinPool(4);
+    private final LocalImageService localService = new LocalImageService(inferencePool);
+
+    @AfterEach
+    void tearDown() {
+        inferencePool.shutdownNow();
+    }
+
+    @Test
+    void imageContainsCat_sampleCat_detected() throws IOException {
+        assertTrue(localService.imageContainsCat(sample("sample-cat.jpg"), CAT_CONFIDENCE_THRESHOLD));
+    }
+
+    @Test
+    void imageContainsCat_samplesWithoutCat_notDetected() throws IOException {
+        assertFalse(localService.imageContainsCat(sample("sample-not-cat.jpg"), CAT_CONFIDENCE_THRESHOLD));
+        assertFalse(localService.imageContainsCat(sample("sample-not-a-cat-fail.jpg"), CAT_CONFIDENCE_THRESHOLD));
+    }
+
+    // Bands are scored in parallel, but the counts they add up to do not depend on how the work was split
+    @Test
+    void catConfidence_singleThreadedPool_sameScore() throws IOException {
+        // Given: A service scoring on a single worker
+        ForkJoinPool singleWorker = new ForkJoinPool(1);
+        try {
+            LocalImageService sequentialService = new LocalImageService(singleWorker);
+            BufferedImage frame = sample("sample-cat.jpg");
+
+            // When/Then: Both services give the frame the same score
+            assertEquals(localService.catConfidence(frame), sequentialService.catConfidence(frame));
+        } finally {
+            singleWorker.shutdownNow();
+        }
+    }
+
+    @Test
+    void analyzeImage_sampleCat_scoredResultAnswersAnyThreshold() throws IOException {
+        // When: The cat sample is analysed
+        DetectionResult detectionResult = localService.analyzeImage(sample("sample-cat.jpg"), CAT_CONFIDENCE_THRESHOLD);
+
+        // Then: The score answers thresholds on both sides of it
+        float confidence = localService.catConfidence(sample("sample-cat.jpg"));
+        assertTrue(detectionResult.canEvaluate(95.0f));
+        assertTrue(detectionResult.containsCat(confidence - 1.0f));
+        assertFalse(detectionResult.containsCat(confidence + 1.0f));
+    }
+
+    // A frame too small to hold a single sample row scores zero instead of dividing by zero samples
+    @Test
+    void catConfidence_frameSmallerThanGrid_scoresZero() {
+        assertEquals(0f, localService.catConfidence(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB)));
+    }
+
+    private static BufferedImage sample(String sampleName) throws IOException {
+        try (InputStream sampleStream = LocalImageServiceTest.class.getClassLoader().getResourceAsStream(sampleName)) {
+            assertNotNull(sampleStream, "Sample frame missing from test resources: " + sampleName);
+            return ImageIO.read(sampleStream);
+        }
+    }
+}
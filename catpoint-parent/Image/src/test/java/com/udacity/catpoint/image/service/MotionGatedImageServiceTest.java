@@ -0,0 +1,226 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that MotionGatedImageService only forwards frames that changed since the last analysed one.
+ */
+public class MotionGatedImageServiceTest {
+
+    private final RecordingImageService delegate = new RecordingImageService();
+
+    @Test
+    void analyzeImage_staticScene_previousResultReused() {
+        // Given: A gated service that has analysed one frame
+        MotionGatedImageService gatedService = new MotionGatedImageService(delegate, 10, 0.05f);
+        DetectionResult first = gatedService.analyzeImage(frame(Color.DARK_GRAY), 50f);
+
+        // When: An identical frame arrives
+        DetectionResult second = gatedService.analyzeImage(frame(Color.DARK_GRAY), 50f);
+
+        // Then: The delegate is not asked again
+        assertSame(first, second);
+        assertEquals(1, delegate.analyses);
+        assertEquals(1, gatedService.getAnalysedFrameCount());
+        assertEquals(1, gatedService.getSkippedFrameCount());
+    }
+
+    @Test
+    void analyzeImage_largeAreaChanged_analysed() {
+        // Given: An analysed dark frame
+        MotionGatedImageService gatedService = new MotionGatedImageService(delegate, 10, 0.05f);
+        gatedService.analyzeImage(frame(Color.DARK_GRAY), 50f);
+
+        // When: A frame with a bright quarter arrives
+        BufferedImage changed = frame(Color.DARK_GRAY);
+        fill(changed, Color.WHITE, 0, 0, 80, 60);
+        gatedService.analyzeImage(changed, 50f);
+
+        // Then: It is analysed
+        assertEquals(2, delegate.analyses);
+    }
+
+    @Test
+    void analyzeImage_changeBelowAreaThreshold_skipped() {
+        // Given: An analysed dark frame and a gate needing a quarter of the frame to change
+        MotionGatedImageService gatedService = new MotionGatedImageService(delegate, 10, 0.25f);
+        gatedService.analyzeImage(frame(Color.DARK_GRAY), 50f);
+
+        // When: A frame with a small bright patch arrives
+        BufferedImage changed = frame(Color.DARK_GRAY);
+        fill(changed, Color.WHITE, 0, 0, 20, 20);
+        gatedService.analyzeImage(changed, 50f);
+
+        // Then: It is gated
+        assertEquals(1, delegate.analyses);
+    }
+
+    // A change confined to part of each grid cell must still register, not only one at the cell centres
+    @Test
+    void analyzeImage_changeBetweenCellCentres_analysed() {
+        // Given: An analysed dark frame large enough that each grid cell covers 10x10 pixels
+        MotionGatedImageService gatedService = new MotionGatedImageService(delegate, 10, 0.05f);
+        BufferedImage dark = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+        fill(dark, Color.DARK_GRAY, 0, 0, 640, 480);
+        gatedService.analyzeImage(dark, 50f);
+
+        // When: A frame arrives with bright stripes over the left edge of every cell, clear of the cell centres
+        BufferedImage striped = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+        fill(striped, Color.DARK_GRAY, 0, 0, 640, 480);
+        for (int x = 0; x < 640; x += 10) {
+            fill(striped, Color.WHITE, x, 0, 4, 480);
+        }
+        gatedService.analyzeImage(striped, 50f);
+
+        // Then: It is analysed
+        assertEquals(2, delegate.analyses);
+    }
+
+    // Frames are compared with the last analysed frame, not the previous one, so gradual change adds up
+    @Test
+    void analyzeImage_slowDrift_eventuallyAnalysed() {
+        // Given: An analysed frame and a gate ignoring changes of 10 or less
+        MotionGatedImageService gatedService = new MotionGatedImageService(delegate, 10, 0.05f);
+        gatedService.analyzeImage(frame(new Color(100, 100, 100)), 50f);
+
+        // When: The scene brightens by 6 per frame
+        gatedService.analyzeImage(frame(new Color(106, 106, 106)), 50f);
+        gatedService.analyzeImage(frame(new Color(112, 112, 112)), 50f);
+
+        // Then: The first step is gated but the second crosses the threshold
+        assertEquals(2, delegate.analyses);
+        assertEquals(1, gatedService.getSkippedFrameCount());
+    }
+
+    // A verdict only answers the thresholds it implies, so another threshold needs a fresh analysis
+    @Test
+    void analyzeImage_verdictCannotAnswerThreshold_analysed() {
+        // Given: A delegate giving unscored negative verdicts and a frame analysed at 50
+        delegate.scored = false;
+        MotionGatedImageService gatedService = new MotionGatedImageService(delegate, 10, 0.05f);
+        gatedService.analyzeImage(frame(Color.DARK_GRAY), 50f);
+
+        // When: The same scene is asked about at 40
+        gatedService.analyzeImage(frame(Color.DARK_GRAY), 40f);
+
+        // Then: The earlier "no cat at 50" cannot answer it and the frame is analysed
+        assertEquals(2, delegate.analyses);
+    }
+
+    @Test
+    void reset_staticScene_analysedAgain() {
+        // Given: An analysed frame
+        MotionGatedImageService gatedService = new MotionGatedImageService(delegate, 10, 0.05f);
+        gatedService.analyzeImage(frame(Color.DARK_GRAY), 50f);
+
+        // When: The gate is reset and the same frame arrives
+        gatedService.reset();
+        gatedService.analyzeImage(frame(Color.DARK_GRAY), 50f);
+
+        // Then: It is analysed
+        assertEquals(2, delegate.analyses);
+    }
+
+    // A slow result for an older reference frame must not replace the result of the newer one
+    @Test
+    void analyzeImageAsync_staleResultCompletesLast_newerResultKept() {
+        // Given: A delegate whose asynchronous results are completed by the test
+        MotionGatedImageService gatedService = new MotionGatedImageService(delegate, 10, 0.05f);
+        gatedService.analyzeImageAsync(frame(Color.DARK_GRAY), 50f);
+        BufferedImage newer = frame(Color.WHITE);
+        gatedService.analyzeImageAsync(newer, 50f);
+
+        // When: The newer frame's result arrives before the older one's
+        DetectionResult newerResult = DetectionResult.scored(Map.of("Cat", 90f), 0f, Duration.ZERO);
+        delegate.pending.get(1).complete(newerResult);
+        delegate.pending.get(0).complete(DetectionResult.scored(Map.of(), 0f, Duration.ZERO));
+
+        // Then: The newer frame's scene is answered from its own result
+        assertSame(newerResult, gatedService.analyzeImageAsync(newer, 50f).join());
+        assertEquals(2, delegate.pending.size());
+    }
+
+    @Test
+    void classifyBatch_framesForwardedUngated() {
+        // Given: A gated service that has analysed a frame
+        MotionGatedImageService gatedService = new MotionGatedImageService(delegate, 10, 0.05f);
+        gatedService.analyzeImage(frame(Color.DARK_GRAY), 50f);
+
+        // When: The same frame is classified in a batch
+        gatedService.classifyBatch(List.of(frame(Color.DARK_GRAY), frame(Color.DARK_GRAY)), 50f);
+
+        // Then: The whole batch reaches the delegate
+        assertEquals(List.of(2), delegate.batchSizes);
+    }
+
+    @Test
+    void constructor_thresholdsOutOfRange_rejected() {
+        // When/Then: A pixel threshold above 255 or an area threshold above 1 is refused
+        assertThrows(IllegalArgumentException.class, () -> new MotionGatedImageService(delegate, 256, 0.05f));
+        assertThrows(IllegalArgumentException.class, () -> new MotionGatedImageService(delegate, 10, 1.5f));
+    }
+
+    private static BufferedImage frame(Color background) {
+        BufferedImage frame = new BufferedImage(160, 120, BufferedImage.TYPE_INT_RGB);
+        fill(frame, background, 0, 0, 160, 120);
+        return frame;
+    }
+
+    private static void fill(BufferedImage frame, Color color, int x, int y, int width, int height) {
+        Graphics2D graphics = frame.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(x, y, width, height);
+        graphics.dispose();
+    }
+
+    /**
+     * Counts analyses and leaves asynchronous results for the test to complete.
+     */
+    private static final class RecordingImageService implements ImageService {
+        private int analyses;
+        private boolean scored = true;
+        private final List<CompletableFuture<DetectionResult>> pending = new ArrayList<>();
+        private final List<Integer> batchSizes = new ArrayList<>();
+
+        @Override
+        public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+            return analyzeImage(image, confidenceThreshold).containsCat(confidenceThreshold);
+        }
+
+        @Override
+        public DetectionResult analyzeImage(BufferedImage image, float confidenceThreshold) {
+            analyses++;
+            return scored
+                    ? DetectionResult.scored(Map.of("Cat", 30f), 0f, Duration.ZERO)
+                    : DetectionResult.ofVerdict(false, confidenceThreshold, Duration.ZERO);
+        }
+
+        @Override
+        public CompletableFuture<DetectionResult> analyzeImageAsync(BufferedImage image, float confidenceThreshold) {
+            CompletableFuture<DetectionResult> result = new CompletableFuture<>();
+            pending.add(result);
+            return result;
+        }
+
+        @Override
+        public List<Boolean> classifyBatch(List<BufferedImage> images, float confidenceThreshold) {
+            batchSizes.add(images.size());
+            List<Boolean> verdicts = new ArrayList<>();
+            for (int i = 0; i < images.size(); i++) {
+                verdicts.add(false);
+            }
+            return verdicts;
+        }
+    }
+}
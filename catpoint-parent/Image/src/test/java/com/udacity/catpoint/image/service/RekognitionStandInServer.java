@@ -0,0 +1,172 @@
+package com.udacity.catpoint.image.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.rekognition.RekognitionClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Minimal local HTTP stand-in for the Rekognition {@code DetectLabels} endpoint, for tests, load
+ * experiments and benchmarks that must exercise the real SDK client without network access or cost.
+ * It ignores request signatures and image content and answers every request with the configured
+ * labels, after the configured delay, or with the configured HTTP error status. Individual slow
+ * responses can be injected to reproduce tail latency.
+ */
+public class RekognitionStandInServer implements AutoCloseable {
+
+    private final Logger logger = LoggerFactory.getLogger(RekognitionStandInServer.class);
+
+    private final HttpServer httpServer;
+    private final ExecutorService requestExecutor;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final Queue<Duration> injectedDelays = new ConcurrentLinkedQueue<>();
+
+    private volatile Map<String, Float> labels = Map.of("Cat", 98.5f);
+    private volatile Duration responseDelay = Duration.ZERO;
+    private volatile int failureStatus = 0;
+
+    private RekognitionStandInServer(HttpServer httpServer, ExecutorService requestExecutor) {
+        this.httpServer = httpServer;
+        this.requestExecutor = requestExecutor;
+    }
+
+    /**
+     * Starts a stand-in on an ephemeral loopback port.
+     */
+    public static RekognitionStandInServer start() throws IOException {
+        HttpServer httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        ExecutorService requestExecutor = Executors.newCachedThreadPool(task -> {
+            Thread requestThread = new Thread(task, "rekognition-stand-in");
+            requestThread.setDaemon(true);
+            return requestThread;
+        });
+        RekognitionStandInServer standIn = new RekognitionStandInServer(httpServer, requestExecutor);
+        httpServer.createContext("/", standIn::handle);
+        httpServer.setExecutor(requestExecutor);
+        httpServer.start();
+        return standIn;
+    }
+
+    /**
+     * @return The base URI to pass to {@code RekognitionClientBuilder.endpointOverride}
+     */
+    public URI getEndpoint() {
+        return URI.create("http://" + httpServer.getAddress().getHostString() + ":" + httpServer.getAddress().getPort());
+    }
+
+    /**
+     * Builds a client pointed at this stand-in, with dummy credentials and SDK retries disabled so
+     * that every call maps to exactly one request.
+     */
+    public RekognitionClient newClient() {
+        return RekognitionClient.builder()
+                .endpointOverride(getEndpoint())
+                .region(Region.US_EAST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("stand-in", "stand-in")))
+                .overrideConfiguration(configuration -> configuration.retryPolicy(RetryPolicy.none()))
+                .build();
+    }
+
+    /**
+     * @param labels Label names and confidences (0-100) returned by subsequent requests
+     */
+    public void respondWith(Map<String, Float> labels) {
+        this.labels = new LinkedHashMap<>(labels);
+    }
+
+    /**
+     * @param responseDelay Time each request is held before it is answered
+     */
+    public void setResponseDelay(Duration responseDelay) {
+        this.responseDelay = responseDelay;
+    }
+
+    /**
+     * Holds the next request received for the given delay instead of the regular one. Repeated calls
+     * queue up, one per subsequent request.
+     * @param slowResponseDelay Time the next request is held before it is answered
+     */
+    public void injectSlowResponse(Duration slowResponseDelay) {
+        injectedDelays.add(slowResponseDelay);
+    }
+
+    /**
+     * @param failureStatus HTTP status to answer with instead of labels (e.g. 500 or 503), or 0 to succeed
+     */
+    public void setFailureStatus(int failureStatus) {
+        this.failureStatus = failureStatus;
+    }
+
+    /**
+     * @return Number of requests received since start
+     */
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    @Override
+    public void close() {
+        httpServer.stop(0);
+        requestExecutor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        try (InputStream requestBody = exchange.getRequestBody()) {
+            requestBody.readAllBytes();
+        }
+        Duration injectedDelay = injectedDelays.poll();
+        try {
+            Thread.sleep((injectedDelay != null ? injectedDelay : responseDelay).toMillis());
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            exchange.close();
+            return;
+        }
+        int status = failureStatus;
+        String responseJson = status == 0
+                ? detectLabelsResponse()
+                : "{\"__type\":\"InternalServerError\",\"message\":\"Injected failure\"}";
+        byte[] responseBytes = responseJson.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/x-amz-json-1.1");
+        try {
+            exchange.sendResponseHeaders(status == 0 ? 200 : status, responseBytes.length);
+            try (OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(responseBytes);
+            }
+        } catch (IOException clientGone) {
+            // Callers that cancelled or timed out close the connection early
+            logger.debug("Stand-in response not delivered", clientGone);
+        }
+    }
+
+    private String detectLabelsResponse() {
+        String labelsJson = labels.entrySet().stream()
+                .map(label -> String.format(Locale.ROOT, "{\"Name\":\"%s\",\"Confidence\":%.3f}", label.getKey(), label.getValue()))
+                .collect(Collectors.joining(","));
+        return "{\"Labels\":[" + labelsJson + "],\"LabelModelVersion\":\"3.0\"}";
+    }
+}
@@ -0,0 +1,260 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Exercises ResilientImageService around a real AwsImageService client talking to a local
+ * RekognitionStandInServer, so coalescing, rate limiting and circuit breaking are verified
+ * against actual HTTP round trips.
+ */
+public class ResilientImageServiceTest {
+
+    // Fallback that always answers "no cat", distinguishable from the stand-in's "Cat" label
+    private static final ImageService NO_CAT_FALLBACK = (image, confidenceThreshold) -> false;
+
+    private RekognitionStandInServer standIn;
+    private ExecutorService analysisExecutor;
+    private AwsImageService awsImageService;
+    private BufferedImage frame;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        standIn = RekognitionStandInServer.start();
+        standIn.respondWith(Map.of("Cat", 97.0f));
+        analysisExecutor = Executors.newCachedThreadPool();
+        awsImageService = new AwsImageService(standIn.newClient(), analysisExecutor, 4);
+        frame = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+    }
+
+    @AfterEach
+    void tearDown() {
+        standIn.close();
+        analysisExecutor.shutdownNow();
+    }
+
+    @Test
+    void identicalFramesInFlight_shareOneRemoteRequest() {
+        // Given: The backend is slow enough for two requests to overlap
+        standIn.setResponseDelay(Duration.ofMillis(500));
+        ResilientImageService resilientService = new ResilientImageService(awsImageService, NO_CAT_FALLBACK, analysisExecutor,
+                new TokenBucketRateLimiter(100, 100), new CircuitBreaker(3, Duration.ofSeconds(30)), Duration.ofSeconds(5));
+
+        // When: The same frame is analysed twice concurrently
+        CompletableFuture<Boolean> first = CompletableFuture.supplyAsync(() -> resilientService.imageContainsCat(frame, 50f), analysisExecutor);
+        CompletableFuture<Boolean> second = CompletableFuture.supplyAsync(() -> resilientService.imageContainsCat(frame, 50f), analysisExecutor);
+
+        // Then: Both callers get the remote verdict from a single request
+        assertTrue(first.join());
+        assertTrue(second.join());
+        assertEquals(1, standIn.getRequestCount());
+        assertEquals(1, resilientService.getCoalescedRequestCount());
+    }
+
+    @Test
+    void repeatedBackendFailures_openCircuitAndFailFast() {
+        // Given: The backend answers every request with a server error
+        standIn.setFailureStatus(500);
+        ResilientImageService resilientService = new ResilientImageService(awsImageService, NO_CAT_FALLBACK, analysisExecutor,
+                new TokenBucketRateLimiter(100, 100), new CircuitBreaker(2, Duration.ofSeconds(30)), Duration.ofSeconds(5));
+
+        // When: Three frames are analysed
+        for (int i = 0; i < 3; i++) {
+            assertFalse(resilientService.imageContainsCat(frame, 50f));
+        }
+
+        // Then: The circuit opened after two failures and the third call never reached the backend
+        assertEquals(CircuitBreaker.State.OPEN, resilientService.getCircuitState());
+        assertEquals(2, standIn.getRequestCount());
+        assertEquals(1, resilientService.getShortCircuitedRequestCount());
+    }
+
+    @Test
+    void slowBackend_callTimesOutToFallback() {
+        // Given: The backend takes far longer than the call timeout
+        standIn.setResponseDelay(Duration.ofSeconds(3));
+        ResilientImageService resilientService = new ResilientImageService(awsImageService, NO_CAT_FALLBACK, analysisExecutor,
+                new TokenBucketRateLimiter(100, 100), new CircuitBreaker(3, Duration.ofSeconds(30)), Duration.ofMillis(200));
+
+        // When: A frame is analysed
+        long start = System.nanoTime();
+        boolean verdict = resilientService.imageContainsCat(frame, 50f);
+
+        // Then: The fallback answers within the timeout budget
+        assertFalse(verdict);
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(2).toNanos());
+        assertEquals(1, resilientService.getFailedRequestCount());
+    }
+
+    @Test
+    void burstAboveRateLimit_excessUsesFallback() {
+        // Given: Only one request per ten seconds is permitted
+        ResilientImageService resilientService = new ResilientImageService(awsImageService, NO_CAT_FALLBACK, analysisExecutor,
+                new TokenBucketRateLimiter(0.1, 1), new CircuitBreaker(3, Duration.ofSeconds(30)), Duration.ofSeconds(5));
+
+        // When: Two frames are analysed back to back
+        boolean firstVerdict = resilientService.imageContainsCat(frame, 50f);
+        boolean secondVerdict = resilientService.imageContainsCat(frame, 50f);
+
+        // Then: Only the first reached the backend
+        assertTrue(firstVerdict);
+        assertFalse(secondVerdict);
+        assertEquals(1, standIn.getRequestCount());
+        assertEquals(1, resilientService.getRateLimitedRequestCount());
+    }
+
+    // Timing out cancels the submitted call with interruption, so the blocked request thread is freed
+    @Test
+    void slowRemoteCall_interruptedOnTimeout() throws Exception {
+        // Given: A delegate that blocks until interrupted
+        CountDownLatch interrupted = new CountDownLatch(1);
+        ImageService blockingDelegate = (image, confidenceThreshold) -> {
+            try {
+                Thread.sleep(Duration.ofSeconds(30).toMillis());
+            } catch (InterruptedException expected) {
+                interrupted.countDown();
+            }
+            return true;
+        };
+        ResilientImageService resilientService = new ResilientImageService(blockingDelegate, NO_CAT_FALLBACK, analysisExecutor,
+                new TokenBucketRateLimiter(100, 100), new CircuitBreaker(3, Duration.ofSeconds(30)), Duration.ofMillis(100));
+
+        // When: A frame is analysed
+        boolean verdict = resilientService.imageContainsCat(frame, 50f);
+
+        // Then: The fallback answers and the remote call's thread is interrupted
+        assertFalse(verdict);
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void saturatedRemoteCallExecutor_excessUsesFallback() {
+        // Given: A single remote call slot, occupied by a slow request
+        standIn.setResponseDelay(Duration.ofMillis(500));
+        ExecutorService singleCall = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new SynchronousQueue<>());
+        try {
+            ResilientImageService resilientService = new ResilientImageService(awsImageService, NO_CAT_FALLBACK, singleCall,
+                    new TokenBucketRateLimiter(100, 100), new CircuitBreaker(3, Duration.ofSeconds(30)), Duration.ofSeconds(5));
+            CompletableFuture<DetectionResult> first = resilientService.analyzeImageAsync(frame, 50f);
+
+            // When: A different frame is analysed meanwhile
+            boolean verdict = resilientService.imageContainsCat(new BufferedImage(32, 32, BufferedImage.TYPE_INT_RGB), 50f);
+
+            // Then: It is answered by the fallback without waiting for a slot
+            assertFalse(verdict);
+            assertEquals(1, resilientService.getRejectedRequestCount());
+            assertTrue(first.join().containsCat(50f));
+        } finally {
+            singleCall.shutdownNow();
+        }
+    }
+
+    // A caller sharing an in-flight request is bounded by the call timeout even when that request is not
+    @Test
+    void coalescedCaller_sharedRequestStuck_answersFromFallbackAfterTimeout() {
+        // Given: An open circuit, and a fallback whose first answer never arrives
+        CountDownLatch releaseFirstFallback = new CountDownLatch(1);
+        AtomicInteger fallbackCalls = new AtomicInteger();
+        ImageService stuckFirstFallback = (image, confidenceThreshold) -> {
+            if (fallbackCalls.incrementAndGet() == 1) {
+                try {
+                    releaseFirstFallback.await();
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return false;
+        };
+        CircuitBreaker openCircuit = new CircuitBreaker(1, Duration.ofSeconds(30));
+        openCircuit.recordFailure();
+        ResilientImageService resilientService = new ResilientImageService(awsImageService, stuckFirstFallback, analysisExecutor,
+                new TokenBucketRateLimiter(100, 100), openCircuit, Duration.ofMillis(200));
+        try {
+            CompletableFuture<DetectionResult> stuck = resilientService.analyzeImageAsync(frame, 50f);
+
+            // When: The same frame is analysed while the first request is stuck
+            long start = System.nanoTime();
+            boolean verdict = resilientService.imageContainsCat(frame, 50f);
+
+            // Then: The second caller answers from its own fallback call after the timeout
+            assertFalse(verdict);
+            assertTrue(System.nanoTime() - start < Duration.ofSeconds(2).toNanos());
+            assertEquals(1, resilientService.getCoalescedRequestCount());
+            assertFalse(stuck.isDone());
+        } finally {
+            releaseFirstFallback.countDown();
+        }
+    }
+
+    // Frames that only look alike must not share a verdict
+    @Test
+    void nearlyIdenticalFramesInFlight_analysedSeparately() throws Exception {
+        // Given: A delegate that holds every call until released
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        ImageService heldDelegate = (image, confidenceThreshold) -> {
+            bothStarted.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        };
+        ResilientImageService resilientService = new ResilientImageService(heldDelegate, NO_CAT_FALLBACK, analysisExecutor,
+                new TokenBucketRateLimiter(100, 100), new CircuitBreaker(3, Duration.ofSeconds(30)), Duration.ofSeconds(5));
+        BufferedImage nearCopy = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        nearCopy.setRGB(10, 10, 0x010101);
+
+        // When: The frame and a copy differing in one pixel are analysed concurrently
+        CompletableFuture<DetectionResult> first = resilientService.analyzeImageAsync(frame, 50f);
+        CompletableFuture<DetectionResult> second = resilientService.analyzeImageAsync(nearCopy, 50f);
+
+        // Then: Each gets its own remote call
+        assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+        release.countDown();
+        assertTrue(first.join().containsCat(50f));
+        assertTrue(second.join().containsCat(50f));
+        assertEquals(0, resilientService.getCoalescedRequestCount());
+    }
+
+    // A half-open trial that never got a thread must not keep the circuit from closing
+    @Test
+    void halfOpenTrialRejectedByExecutor_nextRequestTakesTheTrial() {
+        // Given: A half-open circuit shared by a service whose executor rejects everything and one that works
+        CircuitBreaker halfOpenCircuit = new CircuitBreaker(1, Duration.ZERO);
+        halfOpenCircuit.recordFailure();
+        ImageService catDelegate = (image, confidenceThreshold) -> true;
+        ExecutorService stoppedExecutor = Executors.newSingleThreadExecutor();
+        stoppedExecutor.shutdown();
+        ResilientImageService rejectingService = new ResilientImageService(catDelegate, NO_CAT_FALLBACK, stoppedExecutor,
+                new TokenBucketRateLimiter(100, 100), halfOpenCircuit, Duration.ofSeconds(5));
+        ResilientImageService workingService = new ResilientImageService(catDelegate, NO_CAT_FALLBACK, analysisExecutor,
+                new TokenBucketRateLimiter(100, 100), halfOpenCircuit, Duration.ofSeconds(5));
+
+        // When: The trial request is rejected, then another frame is analysed
+        boolean rejectedVerdict = rejectingService.imageContainsCat(frame, 50f);
+        boolean trialVerdict = workingService.imageContainsCat(frame, 50f);
+
+        // Then: The second request is sent as the trial and closes the circuit
+        assertFalse(rejectedVerdict);
+        assertEquals(1, rejectingService.getRejectedRequestCount());
+        assertTrue(trialVerdict);
+        assertEquals(CircuitBreaker.State.CLOSED, halfOpenCircuit.getState());
+    }
+}
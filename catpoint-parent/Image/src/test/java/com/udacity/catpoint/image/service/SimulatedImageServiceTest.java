@@ -0,0 +1,168 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that SimulatedImageService is reproducible for a seed and injects latency, failures and throttling.
+ */
+public class SimulatedImageServiceTest {
+
+    private static final LatencyDistribution NO_LATENCY = LatencyDistribution.fixed(Duration.ZERO);
+
+    @Test
+    void analyzeImage_sameSeedAndFrame_sameConfidence() {
+        // Given: Two services with the same seed
+        SimulatedImageService first = new SimulatedImageService(42L, NO_LATENCY, 0.0, 4);
+        SimulatedImageService second = new SimulatedImageService(42L, NO_LATENCY, 0.0, 4);
+        BufferedImage frame = gradient();
+
+        // When: Each analyses the same frame, the second after an unrelated request
+        float firstConfidence = first.analyzeImage(frame, 50f).getCatConfidence();
+        second.analyzeImage(new BufferedImage(90, 80, BufferedImage.TYPE_INT_RGB), 50f);
+        float secondConfidence = second.analyzeImage(frame, 50f).getCatConfidence();
+
+        // Then: The frame gets the same scored answer regardless of request order
+        assertEquals(firstConfidence, secondConfidence);
+        assertTrue(firstConfidence >= 0f && firstConfidence <= 100f);
+    }
+
+    // Failures are chosen by seed and request number, so a run can be replayed request for request
+    @Test
+    void analyzeImage_sameSeed_sameRequestsFail() {
+        // Given: Two services with the same seed failing half their requests
+        SimulatedImageService first = new SimulatedImageService(7L, NO_LATENCY, 0.5, 4);
+        SimulatedImageService second = new SimulatedImageService(7L, NO_LATENCY, 0.5, 4);
+
+        // When: Each handles 100 requests
+        List<Boolean> firstOutcomes = outcomes(first, 100);
+        List<Boolean> secondOutcomes = outcomes(second, 100);
+
+        // Then: The same requests fail in both, at roughly the configured rate
+        assertEquals(firstOutcomes, secondOutcomes);
+        assertTrue(first.getFailedRequestCount() > 25 && first.getFailedRequestCount() < 75);
+        assertEquals(100, first.getRequestCount());
+    }
+
+    @Test
+    void analyzeImage_errorRateOne_alwaysFails() {
+        // Given: A service failing every request
+        SimulatedImageService simulatedService = new SimulatedImageService(1L, NO_LATENCY, 1.0, 4);
+
+        // When/Then: A request fails and is counted
+        assertThrows(ImageAnalysisException.class, () -> simulatedService.analyzeImage(gradient(), 50f));
+        assertEquals(1, simulatedService.getFailedRequestCount());
+    }
+
+    @Test
+    void analyzeImage_fixedLatency_recordedInHistogram() {
+        // Given: A service taking 20 ms per request
+        SimulatedImageService simulatedService = new SimulatedImageService(1L,
+                LatencyDistribution.fixed(Duration.ofMillis(20)), 0.0, 4);
+
+        // When: A frame is analysed
+        DetectionResult result = simulatedService.analyzeImage(gradient(), 50f);
+
+        // Then: The request took at least that long and the histogram saw it
+        assertTrue(result.getAnalysisTime().compareTo(Duration.ofMillis(20)) >= 0);
+        assertEquals(1, simulatedService.getLatencyHistogram().getCount());
+        assertTrue(simulatedService.getLatencyHistogram().getMax().compareTo(Duration.ofMillis(20)) >= 0);
+    }
+
+    // A request beyond the concurrency cap is rejected at once instead of queueing
+    @Test
+    void analyzeImage_concurrencyCapReached_throttled() throws Exception {
+        // Given: A service admitting one request at a time, busy with a slow request
+        SimulatedImageService simulatedService = new SimulatedImageService(1L,
+                LatencyDistribution.fixed(Duration.ofMillis(500)), 0.0, 1);
+        CompletableFuture<DetectionResult> slowRequest =
+                CompletableFuture.supplyAsync(() -> simulatedService.analyzeImage(gradient(), 50f));
+        while (simulatedService.getRequestCount() == 0) {
+            Thread.sleep(5);
+        }
+
+        // When/Then: A second request is throttled while the first is in progress
+        assertThrows(ImageAnalysisException.class, () -> simulatedService.analyzeImage(gradient(), 50f));
+        assertEquals(1, simulatedService.getThrottledRequestCount());
+        slowRequest.join();
+    }
+
+    // Asynchronous requests wait on a timer rather than a thread, so far more overlap than there are pool threads
+    @Test
+    void analyzeImageAsync_manyRequests_latenciesOverlap() {
+        // Given: A service taking 200 ms per request
+        SimulatedImageService simulatedService = new SimulatedImageService(1L,
+                LatencyDistribution.fixed(Duration.ofMillis(200)), 0.0, 100);
+        BufferedImage frame = gradient();
+
+        // When: 50 requests are started at once
+        long start = System.nanoTime();
+        List<CompletableFuture<DetectionResult>> requests = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            requests.add(simulatedService.analyzeImageAsync(frame, 50f));
+        }
+        requests.forEach(CompletableFuture::join);
+
+        // Then: They finish in little more than one request's latency, with the synchronous answer
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(2).toNanos());
+        assertEquals(50, simulatedService.getLatencyHistogram().getCount());
+        assertEquals(simulatedService.analyzeImage(frame, 50f).getCatConfidence(),
+                requests.get(0).join().getCatConfidence());
+    }
+
+    @Test
+    void analyzeImageAsync_concurrencyCapReached_failsWithoutWaiting() {
+        // Given: A service admitting one request at a time, busy with a slow asynchronous request
+        SimulatedImageService simulatedService = new SimulatedImageService(1L,
+                LatencyDistribution.fixed(Duration.ofMillis(500)), 0.0, 1);
+        CompletableFuture<DetectionResult> slowRequest = simulatedService.analyzeImageAsync(gradient(), 50f);
+
+        // When: A second request is started
+        CompletableFuture<DetectionResult> throttledRequest = simulatedService.analyzeImageAsync(gradient(), 50f);
+
+        // Then: It has already failed with the throttling error
+        assertTrue(throttledRequest.isCompletedExceptionally());
+        CompletionException failure = assertThrows(CompletionException.class, throttledRequest::join);
+        assertTrue(failure.getCause() instanceof ImageAnalysisException);
+        assertEquals(1, simulatedService.getThrottledRequestCount());
+        slowRequest.join();
+    }
+
+    @Test
+    void constructor_errorRateOutOfRange_rejected() {
+        // When/Then: An error rate above 1 is refused
+        assertThrows(IllegalArgumentException.class, () -> new SimulatedImageService(1L, NO_LATENCY, 1.5, 4));
+    }
+
+    private static List<Boolean> outcomes(SimulatedImageService simulatedService, int requests) {
+        List<Boolean> outcomes = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            try {
+                simulatedService.analyzeImage(gradient(), 50f);
+                outcomes.add(true);
+            } catch (ImageAnalysisException e) {
+                outcomes.add(false);
+            }
+        }
+        return outcomes;
+    }
+
+    private static BufferedImage gradient() {
+        BufferedImage frame = new BufferedImage(90, 80, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < 90; x++) {
+            for (int y = 0; y < 80; y++) {
+                frame.setRGB(x, y, new Color(x * 2, y * 2, 100).getRGB());
+            }
+        }
+        return frame;
+    }
+}
@@ -0,0 +1,238 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests how TilingImageService cuts frames into tiles and combines the tile verdicts.
+ */
+public class TilingImageServiceTest {
+
+    private final RedPatchImageService delegate = new RedPatchImageService();
+    // A single worker keeps the order tiles are analysed in predictable
+    private final ForkJoinPool tilePool = new ForkJoinPool(1);
+
+    @AfterEach
+    void tearDown() {
+        tilePool.shutdownNow();
+    }
+
+    @Test
+    void imageContainsCat_frameWithinOneTile_analysedWhole() {
+        // Given: Tiles larger than the frame
+        TilingImageService tilingService = new TilingImageService(delegate, 256, 32, tilePool);
+
+        // When: The frame is analysed
+        tilingService.imageContainsCat(frame(200, 150), 50f);
+
+        // Then: The delegate sees the whole frame once
+        assertEquals(List.of(new Dimension(200, 150)), delegate.analysedSizes);
+        assertEquals(1, tilingService.getAnalysedTileCount());
+    }
+
+    // Tiles step by tile size minus overlap and the last tile on each axis ends on the frame edge
+    @Test
+    void imageContainsCat_noCat_everyGridTileAnalysedAtFullSize() {
+        // Given: 128-pixel tiles overlapping by 28 over a 300x200 frame
+        TilingImageService tilingService = new TilingImageService(delegate, 128, 28, tilePool);
+
+        // When: A frame without a cat is analysed
+        boolean catFound = tilingService.imageContainsCat(frame(300, 200), 50f);
+
+        // Then: Three columns by two rows of full-size tiles are analysed
+        assertFalse(catFound);
+        assertEquals(6, delegate.analysedSizes.size());
+        assertTrue(delegate.analysedSizes.stream().allMatch(new Dimension(128, 128)::equals));
+        assertEquals(0, tilingService.getSkippedTileCount());
+    }
+
+    @Test
+    void imageContainsCat_catInFirstTile_remainingTilesSkipped() {
+        // Given: A frame with a cat in its top-left corner
+        TilingImageService tilingService = new TilingImageService(delegate, 128, 28, tilePool);
+        BufferedImage frame = frame(300, 200);
+        paintCat(frame, 10, 10);
+
+        // When: It is analysed
+        boolean catFound = tilingService.imageContainsCat(frame, 50f);
+
+        // Then: The cat is found without analysing every tile
+        assertTrue(catFound);
+        assertTrue(tilingService.getSkippedTileCount() > 0);
+        assertEquals(6, tilingService.getAnalysedTileCount() + tilingService.getSkippedTileCount());
+    }
+
+    // The bottom-right tile is pulled back to the frame edge, so a cat in the corner is still covered
+    @Test
+    void imageContainsCat_catInLastTile_found() {
+        // Given: A frame with a cat in its bottom-right corner
+        TilingImageService tilingService = new TilingImageService(delegate, 128, 28, tilePool);
+        BufferedImage frame = frame(300, 200);
+        paintCat(frame, 290, 190);
+
+        // When/Then: It is found
+        assertTrue(tilingService.imageContainsCat(frame, 50f));
+    }
+
+    @Test
+    void imageContainsCat_regionsOfInterest_onlyClippedRegionsAnalysed() {
+        // Given: A door region and a window region reaching past the frame's right edge
+        TilingImageService tilingService = new TilingImageService(delegate,
+                List.of(new Rectangle(0, 50, 60, 100), new Rectangle(250, 0, 100, 40)), tilePool);
+        BufferedImage frame = frame(300, 200);
+        paintCat(frame, 150, 100);
+
+        // When: A frame with a cat outside both regions is analysed
+        boolean catFound = tilingService.imageContainsCat(frame, 50f);
+
+        // Then: Only the regions are looked at, clipped to the frame
+        assertFalse(catFound);
+        assertEquals(List.of(new Dimension(50, 40), new Dimension(60, 100)), sorted(delegate.analysedSizes));
+    }
+
+    // A tile blocked on its delegate must not keep the pool's only worker from starting the next tile
+    @Test
+    void imageContainsCat_blockingDelegate_poolCompensates() {
+        // Given: A delegate that only sees a cat once two tiles are being analysed at the same time
+        CountDownLatch bothTilesStarted = new CountDownLatch(2);
+        AtomicInteger tilesMet = new AtomicInteger();
+        ImageService rendezvousDelegate = (image, confidenceThreshold) -> {
+            bothTilesStarted.countDown();
+            try {
+                boolean met = bothTilesStarted.await(2, TimeUnit.SECONDS);
+                if (met) {
+                    tilesMet.incrementAndGet();
+                }
+                return met;
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        };
+        TilingImageService tilingService = new TilingImageService(rendezvousDelegate,
+                List.of(new Rectangle(0, 0, 50, 50), new Rectangle(100, 100, 50, 50)), tilePool);
+
+        // When: A frame with two regions is analysed on the single-worker pool
+        boolean catFound = tilingService.imageContainsCat(frame(300, 200), 50f);
+
+        // Then: Both tiles ran at once, on a spare worker started for the blocked one
+        assertTrue(catFound);
+        assertEquals(2, tilesMet.get());
+    }
+
+    @Test
+    void analyzeImageAsync_tiledFrame_verdictOfTiles() {
+        // Given: A frame with a cat that needs tiling
+        TilingImageService tilingService = new TilingImageService(delegate, 128, 28, tilePool);
+        BufferedImage frame = frame(300, 200);
+        paintCat(frame, 200, 150);
+
+        // When: It is analysed asynchronously
+        DetectionResult result = tilingService.analyzeImageAsync(frame, 50f).join();
+
+        // Then: The tiles' verdict is reported
+        assertTrue(result.containsCat(50f));
+    }
+
+    @Test
+    void classifyBatch_noFrameNeedsTiling_forwardedAsOneBatch() {
+        // Given: Frames smaller than a tile
+        TilingImageService tilingService = new TilingImageService(delegate, 256, 32, tilePool);
+
+        // When: They are classified as a batch
+        tilingService.classifyBatch(List.of(frame(100, 100), frame(120, 90)), 50f);
+
+        // Then: The delegate gets the batch in one call
+        assertEquals(List.of(2), delegate.batchSizes);
+    }
+
+    @Test
+    void classifyBatch_framesNeedTiling_verdictsInInputOrder() {
+        // Given: A batch where only the second of three large frames has a cat
+        TilingImageService tilingService = new TilingImageService(delegate, 128, 28, tilePool);
+        BufferedImage catFrame = frame(300, 200);
+        paintCat(catFrame, 200, 30);
+
+        // When: It is classified
+        List<Boolean> verdicts = tilingService.classifyBatch(List.of(frame(300, 200), catFrame, frame(300, 200)), 50f);
+
+        // Then: Each verdict belongs to its frame
+        assertEquals(List.of(false, true, false), verdicts);
+    }
+
+    @Test
+    void constructor_overlapNotSmallerThanTile_rejected() {
+        // When/Then: Tiles that would never advance are refused
+        assertThrows(IllegalArgumentException.class, () -> new TilingImageService(delegate, 64, 64, tilePool));
+        assertThrows(IllegalArgumentException.class, () -> new TilingImageService(delegate, List.of(), tilePool));
+    }
+
+    private static BufferedImage frame(int width, int height) {
+        BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = frame.createGraphics();
+        graphics.setColor(Color.GRAY);
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+        return frame;
+    }
+
+    private static void paintCat(BufferedImage frame, int x, int y) {
+        frame.setRGB(x, y, Color.RED.getRGB());
+    }
+
+    private static List<Dimension> sorted(List<Dimension> sizes) {
+        List<Dimension> sortedSizes = new ArrayList<>(sizes);
+        sortedSizes.sort((a, b) -> Integer.compare(a.width, b.width));
+        return sortedSizes;
+    }
+
+    /**
+     * Sees a cat in any image holding a pure red pixel and records the size of everything it analyses.
+     */
+    private static final class RedPatchImageService implements ImageService {
+        private final List<Dimension> analysedSizes = Collections.synchronizedList(new ArrayList<>());
+        private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+            analysedSizes.add(new Dimension(image.getWidth(), image.getHeight()));
+            return containsRed(image);
+        }
+
+        @Override
+        public List<Boolean> classifyBatch(List<BufferedImage> images, float confidenceThreshold) {
+            batchSizes.add(images.size());
+            List<Boolean> verdicts = new ArrayList<>();
+            for (BufferedImage image : images) {
+                verdicts.add(containsRed(image));
+            }
+            return verdicts;
+        }
+
+        private static boolean containsRed(BufferedImage image) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    if (image.getRGB(x, y) == Color.RED.getRGB()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -8,6 +8,7 @@ import com.udacity.catpoint.security.service.SecurityService;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
+import java.time.Duration;
 
 /**
  * Main application window that orchestrates the security monitoring interface.
@@ -17,7 +18,8 @@ import javax.swing.*;
  * composition-based architecture where each panel handles specific functionality.
  */
 public class CatpointGui extends JFrame {
-    private SecurityRepository dataRepository = new PretendDatabaseSecurityRepositoryImpl();
+    // Sensor clicks are coalesced into one write per second; pending state is written on exit
+    private SecurityRepository dataRepository = new PretendDatabaseSecurityRepositoryImpl(Duration.ofSeconds(1));
     private ImageService visionService = new FakeImageService();
     private SecurityService monitoringService = new SecurityService(dataRepository, visionService);
     private DisplayPanel statusDisplayPanel = new DisplayPanel(monitoringService);
@@ -1,11 +1,11 @@
 package com.udacity.catpoint.security.application;
 
+import com.udacity.catpoint.image.processing.ImageDecoder;
 import com.udacity.catpoint.security.data.AlarmStatus;
 import com.udacity.catpoint.security.service.SecurityService;
 import com.udacity.catpoint.security.service.StyleService;
 import net.miginfocom.swing.MigLayout;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
@@ -26,6 +26,11 @@ public class ImagePanel extends JPanel implements StatusListener {
 
     private int DISPLAY_WIDTH = 300;
     private int DISPLAY_HEIGHT = 225;
+    // Frames are decoded no larger than needed for analysis; camera stills are often far bigger
+    private static final int ANALYSIS_WIDTH = 640;
+    private static final int ANALYSIS_HEIGHT = 480;
+
+    private final ImageDecoder frameDecoder = new ImageDecoder();
 
     public ImagePanel(SecurityService securityService) {
         super();
@@ -52,7 +57,7 @@ public class ImagePanel extends JPanel implements StatusListener {
                 return;
             }
             try {
-                activeCameraFrame = ImageIO.read(imageSelector.getSelectedFile());
+                activeCameraFrame = frameDecoder.decode(imageSelector.getSelectedFile().toPath(), ANALYSIS_WIDTH, ANALYSIS_HEIGHT);
                 Image scaledImage = new ImageIcon(activeCameraFrame).getImage();
                 imageDisplayArea.setIcon(new ImageIcon(scaledImage.getScaledInstance(DISPLAY_WIDTH, DISPLAY_HEIGHT, Image.SCALE_SMOOTH)));
             } catch (IOException |NullPointerException imageError) {
@@ -63,8 +68,14 @@ public class ImagePanel extends JPanel implements StatusListener {
 
         // Control for triggering computer vision analysis
         JButton analyzeImageButton = new JButton("Analyze for Threats");
+        // Analysis runs off the event thread; the verdict is applied back on it
         analyzeImageButton.addActionListener(e -> {
-            monitoringService.processImage(activeCameraFrame);
+            monitoringService.processImageAsync(activeCameraFrame, SwingUtilities::invokeLater)
+                    .exceptionally(analysisError -> {
+                        SwingUtilities.invokeLater(() ->
+                                JOptionPane.showMessageDialog(null, "Unable to analyze the surveillance image."));
+                        return null;
+                    });
         });
 
         add(surveillanceHeader, "span 3, wrap");
@@ -0,0 +1,647 @@
+package com.udacity.catpoint.security.data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Security repository that records every change as a small binary record appended to a journal file,
+ * so the cost of a change does not grow with the number of sensors.
+ *
+ * Changes update memory straight away and are committed in groups: a committer thread writes all
+ * records appended since its last commit with one write and one {@code force}, so a burst of changes
+ * shares a single disk sync. {@link #flush()} waits until every change made so far is on disk. Once a
+ * commit fails, the journal is closed and every further change is refused with an
+ * {@link UncheckedIOException}, so memory never runs ahead of what a restart can recover. Changes
+ * after {@link #close()} are refused with an {@link IllegalStateException}.
+ *
+ * Once a journal holds enough records, the committer starts a new journal and a background thread
+ * writes a snapshot of the state at that point, then deletes the journals and snapshots it replaces.
+ * On startup the latest complete snapshot is loaded and the journals written after it are replayed;
+ * a record torn by a crash ends the replay and is cut off.
+ *
+ * The directory holds {@code snapshot-<n>.bin}, the state before journal {@code n}, and
+ * {@code journal-<n>.log} files. Both use the same record format: payload length, CRC-32 of the
+ * payload, and a payload made of a record type followed by its fields.
+ */
+public class JournalSecurityRepository implements SecurityRepository, AutoCloseable {
+
+    private static final int DEFAULT_RECORDS_PER_SNAPSHOT = 10_000;
+    private static final int INITIAL_BUFFER_BYTES = 4_096;
+    private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int STATUS_RECORD_BYTES = RECORD_HEADER_BYTES + 2;
+    private static final int SENSOR_REMOVE_RECORD_BYTES = RECORD_HEADER_BYTES + 1 + 2 * Long.BYTES;
+
+    private static final byte SENSOR_PUT = 1;
+    private static final byte SENSOR_REMOVE = 2;
+    private static final byte ALARM_STATUS = 3;
+    private static final byte ARMING_STATUS = 4;
+
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String JOURNAL_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private final Logger logger = LoggerFactory.getLogger(JournalSecurityRepository.class);
+
+    private final Path directory;
+    private final int recordsPerSnapshot;
+    private final CRC32 checksum = new CRC32();
+
+    // In-memory state, guarded by the lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Set<Sensor> sensors = new TreeSet<>();
+    private volatile AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+    private volatile ArmingStatus armingStatus = ArmingStatus.DISARMED;
+
+    // Group commit: records are appended to pendingRecords and written by the committer, guarded by the lock
+    private final Condition recordsWaiting = lock.newCondition();
+    private final Condition recordsCommitted = lock.newCondition();
+    private ByteBuffer pendingRecords = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private ByteBuffer committingRecords = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private long appendedSequence = 0;
+    private long committedSequence = 0;
+    private IOException commitFailure;
+    private boolean closed = false;
+
+    // Owned by the committer thread after startup
+    private FileChannel journal;
+    private long journalGeneration;
+    private long journalRecords;
+
+    private final Thread committer;
+    private final ExecutorService snapshotWriter;
+    private final Thread shutdownFlush;
+
+    private final AtomicLong recoveredRecords = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong committedRecords = new AtomicLong();
+    private final AtomicLong completedSnapshots = new AtomicLong();
+
+    public JournalSecurityRepository(Path directory) throws IOException {
+        this(directory, DEFAULT_RECORDS_PER_SNAPSHOT);
+    }
+
+    /**
+     * Recovers the state stored in the directory and starts the committer.
+     * @param directory Directory holding the journal and snapshots; created if missing
+     * @param recordsPerSnapshot Journal records after which a snapshot is taken and older files are compacted away
+     * @throws IOException if the directory cannot be created or its files cannot be read
+     */
+    public JournalSecurityRepository(Path directory, int recordsPerSnapshot) throws IOException {
+        if (recordsPerSnapshot < 1) {
+            throw new IllegalArgumentException("Records per snapshot must be positive");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.recordsPerSnapshot = recordsPerSnapshot;
+        recover();
+        this.snapshotWriter = Executors.newSingleThreadExecutor(task -> {
+            Thread snapshotThread = new Thread(task, "security-journal-snapshot");
+            snapshotThread.setDaemon(true);
+            return snapshotThread;
+        });
+        this.committer = new Thread(this::commitRecords, "security-journal-commit");
+        this.committer.setDaemon(true);
+        this.committer.start();
+        this.shutdownFlush = new Thread(this::close, "security-journal-shutdown-flush");
+        Runtime.getRuntime().addShutdownHook(shutdownFlush);
+    }
+
+    @Override
+    public void addSensor(Sensor sensor) {
+        lock.lock();
+        try {
+            ensureWritable();
+            sensors.add(sensor);
+            appendSensorPut(sensor);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void removeSensor(Sensor sensor) {
+        lock.lock();
+        try {
+            ensureWritable();
+            sensors.remove(sensor);
+            pendingRecords = ensureCapacity(pendingRecords, SENSOR_REMOVE_RECORD_BYTES);
+            putSensorRemoval(pendingRecords, sensor.getSensorId());
+            recordAppended();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void updateSensor(Sensor sensor) {
+        lock.lock();
+        try {
+            ensureWritable();
+            sensors.remove(sensor);
+            sensors.add(sensor);
+            appendSensorPut(sensor);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        lock.lock();
+        try {
+            ensureWritable();
+            this.alarmStatus = alarmStatus;
+            appendStatus(ALARM_STATUS, alarmStatus.ordinal());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        lock.lock();
+        try {
+            ensureWritable();
+            this.armingStatus = armingStatus;
+            appendStatus(ARMING_STATUS, armingStatus.ordinal());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return A copy of the sensors, so callers can iterate it while other threads change sensors
+     */
+    @Override
+    public Set<Sensor> getSensors() {
+        lock.lock();
+        try {
+            return new TreeSet<>(sensors);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    /**
+     * Waits until every change made before the call has been written and synced to disk.
+     * @throws UncheckedIOException if the journal could not be written
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            long target = appendedSequence;
+            while (committedSequence < target && commitFailure == null && committer.isAlive()) {
+                recordsCommitted.awaitUninterruptibly();
+            }
+            ensureCommitted();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Commits outstanding changes, stops the committer and waits for a snapshot in progress.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            recordsWaiting.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            committer.join();
+            snapshotWriter.shutdown();
+            snapshotWriter.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownFlush);
+        } catch (IllegalStateException shuttingDown) {
+            // Called from the shutdown hook itself
+        }
+    }
+
+    /**
+     * @return Records replayed from snapshot and journals at startup
+     */
+    public long getRecoveredRecordCount() {
+        return recoveredRecords.get();
+    }
+
+    /**
+     * @return Disk syncs so far; each commits every record appended since the previous one
+     */
+    public long getCommitCount() {
+        return commits.get();
+    }
+
+    /**
+     * @return Average records per disk sync, i.e. how many changes group commit batched together
+     */
+    public double getRecordsPerCommit() {
+        long commitCount = commits.get();
+        return commitCount == 0 ? 0 : (double) committedRecords.get() / commitCount;
+    }
+
+    public long getCompletedSnapshotCount() {
+        return completedSnapshots.get();
+    }
+
+    private void commitRecords() {
+        try {
+            while (true) {
+                ByteBuffer batch;
+                long batchSequence;
+                byte[] snapshotImage = null;
+                boolean finalBatch;
+                lock.lock();
+                try {
+                    while (appendedSequence == committedSequence && !closed) {
+                        recordsWaiting.awaitUninterruptibly();
+                    }
+                    finalBatch = closed;
+                    batchSequence = appendedSequence;
+                    batch = pendingRecords;
+                    pendingRecords = committingRecords;
+                    pendingRecords.clear();
+                    committingRecords = batch;
+                    journalRecords += batchSequence - committedSequence;
+                    if (journalRecords >= recordsPerSnapshot && !finalBatch) {
+                        // Encoded together with the batch swap, so it matches what the current journal ends with
+                        snapshotImage = encodeSnapshot();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+
+                batch.flip();
+                int batchRecords = 0;
+                if (batch.hasRemaining()) {
+                    while (batch.hasRemaining()) {
+                        journal.write(batch);
+                    }
+                    journal.force(false);
+                    commits.incrementAndGet();
+                }
+                if (snapshotImage != null) {
+                    startNewJournal(snapshotImage);
+                }
+
+                lock.lock();
+                try {
+                    committedRecords.addAndGet(batchSequence - committedSequence);
+                    committedSequence = batchSequence;
+                    recordsCommitted.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                if (finalBatch) {
+                    journal.close();
+                    return;
+                }
+            }
+        } catch (IOException commitError) {
+            logger.error("Failed to write security journal in {}", directory, commitError);
+            try {
+                journal.close();
+            } catch (IOException closeError) {
+                commitError.addSuppressed(closeError);
+            }
+            lock.lock();
+            try {
+                commitFailure = commitError;
+                recordsCommitted.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Switches to a new journal and has the snapshot of the state at the switch written in the background.
+     */
+    private void startNewJournal(byte[] snapshotImage) throws IOException {
+        journal.close();
+        long generation = journalGeneration + 1;
+        journal = openJournal(generation);
+        journalGeneration = generation;
+        journalRecords = 0;
+        snapshotWriter.execute(() -> writeSnapshot(generation, snapshotImage));
+    }
+
+    private void writeSnapshot(long generation, byte[] snapshotImage) {
+        Path snapshot = directory.resolve(SNAPSHOT_PREFIX + generation + SNAPSHOT_SUFFIX);
+        Path partialSnapshot = directory.resolve(SNAPSHOT_PREFIX + generation + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(partialSnapshot, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer image = ByteBuffer.wrap(snapshotImage);
+                while (image.hasRemaining()) {
+                    channel.write(image);
+                }
+                channel.force(false);
+            }
+            // Only a complete snapshot ever carries the final name
+            Files.move(partialSnapshot, snapshot, StandardCopyOption.ATOMIC_MOVE);
+            completedSnapshots.incrementAndGet();
+            deleteFilesBefore(generation);
+        } catch (IOException snapshotError) {
+            // The journals it would have replaced are kept, so recovery still has everything
+            logger.warn("Failed to write security snapshot {}", snapshot, snapshotError);
+        }
+    }
+
+    private void deleteFilesBefore(long generation) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                long fileGeneration = generationOf(file, JOURNAL_PREFIX, JOURNAL_SUFFIX);
+                if (fileGeneration < 0) {
+                    fileGeneration = generationOf(file, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+                }
+                if (fileGeneration >= 0 && fileGeneration < generation) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads the latest snapshot, replays the journals written after it and opens the last journal for appending.
+     */
+    private void recover() throws IOException {
+        TreeMap<Long, Path> journals = new TreeMap<>();
+        long snapshotGeneration = -1;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                long journalFileGeneration = generationOf(file, JOURNAL_PREFIX, JOURNAL_SUFFIX);
+                if (journalFileGeneration >= 0) {
+                    journals.put(journalFileGeneration, file);
+                }
+                snapshotGeneration = Math.max(snapshotGeneration, generationOf(file, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX));
+            }
+        }
+        // Replayed by ID, so each record is applied in constant time; the sorted set is built once at the end
+        Map<UUID, Sensor> recoveredSensors = new HashMap<>();
+        if (snapshotGeneration >= 0) {
+            replay(directory.resolve(SNAPSHOT_PREFIX + snapshotGeneration + SNAPSHOT_SUFFIX), recoveredSensors);
+        }
+        journalGeneration = Math.max(snapshotGeneration, 0);
+        for (var replayedJournal : journals.tailMap(journalGeneration).entrySet()) {
+            journalGeneration = replayedJournal.getKey();
+            journalRecords = replay(replayedJournal.getValue(), recoveredSensors);
+        }
+        sensors.addAll(recoveredSensors.values());
+        journal = openJournal(journalGeneration);
+        if (recoveredRecords.get() > 0) {
+            logger.info("Recovered security state from {} records in {}", recoveredRecords.get(), directory);
+        }
+    }
+
+    private FileChannel openJournal(long generation) throws IOException {
+        return FileChannel.open(directory.resolve(JOURNAL_PREFIX + generation + JOURNAL_SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Applies every intact record of a file to the recovered state and cuts off a torn tail.
+     * @param recoveredSensors Sensors recovered so far, by ID
+     * @return The number of records applied
+     */
+    private long replay(Path file, Map<UUID, Sensor> recoveredSensors) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer contents = ByteBuffer.allocate(Math.toIntExact(channel.size()));
+            while (contents.hasRemaining() && channel.read(contents) >= 0) {
+                // Read the whole file
+            }
+            contents.flip();
+            long records = 0;
+            while (contents.remaining() >= RECORD_HEADER_BYTES) {
+                int recordStart = contents.position();
+                int payloadLength = contents.getInt();
+                int payloadChecksum = contents.getInt();
+                if (payloadLength < 1 || payloadLength > contents.remaining()
+                        || checksumOf(contents, contents.position(), payloadLength) != payloadChecksum) {
+                    contents.position(recordStart);
+                    break;
+                }
+                int payloadEnd = contents.position() + payloadLength;
+                applyRecord(contents, recoveredSensors);
+                contents.position(payloadEnd);
+                records++;
+            }
+            if (contents.hasRemaining()) {
+                logger.warn("Discarding {} bytes of torn records at the end of {}", contents.remaining(), file);
+                channel.truncate(contents.position());
+            }
+            recoveredRecords.addAndGet(records);
+            return records;
+        }
+    }
+
+    private void applyRecord(ByteBuffer payload, Map<UUID, Sensor> recoveredSensors) {
+        byte recordType = payload.get();
+        switch (recordType) {
+            case SENSOR_PUT -> {
+                UUID sensorId = new UUID(payload.getLong(), payload.getLong());
+                boolean active = payload.get() != 0;
+                SensorType sensorType = SensorType.values()[payload.get()];
+                byte[] name = new byte[payload.getInt()];
+                payload.get(name);
+                Sensor sensor = new Sensor(new String(name, StandardCharsets.UTF_8), sensorType);
+                sensor.setSensorId(sensorId);
+                sensor.setActive(active);
+                recoveredSensors.put(sensorId, sensor);
+            }
+            case SENSOR_REMOVE -> recoveredSensors.remove(new UUID(payload.getLong(), payload.getLong()));
+            case ALARM_STATUS -> alarmStatus = AlarmStatus.values()[payload.get()];
+            case ARMING_STATUS -> armingStatus = ArmingStatus.values()[payload.get()];
+            default -> throw new IllegalStateException("Unknown security journal record type " + recordType);
+        }
+    }
+
+    /**
+     * Encodes the whole current state as records. Called with the lock held.
+     */
+    private byte[] encodeSnapshot() {
+        ByteBuffer image = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+        image = ensureCapacity(image, 2 * STATUS_RECORD_BYTES);
+        putStatus(image, ALARM_STATUS, alarmStatus.ordinal());
+        putStatus(image, ARMING_STATUS, armingStatus.ordinal());
+        for (Sensor sensor : sensors) {
+            byte[] name = sensor.getName().getBytes(StandardCharsets.UTF_8);
+            image = ensureCapacity(image, sensorPutRecordBytes(name));
+            putSensor(image, sensor, name);
+        }
+        byte[] snapshotImage = new byte[image.position()];
+        image.flip().get(snapshotImage);
+        return snapshotImage;
+    }
+
+    /**
+     * Refuses changes once the journal has failed, since they could no longer be committed. Called with the lock held.
+     * @throws UncheckedIOException if an earlier commit failed
+     */
+    /**
+     * Refuses a change that could not be committed. Called with the lock held.
+     * @throws UncheckedIOException if a commit has failed
+     * @throws IllegalStateException if the repository has been closed
+     */
+    private void ensureWritable() {
+        ensureCommitted();
+        if (closed) {
+            // The committer may already have taken its final batch, so the change would never reach disk
+            throw new IllegalStateException("Security journal in " + directory + " is closed");
+        }
+    }
+
+    private void ensureCommitted() {
+        if (commitFailure != null) {
+            throw new UncheckedIOException("Security journal could not be written", commitFailure);
+        }
+    }
+
+    /**
+     * Journals a status change. Called with the lock held.
+     */
+    private void appendStatus(byte recordType, int ordinal) {
+        pendingRecords = ensureCapacity(pendingRecords, STATUS_RECORD_BYTES);
+        putStatus(pendingRecords, recordType, ordinal);
+        recordAppended();
+    }
+
+    /**
+     * Journals a sensor's full state. Called with the lock held.
+     */
+    private void appendSensorPut(Sensor sensor) {
+        byte[] name = sensor.getName().getBytes(StandardCharsets.UTF_8);
+        pendingRecords = ensureCapacity(pendingRecords, sensorPutRecordBytes(name));
+        putSensor(pendingRecords, sensor, name);
+        recordAppended();
+    }
+
+    /**
+     * Hands a record just written to pendingRecords to the committer. Called with the lock held.
+     */
+    private void recordAppended() {
+        appendedSequence++;
+        recordsWaiting.signal();
+    }
+
+    private static int sensorPutRecordBytes(byte[] name) {
+        return RECORD_HEADER_BYTES + 3 + 2 * Long.BYTES + Integer.BYTES + name.length;
+    }
+
+    private void putStatus(ByteBuffer buffer, byte recordType, int ordinal) {
+        int start = beginRecord(buffer, recordType);
+        buffer.put((byte) ordinal);
+        endRecord(buffer, start);
+    }
+
+    private void putSensor(ByteBuffer buffer, Sensor sensor, byte[] name) {
+        int start = beginRecord(buffer, SENSOR_PUT);
+        buffer.putLong(sensor.getSensorId().getMostSignificantBits());
+        buffer.putLong(sensor.getSensorId().getLeastSignificantBits());
+        buffer.put((byte) (Boolean.TRUE.equals(sensor.getActive()) ? 1 : 0));
+        buffer.put((byte) sensor.getSensorType().ordinal());
+        buffer.putInt(name.length);
+        buffer.put(name);
+        endRecord(buffer, start);
+    }
+
+    private void putSensorRemoval(ByteBuffer buffer, UUID sensorId) {
+        int start = beginRecord(buffer, SENSOR_REMOVE);
+        buffer.putLong(sensorId.getMostSignificantBits());
+        buffer.putLong(sensorId.getLeastSignificantBits());
+        endRecord(buffer, start);
+    }
+
+    private static int beginRecord(ByteBuffer buffer, byte recordType) {
+        int start = buffer.position();
+        buffer.position(start + RECORD_HEADER_BYTES);
+        buffer.put(recordType);
+        return start;
+    }
+
+    /**
+     * Fills in the length and checksum of the record started at the given position.
+     */
+    private void endRecord(ByteBuffer buffer, int start) {
+        int payloadStart = start + RECORD_HEADER_BYTES;
+        int payloadLength = buffer.position() - payloadStart;
+        buffer.putInt(start, payloadLength);
+        buffer.putInt(start + Integer.BYTES, checksumOf(buffer, payloadStart, payloadLength));
+    }
+
+    private int checksumOf(ByteBuffer buffer, int offset, int length) {
+        // Only used under the lock or during single-threaded recovery
+        checksum.reset();
+        checksum.update(buffer.array(), buffer.arrayOffset() + offset, length);
+        return (int) checksum.getValue();
+    }
+
+    private static ByteBuffer ensureCapacity(ByteBuffer buffer, int additionalBytes) {
+        if (buffer.remaining() >= additionalBytes) {
+            return buffer;
+        }
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + additionalBytes));
+        buffer.flip();
+        grown.put(buffer);
+        return grown;
+    }
+
+    /**
+     * @return The generation number in a file name of the given form, or -1 if the name does not match
+     */
+    private static long generationOf(Path file, String prefix, String suffix) {
+        String fileName = file.getFileName().toString();
+        if (!fileName.startsWith(prefix) || !fileName.endsWith(suffix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(fileName.substring(prefix.length(), fileName.length() - suffix.length()));
+        } catch (NumberFormatException notGenerated) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package com.udacity.catpoint.security.data;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Security repository kept in a memory-mapped file of fixed-size sensor records, for large sensor
+ * registries that should survive restarts without being deserialized. Opening the repository maps
+ * the file and nothing else; changing a sensor overwrites the few bytes of its record in place.
+ *
+ * The file holds a header with the statuses and slot bookkeeping, a fixed number of sensor slots and
+ * an open-addressing hash index from sensor ID to slot. Removed slots are chained into a free list
+ * and reused by later additions. The capacity is fixed when the file is created.
+ *
+ * A sensor is listed only while its record is flagged in use. The flag is set after the record has been
+ * written and indexed and cleared before the record leaves the index, so a crash part-way through an
+ * addition or removal leaves an indexed record that is not listed; adding, updating or removing that
+ * sensor again completes the interrupted change.
+ *
+ * Writes reach the page cache immediately and so survive a crash of the application; {@link #flush()}
+ * forces them to disk to survive a crash of the machine as well. {@link #getSensors()} builds a new
+ * set from the records on each call, so changes to the returned sensors are only stored through
+ * {@link #updateSensor}.
+ */
+public class MappedSecurityRepository implements SecurityRepository, AutoCloseable {
+
+    /**
+     * Longest sensor name, in UTF-8 bytes, that fits in a record.
+     */
+    public static final int MAX_NAME_BYTES = 96;
+
+    /**
+     * Largest capacity whose records and index fit in one mapping.
+     */
+    public static final int MAX_CAPACITY = 8_000_000;
+
+    private static final int MAGIC = 0x43415453; // "CATS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int NO_SLOT = -1;
+
+    // Header layout
+    static final int HEADER_BYTES = 64;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int SLOTS_USED_OFFSET = 12;
+    private static final int FREE_LIST_OFFSET = 16;
+    static final int SENSOR_COUNT_OFFSET = 20;
+    private static final int ALARM_STATUS_OFFSET = 24;
+    private static final int ARMING_STATUS_OFFSET = 25;
+
+    // Sensor record layout
+    private static final int RECORD_BYTES = 128;
+    static final int IN_USE_OFFSET = 0;
+    private static final int TYPE_OFFSET = 1;
+    private static final int ACTIVE_OFFSET = 2;
+    private static final int NAME_LENGTH_OFFSET = 4;
+    private static final int ID_HIGH_OFFSET = 8;
+    private static final int ID_LOW_OFFSET = 16;
+    private static final int NEXT_FREE_OFFSET = 24;
+    private static final int NAME_OFFSET = 32;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final MappedByteBuffer storage;
+    private final int capacity;
+    private final int indexOffset;
+    private final int indexMask;
+
+    /**
+     * Opens the store in the given file, creating it with room for the given number of sensors if it
+     * does not exist yet. An existing store keeps the capacity it was created with.
+     * @param file The store file
+     * @param capacity Most sensors a new store can hold
+     * @throws IOException if the file cannot be mapped or is not a sensor store
+     */
+    public MappedSecurityRepository(Path file, int capacity) throws IOException {
+        boolean existingStore = Files.exists(file) && Files.size(file) > 0;
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (existingStore) {
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+                if (header.getInt(MAGIC_OFFSET) != MAGIC || header.getInt(VERSION_OFFSET) != FORMAT_VERSION) {
+                    throw new IOException("Not a sensor store: " + file);
+                }
+                capacity = header.getInt(CAPACITY_OFFSET);
+            } else if (capacity < 1 || capacity > MAX_CAPACITY) {
+                throw new IllegalArgumentException("Capacity must be between 1 and " + MAX_CAPACITY);
+            }
+            this.capacity = capacity;
+            // At least twice as many index entries as sensors keeps probe sequences short
+            int indexEntries = Integer.highestOneBit(capacity) << 2;
+            this.indexOffset = HEADER_BYTES + capacity * RECORD_BYTES;
+            this.indexMask = indexEntries - 1;
+            long fileBytes = (long) indexOffset + (long) indexEntries * Integer.BYTES;
+            if (existingStore && channel.size() != fileBytes) {
+                throw new IOException("Sensor store " + file + " is " + channel.size() + " bytes, expected " + fileBytes);
+            }
+            // The mapping stays valid after the channel is closed
+            this.storage = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileBytes);
+        }
+        if (!existingStore) {
+            storage.putInt(CAPACITY_OFFSET, capacity);
+            storage.putInt(SLOTS_USED_OFFSET, 0);
+            storage.putInt(FREE_LIST_OFFSET, NO_SLOT);
+            storage.putInt(SENSOR_COUNT_OFFSET, 0);
+            storage.put(ALARM_STATUS_OFFSET, (byte) AlarmStatus.NO_ALARM.ordinal());
+            storage.put(ARMING_STATUS_OFFSET, (byte) ArmingStatus.DISARMED.ordinal());
+            storage.putInt(VERSION_OFFSET, FORMAT_VERSION);
+            // Written last, so a store interrupted while being created is not mistaken for a valid one
+            storage.putInt(MAGIC_OFFSET, MAGIC);
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if the store is full
+     * @throws IllegalArgumentException if the sensor name exceeds {@link #MAX_NAME_BYTES}
+     */
+    @Override
+    public void addSensor(Sensor sensor) {
+        byte[] name = encodeName(sensor);
+        lock.lock();
+        try {
+            int slot = findSlot(sensor.getSensorId());
+            if (slot == NO_SLOT) {
+                // Record, then index, then flag: a crash in between never leaves the index pointing at
+                // an unwritten record or a listed sensor that cannot be found
+                slot = allocateSlot();
+                writeRecord(slot, sensor, name);
+                indexSlot(slot, sensor.getSensorId());
+            } else {
+                writeRecord(slot, sensor, name);
+            }
+            markInUse(slot);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void removeSensor(Sensor sensor) {
+        lock.lock();
+        try {
+            int slot = findSlot(sensor.getSensorId());
+            if (slot == NO_SLOT) {
+                return;
+            }
+            int record = recordOffset(slot);
+            // Unlisted before it leaves the index, so a crash in between leaves nothing that cannot be removed
+            if (isInUse(record)) {
+                storage.put(record + IN_USE_OFFSET, (byte) 0);
+                storage.putInt(SENSOR_COUNT_OFFSET, storage.getInt(SENSOR_COUNT_OFFSET) - 1);
+            }
+            unindexSlot(sensor.getSensorId());
+            storage.putInt(record + NEXT_FREE_OFFSET, storage.getInt(FREE_LIST_OFFSET));
+            storage.putInt(FREE_LIST_OFFSET, slot);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Overwrites the sensor's record in place, or adds the sensor if it is not stored yet.
+     * @throws IllegalArgumentException if the sensor name exceeds {@link #MAX_NAME_BYTES}
+     */
+    @Override
+    public void updateSensor(Sensor sensor) {
+        byte[] name = encodeName(sensor);
+        lock.lock();
+        try {
+            int slot = findSlot(sensor.getSensorId());
+            if (slot == NO_SLOT || !isInUse(recordOffset(slot))) {
+                addSensor(sensor);
+                return;
+            }
+            int record = recordOffset(slot);
+            storage.put(record + ACTIVE_OFFSET, (byte) (Boolean.TRUE.equals(sensor.getActive()) ? 1 : 0));
+            storage.put(record + TYPE_OFFSET, (byte) sensor.getSensorType().ordinal());
+            if (!nameMatches(record, name)) {
+                writeName(record, name);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        storage.put(ALARM_STATUS_OFFSET, (byte) alarmStatus.ordinal());
+    }
+
+    @Override
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        storage.put(ARMING_STATUS_OFFSET, (byte) armingStatus.ordinal());
+    }
+
+    /**
+     * @return A new set of sensors read from the stored records
+     */
+    @Override
+    public Set<Sensor> getSensors() {
+        Set<Sensor> sensors = new TreeSet<>();
+        lock.lock();
+        try {
+            int slotsUsed = storage.getInt(SLOTS_USED_OFFSET);
+            for (int slot = 0; slot < slotsUsed; slot++) {
+                int record = recordOffset(slot);
+                if (isInUse(record)) {
+                    sensors.add(readRecord(record));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return sensors;
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return AlarmStatus.values()[storage.get(ALARM_STATUS_OFFSET)];
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return ArmingStatus.values()[storage.get(ARMING_STATUS_OFFSET)];
+    }
+
+    public int getSensorCount() {
+        return storage.getInt(SENSOR_COUNT_OFFSET);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Forces all changes to disk.
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            storage.force();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces all changes to disk. The mapping itself is released once the repository is garbage collected.
+     */
+    @Override
+    public void close() {
+        flush();
+    }
+
+    private int allocateSlot() {
+        int freeSlot = storage.getInt(FREE_LIST_OFFSET);
+        if (freeSlot != NO_SLOT) {
+            storage.putInt(FREE_LIST_OFFSET, storage.getInt(recordOffset(freeSlot) + NEXT_FREE_OFFSET));
+            return freeSlot;
+        }
+        int slotsUsed = storage.getInt(SLOTS_USED_OFFSET);
+        if (slotsUsed == capacity) {
+            throw new IllegalStateException("Sensor store is full at " + capacity + " sensors");
+        }
+        storage.putInt(SLOTS_USED_OFFSET, slotsUsed + 1);
+        return slotsUsed;
+    }
+
+    private void writeRecord(int slot, Sensor sensor, byte[] name) {
+        int record = recordOffset(slot);
+        storage.putLong(record + ID_HIGH_OFFSET, sensor.getSensorId().getMostSignificantBits());
+        storage.putLong(record + ID_LOW_OFFSET, sensor.getSensorId().getLeastSignificantBits());
+        storage.put(record + TYPE_OFFSET, (byte) sensor.getSensorType().ordinal());
+        storage.put(record + ACTIVE_OFFSET, (byte) (Boolean.TRUE.equals(sensor.getActive()) ? 1 : 0));
+        storage.putInt(record + NEXT_FREE_OFFSET, NO_SLOT);
+        writeName(record, name);
+    }
+
+    private void markInUse(int slot) {
+        int record = recordOffset(slot);
+        if (!isInUse(record)) {
+            storage.put(record + IN_USE_OFFSET, (byte) 1);
+            storage.putInt(SENSOR_COUNT_OFFSET, storage.getInt(SENSOR_COUNT_OFFSET) + 1);
+        }
+    }
+
+    private boolean isInUse(int record) {
+        return storage.get(record + IN_USE_OFFSET) != 0;
+    }
+
+    private Sensor readRecord(int record) {
+        byte[] name = new byte[storage.getShort(record + NAME_LENGTH_OFFSET)];
+        storage.get(record + NAME_OFFSET, name);
+        Sensor sensor = new Sensor(new String(name, StandardCharsets.UTF_8),
+                SensorType.values()[storage.get(record + TYPE_OFFSET)]);
+        sensor.setSensorId(new UUID(storage.getLong(record + ID_HIGH_OFFSET), storage.getLong(record + ID_LOW_OFFSET)));
+        sensor.setActive(storage.get(record + ACTIVE_OFFSET) != 0);
+        return sensor;
+    }
+
+    private void writeName(int record, byte[] name) {
+        storage.put(record + NAME_OFFSET, name);
+        storage.putShort(record + NAME_LENGTH_OFFSET, (short) name.length);
+    }
+
+    private boolean nameMatches(int record, byte[] name) {
+        if (storage.getShort(record + NAME_LENGTH_OFFSET) != name.length) {
+            return false;
+        }
+        for (int i = 0; i < name.length; i++) {
+            if (storage.get(record + NAME_OFFSET + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] encodeName(Sensor sensor) {
+        byte[] name = sensor.getName().getBytes(StandardCharsets.UTF_8);
+        if (name.length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Sensor name longer than " + MAX_NAME_BYTES + " bytes: " + sensor.getName());
+        }
+        return name;
+    }
+
+    /**
+     * @return The slot holding the sensor, or {@link #NO_SLOT} if it is not stored
+     */
+    private int findSlot(UUID sensorId) {
+        int entry = findIndexEntry(sensorId);
+        return entry == NO_SLOT ? NO_SLOT : indexedSlot(entry);
+    }
+
+    /**
+     * @return The index entry pointing at the sensor's slot, or {@link #NO_SLOT} if it is not stored
+     */
+    private int findIndexEntry(UUID sensorId) {
+        long idHigh = sensorId.getMostSignificantBits();
+        long idLow = sensorId.getLeastSignificantBits();
+        for (int entry = homeEntry(idHigh, idLow); ; entry = (entry + 1) & indexMask) {
+            int slot = indexedSlot(entry);
+            if (slot == NO_SLOT) {
+                return NO_SLOT;
+            }
+            int record = recordOffset(slot);
+            if (storage.getLong(record + ID_HIGH_OFFSET) == idHigh && storage.getLong(record + ID_LOW_OFFSET) == idLow) {
+                return entry;
+            }
+        }
+    }
+
+    private void indexSlot(int slot, UUID sensorId) {
+        int entry = homeEntry(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits());
+        while (indexedSlot(entry) != NO_SLOT) {
+            entry = (entry + 1) & indexMask;
+        }
+        // Entries hold slot + 1, so the zero-filled index of a new file reads as empty
+        storage.putInt(indexOffset + entry * Integer.BYTES, slot + 1);
+    }
+
+    /**
+     * Removes the sensor from the index, shifting later entries of the probe sequence back so that
+     * lookups need no tombstones.
+     */
+    private void unindexSlot(UUID sensorId) {
+        int hole = findIndexEntry(sensorId);
+        if (hole == NO_SLOT) {
+            return;
+        }
+        for (int entry = (hole + 1) & indexMask; indexedSlot(entry) != NO_SLOT; entry = (entry + 1) & indexMask) {
+            int record = recordOffset(indexedSlot(entry));
+            int home = homeEntry(storage.getLong(record + ID_HIGH_OFFSET), storage.getLong(record + ID_LOW_OFFSET));
+            // An entry may fill the hole unless its home lies cyclically after the hole, up to the entry itself
+            boolean homeAfterHole = hole <= entry ? hole < home && home <= entry : hole < home || home <= entry;
+            if (!homeAfterHole) {
+                storage.putInt(indexOffset + hole * Integer.BYTES, indexedSlot(entry) + 1);
+                hole = entry;
+            }
+        }
+        storage.putInt(indexOffset + hole * Integer.BYTES, 0);
+    }
+
+    private int indexedSlot(int entry) {
+        return storage.getInt(indexOffset + entry * Integer.BYTES) - 1;
+    }
+
+    private int homeEntry(long idHigh, long idLow) {
+        long mixed = (idHigh ^ idLow) * 0x9E3779B97F4A7C15L;
+        return (int) (mixed >>> 32) & indexMask;
+    }
+
+    private static int recordOffset(int slot) {
+        return HEADER_BYTES + slot * RECORD_BYTES;
+    }
+}
@@ -2,10 +2,19 @@ package com.udacity.catpoint.security.data;
 
 import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Type;
+import java.time.Duration;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.prefs.BackingStoreException;
 import java.util.prefs.Preferences;
 
 /**
@@ -13,8 +22,15 @@ import java.util.prefs.Preferences;
  * This implementation provides a lightweight data layer for demonstration and development,
  * utilizing Java Preferences API for state persistence across application sessions.
  * Note: This implementation prioritizes simplicity over testability.
+ *
+ * By default every change is written to storage straight away. In write-behind mode changes only
+ * update memory and mark their key dirty; a background flusher writes each dirty key at most once
+ * per flush interval, so a burst of sensor updates serializes the sensor set once instead of once
+ * per update. Pending changes are written by {@link #flush()}, {@link #close()} and on JVM shutdown.
  */
-public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository{
+public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository, AutoCloseable {
+
+    private final Logger logger = LoggerFactory.getLogger(PretendDatabaseSecurityRepositoryImpl.class);
 
     private Set<Sensor> monitoringDevices;
     private AlarmStatus currentThreatLevel;
@@ -28,7 +44,44 @@ public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository
     private static final Preferences persistentStorage = Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class);
     private static final Gson jsonSerializer = new Gson(); // Handles object serialization for storage
 
+    // Write-behind state; the flusher and shutdown hook are null in write-through mode
+    private final Set<String> dirtyKeys = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService flusher;
+    private final Thread shutdownFlush;
+
+    private final AtomicLong recordedChanges = new AtomicLong();
+    private final AtomicLong storageWrites = new AtomicLong();
+
+    /**
+     * Creates a repository that writes every change to storage straight away.
+     */
     public PretendDatabaseSecurityRepositoryImpl() {
+        restoreState();
+        this.flusher = null;
+        this.shutdownFlush = null;
+    }
+
+    /**
+     * Creates a repository in write-behind mode.
+     * @param flushInterval How often dirty state is written to storage; also the most recent changes a crash can lose
+     */
+    public PretendDatabaseSecurityRepositoryImpl(Duration flushInterval) {
+        if (flushInterval.isNegative() || flushInterval.isZero()) {
+            throw new IllegalArgumentException("Flush interval must be positive");
+        }
+        restoreState();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread flushThread = new Thread(task, "security-repository-flush");
+            flushThread.setDaemon(true);
+            return flushThread;
+        });
+        long intervalMillis = flushInterval.toMillis();
+        this.flusher.scheduleWithFixedDelay(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        this.shutdownFlush = new Thread(this::flush, "security-repository-shutdown-flush");
+        Runtime.getRuntime().addShutdownHook(shutdownFlush);
+    }
+
+    private void restoreState() {
         // Initialize system state from persistent storage with sensible defaults
         currentThreatLevel = AlarmStatus.valueOf(persistentStorage.get(THREAT_LEVEL_STATE, AlarmStatus.NO_ALARM.toString()));
         operationalMode = ArmingStatus.valueOf(persistentStorage.get(OPERATIONAL_MODE_STATE, ArmingStatus.DISARMED.toString()));
@@ -46,34 +99,120 @@ public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository
     }
 
     @Override
-    public void addSensor(Sensor sensor) {
+    public synchronized void addSensor(Sensor sensor) {
         monitoringDevices.add(sensor);
-        persistentStorage.put(DEVICE_REGISTRY, jsonSerializer.toJson(monitoringDevices));
+        recordChange(DEVICE_REGISTRY);
     }
 
     @Override
-    public void removeSensor(Sensor sensor) {
+    public synchronized void removeSensor(Sensor sensor) {
         monitoringDevices.remove(sensor);
-        persistentStorage.put(DEVICE_REGISTRY, jsonSerializer.toJson(monitoringDevices));
+        recordChange(DEVICE_REGISTRY);
     }
 
     @Override
-    public void updateSensor(Sensor sensor) {
+    public synchronized void updateSensor(Sensor sensor) {
         monitoringDevices.remove(sensor);
         monitoringDevices.add(sensor);
-        persistentStorage.put(DEVICE_REGISTRY, jsonSerializer.toJson(monitoringDevices));
+        recordChange(DEVICE_REGISTRY);
     }
 
     @Override
-    public void setAlarmStatus(AlarmStatus alarmStatus) {
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
         this.currentThreatLevel = alarmStatus;
-        persistentStorage.put(THREAT_LEVEL_STATE, this.currentThreatLevel.toString());
+        recordChange(THREAT_LEVEL_STATE);
     }
 
     @Override
-    public void setArmingStatus(ArmingStatus armingStatus) {
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
         this.operationalMode = armingStatus;
-        persistentStorage.put(OPERATIONAL_MODE_STATE, this.operationalMode.toString());
+        recordChange(OPERATIONAL_MODE_STATE);
+    }
+
+    /**
+     * Writes a changed key straight away, or marks it dirty for the flusher in write-behind mode.
+     */
+    private void recordChange(String key) {
+        recordedChanges.incrementAndGet();
+        if (flusher == null) {
+            write(key);
+        } else {
+            dirtyKeys.add(key);
+        }
+    }
+
+    /**
+     * Writes the current value of a key to storage.
+     */
+    private synchronized void write(String key) {
+        String value = switch (key) {
+            case DEVICE_REGISTRY -> jsonSerializer.toJson(monitoringDevices);
+            case THREAT_LEVEL_STATE -> currentThreatLevel.toString();
+            case OPERATIONAL_MODE_STATE -> operationalMode.toString();
+            default -> throw new IllegalArgumentException("Unknown storage key: " + key);
+        };
+        persistentStorage.put(key, value);
+        storageWrites.incrementAndGet();
+    }
+
+    /**
+     * Writes every dirty key and forces storage to its backing store. Safe to call in either mode
+     * and from any thread.
+     */
+    public void flush() {
+        boolean wroteChanges = false;
+        for (String key : dirtyKeys) {
+            // Cleared before writing, so a change made during the write marks the key dirty again
+            if (dirtyKeys.remove(key)) {
+                write(key);
+                wroteChanges = true;
+            }
+        }
+        if (wroteChanges) {
+            try {
+                persistentStorage.flush();
+            } catch (BackingStoreException storageError) {
+                logger.warn("Failed to flush security state to the backing store", storageError);
+            }
+        }
+    }
+
+    /**
+     * @return Changes recorded per storage write; above 1 when write-behind coalesced several changes into one write
+     */
+    public double getCoalescingRatio() {
+        long writes = storageWrites.get();
+        return writes == 0 ? 0 : (double) recordedChanges.get() / writes;
+    }
+
+    public long getRecordedChangeCount() {
+        return recordedChanges.get();
+    }
+
+    public long getStorageWriteCount() {
+        return storageWrites.get();
+    }
+
+    /**
+     * Stops the flusher and writes any pending changes. Does nothing in write-through mode.
+     */
+    @Override
+    public void close() {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownFlush);
+        } catch (IllegalStateException shuttingDown) {
+            // Already shutting down; the hook flushes once more, which finds nothing dirty
+        }
     }
 
     @Override
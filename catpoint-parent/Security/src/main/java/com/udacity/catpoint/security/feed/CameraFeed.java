@@ -0,0 +1,136 @@
+package com.udacity.catpoint.security.feed;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One camera's ingestion path: a capture thread reads frames from the {@link FrameSource} into a
+ * bounded {@link FrameQueue}, from which the {@link CameraFeedManager} takes them at the camera's
+ * target frame rate. The queue capacity caps the frames this camera can hold in memory.
+ */
+public class CameraFeed implements AutoCloseable {
+
+    private final Logger logger = LoggerFactory.getLogger(CameraFeed.class);
+
+    private final String cameraId;
+    private final FrameSource frameSource;
+    private final FrameQueue frameQueue;
+    private final Thread captureThread;
+    private volatile boolean running = false;
+
+    private final AtomicLong capturedFrames = new AtomicLong();
+    private final AtomicLong deliveredFrames = new AtomicLong();
+    private final AtomicLong totalFrameAgeNanos = new AtomicLong();
+    private final AtomicLong maxFrameAgeNanos = new AtomicLong();
+
+    /**
+     * @param cameraId Identifies the camera in logs and metrics
+     * @param frameSource Where the camera's frames come from
+     * @param queueCapacity Maximum number of frames waiting for analysis
+     * @param overflowPolicy What to do with new frames while the queue is full
+     */
+    public CameraFeed(String cameraId, FrameSource frameSource, int queueCapacity, OverflowPolicy overflowPolicy) {
+        this.cameraId = cameraId;
+        this.frameSource = frameSource;
+        this.frameQueue = new FrameQueue(queueCapacity, overflowPolicy);
+        this.captureThread = new Thread(this::captureFrames, "camera-feed-" + cameraId);
+        this.captureThread.setDaemon(true);
+    }
+
+    /**
+     * Starts the capture thread.
+     */
+    public void start() {
+        running = true;
+        captureThread.start();
+    }
+
+    private void captureFrames() {
+        try {
+            while (running) {
+                BufferedImage frame = frameSource.nextFrame();
+                if (frame == null) {
+                    logger.info("Camera {} feed ended", cameraId);
+                    return;
+                }
+                capturedFrames.incrementAndGet();
+                frameQueue.offer(new CapturedFrame(frame, System.nanoTime()));
+            }
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException captureError) {
+            if (running) {
+                logger.error("Camera {} feed failed", cameraId, captureError);
+            }
+        }
+    }
+
+    /**
+     * @return The oldest queued frame, or null if none is waiting
+     */
+    CapturedFrame pollFrame() {
+        return frameQueue.poll();
+    }
+
+    void recordDelivery(CapturedFrame frame) {
+        long frameAgeNanos = System.nanoTime() - frame.getCaptureNanos();
+        deliveredFrames.incrementAndGet();
+        totalFrameAgeNanos.addAndGet(frameAgeNanos);
+        maxFrameAgeNanos.accumulateAndGet(frameAgeNanos, Math::max);
+    }
+
+    /**
+     * Stops capturing and closes the frame source. Frames still queued are discarded.
+     */
+    @Override
+    public void close() {
+        running = false;
+        captureThread.interrupt();
+        try {
+            frameSource.close();
+        } catch (IOException closeError) {
+            logger.warn("Failed to close frame source of camera {}", cameraId, closeError);
+        }
+    }
+
+    public String getCameraId() {
+        return cameraId;
+    }
+
+    public boolean isCapturing() {
+        return captureThread.isAlive();
+    }
+
+    public int getQueueDepth() {
+        return frameQueue.size();
+    }
+
+    public long getCapturedFrameCount() {
+        return capturedFrames.get();
+    }
+
+    public long getDroppedFrameCount() {
+        return frameQueue.getDroppedFrameCount();
+    }
+
+    public long getDeliveredFrameCount() {
+        return deliveredFrames.get();
+    }
+
+    /**
+     * @return Average time delivered frames spent between capture and delivery, in milliseconds
+     */
+    public double getAverageFrameAgeMillis() {
+        long delivered = deliveredFrames.get();
+        return delivered == 0 ? 0.0 : (double) totalFrameAgeNanos.get() / delivered / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public long getMaxFrameAgeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxFrameAgeNanos.get());
+    }
+}
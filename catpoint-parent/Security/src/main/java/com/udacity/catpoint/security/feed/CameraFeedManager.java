@@ -0,0 +1,146 @@
+package com.udacity.catpoint.security.feed;
+
+import com.udacity.catpoint.security.service.CameraAnalysisScheduler;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Runs any number of {@link CameraFeed}s concurrently and paces their frames into the security system.
+ *
+ * Each camera is dispatched at its own target frame rate on a shared, fixed-size pool: at every tick the
+ * oldest queued frame of that camera is handed to the frame sink, by default
+ * {@link SecurityService#processCameraFrame} with the camera's ID, which applies the verdict on the
+ * service's completion executor rather than on the dispatch thread. A camera whose
+ * analysis overruns its tick is simply dispatched late rather than concurrently, so slow analysis backs
+ * up into that camera's bounded queue, where its overflow policy applies, instead of into unbounded
+ * work for the pool.
+ */
+public class CameraFeedManager implements AutoCloseable {
+
+    private final Logger logger = LoggerFactory.getLogger(CameraFeedManager.class);
+
+    private final BiConsumer<String, BufferedImage> frameSink;
+    private final ScheduledExecutorService dispatchExecutor;
+    private final Map<String, CameraFeed> cameraFeeds = new ConcurrentHashMap<>();
+    private final Map<String, ScheduledFuture<?>> dispatchTasks = new ConcurrentHashMap<>();
+
+    /**
+     * @param securityService Service that analyses every dispatched frame under its camera ID, so a
+     *                        camera without a cat in view does not clear another camera's sighting
+     * @param dispatchThreads Number of cameras that can be analysed at the same moment
+     */
+    public CameraFeedManager(SecurityService securityService, int dispatchThreads) {
+        this(securityService::processCameraFrame, dispatchThreads);
+    }
+
+    /**
+     * @param frameSink Receives every dispatched frame
+     * @param dispatchThreads Number of frames that can be handed to the sink at the same moment
+     */
+    public CameraFeedManager(Consumer<BufferedImage> frameSink, int dispatchThreads) {
+        this((cameraId, frame) -> frameSink.accept(frame), dispatchThreads);
+    }
+
+    /**
+     * Dispatches frames to the scheduler, which shares the analysis budget fairly between cameras.
+     * Each camera must also be registered with the scheduler.
+     * @param analysisScheduler Scheduler that queues every dispatched frame under its camera ID
+     * @param dispatchThreads Number of frames that can be handed to the scheduler at the same moment
+     */
+    public CameraFeedManager(CameraAnalysisScheduler analysisScheduler, int dispatchThreads) {
+        this(analysisScheduler::submit, dispatchThreads);
+    }
+
+    /**
+     * @param frameSink Receives every dispatched frame with the ID of the camera it came from
+     * @param dispatchThreads Number of frames that can be handed to the sink at the same moment
+     */
+    public CameraFeedManager(BiConsumer<String, BufferedImage> frameSink, int dispatchThreads) {
+        this.frameSink = frameSink;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.dispatchExecutor = Executors.newScheduledThreadPool(dispatchThreads, task -> {
+            Thread dispatchThread = new Thread(task, "camera-dispatch-" + threadCount.incrementAndGet());
+            dispatchThread.setDaemon(true);
+            return dispatchThread;
+        });
+    }
+
+    /**
+     * Starts capturing from a camera and dispatching its frames.
+     * @param cameraId Unique camera identifier
+     * @param frameSource Where the camera's frames come from
+     * @param queueCapacity Maximum number of frames waiting for analysis
+     * @param overflowPolicy What to do with new frames while the queue is full
+     * @param targetFrameRate Frames per second handed to the frame sink
+     * @return The running feed, for metrics
+     */
+    public CameraFeed addCamera(String cameraId, FrameSource frameSource, int queueCapacity,
+                                OverflowPolicy overflowPolicy, double targetFrameRate) {
+        if (targetFrameRate <= 0) {
+            throw new IllegalArgumentException("Target frame rate must be positive");
+        }
+        CameraFeed cameraFeed = new CameraFeed(cameraId, frameSource, queueCapacity, overflowPolicy);
+        if (cameraFeeds.putIfAbsent(cameraId, cameraFeed) != null) {
+            throw new IllegalArgumentException("Camera already registered: " + cameraId);
+        }
+        cameraFeed.start();
+        long dispatchIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / targetFrameRate);
+        dispatchTasks.put(cameraId, dispatchExecutor.scheduleAtFixedRate(() -> dispatchNextFrame(cameraFeed),
+                dispatchIntervalNanos, dispatchIntervalNanos, TimeUnit.NANOSECONDS));
+        logger.info("Camera {} feed started at {} fps", cameraId, targetFrameRate);
+        return cameraFeed;
+    }
+
+    private void dispatchNextFrame(CameraFeed cameraFeed) {
+        CapturedFrame frame = cameraFeed.pollFrame();
+        if (frame == null) {
+            return;
+        }
+        cameraFeed.recordDelivery(frame);
+        try {
+            frameSink.accept(cameraFeed.getCameraId(), frame.getImage());
+        } catch (RuntimeException analysisError) {
+            // An exception would cancel this camera's periodic dispatch, so it is logged instead
+            logger.error("Failed to analyse frame from camera {}", cameraFeed.getCameraId(), analysisError);
+        }
+    }
+
+    /**
+     * Stops a camera's capture and dispatch.
+     * @param cameraId The camera to remove
+     */
+    public void removeCamera(String cameraId) {
+        ScheduledFuture<?> dispatchTask = dispatchTasks.remove(cameraId);
+        if (dispatchTask != null) {
+            dispatchTask.cancel(false);
+        }
+        CameraFeed cameraFeed = cameraFeeds.remove(cameraId);
+        if (cameraFeed != null) {
+            cameraFeed.close();
+        }
+    }
+
+    public Collection<CameraFeed> getCameraFeeds() {
+        return List.copyOf(cameraFeeds.values());
+    }
+
+    @Override
+    public void close() {
+        cameraFeeds.keySet().forEach(this::removeCamera);
+        dispatchExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,24 @@
+package com.udacity.catpoint.security.feed;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A frame together with the time it was captured, so its age can be measured on delivery.
+ */
+final class CapturedFrame {
+    private final BufferedImage image;
+    private final long captureNanos;
+
+    CapturedFrame(BufferedImage image, long captureNanos) {
+        this.image = image;
+        this.captureNanos = captureNanos;
+    }
+
+    BufferedImage getImage() {
+        return image;
+    }
+
+    long getCaptureNanos() {
+        return captureNanos;
+    }
+}
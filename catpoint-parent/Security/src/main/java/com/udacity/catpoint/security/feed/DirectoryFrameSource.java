@@ -0,0 +1,208 @@
+package com.udacity.catpoint.security.feed;
+
+import com.udacity.catpoint.image.processing.ImageDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Frame source for cameras that drop image files into a directory, e.g. over FTP or a network share.
+ * Each JPEG or PNG file created or rewritten in the directory becomes one frame once it is stable:
+ * no event has arrived for it and its size has not changed for the settle time, so a file the camera
+ * is still writing is not decoded half-finished. Files that still cannot be decoded are skipped and
+ * counted rather than ending the feed.
+ */
+public class DirectoryFrameSource implements FrameSource {
+
+    private static final Duration DEFAULT_SETTLE_TIME = Duration.ofMillis(200);
+
+    private final Logger logger = LoggerFactory.getLogger(DirectoryFrameSource.class);
+
+    private final Path directory;
+    private final long settleNanos;
+    private final WatchService watchService;
+    // Optional; frames are decoded at full size with ImageIO when absent
+    private final ImageDecoder frameDecoder;
+    private final int targetWidth;
+    private final int targetHeight;
+    // Files with pending events, oldest first; a file written in several steps is queued once
+    private final Map<Path, PendingFile> pendingFiles = new LinkedHashMap<>();
+
+    private final AtomicLong undecodableFrames = new AtomicLong();
+
+    /**
+     * @param directory Directory the camera writes its frames to
+     * @throws IOException if the directory cannot be watched
+     */
+    public DirectoryFrameSource(Path directory) throws IOException {
+        this(directory, null, 0, 0);
+    }
+
+    /**
+     * @param directory Directory the camera writes its frames to
+     * @param frameDecoder Decoder that decodes frames no larger than the target size
+     * @param targetWidth Width frames are needed at
+     * @param targetHeight Height frames are needed at
+     * @throws IOException if the directory cannot be watched
+     */
+    public DirectoryFrameSource(Path directory, ImageDecoder frameDecoder, int targetWidth, int targetHeight) throws IOException {
+        this(directory, DEFAULT_SETTLE_TIME, frameDecoder, targetWidth, targetHeight);
+    }
+
+    /**
+     * @param directory Directory the camera writes its frames to
+     * @param settleTime How long a file must stay unchanged before it is read
+     * @param frameDecoder Decoder that decodes frames no larger than the target size
+     * @param targetWidth Width frames are needed at
+     * @param targetHeight Height frames are needed at
+     * @throws IOException if the directory cannot be watched
+     */
+    public DirectoryFrameSource(Path directory, Duration settleTime, ImageDecoder frameDecoder,
+                                int targetWidth, int targetHeight) throws IOException {
+        this.directory = directory;
+        this.settleNanos = settleTime.toNanos();
+        this.frameDecoder = frameDecoder;
+        this.targetWidth = targetWidth;
+        this.targetHeight = targetHeight;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    @Override
+    public BufferedImage nextFrame() throws IOException, InterruptedException {
+        while (true) {
+            if (pendingFiles.isEmpty()) {
+                collectEvents(watchService.take());
+            }
+            // Drain whatever else has arrived so repeated events for one file collapse into one frame
+            WatchKey readyKey;
+            while ((readyKey = watchService.poll()) != null) {
+                collectEvents(readyKey);
+            }
+            Iterator<Map.Entry<Path, PendingFile>> oldestFirst = pendingFiles.entrySet().iterator();
+            if (!oldestFirst.hasNext()) {
+                continue;
+            }
+            Map.Entry<Path, PendingFile> oldest = oldestFirst.next();
+            Path frameFile = oldest.getKey();
+            PendingFile pendingFile = oldest.getValue();
+            long settleWaitNanos = pendingFile.lastChangeNanos + settleNanos - System.nanoTime();
+            if (settleWaitNanos > 0) {
+                readyKey = watchService.poll(settleWaitNanos, TimeUnit.NANOSECONDS);
+                if (readyKey != null) {
+                    collectEvents(readyKey);
+                }
+                continue;
+            }
+            // Some shares deliver one event for several writes, so the size must also have held still
+            long size = sizeOf(frameFile);
+            if (size != pendingFile.size) {
+                pendingFile.changed(size);
+                continue;
+            }
+            oldestFirst.remove();
+            if (size < 0) {
+                // Deleted or replaced before it could be read
+                continue;
+            }
+            BufferedImage frame = decode(frameFile);
+            if (frame != null) {
+                return frame;
+            }
+        }
+    }
+
+    /**
+     * @return The decoded frame, or null if the file is not a readable image
+     */
+    private BufferedImage decode(Path frameFile) {
+        try {
+            BufferedImage frame = frameDecoder == null
+                    ? ImageIO.read(frameFile.toFile())
+                    : frameDecoder.decode(frameFile, targetWidth, targetHeight);
+            if (frame != null) {
+                return frame;
+            }
+            logger.warn("Skipping frame file in an unsupported format: {}", frameFile);
+        } catch (IOException | RuntimeException corruptFrame) {
+            // Image readers report corrupt data with either kind of exception
+            logger.warn("Skipping frame file that could not be decoded: {}", frameFile, corruptFrame);
+        }
+        undecodableFrames.incrementAndGet();
+        return null;
+    }
+
+    private void collectEvents(WatchKey watchKey) throws IOException {
+        for (WatchEvent<?> event : watchKey.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                logger.warn("Frame events were lost while watching {}", directory);
+                continue;
+            }
+            Path frameFile = directory.resolve((Path) event.context());
+            if (isImageFile(frameFile)) {
+                pendingFiles.computeIfAbsent(frameFile, newFile -> new PendingFile()).changed(sizeOf(frameFile));
+            }
+        }
+        if (!watchKey.reset()) {
+            throw new IOException("Frame directory is no longer accessible: " + directory);
+        }
+    }
+
+    /**
+     * @return The file's size, or -1 if it no longer exists or cannot be read
+     */
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException deletedOrUnreadable) {
+            return -1;
+        }
+    }
+
+    private static boolean isImageFile(Path file) {
+        String fileName = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return fileName.endsWith(".jpg") || fileName.endsWith(".jpeg") || fileName.endsWith(".png");
+    }
+
+    /**
+     * @return Frame files skipped because they could not be decoded
+     */
+    public long getUndecodableFrameCount() {
+        return undecodableFrames.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    /**
+     * When a queued file last changed and its size at that moment.
+     */
+    private static final class PendingFile {
+        private long lastChangeNanos;
+        private long size;
+
+        void changed(long newSize) {
+            lastChangeNanos = System.nanoTime();
+            size = newSize;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.udacity.catpoint.security.feed;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded single-camera frame queue applying an {@link OverflowPolicy} when full. The capacity
+ * bounds both the memory a camera can hold and how stale a delivered frame can be.
+ */
+final class FrameQueue {
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final ArrayDeque<CapturedFrame> frames;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final AtomicLong droppedFrames = new AtomicLong();
+
+    FrameQueue(int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Frame queue capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.frames = new ArrayDeque<>(capacity);
+    }
+
+    /**
+     * Adds a frame, dropping or waiting as the overflow policy requires when the queue is full.
+     * @return false if the new frame itself was dropped
+     */
+    boolean offer(CapturedFrame frame) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            if (frames.size() == capacity) {
+                switch (overflowPolicy) {
+                    case DROP_OLDEST -> {
+                        frames.pollFirst();
+                        droppedFrames.incrementAndGet();
+                    }
+                    case DROP_NEWEST -> {
+                        droppedFrames.incrementAndGet();
+                        return false;
+                    }
+                    case BLOCK -> {
+                        while (frames.size() == capacity) {
+                            notFull.await();
+                        }
+                    }
+                }
+            }
+            frames.addLast(frame);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The oldest queued frame, or null if the queue is empty
+     */
+    CapturedFrame poll() {
+        lock.lock();
+        try {
+            CapturedFrame frame = frames.pollFirst();
+            if (frame != null) {
+                notFull.signal();
+            }
+            return frame;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return frames.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getDroppedFrameCount() {
+        return droppedFrames.get();
+    }
+}
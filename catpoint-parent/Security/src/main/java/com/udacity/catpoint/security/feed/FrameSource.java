@@ -0,0 +1,32 @@
+package com.udacity.catpoint.security.feed;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A stream of camera frames, read by a {@link CameraFeed} on its own capture thread.
+ */
+public interface FrameSource extends AutoCloseable {
+
+    /**
+     * Blocks until the next frame is available.
+     * @return The next frame, or null once the source is exhausted
+     * @throws IOException if the source can no longer be read
+     * @throws InterruptedException if the capture thread is interrupted while waiting
+     */
+    BufferedImage nextFrame() throws IOException, InterruptedException;
+
+    /**
+     * Sources that receive frames already JPEG-encoded can hand out those bytes, so a consumer that
+     * needs the encoded frame does not have to encode the decoded one again.
+     * @return The JPEG bytes of the frame last returned by {@link #nextFrame}, valid until the next call,
+     *         or null if the source has none; callers must not change the buffer's position or limit
+     */
+    default ByteBuffer lastEncodedFrame() {
+        return null;
+    }
+
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,189 @@
+package com.udacity.catpoint.security.feed;
+
+import com.udacity.catpoint.image.processing.ImageDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Frame source that replays a recorded MJPEG file - concatenated JPEG images - at a fixed frame rate.
+ * The file is memory-mapped, so frames are decoded straight from the page cache without reading the
+ * recording onto the heap. Frames are delimited by the JPEG start (FFD8) and end (FFD9) markers,
+ * which covers recordings written by typical IP cameras; frames with embedded thumbnails are not supported.
+ * Corrupt frames, e.g. from a camera that dropped packets while recording, are skipped and counted.
+ */
+public class MjpegFileFrameSource implements FrameSource {
+
+    private final Logger logger = LoggerFactory.getLogger(MjpegFileFrameSource.class);
+
+    private final FileChannel fileChannel;
+    private final MappedByteBuffer recording;
+    // Optional; frames are decoded at full size with ImageIO when absent
+    private final ImageDecoder frameDecoder;
+    private final int targetWidth;
+    private final int targetHeight;
+    private final long frameIntervalNanos;
+    private final boolean loop;
+    private long nextFrameDueNanos;
+    // View of the last delivered frame's bytes inside the mapped recording
+    private ByteBuffer lastEncodedFrame;
+
+    private final AtomicLong undecodableFrames = new AtomicLong();
+
+    /**
+     * @param mjpegFile The recording to replay
+     * @param frameRate Frames per second delivered, mimicking the recording camera
+     * @param loop true to restart from the first frame at the end of the recording
+     * @throws IOException if the file cannot be opened or is larger than 2 GB
+     */
+    public MjpegFileFrameSource(Path mjpegFile, double frameRate, boolean loop) throws IOException {
+        this(mjpegFile, frameRate, loop, null, 0, 0);
+    }
+
+    /**
+     * @param mjpegFile The recording to replay
+     * @param frameRate Frames per second delivered, mimicking the recording camera
+     * @param loop true to restart from the first frame at the end of the recording
+     * @param frameDecoder Decoder that decodes frames no larger than the target size
+     * @param targetWidth Width frames are needed at
+     * @param targetHeight Height frames are needed at
+     * @throws IOException if the file cannot be opened or is larger than 2 GB
+     */
+    public MjpegFileFrameSource(Path mjpegFile, double frameRate, boolean loop,
+                                ImageDecoder frameDecoder, int targetWidth, int targetHeight) throws IOException {
+        if (frameRate <= 0) {
+            throw new IllegalArgumentException("Frame rate must be positive");
+        }
+        this.fileChannel = FileChannel.open(mjpegFile, StandardOpenOption.READ);
+        if (fileChannel.size() > Integer.MAX_VALUE) {
+            fileChannel.close();
+            throw new IOException("MJPEG recordings larger than 2 GB are not supported: " + mjpegFile);
+        }
+        this.recording = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+        this.frameIntervalNanos = (long) (1_000_000_000L / frameRate);
+        this.loop = loop;
+        this.frameDecoder = frameDecoder;
+        this.targetWidth = targetWidth;
+        this.targetHeight = targetHeight;
+        this.nextFrameDueNanos = System.nanoTime();
+    }
+
+    @Override
+    public BufferedImage nextFrame() throws IOException, InterruptedException {
+        long waitNanos = nextFrameDueNanos - System.nanoTime();
+        if (waitNanos > 0) {
+            Thread.sleep(waitNanos / 1_000_000L, (int) (waitNanos % 1_000_000L));
+        }
+        nextFrameDueNanos = Math.max(nextFrameDueNanos + frameIntervalNanos, System.nanoTime());
+        boolean restarted = false;
+        while (true) {
+            int frameStart = findMarker(recording, recording.position(), (byte) 0xD8);
+            int frameEnd = frameStart < 0 ? -1 : findMarker(recording, frameStart + 2, (byte) 0xD9);
+            if (frameEnd < 0) {
+                if (!loop || restarted) {
+                    return null;
+                }
+                recording.position(0);
+                restarted = true;
+                continue;
+            }
+            recording.position(frameEnd + 2);
+            ByteBuffer jpegFrame = recording.duplicate();
+            jpegFrame.position(frameStart).limit(frameEnd + 2);
+            BufferedImage frame = decode(jpegFrame);
+            if (frame != null) {
+                lastEncodedFrame = jpegFrame.position(frameStart);
+                return frame;
+            }
+            undecodableFrames.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return The decoded frame, or null if its bytes are corrupt
+     */
+    private BufferedImage decode(ByteBuffer jpegFrame) {
+        int frameStart = jpegFrame.position();
+        InputStream encodedFrame = new ByteBufferInputStream(jpegFrame);
+        try {
+            return frameDecoder == null
+                    ? ImageIO.read(encodedFrame)
+                    : frameDecoder.decode(encodedFrame, targetWidth, targetHeight);
+        } catch (IOException | RuntimeException corruptFrame) {
+            // Image readers report corrupt data with either kind of exception
+            logger.warn("Skipping corrupt frame at offset {}", frameStart, corruptFrame);
+            return null;
+        }
+    }
+
+    /**
+     * @return Frames skipped because they could not be decoded
+     */
+    public long getUndecodableFrameCount() {
+        return undecodableFrames.get();
+    }
+
+    @Override
+    public ByteBuffer lastEncodedFrame() {
+        return lastEncodedFrame;
+    }
+
+    /**
+     * @return The index of the first 0xFF marker byte followed by {@code markerCode}, or -1
+     */
+    private static int findMarker(ByteBuffer buffer, int from, byte markerCode) {
+        int limit = buffer.limit() - 1;
+        for (int i = from; i < limit; i++) {
+            if (buffer.get(i) == (byte) 0xFF && buffer.get(i + 1) == markerCode) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        fileChannel.close();
+    }
+
+    /**
+     * Reads a buffer's remaining bytes without copying them onto the heap first.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(target, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
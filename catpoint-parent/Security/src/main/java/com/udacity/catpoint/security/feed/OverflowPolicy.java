@@ -0,0 +1,13 @@
+package com.udacity.catpoint.security.feed;
+
+/**
+ * What a camera's frame queue does with a new frame when it is already full.
+ */
+public enum OverflowPolicy {
+    /** Discard the oldest queued frame to make room, keeping the queue as fresh as possible. */
+    DROP_OLDEST,
+    /** Discard the new frame, keeping the frames already queued. */
+    DROP_NEWEST,
+    /** Hold the capture thread until room is available, so no frame is lost. */
+    BLOCK
+}
@@ -0,0 +1,262 @@
+package com.udacity.catpoint.security.feed;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ring buffer of one camera's most recent encoded frames, kept so that the seconds before an alarm
+ * can be saved once it trips.
+ *
+ * Frame bytes live in a single direct {@link ByteBuffer} allocated up front at the byte budget, and
+ * the index of frames in primitive arrays, so buffering adds no per-frame objects to the heap. A new
+ * frame evicts frames older than the retention period and, when the arena is full, the oldest frames
+ * in its way. {@link #freezeAndDump} stops buffering, writes the retained frames to a file through a
+ * memory-mapped channel on the given executor and resumes buffering afterwards; frames offered while
+ * frozen are dropped.
+ *
+ * The dump is a plain concatenation of the JPEG frames, oldest first, which
+ * {@link MjpegFileFrameSource} can play back.
+ */
+public class PreAlarmFrameBuffer {
+
+    private static final int MAX_INDEXED_FRAMES = 4_096;
+
+    private final String cameraId;
+    private final long retentionMillis;
+    private final ByteBuffer frameArena;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final int[] frameOffsets = new int[MAX_INDEXED_FRAMES];
+    private final int[] frameLengths = new int[MAX_INDEXED_FRAMES];
+    private final long[] frameCaptureMillis = new long[MAX_INDEXED_FRAMES];
+    private int oldestFrame = 0;
+    private int frameCount = 0;
+    private int writeOffset = 0;
+    private int bufferedBytes = 0;
+    private CompletableFuture<Path> pendingDump;
+
+    private final AtomicLong bufferedFrames = new AtomicLong();
+    private final AtomicLong evictedFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+
+    /**
+     * @param cameraId Identifies the camera in dump file names and logs
+     * @param retention How far back frames are kept
+     * @param byteBudget Off-heap bytes reserved for this camera's frames
+     */
+    public PreAlarmFrameBuffer(String cameraId, Duration retention, int byteBudget) {
+        if (byteBudget < 1) {
+            throw new IllegalArgumentException("Byte budget must be positive");
+        }
+        this.cameraId = cameraId;
+        this.retentionMillis = retention.toMillis();
+        this.frameArena = ByteBuffer.allocateDirect(byteBudget);
+    }
+
+    /**
+     * Buffers an encoded frame, evicting older frames as needed.
+     * @param encodedFrame The JPEG bytes; copied, so the array may be reused by the caller
+     * @param captureMillis Wall-clock capture time, used for retention
+     * @return false if the frame was dropped because the buffer is frozen or the frame exceeds the budget
+     */
+    public boolean append(byte[] encodedFrame, long captureMillis) {
+        return append(ByteBuffer.wrap(encodedFrame), captureMillis);
+    }
+
+    /**
+     * Buffers an encoded frame, evicting older frames as needed.
+     * @param encodedFrame The JPEG bytes between the buffer's position and limit; copied, and the
+     *                     position is left unchanged
+     * @param captureMillis Wall-clock capture time, used for retention
+     * @return false if the frame was dropped because the buffer is frozen or the frame exceeds the budget
+     */
+    public boolean append(ByteBuffer encodedFrame, long captureMillis) {
+        int length = encodedFrame.remaining();
+        lock.lock();
+        try {
+            if (pendingDump != null || length > frameArena.capacity()) {
+                droppedFrames.incrementAndGet();
+                return false;
+            }
+            while (frameCount > 0 && frameCaptureMillis[oldestFrame] < captureMillis - retentionMillis) {
+                evictOldest();
+            }
+            if (frameCount == MAX_INDEXED_FRAMES) {
+                evictOldest();
+            }
+            int writeAt = writeOffset;
+            if (writeAt + length > frameArena.capacity()) {
+                // Frames between the write position and the end of the arena are the oldest; skip that tail
+                while (frameCount > 0 && frameOffsets[oldestFrame] >= writeAt) {
+                    evictOldest();
+                }
+                writeAt = 0;
+            }
+            while (frameCount > 0 && frameOffsets[oldestFrame] < writeAt + length
+                    && frameOffsets[oldestFrame] + frameLengths[oldestFrame] > writeAt) {
+                evictOldest();
+            }
+            int readFrom = encodedFrame.position();
+            frameArena.position(writeAt);
+            frameArena.put(encodedFrame);
+            encodedFrame.position(readFrom);
+
+            int newestFrame = (oldestFrame + frameCount) % MAX_INDEXED_FRAMES;
+            frameOffsets[newestFrame] = writeAt;
+            frameLengths[newestFrame] = length;
+            frameCaptureMillis[newestFrame] = captureMillis;
+            frameCount++;
+            bufferedBytes += length;
+            writeOffset = writeAt + length;
+            bufferedFrames.incrementAndGet();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void evictOldest() {
+        bufferedBytes -= frameLengths[oldestFrame];
+        oldestFrame = (oldestFrame + 1) % MAX_INDEXED_FRAMES;
+        frameCount--;
+        evictedFrames.incrementAndGet();
+    }
+
+    /**
+     * Freezes the buffer and writes its frames to the given file without blocking the caller. While a
+     * dump is in progress, further calls return that dump instead of starting another.
+     * @param dumpFile File to create; must not exist
+     * @param dumpExecutor Executor that performs the write
+     * @return A future completed with the dump file once it is written and buffering has resumed
+     */
+    public CompletableFuture<Path> freezeAndDump(Path dumpFile, Executor dumpExecutor) {
+        int[] offsets;
+        int[] lengths;
+        CompletableFuture<Path> dump;
+        lock.lock();
+        try {
+            if (pendingDump != null) {
+                return pendingDump;
+            }
+            offsets = new int[frameCount];
+            lengths = new int[frameCount];
+            for (int i = 0; i < frameCount; i++) {
+                int frame = (oldestFrame + i) % MAX_INDEXED_FRAMES;
+                offsets[i] = frameOffsets[frame];
+                lengths[i] = frameLengths[frame];
+            }
+            dump = new CompletableFuture<>();
+            pendingDump = dump;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            dumpExecutor.execute(() -> {
+                try {
+                    writeFrames(dumpFile, offsets, lengths);
+                    dump.complete(dumpFile);
+                } catch (IOException | RuntimeException dumpError) {
+                    dump.completeExceptionally(dumpError);
+                } finally {
+                    unfreeze();
+                }
+            });
+        } catch (RuntimeException rejected) {
+            unfreeze();
+            dump.completeExceptionally(rejected);
+        }
+        return dump;
+    }
+
+    private void writeFrames(Path dumpFile, int[] offsets, int[] lengths) throws IOException {
+        long totalBytes = 0;
+        for (int length : lengths) {
+            totalBytes += length;
+        }
+        try (FileChannel dumpChannel = FileChannel.open(dumpFile,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (totalBytes == 0) {
+                return;
+            }
+            MappedByteBuffer dumpBuffer = dumpChannel.map(FileChannel.MapMode.READ_WRITE, 0, totalBytes);
+            // The arena is not written while frozen, so a private view can be read without the lock
+            ByteBuffer frozenFrames = frameArena.duplicate();
+            for (int i = 0; i < offsets.length; i++) {
+                frozenFrames.limit(offsets[i] + lengths[i]).position(offsets[i]);
+                dumpBuffer.put(frozenFrames);
+            }
+            dumpBuffer.force();
+        }
+    }
+
+    private void unfreeze() {
+        lock.lock();
+        try {
+            pendingDump = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getCameraId() {
+        return cameraId;
+    }
+
+    public int getByteBudget() {
+        return frameArena.capacity();
+    }
+
+    public boolean isFrozen() {
+        lock.lock();
+        try {
+            return pendingDump != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getBufferedFrameCount() {
+        lock.lock();
+        try {
+            return frameCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getBufferedBytes() {
+        lock.lock();
+        try {
+            return bufferedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Frames that were buffered since creation, including those later evicted
+     */
+    public long getTotalBufferedFrameCount() {
+        return bufferedFrames.get();
+    }
+
+    public long getEvictedFrameCount() {
+        return evictedFrames.get();
+    }
+
+    /**
+     * @return Frames refused while frozen or for exceeding the byte budget
+     */
+    public long getDroppedFrameCount() {
+        return droppedFrames.get();
+    }
+}
@@ -0,0 +1,219 @@
+package com.udacity.catpoint.security.feed;
+
+import com.udacity.catpoint.image.service.JpegEncoder;
+import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps a {@link PreAlarmFrameBuffer} per camera and saves all of them when the alarm trips.
+ *
+ * Create it with {@link #attachTo}, which registers it as a status listener of the security service,
+ * and wrap each camera's source with {@link #record} before handing it to the {@link CameraFeedManager}.
+ * Each captured frame is buffered off-heap on the camera's capture thread: sources that deliver
+ * JPEG-encoded frames, like {@link MjpegFileFrameSource}, have their bytes copied as they are, and
+ * other frames are encoded straight into the buffer. When the status changes to
+ * {@link AlarmStatus#ALARM} - repeated ALARM notifications are ignored - every buffer is frozen and
+ * dumped on a background thread to {@code <cameraId>-<epochMillis>.mjpeg} in the dump directory, so
+ * the thread raising the alarm never waits for disk.
+ */
+public class PreAlarmRecorder implements StatusListener, AutoCloseable {
+
+    private static final float DEFAULT_JPEG_QUALITY = 0.8f;
+
+    private final Logger logger = LoggerFactory.getLogger(PreAlarmRecorder.class);
+
+    private final Path dumpDirectory;
+    private final Duration retention;
+    private final int byteBudgetPerCamera;
+    private final JpegEncoder frameEncoder = new JpegEncoder(DEFAULT_JPEG_QUALITY);
+    private final Map<String, PreAlarmFrameBuffer> frameBuffers = new ConcurrentHashMap<>();
+    private final ExecutorService dumpExecutor;
+
+    // Last status notified, so only a change into ALARM starts a dump
+    private final AtomicReference<AlarmStatus> lastAlarmStatus = new AtomicReference<>();
+
+    private final AtomicLong completedDumps = new AtomicLong();
+
+    // Service this recorder listens to when created by attachTo, unregistered on close
+    private volatile SecurityService attachedService;
+
+    /**
+     * @param dumpDirectory Directory that receives the dumps; created if missing
+     * @param retention How far before the alarm frames are kept
+     * @param byteBudgetPerCamera Off-heap bytes reserved for each camera's frames
+     * @throws IOException if the dump directory cannot be created
+     */
+    public PreAlarmRecorder(Path dumpDirectory, Duration retention, int byteBudgetPerCamera) throws IOException {
+        this.dumpDirectory = Files.createDirectories(dumpDirectory);
+        this.retention = retention;
+        this.byteBudgetPerCamera = byteBudgetPerCamera;
+        this.dumpExecutor = Executors.newSingleThreadExecutor(task -> {
+            Thread dumpThread = new Thread(task, "pre-alarm-dump");
+            dumpThread.setDaemon(true);
+            return dumpThread;
+        });
+    }
+
+    /**
+     * Creates a recorder and registers it with the security service, so every alarm it raises is dumped.
+     * @param securityService The service whose alarm triggers dumps
+     * @param dumpDirectory Directory that receives the dumps; created if missing
+     * @param retention How far before the alarm frames are kept
+     * @param byteBudgetPerCamera Off-heap bytes reserved for each camera's frames
+     * @return The registered recorder; closing it unregisters it
+     * @throws IOException if the dump directory cannot be created
+     */
+    public static PreAlarmRecorder attachTo(SecurityService securityService, Path dumpDirectory,
+                                            Duration retention, int byteBudgetPerCamera) throws IOException {
+        PreAlarmRecorder recorder = new PreAlarmRecorder(dumpDirectory, retention, byteBudgetPerCamera);
+        // An alarm already sounding is not a new trip
+        recorder.lastAlarmStatus.set(securityService.getAlarmStatus());
+        recorder.attachedService = securityService;
+        securityService.addStatusListener(recorder);
+        return recorder;
+    }
+
+    /**
+     * Starts buffering a camera's frames.
+     * @param cameraId Unique camera identifier
+     * @param frameSource The camera's frames
+     * @return A source that delivers the same frames and buffers each one on the way
+     */
+    public FrameSource record(String cameraId, FrameSource frameSource) {
+        PreAlarmFrameBuffer frameBuffer = new PreAlarmFrameBuffer(cameraId, retention, byteBudgetPerCamera);
+        if (frameBuffers.putIfAbsent(cameraId, frameBuffer) != null) {
+            throw new IllegalArgumentException("Camera already recorded: " + cameraId);
+        }
+        return new RecordingFrameSource(frameSource, frameBuffer);
+    }
+
+    /**
+     * Stops buffering a camera's frames and releases its buffer once any dump in progress has finished.
+     * @param cameraId The camera to stop recording
+     */
+    public void stopRecording(String cameraId) {
+        frameBuffers.remove(cameraId);
+    }
+
+    @Override
+    public void notify(AlarmStatus status) {
+        AlarmStatus previousStatus = lastAlarmStatus.getAndSet(status);
+        if (status == AlarmStatus.ALARM && previousStatus != AlarmStatus.ALARM) {
+            dumpAll();
+        }
+    }
+
+    @Override
+    public void catDetected(boolean catDetected) {
+        // Frames are only saved when the alarm trips
+    }
+
+    @Override
+    public void sensorStatusChanged() {
+        // Frames are only saved when the alarm trips
+    }
+
+    /**
+     * Freezes every camera's buffer and dumps it in the background.
+     * @return One future per camera, completed with the dump file
+     */
+    public List<CompletableFuture<Path>> dumpAll() {
+        long triggerMillis = System.currentTimeMillis();
+        return frameBuffers.values().stream().map(frameBuffer -> {
+            Path dumpFile = dumpDirectory.resolve(frameBuffer.getCameraId() + "-" + triggerMillis + ".mjpeg");
+            return frameBuffer.freezeAndDump(dumpFile, dumpExecutor).whenComplete((written, dumpError) -> {
+                if (dumpError != null) {
+                    logger.error("Failed to dump pre-alarm frames of camera {}", frameBuffer.getCameraId(), dumpError);
+                } else if (written.equals(dumpFile)) {
+                    completedDumps.incrementAndGet();
+                    logger.info("Pre-alarm frames of camera {} saved to {}", frameBuffer.getCameraId(), written);
+                }
+            });
+        }).collect(Collectors.toList());
+    }
+
+    public Collection<PreAlarmFrameBuffer> getFrameBuffers() {
+        return List.copyOf(frameBuffers.values());
+    }
+
+    public long getCompletedDumpCount() {
+        return completedDumps.get();
+    }
+
+    /**
+     * Stops listening and accepting dumps; dumps already started are finished.
+     */
+    @Override
+    public void close() {
+        SecurityService securityService = attachedService;
+        if (securityService != null) {
+            securityService.removeStatusListener(this);
+        }
+        dumpExecutor.shutdown();
+    }
+
+    /**
+     * Passes frames through while buffering an encoded copy of each, reusing the source's own JPEG
+     * bytes when it has them.
+     */
+    private final class RecordingFrameSource implements FrameSource {
+        private final FrameSource frameSource;
+        private final PreAlarmFrameBuffer frameBuffer;
+
+        RecordingFrameSource(FrameSource frameSource, PreAlarmFrameBuffer frameBuffer) {
+            this.frameSource = frameSource;
+            this.frameBuffer = frameBuffer;
+        }
+
+        @Override
+        public BufferedImage nextFrame() throws IOException, InterruptedException {
+            BufferedImage frame = frameSource.nextFrame();
+            if (frame != null && !frameBuffer.isFrozen()) {
+                long captureMillis = System.currentTimeMillis();
+                ByteBuffer sourceFrame = frameSource.lastEncodedFrame();
+                try {
+                    if (sourceFrame != null) {
+                        frameBuffer.append(sourceFrame, captureMillis);
+                    } else {
+                        frameEncoder.encode(frame, encodedFrame -> frameBuffer.append(encodedFrame, captureMillis));
+                    }
+                } catch (IOException encodingError) {
+                    // Losing a buffered frame must not stop the live feed
+                    logger.warn("Failed to buffer frame of camera {}", frameBuffer.getCameraId(), encodingError);
+                }
+            }
+            return frame;
+        }
+
+        @Override
+        public ByteBuffer lastEncodedFrame() {
+            return frameSource.lastEncodedFrame();
+        }
+
+        @Override
+        public void close() throws IOException {
+            stopRecording(frameBuffer.getCameraId());
+            frameSource.close();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+
+/**
+ * Decides how much vision work camera frames get in each system state, see {@link SecurityService#setAnalysisPolicy}.
+ */
+@FunctionalInterface
+public interface AnalysisPolicy {
+
+    /**
+     * @return The settings for frames arriving while the system is in the given state
+     */
+    AnalysisSettings settingsFor(ArmingStatus armingStatus, AlarmStatus alarmStatus);
+
+    /**
+     * A policy that spends full effort where a cat can raise the alarm, i.e. while armed at home, and on
+     * every frame while an alarm is sounding, when each frame is evidence. Elsewhere a cat only matters
+     * if it is still there when the system is armed at home, so frames are sampled sparsely at reduced
+     * resolution; the last frame is analysed again in full when the system is armed.
+     * @return The arming-aware policy
+     */
+    static AnalysisPolicy armingAware() {
+        AnalysisSettings sparse = new AnalysisSettings(10, 320);
+        AnalysisSettings reduced = new AnalysisSettings(5, 320);
+        return (armingStatus, alarmStatus) -> {
+            if (alarmStatus == AlarmStatus.ALARM) {
+                return AnalysisSettings.FULL;
+            }
+            return switch (armingStatus) {
+                case ARMED_HOME -> AnalysisSettings.FULL;
+                case ARMED_AWAY -> reduced;
+                case DISARMED -> sparse;
+            };
+        };
+    }
+}
@@ -0,0 +1,64 @@
+package com.udacity.catpoint.security.service;
+
+import java.util.Objects;
+
+/**
+ * How camera frames are analysed in a given system state: how many frames are skipped between
+ * analysed ones, and the resolution analysed frames are reduced to.
+ */
+public final class AnalysisSettings {
+
+    public static final AnalysisSettings FULL = new AnalysisSettings(1, 0);
+
+    private final int frameInterval;
+    private final int maxDimension;
+
+    /**
+     * @param frameInterval Analyse one frame in this many, e.g. 1 for every frame
+     * @param maxDimension Longest side analysed frames are downscaled to, in pixels, or 0 for full resolution
+     */
+    public AnalysisSettings(int frameInterval, int maxDimension) {
+        if (frameInterval < 1 || maxDimension < 0) {
+            throw new IllegalArgumentException("Frame interval must be positive and maximum dimension not negative");
+        }
+        this.frameInterval = frameInterval;
+        this.maxDimension = maxDimension;
+    }
+
+    public int getFrameInterval() {
+        return frameInterval;
+    }
+
+    public int getMaxDimension() {
+        return maxDimension;
+    }
+
+    public boolean isFullResolution() {
+        return maxDimension == 0;
+    }
+
+    /**
+     * @return true if a frame analysed with these settings was seen in at least as much detail as other requires
+     */
+    public boolean resolvesAtLeast(AnalysisSettings other) {
+        return isFullResolution() || !other.isFullResolution() && maxDimension >= other.maxDimension;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AnalysisSettings that = (AnalysisSettings) o;
+        return frameInterval == that.frameInterval && maxDimension == that.maxDimension;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(frameInterval, maxDimension);
+    }
+
+    @Override
+    public String toString() {
+        return "1 in " + frameInterval + " frames at " + (isFullResolution() ? "full resolution" : maxDimension + " px");
+    }
+}
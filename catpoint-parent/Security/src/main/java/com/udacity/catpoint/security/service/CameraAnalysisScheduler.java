@@ -0,0 +1,340 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.image.service.TokenBucketRateLimiter;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Owns the analysis budget of a vision backend shared by many cameras - calls per second and
+ * requests in flight - and shares it fairly between them.
+ *
+ * Frames wait in a bounded queue per camera; when a queue is full its oldest frame is dropped. The
+ * next frame analysed is chosen by weighted-fair queueing: each camera's virtual time advances by the
+ * inverse of its weight with every frame analysed, and the waiting camera furthest behind goes first,
+ * so a camera sending many frames only delays its own. A camera's weight is multiplied by
+ * {@value #RELEVANT_CAMERA_BOOST} while the system is in one of the arming states the camera was
+ * registered as relevant to, e.g. indoor cameras while armed away.
+ *
+ * Frames are analysed with {@link SecurityService#processCameraFrame}, so verdicts are applied on the
+ * service's completion executor rather than on the scheduler's threads. At most one frame per camera
+ * is analysed at a time, so each camera's verdicts are applied in capture order.
+ */
+public class CameraAnalysisScheduler implements AutoCloseable {
+
+    static final double RELEVANT_CAMERA_BOOST = 4.0;
+
+    private final Logger logger = LoggerFactory.getLogger(CameraAnalysisScheduler.class);
+
+    private final SecurityService securityService;
+    private final TokenBucketRateLimiter callBudget;
+    private final Semaphore requestPermits;
+    private final ExecutorService analysisExecutor;
+    private final Thread dispatchThread;
+    private volatile boolean running = true;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition frameReady = lock.newCondition();
+    private final Map<String, CameraQueue> cameraQueues = new ConcurrentHashMap<>();
+    private double virtualTime = 0.0;
+
+    /**
+     * @param securityService Service that analyses the scheduled frames
+     * @param callBudget Limits the rate of analysis calls
+     * @param maxConcurrentRequests Maximum number of frames being analysed at once
+     */
+    public CameraAnalysisScheduler(SecurityService securityService, TokenBucketRateLimiter callBudget,
+                                   int maxConcurrentRequests) {
+        if (maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException("Concurrent request limit must be positive");
+        }
+        this.securityService = securityService;
+        this.callBudget = callBudget;
+        this.requestPermits = new Semaphore(maxConcurrentRequests);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.analysisExecutor = Executors.newFixedThreadPool(maxConcurrentRequests, task -> {
+            Thread analysisThread = new Thread(task, "camera-analysis-" + threadCount.incrementAndGet());
+            analysisThread.setDaemon(true);
+            return analysisThread;
+        });
+        this.dispatchThread = new Thread(this::dispatchFrames, "camera-analysis-scheduler");
+        this.dispatchThread.setDaemon(true);
+        this.dispatchThread.start();
+    }
+
+    /**
+     * @param cameraId Unique camera identifier
+     * @param weight Relative share of the analysis budget, e.g. 2 for twice the share of a weight 1 camera
+     * @param relevantArmingStatuses Arming states in which the camera's weight is boosted
+     * @param queueCapacity Maximum number of frames waiting for analysis
+     */
+    public void registerCamera(String cameraId, double weight, Set<ArmingStatus> relevantArmingStatuses,
+                               int queueCapacity) {
+        if (weight <= 0 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Weight and queue capacity must be positive");
+        }
+        if (cameraQueues.putIfAbsent(cameraId,
+                new CameraQueue(cameraId, weight, Set.copyOf(relevantArmingStatuses), queueCapacity)) != null) {
+            throw new IllegalArgumentException("Camera already registered: " + cameraId);
+        }
+    }
+
+    /**
+     * Removes a camera; its queued frames are cancelled.
+     * @param cameraId The camera to remove
+     */
+    public void unregisterCamera(String cameraId) {
+        lock.lock();
+        try {
+            CameraQueue cameraQueue = cameraQueues.remove(cameraId);
+            if (cameraQueue != null) {
+                cameraQueue.frames.forEach(frame -> frame.completion.cancel(false));
+                cameraQueue.frames.clear();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues a frame for analysis.
+     * @param cameraId The registered camera the frame came from
+     * @param frame The frame to analyse
+     * @return A future completed once the frame has been analysed, or cancelled if it is dropped
+     */
+    public CompletableFuture<Void> submit(String cameraId, BufferedImage frame) {
+        lock.lock();
+        try {
+            CameraQueue cameraQueue = cameraQueues.get(cameraId);
+            if (cameraQueue == null) {
+                throw new IllegalArgumentException("Unknown camera: " + cameraId);
+            }
+            if (!running) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Scheduler is closed"));
+            }
+            if (cameraQueue.frames.size() == cameraQueue.capacity) {
+                cameraQueue.frames.pollFirst().completion.cancel(false);
+                cameraQueue.droppedFrames++;
+            }
+            ScheduledFrame scheduledFrame = new ScheduledFrame(cameraQueue, frame);
+            cameraQueue.frames.addLast(scheduledFrame);
+            frameReady.signal();
+            return scheduledFrame.completion;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatchFrames() {
+        try {
+            while (running) {
+                requestPermits.acquire();
+                callBudget.acquire();
+                ScheduledFrame frame = awaitNextFrame();
+                try {
+                    analysisExecutor.execute(() -> analyze(frame));
+                } catch (RuntimeException rejected) {
+                    finishAnalysis(frame.cameraQueue);
+                    frame.completion.completeExceptionally(rejected);
+                }
+            }
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for a frame from an idle camera and takes the head frame of the camera with the smallest
+     * start tag, the larger weight breaking ties (start-time fair queueing). Tags are assigned on dispatch
+     * rather than on submission, so frames dropped from a full queue do not count against their camera
+     * and weights follow the current arming status.
+     */
+    private ScheduledFrame awaitNextFrame() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                ArmingStatus armingStatus = securityService.getArmingStatus();
+                CameraQueue nextCamera = null;
+                double nextStartTag = Double.POSITIVE_INFINITY;
+                double nextFinishTag = Double.POSITIVE_INFINITY;
+                for (CameraQueue cameraQueue : cameraQueues.values()) {
+                    if (cameraQueue.frames.isEmpty() || cameraQueue.analysisInFlight) {
+                        continue;
+                    }
+                    double weight = cameraQueue.relevantArmingStatuses.contains(armingStatus)
+                            ? cameraQueue.weight * RELEVANT_CAMERA_BOOST
+                            : cameraQueue.weight;
+                    double startTag = Math.max(virtualTime, cameraQueue.lastFinishTag);
+                    double finishTag = startTag + 1.0 / weight;
+                    if (startTag < nextStartTag || startTag == nextStartTag && finishTag < nextFinishTag) {
+                        nextCamera = cameraQueue;
+                        nextStartTag = startTag;
+                        nextFinishTag = finishTag;
+                    }
+                }
+                if (nextCamera != null) {
+                    ScheduledFrame frame = nextCamera.frames.pollFirst();
+                    virtualTime = nextStartTag;
+                    nextCamera.lastFinishTag = nextFinishTag;
+                    nextCamera.analysisInFlight = true;
+                    long waitNanos = System.nanoTime() - frame.enqueuedNanos;
+                    nextCamera.dispatchedFrames++;
+                    nextCamera.totalWaitNanos += waitNanos;
+                    nextCamera.maxWaitNanos = Math.max(nextCamera.maxWaitNanos, waitNanos);
+                    return frame;
+                }
+                frameReady.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void analyze(ScheduledFrame frame) {
+        CameraQueue cameraQueue = frame.cameraQueue;
+        try {
+            securityService.processCameraFrame(cameraQueue.cameraId, frame.image);
+            frame.completion.complete(null);
+        } catch (RuntimeException analysisError) {
+            logger.error("Failed to analyse frame from camera {}", cameraQueue.cameraId, analysisError);
+            frame.completion.completeExceptionally(analysisError);
+        } finally {
+            finishAnalysis(cameraQueue);
+        }
+    }
+
+    private void finishAnalysis(CameraQueue cameraQueue) {
+        lock.lock();
+        try {
+            cameraQueue.analysisInFlight = false;
+            frameReady.signal();
+        } finally {
+            lock.unlock();
+        }
+        requestPermits.release();
+    }
+
+    /**
+     * @return A snapshot of every registered camera's queue metrics, by camera ID
+     */
+    public Map<String, CameraStats> getCameraStats() {
+        lock.lock();
+        try {
+            return cameraQueues.values().stream()
+                    .collect(Collectors.toMap(cameraQueue -> cameraQueue.cameraId, CameraStats::new));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops dispatching; queued frames are cancelled and frames being analysed are interrupted.
+     */
+    @Override
+    public void close() {
+        running = false;
+        dispatchThread.interrupt();
+        analysisExecutor.shutdownNow();
+        cameraQueues.keySet().forEach(this::unregisterCamera);
+    }
+
+    /**
+     * Queue metrics of one camera at the time of the snapshot.
+     */
+    public static final class CameraStats {
+        private final int queueDepth;
+        private final long dispatchedFrames;
+        private final long droppedFrames;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+
+        private CameraStats(CameraQueue cameraQueue) {
+            this.queueDepth = cameraQueue.frames.size();
+            this.dispatchedFrames = cameraQueue.dispatchedFrames;
+            this.droppedFrames = cameraQueue.droppedFrames;
+            this.totalWaitNanos = cameraQueue.totalWaitNanos;
+            this.maxWaitNanos = cameraQueue.maxWaitNanos;
+        }
+
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public long getDispatchedFrameCount() {
+            return dispatchedFrames;
+        }
+
+        public long getDroppedFrameCount() {
+            return droppedFrames;
+        }
+
+        /**
+         * @return Average time dispatched frames waited in the queue, in milliseconds
+         */
+        public double getAverageWaitMillis() {
+            return dispatchedFrames == 0 ? 0.0 : (double) totalWaitNanos / dispatchedFrames / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        public long getMaxWaitMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d queued, %d dispatched, %d dropped, %.1f ms average wait, %d ms max wait",
+                    queueDepth, dispatchedFrames, droppedFrames, getAverageWaitMillis(), getMaxWaitMillis());
+        }
+    }
+
+    /**
+     * One camera's waiting frames and scheduling state; guarded by the scheduler lock.
+     */
+    private static final class CameraQueue {
+        private final String cameraId;
+        private final double weight;
+        private final Set<ArmingStatus> relevantArmingStatuses;
+        private final int capacity;
+        private final ArrayDeque<ScheduledFrame> frames;
+        private double lastFinishTag = 0.0;
+        private boolean analysisInFlight = false;
+        private long dispatchedFrames;
+        private long droppedFrames;
+        private long totalWaitNanos;
+        private long maxWaitNanos;
+
+        CameraQueue(String cameraId, double weight, Set<ArmingStatus> relevantArmingStatuses, int capacity) {
+            this.cameraId = cameraId;
+            this.weight = weight;
+            this.relevantArmingStatuses = relevantArmingStatuses;
+            this.capacity = capacity;
+            this.frames = new ArrayDeque<>(capacity);
+        }
+    }
+
+    private static final class ScheduledFrame {
+        private final CameraQueue cameraQueue;
+        private final BufferedImage image;
+        private final long enqueuedNanos = System.nanoTime();
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+        ScheduledFrame(CameraQueue cameraQueue, BufferedImage image) {
+            this.cameraQueue = cameraQueue;
+            this.image = image;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.udacity.catpoint.security.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Single-slot frame mailbox for one camera, drained by its own worker thread. A frame posted while
+ * the slot is still full replaces the waiting frame, so the worker always analyses the newest frame
+ * and a frame never waits longer than the analysis already in progress.
+ */
+final class LatestFrameMailbox implements AutoCloseable {
+
+    private final Logger logger = LoggerFactory.getLogger(LatestFrameMailbox.class);
+
+    private final String cameraId;
+    private final Consumer<BufferedImage> frameAnalysis;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition frameWaiting = lock.newCondition();
+    private final Thread worker;
+    private BufferedImage pendingFrame;
+    private boolean closed = false;
+
+    private final AtomicLong droppedFrames = new AtomicLong();
+
+    /**
+     * @param cameraId Identifies the camera in logs and the worker thread name
+     * @param frameAnalysis Analyses one frame on the worker thread
+     */
+    LatestFrameMailbox(String cameraId, Consumer<BufferedImage> frameAnalysis) {
+        this.cameraId = cameraId;
+        this.frameAnalysis = frameAnalysis;
+        this.worker = new Thread(this::analyseFrames, "frame-mailbox-" + cameraId);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Leaves a frame for the worker without waiting, replacing any frame it has not taken yet.
+     * @return false if the mailbox is closed and the frame was not accepted
+     */
+    boolean post(BufferedImage frame) {
+        lock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            if (pendingFrame != null) {
+                droppedFrames.incrementAndGet();
+            }
+            pendingFrame = frame;
+            frameWaiting.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private BufferedImage takeFrame() throws InterruptedException {
+        lock.lock();
+        try {
+            while (pendingFrame == null && !closed) {
+                frameWaiting.await();
+            }
+            BufferedImage frame = pendingFrame;
+            pendingFrame = null;
+            return frame;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void analyseFrames() {
+        try {
+            BufferedImage frame;
+            while ((frame = takeFrame()) != null) {
+                try {
+                    frameAnalysis.accept(frame);
+                } catch (RuntimeException analysisError) {
+                    // One failed analysis must not stop the camera's later frames
+                    logger.error("Analysis of camera {} frame failed", cameraId, analysisError);
+                }
+            }
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return Frames replaced by a newer frame before the worker took them
+     */
+    long getDroppedFrameCount() {
+        return droppedFrames.get();
+    }
+
+    /**
+     * Stops accepting frames. A frame still waiting is discarded; an analysis in progress is finished.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            if (pendingFrame != null) {
+                pendingFrame = null;
+                droppedFrames.incrementAndGet();
+            }
+            frameWaiting.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
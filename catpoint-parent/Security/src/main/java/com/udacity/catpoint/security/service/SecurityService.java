@@ -5,11 +5,24 @@ import com.udacity.catpoint.security.data.AlarmStatus;
 import com.udacity.catpoint.security.data.ArmingStatus;
 import com.udacity.catpoint.security.data.SecurityRepository;
 import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.image.processing.DownscaleStage;
+import com.udacity.catpoint.image.service.DetectionResult;
 import com.udacity.catpoint.image.service.ImageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.swing.SwingUtilities;
 import java.awt.image.BufferedImage;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Core security orchestration service that manages system state transitions and threat detection.
@@ -20,10 +33,38 @@ import java.util.Set;
  */
 public class SecurityService {
 
+    private static final float DEFAULT_CAT_CONFIDENCE_THRESHOLD = 50.0f;
+
+    private final Logger logger = LoggerFactory.getLogger(SecurityService.class);
+
     private ImageService visionAnalysisService;
     private SecurityRepository persistenceLayer;
-    private Set<StatusListener> eventSubscribers = new HashSet<>();
-    private boolean felinePresenceDetected = false;
+    // Notified from the caller's thread and from the completion executor, so added and removed concurrently
+    private Set<StatusListener> eventSubscribers = ConcurrentHashMap.newKeySet();
+    // Written by whichever thread applies a verdict and read when the arming status changes
+    private volatile boolean felinePresenceDetected = false;
+    private volatile float catConfidenceThreshold = DEFAULT_CAT_CONFIDENCE_THRESHOLD;
+    // Result of the latest applied frame, so a threshold change can be answered without re-analysis
+    private volatile DetectionResult latestDetectionResult;
+
+    // Frames are numbered on submission so a slow analysis cannot overwrite the verdict of a newer frame
+    private final AtomicLong submittedFrameSequence = new AtomicLong();
+    private final AtomicLong appliedFrameSequence = new AtomicLong();
+    // Latest verdict per camera for frames analysed with a camera ID; a cat is present if any camera sees one
+    private final Map<String, Boolean> catSightingsByCamera = new HashMap<>();
+    // Applies verdicts reached off the caller's thread; listeners are Swing components by default
+    private volatile Executor completionExecutor = SwingUtilities::invokeLater;
+
+    // Null while every frame is analysed in full, the default
+    private volatile AnalysisPolicy analysisPolicy;
+    private final AtomicLong skippedFrames = new AtomicLong();
+    // Sampling and re-evaluation state per camera; frames without a camera ID are tracked apart
+    private final CameraFrames unnamedCameraFrames = new CameraFrames();
+    private final Map<String, CameraFrames> framesByCamera = new ConcurrentHashMap<>();
+
+    // Single-slot mailboxes of cameras whose frames are posted with postFrame, created on first use
+    private final Map<String, LatestFrameMailbox> frameMailboxes = new ConcurrentHashMap<>();
+    private final AtomicLong closedMailboxDroppedFrames = new AtomicLong();
 
     public SecurityService(SecurityRepository securityRepository, ImageService imageService) {
         this.persistenceLayer = securityRepository;
@@ -57,6 +98,7 @@ public class SecurityService {
             }
         }
         persistenceLayer.setArmingStatus(armingStatus);
+        reevaluateLastFrames();
         
         // Special handling for home mode with detected feline presence
         if(armingStatus == ArmingStatus.ARMED_HOME && felinePresenceDetected) {
@@ -202,10 +244,334 @@ public class SecurityService {
     /**
      * Analyzes camera feed for potential security threats and updates system state accordingly.
      * This method leverages computer vision services to enhance traditional sensor-based security.
+     * The detection result is kept for {@link #setCatConfidenceThreshold}.
      * @param currentCameraImage The image frame to analyze for threats
      */
     public void processImage(BufferedImage currentCameraImage) {
-        processFelineDetection(visionAnalysisService.imageContainsCat(currentCameraImage, 50.0f));
+        BufferedImage analysedFrame = admitFrame(unnamedCameraFrames, currentCameraImage);
+        if (analysedFrame == null) {
+            return;
+        }
+        long frameSequence = submittedFrameSequence.incrementAndGet();
+        float threshold = catConfidenceThreshold;
+        DetectionResult detectionResult = visionAnalysisService.analyzeImage(analysedFrame, threshold);
+        applyDetection(frameSequence, detectionResult.containsCat(threshold), detectionResult);
+    }
+
+    /**
+     * Analyzes a frame from one of several cameras. The cat is considered present while the latest
+     * frame of any camera shows one, so a camera that no longer sees the cat does not clear a sighting
+     * by another. Frames of one camera must be submitted in order, e.g. through a {@link CameraAnalysisScheduler}.
+     * @param cameraId The camera the frame came from
+     * @param currentCameraImage The image frame to analyze for threats
+     */
+    public void processImage(String cameraId, BufferedImage currentCameraImage) {
+        analyseCameraFrame(cameraId, currentCameraImage, Runnable::run);
+    }
+
+    /**
+     * Analyzes a camera's frame on the calling thread as {@link #processImage(String, BufferedImage)}
+     * does, but applies the verdict on the {@link #setCompletionExecutor completion executor}. For
+     * callers on a background thread, such as a {@code CameraFeedManager} or a {@link CameraAnalysisScheduler},
+     * whose listeners must not be notified from that thread.
+     * @param cameraId The camera the frame came from
+     * @param currentCameraImage The image frame to analyze for threats
+     */
+    public void processCameraFrame(String cameraId, BufferedImage currentCameraImage) {
+        analyseCameraFrame(cameraId, currentCameraImage, completionExecutor);
+    }
+
+    /**
+     * Analyses a camera's frame on the calling thread and records the camera's sighting on the given executor.
+     */
+    private void analyseCameraFrame(String cameraId, BufferedImage currentCameraImage, Executor sightingExecutor) {
+        CameraFrames cameraFrames = framesByCamera.computeIfAbsent(cameraId, id -> new CameraFrames());
+        BufferedImage analysedFrame = admitFrame(cameraFrames, currentCameraImage);
+        if (analysedFrame == null) {
+            return;
+        }
+        long cameraAnalysis = cameraFrames.submittedAnalyses.incrementAndGet();
+        boolean catInFrame = visionAnalysisService.imageContainsCat(analysedFrame, catConfidenceThreshold);
+        sightingExecutor.execute(() -> recordSighting(cameraId, cameraFrames, cameraAnalysis, catInFrame));
+    }
+
+    /**
+     * Records a camera's verdict, unless a later analysis of the same camera has already been recorded,
+     * and applies whether any camera now sees a cat.
+     */
+    private void recordSighting(String cameraId, CameraFrames cameraFrames, long cameraAnalysis, boolean catInFrame) {
+        boolean catOnAnyCamera;
+        long frameSequence;
+        synchronized (catSightingsByCamera) {
+            if (cameraAnalysis < cameraFrames.recordedAnalysis) {
+                return;
+            }
+            cameraFrames.recordedAnalysis = cameraAnalysis;
+            catSightingsByCamera.put(cameraId, catInFrame);
+            catOnAnyCamera = catSightingsByCamera.containsValue(Boolean.TRUE);
+            // Numbered once the sighting is recorded, so the newest aggregate is the one applied
+            frameSequence = submittedFrameSequence.incrementAndGet();
+        }
+        applyDetection(frameSequence, catOnAnyCamera);
+    }
+
+    /**
+     * Hands a camera frame to the camera's mailbox without waiting for analysis. Each camera has one
+     * worker that analyses frames as {@link #processImage(String, BufferedImage)} does, applying the
+     * verdict on the {@link #setCompletionExecutor completion executor}; a frame posted while the
+     * previous one is still waiting replaces it, so the worker always takes the newest frame.
+     * However fast frames arrive, a verdict is never more than one analysis behind the camera. Suits
+     * feeds that produce frames faster than the image service can classify them, e.g. as the frame
+     * consumer of a {@code CameraFeedManager}.
+     * @param cameraId The camera the frame came from
+     * @param currentCameraImage The image frame to analyze for threats
+     * @return false if the camera's mailbox has been closed and the frame was not accepted
+     */
+    public boolean postFrame(String cameraId, BufferedImage currentCameraImage) {
+        return frameMailboxes.computeIfAbsent(cameraId,
+                        id -> new LatestFrameMailbox(id, frame -> analyseCameraFrame(id, frame, completionExecutor)))
+                .post(currentCameraImage);
+    }
+
+    /**
+     * Stops a camera's mailbox worker once its current analysis is done. Frames posted for the camera
+     * afterwards start a new mailbox.
+     * @param cameraId The camera whose mailbox to close
+     */
+    public void closeFrameMailbox(String cameraId) {
+        LatestFrameMailbox mailbox = frameMailboxes.remove(cameraId);
+        if (mailbox != null) {
+            mailbox.close();
+            closedMailboxDroppedFrames.addAndGet(mailbox.getDroppedFrameCount());
+        }
+    }
+
+    /**
+     * @return Frames posted with {@link #postFrame} that were replaced by a newer frame before analysis, over all cameras
+     */
+    public long getDroppedFrameCount() {
+        return closedMailboxDroppedFrames.get()
+                + frameMailboxes.values().stream().mapToLong(LatestFrameMailbox::getDroppedFrameCount).sum();
+    }
+
+    /**
+     * @param cameraId The camera to report on
+     * @return Frames of the camera replaced by a newer frame before analysis, or 0 if it has no mailbox
+     */
+    public long getDroppedFrameCount(String cameraId) {
+        LatestFrameMailbox mailbox = frameMailboxes.get(cameraId);
+        return mailbox == null ? 0 : mailbox.getDroppedFrameCount();
+    }
+
+    /**
+     * Analyzes a burst of camera frames, e.g. the last few seconds from several cameras, as one unit.
+     * A single aggregated detection event is raised: a cat is considered present if any frame shows one.
+     * @param cameraImages The frames to analyze for threats
+     */
+    public void processImages(List<BufferedImage> cameraImages) {
+        if (cameraImages.isEmpty()) {
+            return;
+        }
+        long frameSequence = submittedFrameSequence.incrementAndGet();
+        List<Boolean> verdicts = visionAnalysisService.classifyBatch(cameraImages, catConfidenceThreshold);
+        applyDetection(frameSequence, verdicts.contains(Boolean.TRUE));
+    }
+
+    /**
+     * Analyzes a camera frame without blocking the caller. Several frames may be in flight at once;
+     * if an older frame finishes after a newer one, its verdict is discarded.
+     * Detection handling runs on the thread that completes the analysis.
+     * @param currentCameraImage The image frame to analyze for threats
+     * @return A future completed once the verdict has been applied
+     */
+    public CompletableFuture<Void> processImageAsync(BufferedImage currentCameraImage) {
+        return processImageAsync(currentCameraImage, Runnable::run);
+    }
+
+    /**
+     * Analyzes a camera frame without blocking the caller, applying the verdict on the given executor.
+     * UI callers pass {@code SwingUtilities::invokeLater} so listeners are notified on the event thread.
+     * @param currentCameraImage The image frame to analyze for threats
+     * @param completionExecutor Executor that applies the verdict and notifies listeners
+     * @return A future completed once the verdict has been applied
+     */
+    public CompletableFuture<Void> processImageAsync(BufferedImage currentCameraImage, Executor completionExecutor) {
+        // Checked before the analysis policy keeps the frame for re-evaluation, and so the caller fails rather than the future
+        Objects.requireNonNull(currentCameraImage, "currentCameraImage");
+        BufferedImage analysedFrame = admitFrame(unnamedCameraFrames, currentCameraImage);
+        if (analysedFrame == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long frameSequence = submittedFrameSequence.incrementAndGet();
+        float threshold = catConfidenceThreshold;
+        return visionAnalysisService.analyzeImageAsync(analysedFrame, threshold)
+                .thenAcceptAsync(detectionResult -> applyDetection(
+                        frameSequence, detectionResult.containsCat(threshold), detectionResult), completionExecutor);
+    }
+
+    /**
+     * Analyzes a camera frame and keeps the scored result, so that a later threshold change is
+     * evaluated against it instead of analysing the frame again.
+     * @param currentCameraImage The image frame to analyze for threats
+     * @return The detection result, with label confidences if the image service reports them
+     */
+    public DetectionResult processImageScored(BufferedImage currentCameraImage) {
+        long frameSequence = submittedFrameSequence.incrementAndGet();
+        float threshold = catConfidenceThreshold;
+        DetectionResult detectionResult = visionAnalysisService.analyzeImage(currentCameraImage, threshold);
+        applyDetection(frameSequence, detectionResult.containsCat(threshold), detectionResult);
+        return detectionResult;
+    }
+
+    /**
+     * Sets how much vision work frames get in each arming and alarm state. Frames passed to
+     * {@link #processImage}, {@link #processImageAsync} and {@link #processImage(String, BufferedImage)}
+     * are sampled and downscaled accordingly, each camera on its own; bursts and scored analysis are not
+     * affected. Whenever the arming status changes, each camera's most recent frame is analysed again if
+     * it was skipped or analysed at a lower resolution than the new state calls for, so arming at home
+     * with a cat in view still raises the alarm. That analysis runs in the background and its verdict is
+     * applied on the {@link #setCompletionExecutor completion executor}.
+     * @param analysisPolicy The policy, or null to analyse every frame at full resolution, the default
+     */
+    public void setAnalysisPolicy(AnalysisPolicy analysisPolicy) {
+        this.analysisPolicy = analysisPolicy;
+    }
+
+    /**
+     * Sets the executor that applies verdicts reached off the caller's thread and notifies listeners:
+     * those of frames posted with {@link #postFrame} or passed to {@link #processCameraFrame}, and of
+     * frames analysed again when the arming status changes.
+     * @param completionExecutor The executor; the Swing event thread by default
+     */
+    public void setCompletionExecutor(Executor completionExecutor) {
+        this.completionExecutor = completionExecutor;
+    }
+
+    /**
+     * @return The analysis settings for the current arming and alarm status
+     */
+    public AnalysisSettings getCurrentAnalysisSettings() {
+        AnalysisPolicy policy = analysisPolicy;
+        return policy == null ? AnalysisSettings.FULL : policy.settingsFor(getArmingStatus(), getAlarmStatus());
+    }
+
+    /**
+     * @return Frames skipped by the analysis policy so far
+     */
+    public long getSkippedFrameCount() {
+        return skippedFrames.get();
+    }
+
+    /**
+     * Applies the analysis policy to a frame arriving from a camera.
+     * @return The frame to analyse, possibly downscaled, or null if the frame is skipped
+     */
+    private BufferedImage admitFrame(CameraFrames cameraFrames, BufferedImage frame) {
+        if (analysisPolicy == null) {
+            return frame;
+        }
+        AnalysisSettings settings = getCurrentAnalysisSettings();
+        cameraFrames.lastFrame = frame;
+        if (settings.getFrameInterval() > 1
+                && cameraFrames.arrivedFrames.getAndIncrement() % settings.getFrameInterval() != 0) {
+            cameraFrames.lastFrameSettings = null;
+            skippedFrames.incrementAndGet();
+            return null;
+        }
+        cameraFrames.lastFrameSettings = settings;
+        return downscale(frame, settings);
+    }
+
+    private static BufferedImage downscale(BufferedImage frame, AnalysisSettings settings) {
+        return settings.isFullResolution() ? frame : new DownscaleStage(settings.getMaxDimension()).apply(frame);
+    }
+
+    /**
+     * Analyses each camera's most recent frame again, without waiting for the verdict, if the current
+     * state calls for more detail than it got. Verdicts go through the same ordering checks as new
+     * frames, so a frame analysed meanwhile wins, and a camera's verdict replaces only its own sighting.
+     */
+    private void reevaluateLastFrames() {
+        if (analysisPolicy == null) {
+            return;
+        }
+        AnalysisSettings settings = getCurrentAnalysisSettings();
+        float threshold = catConfidenceThreshold;
+        Executor executor = completionExecutor;
+        BufferedImage unnamedCameraFrame = takeFrameToReevaluate(unnamedCameraFrames, settings);
+        if (unnamedCameraFrame != null) {
+            long frameSequence = submittedFrameSequence.incrementAndGet();
+            visionAnalysisService.analyzeImageAsync(downscale(unnamedCameraFrame, settings), threshold)
+                    .thenAcceptAsync(detectionResult -> applyDetection(
+                            frameSequence, detectionResult.containsCat(threshold), detectionResult), executor)
+                    .exceptionally(this::logReevaluationFailure);
+        }
+        framesByCamera.forEach((cameraId, cameraFrames) -> {
+            BufferedImage frame = takeFrameToReevaluate(cameraFrames, settings);
+            if (frame == null) {
+                return;
+            }
+            long cameraAnalysis = cameraFrames.submittedAnalyses.incrementAndGet();
+            visionAnalysisService.analyzeImageAsync(downscale(frame, settings), threshold)
+                    .thenAcceptAsync(detectionResult -> recordSighting(
+                            cameraId, cameraFrames, cameraAnalysis, detectionResult.containsCat(threshold)), executor)
+                    .exceptionally(this::logReevaluationFailure);
+        });
+    }
+
+    private Void logReevaluationFailure(Throwable analysisError) {
+        logger.warn("Re-evaluating the last camera frame failed", analysisError);
+        return null;
+    }
+
+    /**
+     * @return The camera's most recent frame if it got less detail than the settings call for, otherwise null
+     */
+    private static BufferedImage takeFrameToReevaluate(CameraFrames cameraFrames, AnalysisSettings settings) {
+        BufferedImage frame = cameraFrames.lastFrame;
+        AnalysisSettings analysedWith = cameraFrames.lastFrameSettings;
+        if (frame == null || analysedWith != null && analysedWith.resolvesAtLeast(settings)) {
+            return null;
+        }
+        cameraFrames.lastFrameSettings = settings;
+        return frame;
+    }
+
+    /**
+     * Changes the minimum cat confidence for detection. If the latest frame's stored result can answer
+     * the new threshold, it is re-evaluated straight away; otherwise the threshold applies from the next frame.
+     * @param confidenceThreshold Minimum cat confidence (0-100) for a positive detection
+     */
+    public void setCatConfidenceThreshold(float confidenceThreshold) {
+        catConfidenceThreshold = confidenceThreshold;
+        DetectionResult detectionResult = latestDetectionResult;
+        if (detectionResult != null && detectionResult.canEvaluate(confidenceThreshold)) {
+            processFelineDetection(detectionResult.containsCat(confidenceThreshold));
+        }
+    }
+
+    public float getCatConfidenceThreshold() {
+        return catConfidenceThreshold;
+    }
+
+    /**
+     * @return The stored result of the latest applied frame, or null if it came from a burst or a
+     * multi-camera feed, whose verdicts aggregate several frames
+     */
+    public DetectionResult getLatestDetectionResult() {
+        return latestDetectionResult;
+    }
+
+    private void applyDetection(long frameSequence, boolean felineDetected) {
+        applyDetection(frameSequence, felineDetected, null);
+    }
+
+    private void applyDetection(long frameSequence, boolean felineDetected, DetectionResult detectionResult) {
+        if (appliedFrameSequence.getAndAccumulate(frameSequence, Math::max) > frameSequence) {
+            return; // A newer frame has already been applied
+        }
+        latestDetectionResult = detectionResult;
+        processFelineDetection(felineDetected);
     }
 
     public AlarmStatus getAlarmStatus() {
@@ -227,4 +593,18 @@ public class SecurityService {
     public ArmingStatus getArmingStatus() {
         return persistenceLayer.getArmingStatus();
     }
-}
\ No newline at end of file
+
+    /**
+     * Analysis state of one camera: how many frames have arrived, so that every n-th is analysed, the
+     * most recent frame with the settings it was analysed with (null if skipped), for re-evaluation on
+     * arming, and the numbering that keeps the camera's sightings in analysis order.
+     */
+    private static final class CameraFrames {
+        private final AtomicLong arrivedFrames = new AtomicLong();
+        private volatile BufferedImage lastFrame;
+        private volatile AnalysisSettings lastFrameSettings;
+        // Numbered on submission; guarded by catSightingsByCamera once recorded
+        private final AtomicLong submittedAnalyses = new AtomicLong();
+        private long recordedAnalysis;
+    }
+}
@@ -0,0 +1,187 @@
+package com.udacity.catpoint.security.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that JournalSecurityRepository recovers its state from the files it writes.
+ */
+public class JournalSecurityRepositoryTest {
+
+    @TempDir
+    Path journalDirectory;
+
+    // Every kind of change survives a restart
+    @Test
+    void reopen_afterChanges_stateRecovered() throws IOException {
+        // Given: Sensors are added, updated and removed and both statuses change
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        Sensor window = new Sensor("Window", SensorType.WINDOW);
+        try (JournalSecurityRepository repository = new JournalSecurityRepository(journalDirectory)) {
+            repository.addSensor(door);
+            repository.addSensor(window);
+            door.setActive(true);
+            repository.updateSensor(door);
+            repository.removeSensor(window);
+            repository.setArmingStatus(ArmingStatus.ARMED_AWAY);
+            repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        }
+
+        // When: The repository is opened again
+        try (JournalSecurityRepository recovered = new JournalSecurityRepository(journalDirectory)) {
+            // Then: The latest state is restored
+            assertEquals(1, recovered.getSensors().size());
+            Sensor recoveredDoor = recovered.getSensors().iterator().next();
+            assertEquals(door.getSensorId(), recoveredDoor.getSensorId());
+            assertTrue(recoveredDoor.getActive());
+            assertEquals(ArmingStatus.ARMED_AWAY, recovered.getArmingStatus());
+            assertEquals(AlarmStatus.PENDING_ALARM, recovered.getAlarmStatus());
+            assertEquals(6, recovered.getRecoveredRecordCount());
+        }
+    }
+
+    // Snapshots replace the journal they cover, and recovery starts from the latest one
+    @Test
+    void reopen_afterSnapshots_stateRecoveredFromSnapshotAndJournalTail() throws IOException {
+        // Given: Enough sensor updates to take several snapshots
+        Sensor motion = new Sensor("Motion", SensorType.MOTION);
+        try (JournalSecurityRepository repository = new JournalSecurityRepository(journalDirectory, 10)) {
+            repository.addSensor(motion);
+            for (int i = 0; i < 100; i++) {
+                motion.setActive(i % 2 == 0);
+                repository.updateSensor(motion);
+                repository.flush();
+            }
+        }
+
+        // When: The repository is opened again
+        try (JournalSecurityRepository recovered = new JournalSecurityRepository(journalDirectory, 10)) {
+            // Then: The last update is restored without replaying the whole history
+            assertFalse(recovered.getSensors().iterator().next().getActive());
+            assertTrue(recovered.getRecoveredRecordCount() < 100);
+        }
+    }
+
+    // Each sensor is recovered once from its latest record, including one renamed after being journaled
+    @Test
+    void reopen_manySensorsUpdatedAndRenamed_eachRecoveredOnce() throws IOException {
+        // Given: Many sensors, each updated twice, with one renamed and one removed
+        List<Sensor> added = new ArrayList<>();
+        try (JournalSecurityRepository repository = new JournalSecurityRepository(journalDirectory, 1_000)) {
+            for (int i = 0; i < 2_000; i++) {
+                Sensor sensor = new Sensor("Sensor " + i, SensorType.values()[i % SensorType.values().length]);
+                repository.addSensor(sensor);
+                added.add(sensor);
+            }
+            for (Sensor sensor : added) {
+                sensor.setActive(true);
+                repository.updateSensor(sensor);
+            }
+            Sensor renamed = added.get(0);
+            repository.removeSensor(renamed);
+            renamed.setName("Renamed");
+            repository.updateSensor(renamed);
+            repository.removeSensor(added.get(1));
+        }
+
+        // When: The repository is opened again
+        try (JournalSecurityRepository recovered = new JournalSecurityRepository(journalDirectory, 1_000)) {
+            // Then: Every remaining sensor appears once, in its latest state
+            Set<Sensor> sensors = recovered.getSensors();
+            assertEquals(1_999, sensors.size());
+            assertEquals(1_999, sensors.stream().map(Sensor::getSensorId).distinct().count());
+            assertTrue(sensors.stream().allMatch(Sensor::getActive));
+            assertTrue(sensors.stream().anyMatch(sensor -> sensor.getName().equals("Renamed")));
+            assertTrue(sensors.stream().noneMatch(sensor -> sensor.getSensorId().equals(added.get(1).getSensorId())));
+        }
+    }
+
+    // After a failed commit changes are refused instead of piling up in memory without reaching disk
+    @Test
+    void commitFails_laterChangesRefused() throws IOException {
+        try (JournalSecurityRepository repository = new JournalSecurityRepository(journalDirectory, 2)) {
+            // Given: The next journal cannot be created because a directory has taken its name
+            Files.createDirectory(journalDirectory.resolve("journal-1.log"));
+
+            // When: Enough changes are committed to start the next journal
+            repository.setArmingStatus(ArmingStatus.ARMED_HOME);
+            repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+
+            // Then: The failure is reported and further changes are refused without changing the state
+            assertThrows(UncheckedIOException.class, repository::flush);
+            assertThrows(UncheckedIOException.class, () -> repository.setAlarmStatus(AlarmStatus.ALARM));
+            assertThrows(UncheckedIOException.class, () -> repository.addSensor(new Sensor("Door", SensorType.DOOR)));
+            assertEquals(AlarmStatus.PENDING_ALARM, repository.getAlarmStatus());
+            assertTrue(repository.getSensors().isEmpty());
+        }
+    }
+
+    // A change made after close could miss the committer's final batch and never reach disk
+    @Test
+    void close_laterChangesRefused() throws IOException {
+        // Given: A closed repository
+        JournalSecurityRepository repository = new JournalSecurityRepository(journalDirectory);
+        repository.close();
+
+        // When/Then: Changes are refused, while flushing and reading still work
+        assertThrows(IllegalStateException.class, () -> repository.addSensor(new Sensor("Door", SensorType.DOOR)));
+        assertThrows(IllegalStateException.class, () -> repository.setAlarmStatus(AlarmStatus.ALARM));
+        repository.flush();
+        assertEquals(AlarmStatus.NO_ALARM, repository.getAlarmStatus());
+        assertTrue(repository.getSensors().isEmpty());
+    }
+
+    @Test
+    void getSensors_sensorAddedAfterwards_returnedSetUnchanged() throws IOException {
+        try (JournalSecurityRepository repository = new JournalSecurityRepository(journalDirectory)) {
+            // Given: The sensors are read while one is stored
+            Sensor door = new Sensor("Door", SensorType.DOOR);
+            repository.addSensor(door);
+            Set<Sensor> sensors = repository.getSensors();
+
+            // When: Another sensor is added
+            repository.addSensor(new Sensor("Window", SensorType.WINDOW));
+
+            // Then: The set read earlier is a copy and does not change
+            assertEquals(Set.of(door), sensors);
+        }
+    }
+
+    // A record cut short by a crash is dropped and later changes are appended after the last intact record
+    @Test
+    void reopen_tornRecordAtJournalEnd_tornRecordDiscarded() throws IOException {
+        // Given: A journal ending in a partially written record
+        try (JournalSecurityRepository repository = new JournalSecurityRepository(journalDirectory)) {
+            repository.setAlarmStatus(AlarmStatus.ALARM);
+        }
+        Path journal;
+        try (Stream<Path> files = Files.list(journalDirectory)) {
+            journal = files.filter(file -> file.getFileName().toString().startsWith("journal-")).findFirst().orElseThrow();
+        }
+        Files.write(journal, new byte[]{0, 0, 0, 12, 7, 7}, StandardOpenOption.APPEND);
+
+        // When: The repository is opened, changed and opened once more
+        try (JournalSecurityRepository recovered = new JournalSecurityRepository(journalDirectory)) {
+            assertEquals(AlarmStatus.ALARM, recovered.getAlarmStatus());
+            recovered.setArmingStatus(ArmingStatus.ARMED_HOME);
+        }
+
+        // Then: Both the record before the torn one and the change made after it are recovered
+        try (JournalSecurityRepository reopened = new JournalSecurityRepository(journalDirectory)) {
+            assertEquals(AlarmStatus.ALARM, reopened.getAlarmStatus());
+            assertEquals(ArmingStatus.ARMED_HOME, reopened.getArmingStatus());
+        }
+    }
+}
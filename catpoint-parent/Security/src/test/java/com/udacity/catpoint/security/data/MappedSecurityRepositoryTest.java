@@ -0,0 +1,124 @@
+package com.udacity.catpoint.security.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that MappedSecurityRepository keeps its sensors and statuses in the mapped file.
+ */
+public class MappedSecurityRepositoryTest {
+
+    @TempDir
+    Path storeDirectory;
+
+    // Sensors and statuses are read back from the file after a restart
+    @Test
+    void reopen_afterChanges_stateRecovered() throws IOException {
+        // Given: Sensors are added, updated and removed and both statuses change
+        Path storeFile = storeDirectory.resolve("sensors.db");
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        Sensor window = new Sensor("Window", SensorType.WINDOW);
+        try (MappedSecurityRepository repository = new MappedSecurityRepository(storeFile, 16)) {
+            repository.addSensor(door);
+            repository.addSensor(window);
+            door.setActive(true);
+            door.setName("Front Door");
+            repository.updateSensor(door);
+            repository.removeSensor(window);
+            repository.setArmingStatus(ArmingStatus.ARMED_HOME);
+            repository.setAlarmStatus(AlarmStatus.ALARM);
+        }
+
+        // When: The store is opened again, with a different requested capacity
+        try (MappedSecurityRepository reopened = new MappedSecurityRepository(storeFile, 1)) {
+            // Then: The stored state and the original capacity are restored
+            Set<Sensor> sensors = reopened.getSensors();
+            assertEquals(1, sensors.size());
+            Sensor storedDoor = sensors.iterator().next();
+            assertEquals(door.getSensorId(), storedDoor.getSensorId());
+            assertEquals("Front Door", storedDoor.getName());
+            assertTrue(storedDoor.getActive());
+            assertEquals(ArmingStatus.ARMED_HOME, reopened.getArmingStatus());
+            assertEquals(AlarmStatus.ALARM, reopened.getAlarmStatus());
+            assertEquals(16, reopened.getCapacity());
+        }
+    }
+
+    // Removed slots are reused, so a full store accepts a new sensor after a removal
+    @Test
+    void addSensor_fullStoreAfterRemoval_slotReused() throws IOException {
+        // Given: A store filled to capacity
+        Path storeFile = storeDirectory.resolve("sensors.db");
+        try (MappedSecurityRepository repository = new MappedSecurityRepository(storeFile, 2)) {
+            Sensor first = new Sensor("First", SensorType.MOTION);
+            repository.addSensor(first);
+            repository.addSensor(new Sensor("Second", SensorType.MOTION));
+            assertThrows(IllegalStateException.class, () -> repository.addSensor(new Sensor("Extra", SensorType.DOOR)));
+
+            // When: A sensor is removed and another added
+            repository.removeSensor(first);
+            Sensor third = new Sensor("Third", SensorType.WINDOW);
+            repository.addSensor(third);
+
+            // Then: The new sensor takes the freed slot and the removed one is gone
+            assertEquals(2, repository.getSensorCount());
+            assertTrue(repository.getSensors().contains(third));
+            assertFalse(repository.getSensors().contains(first));
+        }
+    }
+
+    // A crash after a new record was indexed but before it was flagged in use must not strand the sensor
+    @Test
+    void reopen_addInterruptedBeforeFlag_sensorCanBeAddedAndRemoved() throws IOException {
+        // Given: A store whose only sensor was indexed but never flagged in use or counted
+        Path storeFile = storeDirectory.resolve("sensors.db");
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        try (MappedSecurityRepository repository = new MappedSecurityRepository(storeFile, 4)) {
+            repository.addSensor(door);
+        }
+        try (FileChannel channel = FileChannel.open(storeFile, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0}),
+                    MappedSecurityRepository.HEADER_BYTES + MappedSecurityRepository.IN_USE_OFFSET);
+            channel.write(ByteBuffer.allocate(Integer.BYTES), MappedSecurityRepository.SENSOR_COUNT_OFFSET);
+        }
+
+        try (MappedSecurityRepository reopened = new MappedSecurityRepository(storeFile, 4)) {
+            // Then: The half-added sensor is not listed
+            assertTrue(reopened.getSensors().isEmpty());
+
+            // When: It is updated
+            door.setActive(true);
+            reopened.updateSensor(door);
+
+            // Then: It is listed exactly once
+            assertEquals(Set.of(door), reopened.getSensors());
+            assertEquals(1, reopened.getSensorCount());
+
+            // When: It is removed
+            reopened.removeSensor(door);
+
+            // Then: It is gone
+            assertTrue(reopened.getSensors().isEmpty());
+            assertEquals(0, reopened.getSensorCount());
+        }
+    }
+
+    // Names are stored in a bounded field
+    @Test
+    void addSensor_nameTooLong_rejected() throws IOException {
+        try (MappedSecurityRepository repository = new MappedSecurityRepository(storeDirectory.resolve("sensors.db"), 4)) {
+            Sensor sensor = new Sensor("x".repeat(MappedSecurityRepository.MAX_NAME_BYTES + 1), SensorType.DOOR);
+            assertThrows(IllegalArgumentException.class, () -> repository.addSensor(sensor));
+            assertEquals(0, repository.getSensorCount());
+        }
+    }
+}
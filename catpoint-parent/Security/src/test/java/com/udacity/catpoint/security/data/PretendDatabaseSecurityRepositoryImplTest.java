@@ -0,0 +1,123 @@
+package com.udacity.catpoint.security.data;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.prefs.Preferences;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the write-through and write-behind modes of PretendDatabaseSecurityRepositoryImpl.
+ */
+public class PretendDatabaseSecurityRepositoryImplTest {
+
+    private static final String[] STORAGE_KEYS = {"SENSORS", "ALARM_STATUS", "ARMING_STATUS"};
+
+    private final Preferences storage = Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class);
+    private final Map<String, String> savedState = new HashMap<>();
+
+    // The repository writes to the user's real preferences, so their state is put back after each test
+    @BeforeEach
+    void saveStoredState() {
+        for (String key : STORAGE_KEYS) {
+            savedState.put(key, storage.get(key, null));
+            storage.remove(key);
+        }
+    }
+
+    @AfterEach
+    void restoreStoredState() throws Exception {
+        for (String key : STORAGE_KEYS) {
+            String value = savedState.get(key);
+            if (value == null) {
+                storage.remove(key);
+            } else {
+                storage.put(key, value);
+            }
+        }
+        storage.flush();
+    }
+
+    @Test
+    void writeThrough_everyChangeWritten() {
+        // Given: A repository writing every change straight away
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl();
+
+        // When: Three changes are made
+        repository.addSensor(new Sensor("Door", SensorType.DOOR));
+        repository.setArmingStatus(ArmingStatus.ARMED_HOME);
+        repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+
+        // Then: Each one reached storage
+        assertEquals(3, repository.getStorageWriteCount());
+        assertEquals(1.0, repository.getCoalescingRatio());
+        assertEquals(ArmingStatus.ARMED_HOME.toString(), storage.get("ARMING_STATUS", null));
+    }
+
+    // A burst of sensor updates serialises the sensor set once instead of once per update
+    @Test
+    void writeBehind_burstOfUpdates_coalescedIntoOneWrite() {
+        // Given: A write-behind repository whose flusher will not run during the test
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(Duration.ofHours(1));
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        repository.addSensor(door);
+
+        // When: The sensor is updated fifty times and the repository flushed
+        for (int i = 0; i < 50; i++) {
+            door.setActive(i % 2 == 0);
+            repository.updateSensor(door);
+        }
+        long writesBeforeFlush = repository.getStorageWriteCount();
+        repository.flush();
+
+        // Then: Nothing was written until the flush, which wrote the sensor set once
+        assertEquals(0, writesBeforeFlush);
+        assertEquals(1, repository.getStorageWriteCount());
+        assertEquals(51, repository.getRecordedChangeCount());
+        assertEquals(51.0, repository.getCoalescingRatio());
+        repository.close();
+    }
+
+    @Test
+    void writeBehind_flushIntervalElapses_changesWrittenInBackground() {
+        // Given: A write-behind repository flushing every 50 ms
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(Duration.ofMillis(50));
+
+        // When: The arming status changes
+        repository.setArmingStatus(ArmingStatus.ARMED_AWAY);
+
+        // Then: The flusher writes it without being asked
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            while (repository.getStorageWriteCount() == 0) {
+                Thread.sleep(10);
+            }
+        });
+        assertEquals(ArmingStatus.ARMED_AWAY.toString(), storage.get("ARMING_STATUS", null));
+        repository.close();
+    }
+
+    @Test
+    void close_pendingChanges_writtenAndRestoredByNextRepository() {
+        // Given: A write-behind repository with an unwritten change
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(Duration.ofHours(1));
+        repository.setAlarmStatus(AlarmStatus.ALARM);
+
+        // When: It is closed
+        repository.close();
+
+        // Then: The change was written and a new repository starts from it
+        assertEquals(1, repository.getStorageWriteCount());
+        assertEquals(AlarmStatus.ALARM, new PretendDatabaseSecurityRepositoryImpl().getAlarmStatus());
+    }
+
+    @Test
+    void constructor_zeroFlushInterval_rejected() {
+        // When/Then: A flusher that would spin is refused
+        assertThrows(IllegalArgumentException.class, () -> new PretendDatabaseSecurityRepositoryImpl(Duration.ZERO));
+    }
+}
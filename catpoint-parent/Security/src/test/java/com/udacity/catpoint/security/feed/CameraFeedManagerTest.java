@@ -0,0 +1,90 @@
+package com.udacity.catpoint.security.feed;
+
+import com.udacity.catpoint.image.service.ImageService;
+import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CountDownLatch;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests that CameraFeedManager feeds several cameras into SecurityService without one camera
+ * overruling another.
+ */
+@ExtendWith(MockitoExtension.class)
+public class CameraFeedManagerTest {
+
+    @Mock
+    private SecurityRepository securityRepository;
+
+    @Mock
+    private ImageService imageService;
+
+    @Mock
+    private StatusListener statusListener;
+
+    // A camera without a cat in view must not clear the sighting of a camera that sees one
+    @Test
+    void twoCameras_onlyOneSeesCat_catStaysDetected() throws Exception {
+        // Given: System is armed home, the front camera shows a cat and the back camera does not
+        SecurityService securityService = new SecurityService(securityRepository, imageService);
+        securityService.addStatusListener(statusListener);
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
+        BufferedImage frontFrame = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        BufferedImage backFrame = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        CountDownLatch frontAnalysed = new CountDownLatch(1);
+        when(imageService.imageContainsCat(eq(frontFrame), anyFloat())).thenAnswer(invocation -> {
+            frontAnalysed.countDown();
+            return true;
+        });
+        when(imageService.imageContainsCat(eq(backFrame), anyFloat())).thenReturn(false);
+
+        // When: Both cameras are fed through the manager, the back camera's frame arriving after the front camera's
+        try (CameraFeedManager feedManager = new CameraFeedManager(securityService, 2)) {
+            feedManager.addCamera("front", new ScriptedFrameSource(frontFrame, null), 1, OverflowPolicy.BLOCK, 50);
+            feedManager.addCamera("back", new ScriptedFrameSource(backFrame, frontAnalysed), 1, OverflowPolicy.BLOCK, 50);
+
+            // Then: The cat is still considered present after the back camera's frame and the alarm stays up
+            verify(statusListener, timeout(2000).times(2)).catDetected(true);
+        }
+        verify(statusListener, never()).catDetected(false);
+        verify(securityRepository, never()).setAlarmStatus(AlarmStatus.NO_ALARM);
+    }
+
+    /**
+     * Delivers one frame, optionally once a latch opens, and then ends.
+     */
+    private static final class ScriptedFrameSource implements FrameSource {
+        private final CountDownLatch deliverAfter;
+        private BufferedImage frame;
+
+        ScriptedFrameSource(BufferedImage frame, CountDownLatch deliverAfter) {
+            this.frame = frame;
+            this.deliverAfter = deliverAfter;
+        }
+
+        @Override
+        public BufferedImage nextFrame() throws InterruptedException {
+            if (deliverAfter != null) {
+                deliverAfter.await();
+            }
+            BufferedImage nextFrame = frame;
+            frame = null;
+            return nextFrame;
+        }
+
+        @Override
+        public void close() {
+            // Nothing to release
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.udacity.catpoint.security.feed;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that DirectoryFrameSource reads each dropped file once it is complete and survives corrupt files.
+ */
+public class DirectoryFrameSourceTest {
+
+    @TempDir
+    Path frameDirectory;
+
+    // A file written in several steps is only decoded once the camera has finished writing it
+    @Test
+    void nextFrame_fileWrittenInSteps_decodedOnceComplete() throws Exception {
+        // Given: A source with a settle time longer than the pause between the camera's writes
+        byte[] jpeg = redJpeg(64, 64);
+        try (DirectoryFrameSource frameSource = new DirectoryFrameSource(frameDirectory, Duration.ofMillis(300), null, 0, 0)) {
+            CompletableFuture<BufferedImage> nextFrame = CompletableFuture.supplyAsync(() -> readFrame(frameSource));
+
+            // When: The file is written in two halves 100 ms apart
+            try (OutputStream frameFile = Files.newOutputStream(frameDirectory.resolve("frame-1.jpg"))) {
+                frameFile.write(jpeg, 0, jpeg.length / 2);
+                frameFile.flush();
+                Thread.sleep(100);
+                frameFile.write(jpeg, jpeg.length / 2, jpeg.length - jpeg.length / 2);
+            }
+
+            // Then: The frame is decoded whole, including its last rows
+            BufferedImage frame = nextFrame.get(10, TimeUnit.SECONDS);
+            assertTrue(new Color(frame.getRGB(63, 63)).getRed() > 200);
+            assertEquals(0, frameSource.getUndecodableFrameCount());
+        }
+    }
+
+    // A corrupt file is skipped and counted, and the next good file is still delivered
+    @Test
+    void nextFrame_corruptFile_skippedAndCounted() throws Exception {
+        try (DirectoryFrameSource frameSource = new DirectoryFrameSource(frameDirectory, Duration.ofMillis(50), null, 0, 0)) {
+            // Given: A file with a JPEG header but garbage contents, followed by a valid frame
+            byte[] corrupt = Arrays.copyOf(new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0}, 256);
+            Arrays.fill(corrupt, 4, corrupt.length, (byte) 0x5A);
+            Files.write(frameDirectory.resolve("frame-1.jpg"), corrupt);
+            Thread.sleep(100);
+            Files.write(frameDirectory.resolve("frame-2.jpg"), redJpeg(16, 16));
+
+            // When: The next frame is read
+            BufferedImage frame = CompletableFuture.supplyAsync(() -> readFrame(frameSource)).get(10, TimeUnit.SECONDS);
+
+            // Then: The valid frame is delivered and the corrupt one counted
+            assertEquals(16, frame.getWidth());
+            assertEquals(1, frameSource.getUndecodableFrameCount());
+        }
+    }
+
+    private static BufferedImage readFrame(FrameSource frameSource) {
+        try {
+            return frameSource.nextFrame();
+        } catch (IOException | InterruptedException readError) {
+            throw new IllegalStateException(readError);
+        }
+    }
+
+    private static byte[] redJpeg(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.RED);
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", jpeg);
+        return jpeg.toByteArray();
+    }
+}
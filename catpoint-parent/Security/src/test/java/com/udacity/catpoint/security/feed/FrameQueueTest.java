@@ -0,0 +1,92 @@
+package com.udacity.catpoint.security.feed;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the overflow policies of FrameQueue.
+ */
+public class FrameQueueTest {
+
+    private static final BufferedImage IMAGE = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+
+    @Test
+    void offer_dropOldestWhenFull_oldestFrameReplaced() throws Exception {
+        // Given: A full queue of two frames that drops the oldest on overflow
+        FrameQueue frameQueue = new FrameQueue(2, OverflowPolicy.DROP_OLDEST);
+        frameQueue.offer(frame(1));
+        frameQueue.offer(frame(2));
+
+        // When: A third frame arrives
+        boolean queued = frameQueue.offer(frame(3));
+
+        // Then: The first frame makes room and the newest two are delivered in order
+        assertTrue(queued);
+        assertEquals(1, frameQueue.getDroppedFrameCount());
+        assertEquals(2, frameQueue.poll().getCaptureNanos());
+        assertEquals(3, frameQueue.poll().getCaptureNanos());
+        assertNull(frameQueue.poll());
+    }
+
+    @Test
+    void offer_dropNewestWhenFull_newFrameRefused() throws Exception {
+        // Given: A full queue of two frames that drops the newest on overflow
+        FrameQueue frameQueue = new FrameQueue(2, OverflowPolicy.DROP_NEWEST);
+        frameQueue.offer(frame(1));
+        frameQueue.offer(frame(2));
+
+        // When: A third frame arrives
+        boolean queued = frameQueue.offer(frame(3));
+
+        // Then: It is dropped and the queued frames are kept
+        assertFalse(queued);
+        assertEquals(1, frameQueue.getDroppedFrameCount());
+        assertEquals(2, frameQueue.size());
+        assertEquals(1, frameQueue.poll().getCaptureNanos());
+    }
+
+    // A blocked producer resumes as soon as the consumer takes a frame, and nothing is dropped
+    @Test
+    void offer_blockWhenFull_waitsUntilFramePolled() throws Exception {
+        // Given: A full queue of one frame that blocks on overflow
+        FrameQueue frameQueue = new FrameQueue(1, OverflowPolicy.BLOCK);
+        frameQueue.offer(frame(1));
+
+        // When: A second frame is offered from another thread
+        CompletableFuture<Boolean> blockedOffer = CompletableFuture.supplyAsync(() -> {
+            try {
+                return frameQueue.offer(frame(2));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        // Then: It waits while the queue is full
+        assertThrows(TimeoutException.class, () -> blockedOffer.get(100, TimeUnit.MILLISECONDS));
+
+        // When: The consumer takes the queued frame
+        assertEquals(1, frameQueue.poll().getCaptureNanos());
+
+        // Then: The waiting frame is queued
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertTrue(blockedOffer.join()));
+        assertEquals(2, frameQueue.poll().getCaptureNanos());
+        assertEquals(0, frameQueue.getDroppedFrameCount());
+    }
+
+    @Test
+    void constructor_zeroCapacity_rejected() {
+        // When/Then: A queue that could never hold a frame is refused
+        assertThrows(IllegalArgumentException.class, () -> new FrameQueue(0, OverflowPolicy.DROP_OLDEST));
+    }
+
+    private static CapturedFrame frame(long captureNanos) {
+        return new CapturedFrame(IMAGE, captureNanos);
+    }
+}
@@ -0,0 +1,60 @@
+package com.udacity.catpoint.security.feed;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that MjpegFileFrameSource replays a recording frame by frame and skips corrupt frames.
+ */
+public class MjpegFileFrameSourceTest {
+
+    @TempDir
+    Path recordingDirectory;
+
+    @Test
+    void nextFrame_corruptFrameInRecording_skippedAndCounted() throws Exception {
+        // Given: A recording with a corrupt frame between two valid ones
+        ByteArrayOutputStream recordingBytes = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB), "jpg", recordingBytes);
+        recordingBytes.write(new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 1, 2, 3, 4, (byte) 0xFF, (byte) 0xD9});
+        ImageIO.write(new BufferedImage(24, 16, BufferedImage.TYPE_INT_RGB), "jpg", recordingBytes);
+        Path recording = Files.write(recordingDirectory.resolve("recording.mjpeg"), recordingBytes.toByteArray());
+
+        try (MjpegFileFrameSource frameSource = new MjpegFileFrameSource(recording, 1_000, false)) {
+            // When: The recording is replayed to the end
+            BufferedImage first = frameSource.nextFrame();
+            BufferedImage second = frameSource.nextFrame();
+            BufferedImage end = frameSource.nextFrame();
+
+            // Then: Both valid frames are delivered and the corrupt one is counted
+            assertEquals(16, first.getWidth());
+            assertEquals(24, second.getWidth());
+            assertNull(end);
+            assertEquals(1, frameSource.getUndecodableFrameCount());
+        }
+    }
+
+    // Looping restarts at the first frame instead of ending
+    @Test
+    void nextFrame_loopingRecording_restartsAtFirstFrame() throws Exception {
+        // Given: A looping one-frame recording
+        ByteArrayOutputStream recordingBytes = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB), "jpg", recordingBytes);
+        Path recording = Files.write(recordingDirectory.resolve("recording.mjpeg"), recordingBytes.toByteArray());
+
+        try (MjpegFileFrameSource frameSource = new MjpegFileFrameSource(recording, 1_000, true)) {
+            // When/Then: The frame keeps coming back
+            for (int i = 0; i < 3; i++) {
+                assertEquals(16, frameSource.nextFrame().getWidth());
+            }
+        }
+    }
+}
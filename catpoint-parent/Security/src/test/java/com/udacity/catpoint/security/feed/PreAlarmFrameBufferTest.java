@@ -0,0 +1,185 @@
+package com.udacity.catpoint.security.feed;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that PreAlarmFrameBuffer evicts, wraps, drops and dumps frames as documented.
+ */
+public class PreAlarmFrameBufferTest {
+
+    @TempDir
+    Path dumpDirectory;
+
+    // Frames older than the retention period are evicted as new frames arrive
+    @Test
+    void append_framesPastRetention_evicted() {
+        // Given: A buffer keeping 100 ms of frames
+        PreAlarmFrameBuffer frameBuffer = new PreAlarmFrameBuffer("front", Duration.ofMillis(100), 1024);
+
+        // When: Frames are captured at 0, 50 and 200 ms
+        frameBuffer.append(frame(1, 10), 0);
+        frameBuffer.append(frame(2, 10), 50);
+        frameBuffer.append(frame(3, 10), 200);
+
+        // Then: Only the frame within 100 ms of the newest is kept
+        assertEquals(1, frameBuffer.getBufferedFrameCount());
+        assertEquals(10, frameBuffer.getBufferedBytes());
+        assertEquals(2, frameBuffer.getEvictedFrameCount());
+        assertEquals(3, frameBuffer.getTotalBufferedFrameCount());
+    }
+
+    // A frame that does not fit before the end of the arena wraps to the start over the oldest frames
+    @Test
+    void append_arenaFull_wrapsOverOldestFrames() throws Exception {
+        // Given: A 100-byte arena holding three 30-byte frames
+        PreAlarmFrameBuffer frameBuffer = new PreAlarmFrameBuffer("front", Duration.ofMinutes(1), 100);
+        for (int i = 1; i <= 3; i++) {
+            frameBuffer.append(frame(i, 30), i);
+        }
+
+        // When: A fourth frame arrives
+        frameBuffer.append(frame(4, 30), 4);
+
+        // Then: It replaces the oldest frame and the dump keeps capture order
+        assertEquals(3, frameBuffer.getBufferedFrameCount());
+        assertEquals(1, frameBuffer.getEvictedFrameCount());
+        Path dumpFile = frameBuffer.freezeAndDump(dumpDirectory.resolve("front.mjpeg"), Runnable::run).join();
+        assertArrayEquals(concat(frame(2, 30), frame(3, 30), frame(4, 30)), Files.readAllBytes(dumpFile));
+    }
+
+    // Wrapping to the start also discards the old frames left in the skipped tail of the arena
+    @Test
+    void append_wrapAfterUnevenFrames_skippedTailEvicted() throws Exception {
+        // Given: A 100-byte arena holding frames of 40, 40 and 15 bytes
+        PreAlarmFrameBuffer frameBuffer = new PreAlarmFrameBuffer("front", Duration.ofMinutes(1), 100);
+        frameBuffer.append(frame(1, 40), 1);
+        frameBuffer.append(frame(2, 40), 2);
+        frameBuffer.append(frame(3, 15), 3);
+
+        // When: A 50-byte frame arrives, too large for the remaining 5 bytes
+        frameBuffer.append(frame(4, 50), 4);
+
+        // Then: It overwrites the first two frames, keeping the tail frame between them
+        Path dumpFile = frameBuffer.freezeAndDump(dumpDirectory.resolve("front.mjpeg"), Runnable::run).join();
+        assertArrayEquals(concat(frame(3, 15), frame(4, 50)), Files.readAllBytes(dumpFile));
+        assertEquals(65, frameBuffer.getBufferedBytes());
+    }
+
+    // The frame index is bounded, so many tiny frames evict the oldest even when bytes remain
+    @Test
+    void append_indexFull_oldestFrameEvicted() {
+        // Given: An arena with room for more one-byte frames than the index holds
+        PreAlarmFrameBuffer frameBuffer = new PreAlarmFrameBuffer("front", Duration.ofMinutes(1), 8_192);
+
+        // When: One frame more than the index holds is buffered
+        for (int i = 0; i <= 4_096; i++) {
+            frameBuffer.append(frame(i, 1), i);
+        }
+
+        // Then: The oldest frame makes room
+        assertEquals(4_096, frameBuffer.getBufferedFrameCount());
+        assertEquals(1, frameBuffer.getEvictedFrameCount());
+    }
+
+    @Test
+    void append_frameLargerThanBudget_dropped() {
+        // Given: A 16-byte arena
+        PreAlarmFrameBuffer frameBuffer = new PreAlarmFrameBuffer("front", Duration.ofMinutes(1), 16);
+
+        // When: A 17-byte frame is offered
+        boolean buffered = frameBuffer.append(frame(1, 17), 0);
+
+        // Then: It is dropped
+        assertFalse(buffered);
+        assertEquals(0, frameBuffer.getBufferedFrameCount());
+        assertEquals(1, frameBuffer.getDroppedFrameCount());
+    }
+
+    // Only the bytes between position and limit are copied and the caller's position is left as it was
+    @Test
+    void append_byteBufferSlice_copiedWithoutMovingPosition() throws Exception {
+        // Given: A buffer whose frame sits between position 2 and limit 6
+        ByteBuffer encodedFrame = ByteBuffer.wrap(new byte[] {9, 9, 1, 2, 3, 4, 9, 9});
+        encodedFrame.position(2).limit(6);
+        PreAlarmFrameBuffer frameBuffer = new PreAlarmFrameBuffer("front", Duration.ofMinutes(1), 64);
+
+        // When: It is appended
+        frameBuffer.append(encodedFrame, 0);
+
+        // Then: Exactly that frame is buffered and the source is untouched
+        assertEquals(2, encodedFrame.position());
+        Path dumpFile = frameBuffer.freezeAndDump(dumpDirectory.resolve("front.mjpeg"), Runnable::run).join();
+        assertArrayEquals(new byte[] {1, 2, 3, 4}, Files.readAllBytes(dumpFile));
+    }
+
+    // While a dump is pending new frames are dropped and further dump requests join the pending one
+    @Test
+    void freezeAndDump_whileDumping_framesDroppedUntilWritten() throws Exception {
+        // Given: A buffered frame and a dump executor that holds the write back
+        PreAlarmFrameBuffer frameBuffer = new PreAlarmFrameBuffer("front", Duration.ofMinutes(1), 64);
+        frameBuffer.append(frame(1, 8), 0);
+        List<Runnable> heldWrites = new ArrayList<>();
+        CompletableFuture<Path> dump = frameBuffer.freezeAndDump(dumpDirectory.resolve("first.mjpeg"), heldWrites::add);
+
+        // When: Frames and another dump request arrive before the write runs
+        boolean buffered = frameBuffer.append(frame(2, 8), 1);
+        CompletableFuture<Path> secondDump = frameBuffer.freezeAndDump(dumpDirectory.resolve("second.mjpeg"), heldWrites::add);
+
+        // Then: The frame is dropped and the pending dump is returned
+        assertTrue(frameBuffer.isFrozen());
+        assertFalse(buffered);
+        assertEquals(1, frameBuffer.getDroppedFrameCount());
+        assertSame(dump, secondDump);
+        assertEquals(1, heldWrites.size());
+
+        // When: The write runs
+        heldWrites.get(0).run();
+
+        // Then: Only the frame buffered before the freeze is saved and buffering resumes
+        assertArrayEquals(frame(1, 8), Files.readAllBytes(dump.join()));
+        assertFalse(frameBuffer.isFrozen());
+        assertTrue(frameBuffer.append(frame(3, 8), 2));
+    }
+
+    @Test
+    void freezeAndDump_writeFails_futureFailsAndBufferingResumes() throws Exception {
+        // Given: A buffered frame and a dump file that already exists
+        PreAlarmFrameBuffer frameBuffer = new PreAlarmFrameBuffer("front", Duration.ofMinutes(1), 64);
+        frameBuffer.append(frame(1, 8), 0);
+        Path dumpFile = Files.createFile(dumpDirectory.resolve("front.mjpeg"));
+
+        // When: The buffer is dumped to it
+        CompletableFuture<Path> dump = frameBuffer.freezeAndDump(dumpFile, Runnable::run);
+
+        // Then: The dump fails without leaving the buffer frozen
+        assertTrue(dump.isCompletedExceptionally());
+        assertFalse(frameBuffer.isFrozen());
+    }
+
+    private static byte[] frame(int marker, int length) {
+        byte[] frame = new byte[length];
+        Arrays.fill(frame, (byte) marker);
+        return frame;
+    }
+
+    private static byte[] concat(byte[]... frames) {
+        ByteArrayOutputStream joined = new ByteArrayOutputStream();
+        for (byte[] frame : frames) {
+            joined.writeBytes(frame);
+        }
+        return joined.toByteArray();
+    }
+}
@@ -0,0 +1,139 @@
+package com.udacity.catpoint.security.feed;
+
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.JournalSecurityRepository;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that PreAlarmRecorder buffers recorded cameras and saves them when the alarm trips.
+ */
+public class PreAlarmRecorderTest {
+
+    @TempDir
+    Path dumpDirectory;
+
+    // Only a change into ALARM trips a dump; repeated ALARM notifications do not
+    @Test
+    void notify_repeatedAlarm_dumpsOnlyOnTransition() throws Exception {
+        try (PreAlarmRecorder recorder = new PreAlarmRecorder(dumpDirectory, Duration.ofMinutes(1), 1 << 20)) {
+            // Given: A recorded camera has captured a frame and the alarm has tripped once
+            FrameSource frameSource = recorder.record("front", new QueuedFrameSource(2));
+            frameSource.nextFrame();
+            recorder.notify(AlarmStatus.ALARM);
+            awaitCompletedDumps(recorder, 1);
+
+            // When: The alarm is reported again
+            recorder.notify(AlarmStatus.ALARM);
+
+            // Then: No further dump is started
+            PreAlarmFrameBuffer frameBuffer = recorder.getFrameBuffers().iterator().next();
+            assertFalse(frameBuffer.isFrozen());
+
+            // When: The alarm clears and trips again
+            frameSource.nextFrame();
+            recorder.notify(AlarmStatus.NO_ALARM);
+            recorder.notify(AlarmStatus.ALARM);
+
+            // Then: A second dump is written
+            awaitCompletedDumps(recorder, 2);
+            try (Stream<Path> dumps = Files.list(dumpDirectory)) {
+                assertEquals(2, dumps.count());
+            }
+        }
+    }
+
+    // Frames of an MJPEG recording are buffered as recorded rather than decoded and encoded again
+    @Test
+    void record_mjpegSource_recordedBytesBuffered() throws Exception {
+        // Given: A two-frame MJPEG recording
+        ByteArrayOutputStream recordingBytes = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB), "jpg", recordingBytes);
+        ImageIO.write(new BufferedImage(24, 16, BufferedImage.TYPE_INT_RGB), "jpg", recordingBytes);
+        Path recording = Files.write(dumpDirectory.resolve("recording.mjpeg"), recordingBytes.toByteArray());
+
+        try (PreAlarmRecorder recorder = new PreAlarmRecorder(dumpDirectory.resolve("dumps"), Duration.ofMinutes(1), 1 << 20);
+             FrameSource frameSource = recorder.record("front", new MjpegFileFrameSource(recording, 1_000, false))) {
+            // When: Both frames are captured and dumped
+            frameSource.nextFrame();
+            frameSource.nextFrame();
+            Path dumpFile = recorder.dumpAll().get(0).join();
+
+            // Then: The dump is byte-for-byte the recording
+            assertArrayEquals(recordingBytes.toByteArray(), Files.readAllBytes(dumpFile));
+        }
+    }
+
+    // A recorder attached to the security service dumps when the service raises the alarm
+    @Test
+    void attachTo_serviceRaisesAlarm_framesDumped() throws Exception {
+        // Given: A recorder attached to a security service, with one captured frame
+        try (JournalSecurityRepository repository = new JournalSecurityRepository(dumpDirectory.resolve("journal"))) {
+            SecurityService securityService = new SecurityService(repository, new FakeImageService());
+            try (PreAlarmRecorder recorder = PreAlarmRecorder.attachTo(securityService,
+                    dumpDirectory.resolve("dumps"), Duration.ofMinutes(1), 1 << 20)) {
+                recorder.record("front", new QueuedFrameSource(1)).nextFrame();
+
+                // When: The service raises the alarm
+                securityService.setAlarmStatus(AlarmStatus.ALARM);
+
+                // Then: The camera's frames are saved
+                awaitCompletedDumps(recorder, 1);
+
+                // When: The recorder is closed and the alarm trips again
+                recorder.close();
+                securityService.setAlarmStatus(AlarmStatus.NO_ALARM);
+                securityService.setAlarmStatus(AlarmStatus.ALARM);
+
+                // Then: It no longer listens
+                assertEquals(1, recorder.getCompletedDumpCount());
+            }
+        }
+    }
+
+    private static void awaitCompletedDumps(PreAlarmRecorder recorder, long expectedDumps) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (recorder.getCompletedDumpCount() < expectedDumps && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expectedDumps, recorder.getCompletedDumpCount());
+    }
+
+    /**
+     * Delivers a fixed number of small frames and then ends.
+     */
+    private static final class QueuedFrameSource implements FrameSource {
+        private final Deque<BufferedImage> frames = new ArrayDeque<>();
+
+        QueuedFrameSource(int frameCount) {
+            for (int i = 0; i < frameCount; i++) {
+                frames.add(new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB));
+            }
+        }
+
+        @Override
+        public BufferedImage nextFrame() {
+            return frames.poll();
+        }
+
+        @Override
+        public void close() throws IOException {
+            // Nothing to release
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.image.service.ImageService;
+import com.udacity.catpoint.image.service.TokenBucketRateLimiter;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.data.Sensor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that CameraAnalysisScheduler shares the analysis budget between cameras by weight.
+ */
+public class CameraAnalysisSchedulerTest {
+
+    // Frames are told apart by width: the holding frame and each camera's frames have their own
+    private static final int HOLD_WIDTH = 1;
+    private static final int FRONT_WIDTH = 2;
+    private static final int BACK_WIDTH = 3;
+
+    private final CountDownLatch releaseHold = new CountDownLatch(1);
+    private final List<Integer> analysedWidths = Collections.synchronizedList(new ArrayList<>());
+    private SecurityService securityService;
+    private CameraAnalysisScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        ImageService recordingService = (image, confidenceThreshold) -> {
+            if (image.getWidth() == HOLD_WIDTH) {
+                try {
+                    releaseHold.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            } else {
+                analysedWidths.add(image.getWidth());
+            }
+            return false;
+        };
+        securityService = new SecurityService(new InMemorySecurityRepository(), recordingService);
+        scheduler = new CameraAnalysisScheduler(securityService, new TokenBucketRateLimiter(1_000, 1_000), 1);
+        scheduler.registerCamera("hold", 1.0, Set.of(), 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseHold.countDown();
+        scheduler.close();
+    }
+
+    // A camera with three times the weight gets three frames analysed for each one of the other camera
+    @Test
+    void submit_unequalWeights_budgetSharedByWeight() throws Exception {
+        // Given: A front camera of weight 1 and a back camera of weight 3, both with a backlog
+        scheduler.registerCamera("front", 1.0, Set.of(), 16);
+        scheduler.registerCamera("back", 3.0, Set.of(), 16);
+        holdAnalysis();
+        submitFrames("front", FRONT_WIDTH, 8);
+        submitFrames("back", BACK_WIDTH, 8);
+
+        // When: Analysis resumes
+        releaseHold.countDown();
+        awaitAnalyses(8);
+
+        // Then: The first eight frames go three to one in favour of the heavier camera
+        List<Integer> firstEight = new ArrayList<>(analysedWidths.subList(0, 8));
+        assertEquals(6, Collections.frequency(firstEight, BACK_WIDTH));
+        assertEquals(2, Collections.frequency(firstEight, FRONT_WIDTH));
+    }
+
+    @Test
+    void submit_relevantArmingStatus_cameraBoosted() throws Exception {
+        // Given: Equally weighted cameras, the front one relevant while armed away, and the system armed away
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        scheduler.registerCamera("front", 1.0, Set.of(ArmingStatus.ARMED_AWAY), 16);
+        scheduler.registerCamera("back", 1.0, Set.of(), 16);
+        holdAnalysis();
+        submitFrames("front", FRONT_WIDTH, 8);
+        submitFrames("back", BACK_WIDTH, 8);
+
+        // When: Analysis resumes
+        releaseHold.countDown();
+        awaitAnalyses(5);
+
+        // Then: The relevant camera gets the boosted share
+        List<Integer> firstFive = new ArrayList<>(analysedWidths.subList(0, 5));
+        assertEquals(4, Collections.frequency(firstFive, FRONT_WIDTH));
+    }
+
+    // A camera flooding the scheduler only delays its own frames
+    @Test
+    void submit_busyCamera_quietCameraNotStarved() throws Exception {
+        // Given: A busy camera with a long backlog
+        scheduler.registerCamera("front", 1.0, Set.of(), 16);
+        scheduler.registerCamera("back", 1.0, Set.of(), 16);
+        holdAnalysis();
+        submitFrames("front", FRONT_WIDTH, 16);
+
+        // When: A quiet camera submits a single frame behind that backlog
+        CompletableFuture<Void> quietFrame = scheduler.submit("back", frame(BACK_WIDTH));
+        releaseHold.countDown();
+        quietFrame.get(5, TimeUnit.SECONDS);
+
+        // Then: It is analysed within the first two frames
+        assertTrue(analysedWidths.indexOf(BACK_WIDTH) < 2);
+    }
+
+    @Test
+    void submit_queueFull_oldestFrameCancelled() throws Exception {
+        // Given: A camera queue holding two frames while analysis is held up
+        scheduler.registerCamera("front", 1.0, Set.of(), 2);
+        holdAnalysis();
+        CompletableFuture<Void> oldest = scheduler.submit("front", frame(FRONT_WIDTH));
+        scheduler.submit("front", frame(FRONT_WIDTH));
+
+        // When: A third frame arrives
+        scheduler.submit("front", frame(FRONT_WIDTH));
+
+        // Then: The oldest frame is dropped and counted
+        assertTrue(oldest.isCancelled());
+        CameraAnalysisScheduler.CameraStats frontStats = scheduler.getCameraStats().get("front");
+        assertEquals(1, frontStats.getDroppedFrameCount());
+        assertEquals(2, frontStats.getQueueDepth());
+    }
+
+    // Verdicts are applied on the service's completion executor, not on the scheduler's analysis thread
+    @Test
+    void submit_frameAnalysed_verdictHandedToCompletionExecutor() throws Exception {
+        // Given: A completion executor that only collects what it is handed
+        List<Runnable> completions = Collections.synchronizedList(new ArrayList<>());
+        securityService.setCompletionExecutor(completions::add);
+        scheduler.registerCamera("front", 1.0, Set.of(), 1);
+
+        // When: A frame is analysed
+        scheduler.submit("front", frame(FRONT_WIDTH)).get(5, TimeUnit.SECONDS);
+
+        // Then: Its verdict waits on the completion executor
+        assertEquals(List.of(FRONT_WIDTH), analysedWidths);
+        assertEquals(1, completions.size());
+    }
+
+    @Test
+    void submit_unknownCamera_rejected() {
+        // When/Then: A frame from an unregistered camera is refused
+        assertThrows(IllegalArgumentException.class, () -> scheduler.submit("garage", frame(FRONT_WIDTH)));
+    }
+
+    /**
+     * Occupies the single analysis slot until {@link #releaseHold} is counted down, so frames submitted
+     * meanwhile queue up and are scheduled together.
+     */
+    private void holdAnalysis() throws Exception {
+        scheduler.submit("hold", frame(HOLD_WIDTH));
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            while (scheduler.getCameraStats().get("hold").getDispatchedFrameCount() == 0) {
+                Thread.sleep(5);
+            }
+        });
+    }
+
+    private void submitFrames(String cameraId, int width, int count) {
+        for (int i = 0; i < count; i++) {
+            scheduler.submit(cameraId, frame(width));
+        }
+    }
+
+    private void awaitAnalyses(int count) {
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            while (analysedWidths.size() < count) {
+                Thread.sleep(5);
+            }
+        });
+    }
+
+    private static BufferedImage frame(int width) {
+        return new BufferedImage(width, 1, BufferedImage.TYPE_INT_RGB);
+    }
+
+    /**
+     * Keeps the security state in memory only.
+     */
+    private static final class InMemorySecurityRepository implements SecurityRepository {
+        private final Set<Sensor> sensors = new TreeSet<>();
+        private AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+        private ArmingStatus armingStatus = ArmingStatus.DISARMED;
+
+        @Override
+        public void addSensor(Sensor sensor) {
+            sensors.add(sensor);
+        }
+
+        @Override
+        public void removeSensor(Sensor sensor) {
+            sensors.remove(sensor);
+        }
+
+        @Override
+        public void updateSensor(Sensor sensor) {
+            sensors.remove(sensor);
+            sensors.add(sensor);
+        }
+
+        @Override
+        public void setAlarmStatus(AlarmStatus alarmStatus) {
+            this.alarmStatus = alarmStatus;
+        }
+
+        @Override
+        public void setArmingStatus(ArmingStatus armingStatus) {
+            this.armingStatus = armingStatus;
+        }
+
+        @Override
+        public Set<Sensor> getSensors() {
+            return sensors;
+        }
+
+        @Override
+        public AlarmStatus getAlarmStatus() {
+            return alarmStatus;
+        }
+
+        @Override
+        public ArmingStatus getArmingStatus() {
+            return armingStatus;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.udacity.catpoint.security.service;
 
+import com.udacity.catpoint.image.service.DetectionResult;
 import com.udacity.catpoint.image.service.ImageService;
 import com.udacity.catpoint.security.application.StatusListener;
 import com.udacity.catpoint.security.data.*;
@@ -13,8 +14,16 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.awt.image.BufferedImage;
+import java.time.Duration;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -57,7 +66,9 @@ public class SecurityServiceTest {
         allSensors.add(sensor2);
         allSensors.add(sensor3);
         
-        // All repository and image service behavior is mocked per test to ensure isolation
+        // All repository and image service behavior is mocked per test to ensure isolation;
+        // scored analysis falls back to the stubbed verdict unless a test stubs it directly
+        lenient().when(imageService.analyzeImage(any(BufferedImage.class), anyFloat())).thenCallRealMethod();
     }
 
     // Requirement 1: If alarm is armed and a sensor becomes activated, put the system into pending alarm status
@@ -552,6 +563,7 @@ public class SecurityServiceTest {
         securityService.processImage(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB));
         
         // Then: Verify SecurityService only interacts with mocked methods, not real implementations
+        verify(imageService, times(1)).analyzeImage(any(BufferedImage.class), eq(50.0f));
         verify(imageService, times(1)).imageContainsCat(any(BufferedImage.class), eq(50.0f));
         verify(securityRepository, times(1)).getArmingStatus();
         verify(securityRepository, times(1)).getSensors();
@@ -1069,4 +1081,293 @@ public class SecurityServiceTest {
         verify(statusListener).sensorStatusChanged();
         verify(securityRepository).setArmingStatus(ArmingStatus.ARMED_HOME);
     }
-}
\ No newline at end of file
+
+    // Asynchronous analysis applies the verdict once the image service future completes
+    @Test
+    void processImageAsync_catDetectedAndArmedHome_setsAlarm() {
+        // Given: System is armed home and the image service will report a cat
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
+        when(imageService.analyzeImageAsync(any(BufferedImage.class), anyFloat()))
+                .thenReturn(CompletableFuture.completedFuture(DetectionResult.ofVerdict(true, 50.0f, Duration.ZERO)));
+
+        // When: Image is processed asynchronously
+        securityService.processImageAsync(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB)).join();
+
+        // Then: Alarm should be raised without calling the blocking API
+        verify(securityRepository).setAlarmStatus(AlarmStatus.ALARM);
+        verify(imageService, never()).imageContainsCat(any(BufferedImage.class), anyFloat());
+    }
+
+    @Test
+    void processImageAsync_nullFrame_rejectedBeforeAnalysis() {
+        // When/Then: A missing frame fails the call itself and never reaches the image service
+        assertThrows(NullPointerException.class, () -> securityService.processImageAsync(null));
+        verifyNoInteractions(imageService);
+    }
+
+    // A slow analysis of an older frame must not overwrite the verdict of a newer frame
+    @Test
+    void processImageAsync_olderFrameCompletesLast_staleVerdictIgnored() {
+        // Given: Two frames are in flight
+        securityService.addStatusListener(statusListener);
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.DISARMED);
+        CompletableFuture<DetectionResult> olderFrame = new CompletableFuture<>();
+        CompletableFuture<DetectionResult> newerFrame = new CompletableFuture<>();
+        when(imageService.analyzeImageAsync(any(BufferedImage.class), anyFloat()))
+                .thenReturn(olderFrame)
+                .thenReturn(newerFrame);
+        securityService.processImageAsync(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB));
+        securityService.processImageAsync(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB));
+
+        // When: The newer frame finishes first
+        newerFrame.complete(DetectionResult.ofVerdict(false, 50.0f, Duration.ZERO));
+        olderFrame.complete(DetectionResult.ofVerdict(true, 50.0f, Duration.ZERO));
+
+        // Then: Only the newer verdict reaches listeners
+        verify(statusListener).catDetected(false);
+        verify(statusListener, never()).catDetected(true);
+    }
+
+    // A batch of frames raises one aggregated detection event
+    @Test
+    void processImages_oneFrameContainsCat_singleAggregatedNotification() {
+        // Given: System is armed home and one frame in the burst shows a cat
+        securityService.addStatusListener(statusListener);
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
+        when(imageService.classifyBatch(anyList(), anyFloat())).thenReturn(List.of(false, true, false));
+
+        // When: The burst is processed
+        securityService.processImages(List.of(
+                new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB),
+                new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB),
+                new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB)));
+
+        // Then: Listeners hear about the cat exactly once and the alarm is raised
+        verify(statusListener, times(1)).catDetected(true);
+        verify(statusListener, never()).catDetected(false);
+        verify(securityRepository).setAlarmStatus(AlarmStatus.ALARM);
+        verify(imageService, never()).imageContainsCat(any(BufferedImage.class), anyFloat());
+    }
+
+    // A scored result answers a later threshold change without analysing the frame again
+    @Test
+    void setCatConfidenceThreshold_scoredResultStored_reevaluatedWithoutReanalysis() {
+        // Given: System is armed home and the latest frame scored 60% cat, above the default threshold
+        securityService.addStatusListener(statusListener);
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
+        when(imageService.analyzeImage(any(BufferedImage.class), anyFloat()))
+                .thenReturn(DetectionResult.scored(Map.of("Cat", 60.0f), 30.0f, Duration.ofMillis(5)));
+        securityService.processImageScored(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB));
+        verify(statusListener).catDetected(true);
+
+        // When: The threshold is raised above the stored confidence
+        securityService.setCatConfidenceThreshold(80.0f);
+
+        // Then: The cat is no longer considered present and the image service is not asked again
+        verify(statusListener).catDetected(false);
+        verify(imageService, times(1)).analyzeImage(any(BufferedImage.class), anyFloat());
+    }
+
+    // A verdict-only result cannot answer a threshold it says nothing about
+    @Test
+    void setCatConfidenceThreshold_verdictOnlyResult_keepsVerdictUntilNextFrame() {
+        // Given: The latest frame was reported as a cat at 50% without scores
+        securityService.addStatusListener(statusListener);
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
+        when(imageService.analyzeImage(any(BufferedImage.class), anyFloat()))
+                .thenReturn(DetectionResult.ofVerdict(true, 50.0f, Duration.ofMillis(5)));
+        securityService.processImageScored(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB));
+
+        // When: The threshold is raised
+        securityService.setCatConfidenceThreshold(80.0f);
+
+        // Then: No new detection event is raised
+        verify(statusListener, times(1)).catDetected(anyBoolean());
+        assertEquals(80.0f, securityService.getCatConfidenceThreshold());
+    }
+
+    // Frames analysed through processImage keep their result just like processImageScored
+    @Test
+    void setCatConfidenceThreshold_afterProcessImage_reevaluatedWithoutReanalysis() {
+        // Given: System is armed home and the latest frame scored 60% cat
+        securityService.addStatusListener(statusListener);
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
+        when(imageService.analyzeImage(any(BufferedImage.class), anyFloat()))
+                .thenReturn(DetectionResult.scored(Map.of("Cat", 60.0f), 30.0f, Duration.ofMillis(5)));
+        securityService.processImage(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB));
+
+        // When: The threshold is raised above the stored confidence
+        securityService.setCatConfidenceThreshold(80.0f);
+
+        // Then: The stored result answers the new threshold without another analysis
+        verify(statusListener).catDetected(true);
+        verify(statusListener).catDetected(false);
+        verify(imageService, times(1)).analyzeImage(any(BufferedImage.class), anyFloat());
+    }
+
+    // Asynchronous analysis keeps its result too
+    @Test
+    void processImageAsync_scoredResult_storedAsLatest() {
+        // Given: The image service reports a scored result asynchronously
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.DISARMED);
+        DetectionResult scoredResult = DetectionResult.scored(Map.of("Cat", 70.0f), 30.0f, Duration.ofMillis(5));
+        when(imageService.analyzeImageAsync(any(BufferedImage.class), anyFloat()))
+                .thenReturn(CompletableFuture.completedFuture(scoredResult));
+
+        // When: A frame is processed asynchronously
+        securityService.processImageAsync(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB)).join();
+
+        // Then: The result is available for later threshold changes
+        assertSame(scoredResult, securityService.getLatestDetectionResult());
+    }
+
+    // A camera that no longer sees the cat does not clear another camera's sighting
+    @Test
+    void processImageFromCamera_otherCameraSeesNoCat_catStillPresent() {
+        // Given: System is armed home and the front camera shows a cat while the back camera does not
+        securityService.addStatusListener(statusListener);
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
+        BufferedImage frontFrame = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        BufferedImage backFrame = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        when(imageService.imageContainsCat(eq(frontFrame), anyFloat())).thenReturn(true);
+        when(imageService.imageContainsCat(eq(backFrame), anyFloat())).thenReturn(false);
+
+        // When: Both cameras' frames are processed
+        securityService.processImage("front", frontFrame);
+        securityService.processImage("back", backFrame);
+
+        // Then: The cat is still considered present after the back camera's frame
+        verify(statusListener, times(2)).catDetected(true);
+        verify(statusListener, never()).catDetected(false);
+        verify(securityRepository, never()).setAlarmStatus(AlarmStatus.NO_ALARM);
+    }
+
+    // Frames skipped while disarmed are caught up on when the system is armed at home, without blocking the caller
+    @Test
+    void setArmingStatus_armedHomeAfterSkippedFrames_lastFrameReevaluated() {
+        // Given: The arming-aware policy samples sparsely while disarmed and the latest frame was skipped
+        securityService.setAnalysisPolicy(AnalysisPolicy.armingAware());
+        securityService.setCompletionExecutor(Runnable::run);
+        securityService.addStatusListener(statusListener);
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.DISARMED);
+        when(securityRepository.getSensors()).thenReturn(allSensors);
+        when(imageService.imageContainsCat(any(BufferedImage.class), anyFloat())).thenReturn(false);
+        CompletableFuture<DetectionResult> reevaluation = new CompletableFuture<>();
+        when(imageService.analyzeImageAsync(any(BufferedImage.class), anyFloat())).thenReturn(reevaluation);
+        for (int i = 0; i < 3; i++) {
+            securityService.processImage(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB));
+        }
+        assertEquals(2, securityService.getSkippedFrameCount());
+
+        // When: The system is armed at home and the re-evaluation of the latest frame later finds a cat
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        verify(securityRepository, never()).setAlarmStatus(AlarmStatus.ALARM);
+        reevaluation.complete(DetectionResult.ofVerdict(true, 50.0f, Duration.ZERO));
+
+        // Then: The skipped latest frame was analysed once more and its cat raises the alarm
+        verify(imageService, times(1)).imageContainsCat(any(BufferedImage.class), anyFloat());
+        verify(imageService, times(1)).analyzeImageAsync(any(BufferedImage.class), anyFloat());
+        verify(statusListener).catDetected(true);
+        verify(securityRepository).setAlarmStatus(AlarmStatus.ALARM);
+    }
+
+    // Each camera is sampled on its own, and re-evaluating one camera keeps the other camera's sighting
+    @Test
+    void setArmingStatus_twoCamerasUnderPolicy_eachCameraReevaluatedOnItsOwn() {
+        // Given: While disarmed, the front camera's first frame shows a cat and the back camera's latest frame was skipped
+        securityService.setAnalysisPolicy(AnalysisPolicy.armingAware());
+        securityService.setCompletionExecutor(Runnable::run);
+        securityService.addStatusListener(statusListener);
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.DISARMED);
+        when(securityRepository.getSensors()).thenReturn(allSensors);
+        BufferedImage frontFrame = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        when(imageService.imageContainsCat(any(BufferedImage.class), anyFloat())).thenReturn(false);
+        when(imageService.imageContainsCat(eq(frontFrame), anyFloat())).thenReturn(true);
+        when(imageService.analyzeImageAsync(any(BufferedImage.class), anyFloat())).thenAnswer(invocation ->
+                CompletableFuture.completedFuture(DetectionResult.ofVerdict(invocation.getArgument(0) == frontFrame, 50.0f, Duration.ZERO)));
+        securityService.processImage("front", frontFrame);
+        securityService.processImage("back", new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB));
+        securityService.processImage("back", new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB));
+        assertEquals(1, securityService.getSkippedFrameCount());
+
+        // When: The system is armed at home
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+        // Then: Both cameras' latest frames are analysed again and the front camera's cat keeps the alarm raised
+        verify(imageService).analyzeImageAsync(eq(frontFrame), anyFloat());
+        verify(imageService, times(2)).analyzeImageAsync(any(BufferedImage.class), anyFloat());
+        verify(statusListener, never()).catDetected(false);
+        verify(securityRepository, atLeastOnce()).setAlarmStatus(AlarmStatus.ALARM);
+    }
+
+    // Every frame counts while the alarm is sounding, whichever way the system is armed
+    @ParameterizedTest
+    @EnumSource(value = ArmingStatus.class, names = {"ARMED_HOME", "ARMED_AWAY"})
+    void getCurrentAnalysisSettings_alarmSounding_fullAnalysis(ArmingStatus armingStatus) {
+        // Given: The arming-aware policy and a sounding alarm
+        securityService.setAnalysisPolicy(AnalysisPolicy.armingAware());
+        when(securityRepository.getArmingStatus()).thenReturn(armingStatus);
+        when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.ALARM);
+
+        // When/Then: Frames are analysed in full
+        assertEquals(AnalysisSettings.FULL, securityService.getCurrentAnalysisSettings());
+    }
+
+    // Frames posted during a slow analysis collapse to the newest one
+    @Test
+    void postFrame_framesArriveDuringAnalysis_onlyNewestAnalysedNext() throws Exception {
+        // Given: The first frame's analysis is held until the camera has posted more frames
+        securityService.setCompletionExecutor(Runnable::run);
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.DISARMED);
+        BufferedImage firstFrame = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        BufferedImage newestFrame = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        CountDownLatch analysisStarted = new CountDownLatch(1);
+        CountDownLatch releaseAnalysis = new CountDownLatch(1);
+        when(imageService.imageContainsCat(any(BufferedImage.class), anyFloat())).thenAnswer(invocation -> {
+            analysisStarted.countDown();
+            releaseAnalysis.await();
+            return false;
+        });
+        securityService.postFrame("front", firstFrame);
+        analysisStarted.await();
+
+        // When: Three more frames arrive before the analysis finishes
+        for (int i = 0; i < 2; i++) {
+            securityService.postFrame("front", new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB));
+        }
+        securityService.postFrame("front", newestFrame);
+        releaseAnalysis.countDown();
+
+        // Then: Only the newest waiting frame is analysed after the first and the other two are counted as dropped
+        verify(imageService, timeout(1000).times(2)).imageContainsCat(any(BufferedImage.class), anyFloat());
+        securityService.closeFrameMailbox("front");
+        verify(imageService).imageContainsCat(eq(firstFrame), anyFloat());
+        verify(imageService).imageContainsCat(eq(newestFrame), anyFloat());
+        assertEquals(2, securityService.getDroppedFrameCount());
+    }
+
+    // Verdicts of posted frames reach listeners through the completion executor, not on the mailbox worker
+    @Test
+    void postFrame_verdictReached_listenersNotifiedOnCompletionExecutor() throws Exception {
+        // Given: Completions are queued instead of run, like Swing's event queue
+        BlockingQueue<Runnable> completions = new LinkedBlockingQueue<>();
+        securityService.setCompletionExecutor(completions::add);
+        securityService.addStatusListener(statusListener);
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
+        when(imageService.imageContainsCat(any(BufferedImage.class), anyFloat())).thenReturn(true);
+
+        // When: A frame is posted and analysed by the camera's worker
+        securityService.postFrame("front", new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB));
+        Runnable completion = completions.poll(1, TimeUnit.SECONDS);
+        securityService.closeFrameMailbox("front");
+
+        // Then: Nothing is applied until the completion runs, and then the cat raises the alarm
+        verify(statusListener, never()).catDetected(anyBoolean());
+        assertNotNull(completion);
+        completion.run();
+        verify(statusListener).catDetected(true);
+        verify(securityRepository).setAlarmStatus(AlarmStatus.ALARM);
+    }
+}